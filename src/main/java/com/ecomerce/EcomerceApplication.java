@@ -2,6 +2,7 @@ package com.ecomerce;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springdoc.core.configuration.SpringDocHateoasConfiguration; // Importa la clase a excluir
 
 /**
@@ -15,8 +16,11 @@ import org.springdoc.core.configuration.SpringDocHateoasConfiguration; // Import
  *
  * Se excluye SpringDocHateoasConfiguration para resolver un conflicto de versiones
  * con Spring Boot 3.5.3 y evitar el error NoSuchMethodError.
+ *
+ * Se excluye R2dbcTransactionManagerAutoConfiguration: R2DBC solo se usa para las lecturas del catálogo reactivo,
+ * y un segundo gestor de transacciones haría ambiguo @Transactional en los servicios JPA.
  */
-@SpringBootApplication(exclude = { SpringDocHateoasConfiguration.class }) // ¡Línea modificada!
+@SpringBootApplication(exclude = { SpringDocHateoasConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class })
 public class EcomerceApplication {
 
     /**
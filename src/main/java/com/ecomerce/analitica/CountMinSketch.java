@@ -0,0 +1,88 @@
+package com.ecomerce.analitica;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch: frecuencias aproximadas de un número ilimitado de claves en memoria fija
+ * (profundidad × anchura contadores). Cada fila reparte las claves con su propio hash; la estimación
+ * de una clave es el mínimo de sus contadores, que solo puede pasarse por arriba (colisiones), nunca quedarse
+ * corto mientras las cuentas reales no sean negativas. Con anchura w el error es del orden de total/w.
+ *
+ * Las actualizaciones son atómicas por contador y no usan cerrojos.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEMILLAS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L};
+
+    private final int profundidad;
+    private final int mascara;
+    private final AtomicLongArray contadores;
+
+    /**
+     * @param profundidad Número de filas (hashes independientes), entre 1 y 8.
+     * @param anchura Contadores por fila; se redondea a potencia de dos.
+     */
+    public CountMinSketch(int profundidad, int anchura) {
+        if (profundidad < 1 || profundidad > SEMILLAS.length || anchura < 1) {
+            throw new IllegalArgumentException("Configuración de count-min sketch no válida");
+        }
+        this.profundidad = profundidad;
+        int potencia = Integer.highestOneBit(Math.max(2, anchura - 1) << 1);
+        this.mascara = potencia - 1;
+        this.contadores = new AtomicLongArray(profundidad * potencia);
+    }
+
+    /**
+     * Suma (o resta, con delta negativo) a la frecuencia de una clave.
+     */
+    public void sumar(long clave, long delta) {
+        for (int fila = 0; fila < profundidad; fila++) {
+            contadores.addAndGet(posicion(fila, clave), delta);
+        }
+    }
+
+    /**
+     * @return La frecuencia estimada de la clave (mínimo de sus contadores).
+     */
+    public long estimar(long clave) {
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < profundidad; fila++) {
+            minimo = Math.min(minimo, contadores.get(posicion(fila, clave)));
+        }
+        return minimo;
+    }
+
+    /**
+     * Contador de una clave en una fila. Permite sumar varios sketches con la misma forma (por ejemplo,
+     * las cubetas de una ventana) fila a fila antes de tomar el mínimo.
+     */
+    long contador(int fila, long clave) {
+        return contadores.get(posicion(fila, clave));
+    }
+
+    int profundidad() {
+        return profundidad;
+    }
+
+    /** Pone todos los contadores a cero. */
+    public void limpiar() {
+        for (int i = 0; i < contadores.length(); i++) {
+            contadores.set(i, 0);
+        }
+    }
+
+    /** @return Memoria de los contadores, en bytes. */
+    public long bytes() {
+        return 8L * contadores.length();
+    }
+
+    private int posicion(int fila, long clave) {
+        long h = (clave ^ SEMILLAS[fila]) * 0xFF51AFD7ED558CCDL; // Mezcla de murmur3 (fmix64)
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return fila * (mascara + 1) + (int) (h & mascara);
+    }
+}
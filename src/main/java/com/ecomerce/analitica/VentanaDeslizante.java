@@ -0,0 +1,163 @@
+package com.ecomerce.analitica;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Frecuencias aproximadas y productos más frecuentes ("heavy hitters") de una ventana deslizante de tiempo,
+ * en memoria fija.
+ *
+ * - La ventana se divide en cubetas de tiempo, cada una con su CountMinSketch (anillo circular). Al pasar a una
+ *   cubeta nueva se reutiliza la más antigua, vaciándola: la ventana avanza sin recorrer ningún historial.
+ *   La frecuencia de una clave en la ventana es el mínimo, fila a fila, de la suma de sus contadores en las cubetas.
+ * - Candidatos: un número fijo de claves con la última frecuencia estimada de cada una. Una clave entra si
+ *   su frecuencia supera la del candidato más débil, que sale. La lista de los más frecuentes se obtiene
+ *   volviendo a estimar solo los candidatos, sin recorrer todas las claves.
+ *
+ * Las cuentas son aproximadas: una suma que coincide con el cambio de cubeta puede perderse al vaciarla.
+ */
+public class VentanaDeslizante {
+
+    /**
+     * Una clave y su frecuencia estimada en la ventana.
+     */
+    public record Frecuencia(long clave, long frecuencia) {
+    }
+
+    private final CountMinSketch[] cubetas;
+    private final long duracionCubetaMillis;
+    private final int capacidadCandidatos;
+    private final LongSupplier relojMillis;
+    private final Map<Long, Long> candidatos; // Clave → última frecuencia estimada (protegido por 'this')
+    private volatile long epocaActual;
+
+    /**
+     * @param numCubetas Cubetas en las que se divide la ventana.
+     * @param duracionCubeta Duración de cada cubeta (la ventana dura numCubetas × duracionCubeta).
+     * @param profundidad Filas del count-min sketch de cada cubeta.
+     * @param anchura Contadores por fila.
+     * @param capacidadCandidatos Claves seguidas como posibles más frecuentes.
+     * @param relojMillis Reloj en milisegundos.
+     */
+    public VentanaDeslizante(int numCubetas, Duration duracionCubeta, int profundidad, int anchura,
+                             int capacidadCandidatos, LongSupplier relojMillis) {
+        this.cubetas = new CountMinSketch[numCubetas];
+        for (int i = 0; i < numCubetas; i++) {
+            cubetas[i] = new CountMinSketch(profundidad, anchura);
+        }
+        this.duracionCubetaMillis = duracionCubeta.toMillis();
+        this.capacidadCandidatos = capacidadCandidatos;
+        this.relojMillis = relojMillis;
+        this.candidatos = new HashMap<>(capacidadCandidatos * 2);
+        this.epocaActual = relojMillis.getAsLong() / duracionCubetaMillis;
+    }
+
+    /**
+     * Suma unidades a la frecuencia de una clave en la cubeta actual (negativas para restar).
+     * @param clave La clave (ID del producto).
+     * @param unidades Unidades a sumar.
+     */
+    public void registrar(long clave, long unidades) {
+        int indice = avanzar();
+        cubetas[indice].sumar(clave, unidades);
+        if (unidades > 0) {
+            proponer(clave, estimar(clave));
+        }
+    }
+
+    /**
+     * @return La frecuencia estimada de una clave en la ventana (nunca negativa).
+     */
+    public long estimar(long clave) {
+        avanzar();
+        long minimo = Long.MAX_VALUE;
+        int profundidad = cubetas[0].profundidad();
+        for (int fila = 0; fila < profundidad; fila++) {
+            long suma = 0;
+            for (CountMinSketch cubeta : cubetas) {
+                suma += cubeta.contador(fila, clave);
+            }
+            minimo = Math.min(minimo, suma);
+        }
+        return Math.max(0, minimo);
+    }
+
+    /**
+     * Las claves más frecuentes de la ventana, de más a menos.
+     * @param n Número máximo de claves.
+     * @return Las claves con frecuencia positiva.
+     */
+    public List<Frecuencia> masFrecuentes(int n) {
+        List<Long> claves;
+        synchronized (this) {
+            claves = new ArrayList<>(candidatos.keySet());
+        }
+        List<Frecuencia> frecuencias = new ArrayList<>(claves.size());
+        for (Long clave : claves) {
+            long frecuencia = estimar(clave);
+            frecuencias.add(new Frecuencia(clave, frecuencia));
+        }
+        synchronized (this) { // De paso se refrescan las frecuencias guardadas de los candidatos
+            frecuencias.forEach(f -> candidatos.computeIfPresent(f.clave(), (c, anterior) -> f.frecuencia()));
+        }
+        return frecuencias.stream()
+                .filter(f -> f.frecuencia() > 0)
+                .sorted(Comparator.comparingLong(Frecuencia::frecuencia).reversed().thenComparingLong(Frecuencia::clave))
+                .limit(n)
+                .toList();
+    }
+
+    /** @return Duración total de la ventana. */
+    public Duration duracion() {
+        return Duration.ofMillis(duracionCubetaMillis * cubetas.length);
+    }
+
+    /** @return Memoria de los contadores de todas las cubetas, en bytes. */
+    public long bytes() {
+        return cubetas.length * cubetas[0].bytes();
+    }
+
+    private synchronized void proponer(long clave, long frecuencia) {
+        if (candidatos.containsKey(clave) || candidatos.size() < capacidadCandidatos) {
+            candidatos.put(clave, frecuencia);
+            return;
+        }
+        Map.Entry<Long, Long> masDebil = null;
+        for (Map.Entry<Long, Long> candidato : candidatos.entrySet()) {
+            if (masDebil == null || candidato.getValue() < masDebil.getValue()) {
+                masDebil = candidato;
+            }
+        }
+        if (masDebil != null && frecuencia > masDebil.getValue()) {
+            candidatos.remove(masDebil.getKey());
+            candidatos.put(clave, frecuencia);
+        }
+    }
+
+    /**
+     * Pasa a la cubeta del instante actual si ha cambiado de época, vaciando las cubetas que se reutilizan,
+     * y devuelve su índice.
+     */
+    private int avanzar() {
+        long epoca = relojMillis.getAsLong() / duracionCubetaMillis;
+        if (epoca != epocaActual) {
+            synchronized (this) {
+                if (epoca > epocaActual) {
+                    long desde = Math.max(epocaActual + 1, epoca - cubetas.length + 1);
+                    for (long e = desde; e <= epoca; e++) {
+                        cubetas[(int) (e % cubetas.length)].limpiar();
+                    }
+                    epocaActual = epoca;
+                    // Las frecuencias guardadas incluían lo que acaba de salir de la ventana: se vuelven a estimar
+                    candidatos.replaceAll((clave, anterior) -> estimar(clave));
+                }
+            }
+        }
+        return (int) (epocaActual % cubetas.length);
+    }
+}
@@ -1,7 +1,7 @@
 package com.ecomerce.assemblers;
 
 import com.ecomerce.controller.CarritoController;
-import com.ecomerce.model.Carrito;
+import com.ecomerce.dto.CarritoVista;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
@@ -10,19 +10,21 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 /**
- * Un Assembler para la entidad Carrito.
- * Transforma un objeto Carrito en un EntityModel<Carrito> añadiéndole enlaces HATEOAS.
+ * Un Assembler para la vista de lectura del Carrito.
+ * Transforma un objeto CarritoVista en un EntityModel<CarritoVista> añadiéndole enlaces HATEOAS.
+ * Se trabaja sobre la vista (y no sobre la entidad) para no tocar asociaciones perezosas al serializar.
  */
 @Component
-public class CarritoModelAssembler implements RepresentationModelAssembler<Carrito, EntityModel<Carrito>> {
+public class CarritoModelAssembler implements RepresentationModelAssembler<CarritoVista, EntityModel<CarritoVista>> {
 
     @SuppressWarnings("null")
     @Override
-    public EntityModel<Carrito> toModel(Carrito carrito) {
+    public EntityModel<CarritoVista> toModel(CarritoVista carrito) {
         return EntityModel.of(carrito,
-                linkTo(methodOn(CarritoController.class).obtenerOcrearCarrito(carrito.getUsuario().getId())).withSelfRel(), // Enlace a sí mismo (GET por usuarioId)
-                linkTo(methodOn(CarritoController.class).agregarProductoAlCarrito(carrito.getUsuario().getId(), null)).withRel("agregarItem"),
-                linkTo(methodOn(CarritoController.class).vaciarCarrito(carrito.getUsuario().getId())).withRel("vaciarCarrito")
+                linkTo(methodOn(CarritoController.class).obtenerOcrearCarrito(carrito.usuarioId())).withSelfRel(), // Enlace a sí mismo (GET por usuarioId)
+                linkTo(methodOn(CarritoController.class).obtenerResumenCarrito(carrito.usuarioId())).withRel("resumen"),
+                linkTo(methodOn(CarritoController.class).agregarProductoAlCarrito(carrito.usuarioId(), null, null)).withRel("agregarItem"),
+                linkTo(methodOn(CarritoController.class).vaciarCarrito(carrito.usuarioId(), null)).withRel("vaciarCarrito")
         );
     }
 }
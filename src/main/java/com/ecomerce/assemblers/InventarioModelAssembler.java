@@ -20,8 +20,9 @@ public class InventarioModelAssembler implements RepresentationModelAssembler<In
     @Override
     public EntityModel<Inventario> toModel(Inventario inventario) {
         return EntityModel.of(inventario,
-                linkTo(methodOn(InventarioController.class).obtener(inventario.getId())).withSelfRel(),
-                linkTo(methodOn(InventarioController.class).listar()).withRel("inventario"),
+                // obtener() devuelve un CompletableFuture, que methodOn no puede interceptar: se enlaza por ruta
+                linkTo(InventarioController.class).slash(inventario.getId()).withSelfRel(),
+                linkTo(InventarioController.class).withRel("inventario"),
                 linkTo(methodOn(InventarioController.class).eliminar(inventario.getId())).withRel("eliminar"),
                 linkTo(methodOn(InventarioController.class).actualizarStock(inventario.getId(), 0)).withRel("actualizarStock")
         );
@@ -0,0 +1,28 @@
+package com.ecomerce.assemblers;
+
+import com.ecomerce.controller.CarritoController;
+import com.ecomerce.controller.PedidoController;
+import com.ecomerce.model.Pedido;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Un Assembler para la entidad Pedido.
+ * Transforma un objeto Pedido en un EntityModel<Pedido> añadiéndole enlaces HATEOAS.
+ */
+@Component
+public class PedidoModelAssembler implements RepresentationModelAssembler<Pedido, EntityModel<Pedido>> {
+
+    @SuppressWarnings("null")
+    @Override
+    public EntityModel<Pedido> toModel(Pedido pedido) {
+        return EntityModel.of(pedido,
+                linkTo(methodOn(PedidoController.class).obtener(pedido.getId())).withSelfRel(), // Enlace a sí mismo (GET por ID)
+                linkTo(methodOn(CarritoController.class).obtenerOcrearCarrito(pedido.getUsuarioId())).withRel("carrito")
+        );
+    }
+}
@@ -25,7 +25,8 @@ public class UsuarioModelAssembler implements RepresentationModelAssembler<Usuar
     @Override
     public EntityModel<Usuario> toModel(Usuario usuario) {
         return EntityModel.of(usuario,
-                linkTo(methodOn(UsuarioController.class).obtener(usuario.getId())).withSelfRel(), // Enlace a sí mismo (GET por ID)
+                // obtener() devuelve un CompletableFuture, que methodOn no puede interceptar: se enlaza por ruta
+                linkTo(UsuarioController.class).slash(usuario.getId()).withSelfRel(), // Enlace a sí mismo (GET por ID)
                 linkTo(methodOn(UsuarioController.class).listar()).withRel("usuarios"), // Enlace a la colección completa
                 linkTo(methodOn(UsuarioController.class).eliminar(usuario.getId())).withRel("eliminar") // Enlace para eliminar
                 // Puedes añadir más enlaces aquí, como para actualizar (PUT)
@@ -0,0 +1,65 @@
+package com.ecomerce.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Convierte texto en español en los términos del índice de búsqueda:
+ * minúsculas, sin tildes ni diéresis ("Jabón" y "jabon" son el mismo término), sin palabras vacías
+ * ("de", "la", "para"...) y con el plural reducido al singular ("botellas" → "botella", "flores" → "flor",
+ * "luces" → "luz"). Se aplica igual al texto de los productos y a las consultas.
+ */
+public final class AnalizadorTexto {
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "e", "el", "en", "es", "la", "las", "lo", "los", "o", "para", "por",
+            "que", "se", "sin", "su", "sus", "u", "un", "una", "unas", "unos", "y");
+
+    private AnalizadorTexto() {
+    }
+
+    /**
+     * Divide el texto en términos normalizados, en el orden en que aparecen (con repeticiones).
+     * @param texto El texto (puede ser null).
+     * @return Los términos.
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isBlank()) {
+            return terminos;
+        }
+        String plano = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String palabra : SEPARADORES.split(plano)) {
+            if (!palabra.isEmpty() && !PALABRAS_VACIAS.contains(palabra)) {
+                terminos.add(singular(palabra));
+            }
+        }
+        return terminos;
+    }
+
+    /**
+     * Reduce los plurales regulares al singular. No pretende ser un lematizador completo: basta con que
+     * singular y plural den el mismo término.
+     */
+    static String singular(String palabra) {
+        int n = palabra.length();
+        if (n <= 3 || palabra.charAt(n - 1) != 's' || Character.isDigit(palabra.charAt(n - 2))) {
+            return palabra;
+        }
+        boolean vocalAntes = n > 4 && "aeiou".indexOf(palabra.charAt(n - 4)) >= 0; // "flo-res", no "mue-bles"
+        if (vocalAntes && palabra.endsWith("ces")) {
+            return palabra.substring(0, n - 3) + "z"; // luces → luz (pero dulces → dulce)
+        }
+        if (vocalAntes && palabra.endsWith("es") && "lnrdj".indexOf(palabra.charAt(n - 3)) >= 0) {
+            return palabra.substring(0, n - 2); // flores → flor, botones → boton (pero madres → madre)
+        }
+        return palabra.substring(0, n - 1); // botellas → botella
+    }
+}
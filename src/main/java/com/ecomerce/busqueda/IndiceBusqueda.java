@@ -0,0 +1,455 @@
+package com.ecomerce.busqueda;
+
+import com.ecomerce.model.Inventario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Índice invertido en memoria sobre el nombre y la descripción de los productos.
+ *
+ * - Cada término (ver AnalizadorTexto) apunta a su lista de productos ("postings"): IDs ordenados y el peso
+ *   del término en cada producto. El peso sigue la saturación de BM25 (repetir un término suma cada vez menos,
+ *   y pesa menos en textos largos) y el nombre cuenta el triple que la descripción.
+ * - Búsqueda: todos los términos de la consulta deben aparecer (AND). Cada término de la consulta también
+ *   encaja con los términos del índice que empiezan por él ("bot" → "botella", "boton"), con la mitad de peso
+ *   que una coincidencia exacta. La puntuación suma peso × IDF y se devuelven los mejores con un montículo.
+ *   Las listas van ordenadas por ID, así que las intersecciones son recorridos lineales sin tablas hash.
+ * - Escrituras (actualizar, eliminar) serializadas; las lecturas no usan cerrojos: cada lista de un término se
+ *   sustituye entera por una copia (copy-on-write). Si solo cambian el precio o el stock, no se tocan las listas.
+ */
+public class IndiceBusqueda {
+
+    /**
+     * Un producto encontrado y su puntuación de relevancia.
+     * @param producto El producto (tal como estaba al indexarlo).
+     * @param puntuacion Relevancia: mayor es mejor.
+     */
+    public record Resultado(Inventario producto, double puntuacion) {
+    }
+
+    private static final double PESO_NOMBRE = 3.0;
+    private static final double PESO_DESCRIPCION = 1.0;
+    private static final double PESO_PREFIJO = 0.5;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_PREFIJO = 2; // Con una sola letra, el prefijo abarcaría medio índice
+    private static final int MAX_EXPANSIONES = 64;
+    private static final int DOCUMENTOS_POR_TAREA = 20_000;
+
+    private final ConcurrentSkipListMap<String, Postings> terminos;
+    private final ConcurrentHashMap<Long, Documento> documentos;
+    private final double longitudMedia;
+    private final Object escritura = new Object();
+
+    private IndiceBusqueda(ConcurrentSkipListMap<String, Postings> terminos, ConcurrentHashMap<Long, Documento> documentos,
+                           double longitudMedia) {
+        this.terminos = terminos;
+        this.documentos = documentos;
+        this.longitudMedia = longitudMedia;
+    }
+
+    /**
+     * Construye el índice de un catálogo completo en paralelo (fork/join): cada tarea indexa un tramo de IDs
+     * y los tramos se unen después término a término, también en paralelo.
+     * @param productos El catálogo.
+     * @param pool El pool en el que se construye.
+     * @return El índice.
+     */
+    public static IndiceBusqueda construir(Collection<Inventario> productos, ForkJoinPool pool) {
+        Inventario[] ordenados = productos.toArray(Inventario[]::new);
+        Arrays.parallelSort(ordenados, Comparator.comparing(Inventario::getId));
+        double longitudMedia = Math.max(1.0, Arrays.stream(ordenados).parallel()
+                .mapToInt(p -> longitud(p)).average().orElse(1.0));
+
+        ConcurrentHashMap<Long, Documento> documentos = new ConcurrentHashMap<>(Math.max(16, ordenados.length * 4 / 3));
+        List<Map<String, PostingsEnConstruccion>> tramos = pool.invoke(new IndexarTramo(ordenados, 0, ordenados.length,
+                longitudMedia, documentos));
+
+        ConcurrentSkipListMap<String, Postings> terminos = pool.submit(() -> tramos.stream()
+                .flatMap(tramo -> tramo.keySet().stream())
+                .distinct()
+                .parallel()
+                .collect(() -> new ConcurrentSkipListMap<String, Postings>(),
+                        (mapa, termino) -> mapa.put(termino, unir(termino, tramos)),
+                        ConcurrentSkipListMap::putAll)).join();
+        return new IndiceBusqueda(terminos, documentos, longitudMedia);
+    }
+
+    /**
+     * Busca productos por texto libre.
+     * @param consulta El texto buscado.
+     * @param limite Número máximo de resultados.
+     * @return Los productos que contienen todos los términos, de más a menos relevante.
+     */
+    public List<Resultado> buscar(String consulta, int limite) {
+        List<String> terminosConsulta = AnalizadorTexto.tokenizar(consulta).stream().distinct().toList();
+        if (terminosConsulta.isEmpty() || limite < 1) {
+            return List.of();
+        }
+        int total = documentos.size();
+        List<Candidatos> porTermino = new ArrayList<>();
+        for (String termino : terminosConsulta) {
+            Candidatos candidatos = candidatos(termino, total);
+            if (candidatos.ids.length == 0) {
+                return List.of(); // AND: un término sin coincidencias deja la búsqueda vacía
+            }
+            porTermino.add(candidatos);
+        }
+        porTermino.sort(Comparator.comparingInt(c -> c.ids.length)); // Se empieza por el término más selectivo
+        Candidatos resultado = porTermino.get(0);
+        for (int i = 1; i < porTermino.size() && resultado.ids.length > 0; i++) {
+            resultado = interseccion(resultado, porTermino.get(i));
+        }
+        return mejores(resultado, limite);
+    }
+
+    /**
+     * Añade o actualiza un producto.
+     * @param producto El producto.
+     */
+    public void actualizar(Inventario producto) {
+        synchronized (escritura) {
+            Documento nuevo = analizar(producto, longitudMedia);
+            Documento anterior = documentos.put(producto.getId(), nuevo);
+            if (anterior != null && Arrays.equals(anterior.terminos(), nuevo.terminos())
+                    && Arrays.equals(anterior.pesos(), nuevo.pesos())) {
+                return; // Solo ha cambiado el precio o el stock: las listas siguen valiendo
+            }
+            if (anterior != null) {
+                for (String termino : anterior.terminos()) {
+                    terminos.computeIfPresent(termino, (t, postings) -> postings.sin(producto.getId()));
+                }
+            }
+            String[] terminosNuevos = nuevo.terminos();
+            for (int i = 0; i < terminosNuevos.length; i++) {
+                float peso = nuevo.pesos()[i];
+                terminos.merge(terminosNuevos[i], Postings.de(producto.getId(), peso),
+                        (postings, uno) -> postings.con(producto.getId(), peso));
+            }
+        }
+    }
+
+    /**
+     * Quita un producto del índice.
+     * @param id El ID del producto.
+     */
+    public void eliminar(Long id) {
+        synchronized (escritura) {
+            Documento anterior = documentos.remove(id);
+            if (anterior != null) {
+                for (String termino : anterior.terminos()) {
+                    terminos.computeIfPresent(termino, (t, postings) -> postings.sin(id));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Número de productos indexados.
+     */
+    public int numDocumentos() {
+        return documentos.size();
+    }
+
+    /**
+     * @return Número de términos distintos.
+     */
+    public int numTerminos() {
+        return terminos.size();
+    }
+
+    // --- Búsqueda ---
+
+    /**
+     * Productos que encajan con un término de la consulta (exacto o como prefijo), con su puntuación parcial.
+     * El IDF se calcula sobre todos los productos que encajan con el término de la consulta: así una expansión
+     * rara no puntúa más que la coincidencia exacta.
+     */
+    private Candidatos candidatos(String termino, int total) {
+        List<Candidatos> partes = new ArrayList<>();
+        Postings exacto = terminos.get(termino);
+        if (exacto != null) {
+            partes.add(exacto.puntuar(1.0));
+        }
+        if (termino.length() >= MIN_PREFIJO) {
+            NavigableMap<String, Postings> expansiones = terminos.subMap(termino, false, termino + Character.MAX_VALUE, false);
+            int usadas = 0;
+            for (Postings postings : expansiones.values()) {
+                if (usadas++ == MAX_EXPANSIONES) {
+                    break;
+                }
+                partes.add(postings.puntuar(PESO_PREFIJO));
+            }
+        }
+        if (partes.isEmpty()) {
+            return Candidatos.VACIO;
+        }
+        Candidatos union = partes.get(0);
+        for (int i = 1; i < partes.size(); i++) {
+            union = union(union, partes.get(i));
+        }
+        double idf = idf(union.ids.length, total);
+        for (int i = 0; i < union.puntos.length; i++) {
+            union.puntos[i] *= idf;
+        }
+        return union;
+    }
+
+    private static double idf(int frecuencia, int total) {
+        return Math.log(1 + (total - frecuencia + 0.5) / (frecuencia + 0.5));
+    }
+
+    /** Unión de dos listas ordenadas; si un producto está en ambas, se queda con la mejor puntuación. */
+    private static Candidatos union(Candidatos a, Candidatos b) {
+        long[] ids = new long[a.ids.length + b.ids.length];
+        double[] puntos = new double[ids.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.ids.length || j < b.ids.length) {
+            if (j == b.ids.length || (i < a.ids.length && a.ids[i] < b.ids[j])) {
+                ids[n] = a.ids[i];
+                puntos[n++] = a.puntos[i++];
+            } else if (i == a.ids.length || b.ids[j] < a.ids[i]) {
+                ids[n] = b.ids[j];
+                puntos[n++] = b.puntos[j++];
+            } else {
+                ids[n] = a.ids[i];
+                puntos[n++] = Math.max(a.puntos[i++], b.puntos[j++]);
+            }
+        }
+        return new Candidatos(Arrays.copyOf(ids, n), Arrays.copyOf(puntos, n));
+    }
+
+    /** Intersección de dos listas ordenadas, sumando las puntuaciones. */
+    private static Candidatos interseccion(Candidatos a, Candidatos b) {
+        int maximo = Math.min(a.ids.length, b.ids.length);
+        long[] ids = new long[maximo];
+        double[] puntos = new double[maximo];
+        int i = 0, j = 0, n = 0;
+        while (i < a.ids.length && j < b.ids.length) {
+            if (a.ids[i] < b.ids[j]) {
+                i++;
+            } else if (b.ids[j] < a.ids[i]) {
+                j++;
+            } else {
+                ids[n] = a.ids[i];
+                puntos[n++] = a.puntos[i++] + b.puntos[j++];
+            }
+        }
+        return new Candidatos(Arrays.copyOf(ids, n), Arrays.copyOf(puntos, n));
+    }
+
+    private List<Resultado> mejores(Candidatos candidatos, int limite) {
+        // Montículo de mínimos con los 'limite' mejores: O(n log k) en lugar de ordenar todos los candidatos
+        PriorityQueue<Integer> monticulo = new PriorityQueue<>(limite + 1,
+                Comparator.<Integer>comparingDouble(i -> candidatos.puntos[i]).thenComparing(i -> -candidatos.ids[i]));
+        for (int i = 0; i < candidatos.ids.length; i++) {
+            if (monticulo.size() < limite) {
+                monticulo.add(i);
+            } else if (candidatos.puntos[i] > candidatos.puntos[monticulo.peek()]) {
+                monticulo.poll();
+                monticulo.add(i);
+            }
+        }
+        List<Resultado> resultados = new ArrayList<>(monticulo.size());
+        while (!monticulo.isEmpty()) {
+            int i = monticulo.poll();
+            Documento documento = documentos.get(candidatos.ids[i]);
+            if (documento != null) { // Puede haberse eliminado mientras se buscaba
+                resultados.add(new Resultado(documento.producto(), candidatos.puntos[i]));
+            }
+        }
+        Collections.reverse(resultados);
+        return resultados;
+    }
+
+    // --- Indexación ---
+
+    private static int longitud(Inventario producto) {
+        return AnalizadorTexto.tokenizar(producto.getNombreProducto()).size()
+                + AnalizadorTexto.tokenizar(producto.getDescripcion()).size();
+    }
+
+    /**
+     * Calcula los términos de un producto y su peso: suma de las apariciones en cada campo (nombre × 3)
+     * con la saturación y la normalización por longitud de BM25.
+     */
+    private static Documento analizar(Inventario producto, double longitudMedia) {
+        List<String> nombre = AnalizadorTexto.tokenizar(producto.getNombreProducto());
+        List<String> descripcion = AnalizadorTexto.tokenizar(producto.getDescripcion());
+        Map<String, Double> frecuencias = new HashMap<>();
+        nombre.forEach(t -> frecuencias.merge(t, PESO_NOMBRE, Double::sum));
+        descripcion.forEach(t -> frecuencias.merge(t, PESO_DESCRIPCION, Double::sum));
+        double normalizacion = K1 * (1 - B + B * (nombre.size() + descripcion.size()) / longitudMedia);
+        String[] terminos = frecuencias.keySet().stream().sorted().toArray(String[]::new);
+        float[] pesos = new float[terminos.length];
+        for (int i = 0; i < terminos.length; i++) {
+            double tf = frecuencias.get(terminos[i]);
+            pesos[i] = (float) (tf * (K1 + 1) / (tf + normalizacion));
+        }
+        return new Documento(producto, terminos, pesos);
+    }
+
+    private static Postings unir(String termino, List<Map<String, PostingsEnConstruccion>> tramos) {
+        int total = 0;
+        for (Map<String, PostingsEnConstruccion> tramo : tramos) {
+            PostingsEnConstruccion parte = tramo.get(termino);
+            total += parte == null ? 0 : parte.n;
+        }
+        long[] ids = new long[total];
+        float[] pesos = new float[total];
+        int n = 0;
+        for (Map<String, PostingsEnConstruccion> tramo : tramos) { // Los tramos van en orden de ID: basta concatenar
+            PostingsEnConstruccion parte = tramo.get(termino);
+            if (parte != null) {
+                System.arraycopy(parte.ids, 0, ids, n, parte.n);
+                System.arraycopy(parte.pesos, 0, pesos, n, parte.n);
+                n += parte.n;
+            }
+        }
+        return new Postings(ids, pesos);
+    }
+
+    /**
+     * Indexa un tramo del catálogo (ordenado por ID); si es grande, lo divide en dos mitades en paralelo.
+     * Devuelve los índices parciales de cada tramo, en orden.
+     */
+    private static final class IndexarTramo extends RecursiveTask<List<Map<String, PostingsEnConstruccion>>> {
+
+        private final Inventario[] productos;
+        private final int desde;
+        private final int hasta;
+        private final double longitudMedia;
+        private final ConcurrentHashMap<Long, Documento> documentos;
+
+        IndexarTramo(Inventario[] productos, int desde, int hasta, double longitudMedia,
+                     ConcurrentHashMap<Long, Documento> documentos) {
+            this.productos = productos;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.longitudMedia = longitudMedia;
+            this.documentos = documentos;
+        }
+
+        @Override
+        protected List<Map<String, PostingsEnConstruccion>> compute() {
+            if (hasta - desde > DOCUMENTOS_POR_TAREA) {
+                int medio = (desde + hasta) >>> 1;
+                IndexarTramo izquierda = new IndexarTramo(productos, desde, medio, longitudMedia, documentos);
+                izquierda.fork();
+                List<Map<String, PostingsEnConstruccion>> derecha =
+                        new IndexarTramo(productos, medio, hasta, longitudMedia, documentos).compute();
+                List<Map<String, PostingsEnConstruccion>> tramos = new ArrayList<>(izquierda.join());
+                tramos.addAll(derecha);
+                return tramos;
+            }
+            Map<String, PostingsEnConstruccion> tramo = new HashMap<>();
+            for (int d = desde; d < hasta; d++) {
+                Documento documento = analizar(productos[d], longitudMedia);
+                documentos.put(productos[d].getId(), documento);
+                String[] terminos = documento.terminos();
+                for (int i = 0; i < terminos.length; i++) {
+                    PostingsEnConstruccion postings = tramo.computeIfAbsent(terminos[i], PostingsEnConstruccion::new);
+                    postings.agregar(productos[d].getId(), documento.pesos()[i]);
+                    terminos[i] = postings.termino; // Una sola copia de cada término por tramo, no una por producto
+                }
+            }
+            return List.of(tramo);
+        }
+    }
+
+    /** Lista de un término mientras se construye el índice (crece por duplicación). */
+    private static final class PostingsEnConstruccion {
+        private final String termino;
+        private long[] ids = new long[4];
+        private float[] pesos = new float[4];
+        private int n;
+
+        PostingsEnConstruccion(String termino) {
+            this.termino = termino;
+        }
+
+        void agregar(long id, float peso) {
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                pesos = Arrays.copyOf(pesos, n * 2);
+            }
+            ids[n] = id;
+            pesos[n++] = peso;
+        }
+    }
+
+    /** Lista inmutable de un término: IDs ordenados y peso del término en cada producto. */
+    private record Postings(long[] ids, float[] pesos) {
+
+        static Postings de(long id, float peso) {
+            return new Postings(new long[]{id}, new float[]{peso});
+        }
+
+        Postings con(long id, float peso) {
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos >= 0) {
+                float[] nuevosPesos = pesos.clone();
+                nuevosPesos[pos] = peso;
+                return new Postings(ids, nuevosPesos);
+            }
+            int insercion = -pos - 1;
+            long[] nuevosIds = new long[ids.length + 1];
+            float[] nuevosPesos = new float[ids.length + 1];
+            System.arraycopy(ids, 0, nuevosIds, 0, insercion);
+            System.arraycopy(pesos, 0, nuevosPesos, 0, insercion);
+            nuevosIds[insercion] = id;
+            nuevosPesos[insercion] = peso;
+            System.arraycopy(ids, insercion, nuevosIds, insercion + 1, ids.length - insercion);
+            System.arraycopy(pesos, insercion, nuevosPesos, insercion + 1, ids.length - insercion);
+            return new Postings(nuevosIds, nuevosPesos);
+        }
+
+        /** Devuelve la lista sin el producto, o null (el término desaparece del índice) si era el último. */
+        Postings sin(long id) {
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos < 0) {
+                return this;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            long[] nuevosIds = new long[ids.length - 1];
+            float[] nuevosPesos = new float[ids.length - 1];
+            System.arraycopy(ids, 0, nuevosIds, 0, pos);
+            System.arraycopy(pesos, 0, nuevosPesos, 0, pos);
+            System.arraycopy(ids, pos + 1, nuevosIds, pos, ids.length - pos - 1);
+            System.arraycopy(pesos, pos + 1, nuevosPesos, pos, ids.length - pos - 1);
+            return new Postings(nuevosIds, nuevosPesos);
+        }
+
+        Candidatos puntuar(double factor) {
+            double[] puntos = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                puntos[i] = pesos[i] * factor;
+            }
+            return new Candidatos(ids, puntos);
+        }
+    }
+
+    /** Productos candidatos de una búsqueda (IDs ordenados) y su puntuación acumulada. */
+    private record Candidatos(long[] ids, double[] puntos) {
+        static final Candidatos VACIO = new Candidatos(new long[0], new double[0]);
+    }
+
+    /** Un producto indexado y sus términos (ordenados) con su peso, para poder quitarlos al actualizarlo. */
+    private record Documento(Inventario producto, String[] terminos, float[] pesos) {
+    }
+}
@@ -0,0 +1,248 @@
+package com.ecomerce.catalogo;
+
+import com.ecomerce.model.Inventario;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * Foto binaria y compacta del catálogo en un archivo local, para arrancar sin leer todo el catálogo de la base de datos.
+ *
+ * Formato (big-endian):
+ * - Cabecera: magia "ECFC", versión, marca de cambios (ID del bus inventario_cambios al tomar la foto),
+ *   instante de la foto (epoch ms), número de productos y número de bloques.
+ * - Tabla de bloques: posición, longitud en bytes, número de productos y CRC32C de cada bloque.
+ * - Bloques de productos consecutivos. Cada producto: un byte con los campos nulos, ID, precio, stock, unidades
+ *   vendidas, unidades recibidas, nombre y descripción (longitud + UTF-8).
+ *
+ * La lectura proyecta el archivo en memoria y decodifica los bloques en paralelo, cada uno sobre su propia vista
+ * del mapeo y comprobando su CRC. La escritura va a un archivo temporal que después sustituye al anterior de forma
+ * atómica: un lector nunca ve una foto a medio escribir.
+ */
+public final class ArchivoCatalogo {
+
+    private static final int MAGIA = 0x45434643; // "ECFC"
+    private static final int VERSION = 1;
+    private static final int CABECERA = 4 + 4 + 8 + 8 + 4 + 4;
+    private static final int ENTRADA_BLOQUE = 8 + 4 + 4 + 4;
+
+    // Bits del byte de campos nulos
+    private static final int SIN_PRECIO = 1;
+    private static final int SIN_STOCK = 2;
+    private static final int SIN_VENDIDAS = 4;
+    private static final int SIN_RECIBIDAS = 8;
+    private static final int SIN_NOMBRE = 16;
+    private static final int SIN_DESCRIPCION = 32;
+
+    /**
+     * Contenido de una foto.
+     * @param productos Productos, en el orden en que se escribieron.
+     * @param marcaCambios ID del último cambio del bus cuando se tomó la foto.
+     * @param tomadaEnMillis Instante (epoch ms) en que se tomó la foto.
+     */
+    public record Contenido(List<Inventario> productos, long marcaCambios, long tomadaEnMillis) {
+    }
+
+    private ArchivoCatalogo() {
+    }
+
+    /**
+     * Escribe la foto y sustituye atómicamente la anterior (si existe).
+     * @param archivo Ruta del archivo.
+     * @param contenido Productos, marca de cambios e instante de la foto.
+     * @param productosPorBloque Productos por bloque (unidad de lectura en paralelo).
+     * @return Tamaño del archivo en bytes.
+     * @throws IOException Si no se puede escribir.
+     */
+    public static long escribir(Path archivo, Contenido contenido, int productosPorBloque) throws IOException {
+        List<Inventario> productos = contenido.productos();
+        int bloques = (productos.size() + productosPorBloque - 1) / productosPorBloque;
+        Path directorio = archivo.toAbsolutePath().getParent();
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, archivo.getFileName().toString(), ".tmp");
+        try {
+            ByteBuffer indice = ByteBuffer.allocate(CABECERA + bloques * ENTRADA_BLOQUE);
+            indice.putInt(MAGIA).putInt(VERSION).putLong(contenido.marcaCambios()).putLong(contenido.tomadaEnMillis())
+                    .putInt(productos.size()).putInt(bloques);
+            long tamano;
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long posicion = indice.capacity();
+                canal.position(posicion);
+                for (int desde = 0; desde < productos.size(); desde += productosPorBloque) {
+                    List<Inventario> bloque = productos.subList(desde, Math.min(desde + productosPorBloque, productos.size()));
+                    ByteBuffer datos = codificar(bloque);
+                    CRC32C crc = new CRC32C();
+                    crc.update(datos.duplicate());
+                    indice.putLong(posicion).putInt(datos.remaining()).putInt(bloque.size()).putInt((int) crc.getValue());
+                    posicion += datos.remaining();
+                    while (datos.hasRemaining()) {
+                        canal.write(datos);
+                    }
+                }
+                indice.flip();
+                while (indice.hasRemaining()) { // La cabecera y la tabla van al principio del archivo
+                    canal.write(indice, indice.position());
+                }
+                canal.force(false);
+                tamano = posicion;
+            }
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return tamano;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Lee una foto proyectando el archivo en memoria y decodificando sus bloques en paralelo.
+     * @param archivo Ruta del archivo.
+     * @param pool Pool en el que se decodifican los bloques.
+     * @return El contenido de la foto.
+     * @throws IOException Si el archivo no existe, no es una foto de esta versión, está truncado o algún bloque no
+     *                     supera la comprobación de CRC.
+     */
+    public static Contenido leer(Path archivo, ForkJoinPool pool) throws IOException {
+        MappedByteBuffer mapeo;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < CABECERA || tamano > Integer.MAX_VALUE) {
+                throw new IOException("Tamaño de foto no válido: " + tamano + " bytes");
+            }
+            mapeo = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano); // El mapeo sigue vivo tras cerrar el canal
+        }
+        if (mapeo.getInt(0) != MAGIA || mapeo.getInt(4) != VERSION) {
+            throw new IOException("El archivo no es una foto del catálogo (versión " + VERSION + ")");
+        }
+        long marcaCambios = mapeo.getLong(8);
+        long tomadaEnMillis = mapeo.getLong(16);
+        int total = mapeo.getInt(24);
+        int bloques = mapeo.getInt(28);
+        if (bloques < 0 || CABECERA + (long) bloques * ENTRADA_BLOQUE > mapeo.capacity()) {
+            throw new IOException("Tabla de bloques truncada");
+        }
+
+        List<Callable<List<Inventario>>> tareas = new ArrayList<>(bloques);
+        for (int b = 0; b < bloques; b++) {
+            int entrada = CABECERA + b * ENTRADA_BLOQUE;
+            long posicion = mapeo.getLong(entrada);
+            int longitud = mapeo.getInt(entrada + 8);
+            int productos = mapeo.getInt(entrada + 12);
+            int crc = mapeo.getInt(entrada + 16);
+            if (posicion < 0 || longitud < 0 || posicion + longitud > mapeo.capacity()) {
+                throw new IOException("Bloque " + b + " fuera del archivo");
+            }
+            tareas.add(() -> decodificar(mapeo.slice((int) posicion, longitud), productos, crc));
+        }
+        List<Inventario> resultado = new ArrayList<>(Math.max(0, total));
+        try {
+            for (Future<List<Inventario>> bloque : pool.invokeAll(tareas)) {
+                resultado.addAll(bloque.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lectura de la foto interrumpida", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException("Foto del catálogo no válida", e.getCause());
+        }
+        if (resultado.size() != total) {
+            throw new IOException("La foto indica " + total + " productos y contiene " + resultado.size());
+        }
+        return new Contenido(resultado, marcaCambios, tomadaEnMillis);
+    }
+
+    private static ByteBuffer codificar(List<Inventario> bloque) {
+        List<byte[]> textos = new ArrayList<>(bloque.size() * 2);
+        int tamano = 0;
+        for (Inventario producto : bloque) {
+            byte[] nombre = utf8(producto.getNombreProducto());
+            byte[] descripcion = utf8(producto.getDescripcion());
+            textos.add(nombre);
+            textos.add(descripcion);
+            tamano += 1 + 8 + 8 + 4 + 4 + 4 + 4 + 4 + (nombre == null ? 0 : nombre.length)
+                    + (descripcion == null ? 0 : descripcion.length);
+        }
+        ByteBuffer datos = ByteBuffer.allocate(tamano);
+        for (int i = 0; i < bloque.size(); i++) {
+            Inventario producto = bloque.get(i);
+            byte[] nombre = textos.get(2 * i);
+            byte[] descripcion = textos.get(2 * i + 1);
+            int nulos = (producto.getPrecio() == null ? SIN_PRECIO : 0)
+                    | (producto.getStock() == null ? SIN_STOCK : 0)
+                    | (producto.getUnidadesVendidas() == null ? SIN_VENDIDAS : 0)
+                    | (producto.getUnidadesRecibidas() == null ? SIN_RECIBIDAS : 0)
+                    | (nombre == null ? SIN_NOMBRE : 0)
+                    | (descripcion == null ? SIN_DESCRIPCION : 0);
+            datos.put((byte) nulos)
+                    .putLong(producto.getId())
+                    .putDouble(producto.getPrecio() == null ? 0 : producto.getPrecio())
+                    .putInt(producto.getStock() == null ? 0 : producto.getStock())
+                    .putInt(producto.getUnidadesVendidas() == null ? 0 : producto.getUnidadesVendidas())
+                    .putInt(producto.getUnidadesRecibidas() == null ? 0 : producto.getUnidadesRecibidas());
+            ponerTexto(datos, nombre);
+            ponerTexto(datos, descripcion);
+        }
+        return datos.flip();
+    }
+
+    private static List<Inventario> decodificar(ByteBuffer datos, int productos, int crcEsperado) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(datos.duplicate());
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new IOException("CRC de bloque incorrecto");
+        }
+        List<Inventario> resultado = new ArrayList<>(productos);
+        try {
+            for (int i = 0; i < productos; i++) {
+                int nulos = datos.get();
+                long id = datos.getLong();
+                double precio = datos.getDouble();
+                int stock = datos.getInt();
+                int vendidas = datos.getInt();
+                int recibidas = datos.getInt();
+                String nombre = leerTexto(datos);
+                String descripcion = leerTexto(datos);
+                resultado.add(new Inventario(id,
+                        (nulos & SIN_NOMBRE) != 0 ? null : nombre,
+                        (nulos & SIN_DESCRIPCION) != 0 ? null : descripcion,
+                        (nulos & SIN_PRECIO) != 0 ? null : precio,
+                        (nulos & SIN_STOCK) != 0 ? null : stock,
+                        (nulos & SIN_VENDIDAS) != 0 ? null : vendidas,
+                        (nulos & SIN_RECIBIDAS) != 0 ? null : recibidas));
+            }
+        } catch (RuntimeException e) { // BufferUnderflowException, longitudes negativas...
+            throw new IOException("Bloque de la foto mal formado", e);
+        }
+        return resultado;
+    }
+
+    private static byte[] utf8(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void ponerTexto(ByteBuffer datos, byte[] texto) {
+        datos.putInt(texto == null ? 0 : texto.length);
+        if (texto != null) {
+            datos.put(texto);
+        }
+    }
+
+    private static String leerTexto(ByteBuffer datos) {
+        byte[] texto = new byte[datos.getInt()];
+        datos.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+}
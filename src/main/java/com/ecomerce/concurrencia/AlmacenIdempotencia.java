@@ -0,0 +1,161 @@
+package com.ecomerce.concurrencia;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Almacén en memoria de respuestas para la cabecera Idempotency-Key.
+ * La primera petición con una clave se ejecuta y su respuesta se guarda; las repeticiones (reintentos de
+ * clientes con red inestable) reciben la respuesta guardada sin volver a ejecutar la operación.
+ * Si la repetición llega mientras la primera sigue en curso, espera su resultado en lugar de ejecutarse otra vez;
+ * si la primera falla, la clave se libera y la repetición recibe el mismo error (sin envolver), como la primera.
+ *
+ * El almacén está acotado (se descartan las claves menos usadas al superar el máximo) y las entradas caducan.
+ */
+@Component
+public class AlmacenIdempotencia {
+
+    /** Nombre de la cabecera HTTP con la clave de idempotencia. */
+    public static final String CABECERA = "Idempotency-Key";
+    /** Cabecera añadida a las respuestas que se sirven desde el almacén. */
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    private final int maxEntradas;
+    private final long ttlMillis;
+    private final Clock reloj;
+
+    // LinkedHashMap en orden de acceso: la entrada más antigua es la menos usada recientemente.
+    private final Map<String, Entrada> entradas;
+    // ReentrantLock en lugar de synchronized: con hilos virtuales no ancla el hilo portador.
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    @Autowired
+    public AlmacenIdempotencia(@Value("${ecomerce.idempotencia.max-entradas:10000}") int maxEntradas,
+                               @Value("${ecomerce.idempotencia.ttl:PT24H}") Duration ttl) {
+        this(maxEntradas, ttl, Clock.systemUTC());
+    }
+
+    AlmacenIdempotencia(int maxEntradas, Duration ttl, Clock reloj) {
+        this.maxEntradas = maxEntradas;
+        this.ttlMillis = ttl.toMillis();
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                return size() > AlmacenIdempotencia.this.maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave.
+     * @param clave Clave de idempotencia ya acotada a la operación y al usuario; si es null se ejecuta sin almacén.
+     * @param huella Resumen de los parámetros de la petición; una clave reutilizada con otros parámetros se rechaza.
+     * @param operacion La operación a ejecutar la primera vez.
+     * @return La respuesta de la operación, la respuesta guardada (con la cabecera Idempotent-Replayed),
+     *         o 422 si la clave ya se usó con otros parámetros.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> ejecutar(String clave, String huella, Supplier<ResponseEntity<T>> operacion) {
+        if (clave == null) {
+            return operacion.get();
+        }
+
+        long ahora = reloj.millis();
+        Entrada nueva = new Entrada(huella, new CompletableFuture<>(), ahora + ttlMillis);
+        Entrada existente;
+        cerrojo.lock();
+        try {
+            existente = entradas.get(clave);
+            if (existente == null || existente.expiraEn() <= ahora) {
+                entradas.put(clave, nueva);
+                existente = null;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+
+        if (existente != null) {
+            if (!Objects.equals(existente.huella(), huella)) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build(); // Clave reutilizada con otra petición
+            }
+            ResponseEntity<T> guardada;
+            try {
+                guardada = (ResponseEntity<T>) existente.respuesta().join();
+            } catch (CompletionException e) {
+                // La primera ejecución falló mientras se esperaba: se propaga su error original
+                if (e.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                if (e.getCause() instanceof Error causa) {
+                    throw causa;
+                }
+                throw e;
+            }
+            return ResponseEntity.status(guardada.getStatusCode())
+                    .headers(guardada.getHeaders())
+                    .header(CABECERA_REPETIDA, "true")
+                    .body(guardada.getBody());
+        }
+
+        try {
+            ResponseEntity<T> respuesta = operacion.get();
+            nueva.respuesta().complete(respuesta);
+            return respuesta;
+        } catch (RuntimeException | Error e) {
+            // Sin respuesta que guardar: se libera la clave para que un reintento pueda ejecutarse
+            cerrojo.lock();
+            try {
+                entradas.remove(clave, nueva);
+            } finally {
+                cerrojo.unlock();
+            }
+            nueva.respuesta().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Construye la clave interna acotando la clave del cliente a un usuario y una operación,
+     * para que la misma clave usada en otra operación no devuelva una respuesta ajena.
+     * @param usuarioId ID del usuario dueño del recurso.
+     * @param operacion Nombre de la operación.
+     * @param claveCliente Valor de la cabecera Idempotency-Key (puede ser null).
+     * @return La clave interna, o null si el cliente no envió clave.
+     */
+    public static String clave(Long usuarioId, String operacion, String claveCliente) {
+        if (claveCliente == null || claveCliente.isBlank()) {
+            return null;
+        }
+        return usuarioId + ":" + operacion + ":" + claveCliente;
+    }
+
+    /**
+     * Número de entradas guardadas actualmente (incluidas las caducadas aún no desalojadas).
+     * @return El tamaño del almacén.
+     */
+    public int tamano() {
+        cerrojo.lock();
+        try {
+            return entradas.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private record Entrada(String huella, CompletableFuture<ResponseEntity<?>> respuesta, long expiraEn) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecomerce.concurrencia;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializa en memoria las operaciones sobre el carrito de un mismo usuario.
+ * Usa un arreglo fijo de cerrojos ("franjas"): cada usuarioId se asigna siempre a la misma franja, de modo que
+ * dos peticiones simultáneas del mismo usuario (doble clic, varias pestañas) se ejecutan una detrás de otra
+ * antes de abrir la transacción, en lugar de competir dentro de la base de datos.
+ * Usuarios distintos caen casi siempre en franjas distintas y avanzan en paralelo; la memoria es fija
+ * independientemente del número de usuarios.
+ *
+ * Solo coordina peticiones dentro de esta JVM; entre instancias sigue mandando la base de datos.
+ */
+@Component
+public class BloqueosPorUsuario {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+
+    public BloqueosPorUsuario(@Value("${ecomerce.carritos.franjas-bloqueo:1024}") int numeroFranjas) {
+        // Se redondea a potencia de dos para asignar la franja con una máscara
+        int tamano = numeroFranjas <= 1 ? 1 : Integer.highestOneBit(numeroFranjas - 1) << 1;
+        this.franjas = new ReentrantLock[tamano];
+        for (int i = 0; i < tamano; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.mascara = tamano - 1;
+    }
+
+    /**
+     * Ejecuta la operación con la franja del usuario bloqueada.
+     * El cerrojo es reentrante: una operación puede llamar a otra del mismo usuario sin bloquearse.
+     * @param usuarioId El ID del usuario dueño del carrito.
+     * @param operacion La operación a ejecutar (normalmente una llamada transaccional al servicio).
+     * @return El resultado de la operación.
+     */
+    public <T> T ejecutar(Long usuarioId, Supplier<T> operacion) {
+        ReentrantLock cerrojo = franjas[indice(usuarioId)];
+        cerrojo.lock();
+        try {
+            return operacion.get();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Número de franjas (cerrojos) disponibles.
+     * @return El número de franjas.
+     */
+    public int numeroFranjas() {
+        return franjas.length;
+    }
+
+    int indice(Long usuarioId) {
+        // Mezcla de bits (Fibonacci hashing) para que IDs consecutivos no se concentren en franjas contiguas
+        long h = (usuarioId == null ? 0L : usuarioId) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
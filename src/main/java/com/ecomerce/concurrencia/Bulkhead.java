@@ -0,0 +1,147 @@
+package com.ecomerce.concurrencia;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compartimento estanco ("bulkhead") para un grupo de endpoints.
+ * Limita cuántas peticiones del grupo se atienden a la vez y cuántas pueden esperar turno.
+ * Si la cola de espera está llena, o el turno no llega a tiempo, la petición se rechaza en el acto
+ * en lugar de quedarse ocupando un hilo de Tomcat y, más adelante, una conexión del pool.
+ * Así, una ráfaga de operaciones lentas de un grupo (por ejemplo, vaciar carritos) no deja sin recursos
+ * a los demás (por ejemplo, la navegación del catálogo).
+ */
+public class Bulkhead {
+
+    private final String nombre;
+    private final int concurrencia;
+    private final int maxCola;
+    private final long esperaMaxNanos;
+    private final Semaphore permisos;
+    private final AtomicInteger enCola = new AtomicInteger();
+    private final LongAdder rechazadas = new LongAdder();
+
+    /**
+     * @param nombre Nombre del grupo (se usa como etiqueta de las métricas).
+     * @param concurrencia Número máximo de peticiones del grupo atendiéndose a la vez.
+     * @param maxCola Número máximo de peticiones esperando turno; las que no caben se rechazan sin esperar.
+     * @param esperaMax Tiempo máximo que una petición espera turno antes de rechazarse.
+     */
+    public Bulkhead(String nombre, int concurrencia, int maxCola, Duration esperaMax) {
+        if (concurrencia < 1 || maxCola < 0) {
+            throw new IllegalArgumentException("Configuración de bulkhead no válida para '" + nombre + "'");
+        }
+        this.nombre = nombre;
+        this.concurrencia = concurrencia;
+        this.maxCola = maxCola;
+        this.esperaMaxNanos = esperaMax.toNanos();
+        this.permisos = new Semaphore(concurrencia, true); // Justo: quien espera entra por orden de llegada
+    }
+
+    /**
+     * Intenta ocupar un turno del grupo. Si devuelve true, el llamador debe invocar salir() al terminar.
+     * @return true si se obtuvo turno; false si la petición debe rechazarse (cola llena o espera agotada).
+     */
+    public boolean intentarEntrar() {
+        if (permisos.tryAcquire()) {
+            return true; // Hay turno libre: no se pasa por la cola
+        }
+        if (enCola.incrementAndGet() > maxCola) {
+            enCola.decrementAndGet();
+            rechazadas.increment(); // Cola llena: se descarta sin esperar
+            return false;
+        }
+        try {
+            if (permisos.tryAcquire(esperaMaxNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            rechazadas.increment(); // No llegó el turno a tiempo
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rechazadas.increment();
+            return false;
+        } finally {
+            enCola.decrementAndGet();
+        }
+    }
+
+    /**
+     * Libera el turno ocupado con intentarEntrar().
+     */
+    public void salir() {
+        permisos.release();
+    }
+
+    /**
+     * @return Nombre del grupo.
+     */
+    public String nombre() {
+        return nombre;
+    }
+
+    /**
+     * @return Número máximo de peticiones atendiéndose a la vez.
+     */
+    public int concurrencia() {
+        return concurrencia;
+    }
+
+    /**
+     * @return Peticiones atendiéndose en este momento.
+     */
+    public int enCurso() {
+        return concurrencia - permisos.availablePermits();
+    }
+
+    /**
+     * @return Peticiones esperando turno en este momento.
+     */
+    public int enCola() {
+        return enCola.get();
+    }
+
+    /**
+     * @return Número total de peticiones rechazadas.
+     */
+    public long rechazadas() {
+        return rechazadas.sum();
+    }
+
+    /**
+     * @return Fracción de la concurrencia ocupada (0 a 1).
+     */
+    public double saturacion() {
+        return (double) enCurso() / concurrencia;
+    }
+
+    /**
+     * Publica las métricas del bulkhead (ecomerce.bulkhead.*), etiquetadas con el nombre del grupo.
+     * @param registry El registro de métricas.
+     */
+    public void registrarMetricas(MeterRegistry registry) {
+        Gauge.builder("ecomerce.bulkhead.en-curso", this, Bulkhead::enCurso)
+                .tag("grupo", nombre)
+                .description("Peticiones del grupo atendiéndose")
+                .register(registry);
+        Gauge.builder("ecomerce.bulkhead.en-cola", this, Bulkhead::enCola)
+                .tag("grupo", nombre)
+                .description("Peticiones del grupo esperando turno")
+                .register(registry);
+        Gauge.builder("ecomerce.bulkhead.saturacion", this, Bulkhead::saturacion)
+                .tag("grupo", nombre)
+                .description("Fracción de la concurrencia del grupo ocupada")
+                .register(registry);
+        FunctionCounter.builder("ecomerce.bulkhead.rechazadas", this, Bulkhead::rechazadas)
+                .tag("grupo", nombre)
+                .description("Peticiones del grupo rechazadas con 503")
+                .register(registry);
+    }
+}
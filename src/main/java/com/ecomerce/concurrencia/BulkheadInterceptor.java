@@ -0,0 +1,57 @@
+package com.ecomerce.concurrencia;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Interceptor que hace pasar las peticiones de un grupo de endpoints por su Bulkhead.
+ * Si el grupo está saturado, responde 503 con la cabecera Retry-After sin llegar al controlador.
+ *
+ * En los endpoints asíncronos (que devuelven CompletableFuture) el turno se mantiene hasta que la respuesta
+ * termina de verdad: se libera en el afterCompletion del despacho asíncrono, no al soltar el hilo de Tomcat.
+ */
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+
+    private final Bulkhead bulkhead;
+    private final String retryAfterSegundos;
+    private final String atributo; // Marca en la petición de que ya tiene turno
+
+    /**
+     * @param bulkhead El bulkhead del grupo.
+     * @param retryAfterSegundos Segundos que se sugieren al cliente en Retry-After al rechazar.
+     */
+    public BulkheadInterceptor(Bulkhead bulkhead, long retryAfterSegundos) {
+        this.bulkhead = bulkhead;
+        this.retryAfterSegundos = String.valueOf(retryAfterSegundos);
+        this.atributo = BulkheadInterceptor.class.getName() + "." + bulkhead.nombre();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getAttribute(atributo) != null || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true; // Despacho asíncrono de una petición que ya tenía turno
+        }
+        if (!bulkhead.intentarEntrar()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSegundos);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    "Servicio saturado (" + bulkhead.nombre() + "), vuelva a intentarlo más tarde");
+            return false;
+        }
+        request.setAttribute(atributo, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // No se llama al iniciar el procesamiento asíncrono (para eso está afterConcurrentHandlingStarted),
+        // así que aquí la petición ha terminado: síncrona o tras su despacho asíncrono.
+        if (request.getAttribute(atributo) != null) {
+            request.removeAttribute(atributo);
+            bulkhead.salir();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecomerce.concurrencia;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Function;
+
+/**
+ * Utilidad para continuar el procesamiento de una petición en otro hilo.
+ * Los enlaces HATEOAS (linkTo) se construyen a partir de la petición asociada al hilo actual; cuando la
+ * respuesta se ensambla en el hilo que completa un CompletableFuture, hay que propagarle esa petición
+ * para que los enlaces sigan siendo absolutos.
+ */
+public final class ContextoPeticion {
+
+    private ContextoPeticion() {
+    }
+
+    /**
+     * Envuelve la función para que se ejecute con la petición del hilo que la crea.
+     * Debe llamarse desde el hilo de la petición (por ejemplo, en el propio método del controlador).
+     * @param funcion La función a ejecutar más tarde, posiblemente en otro hilo.
+     * @return La función envuelta.
+     */
+    public static <T, R> Function<T, R> conPeticionActual(Function<T, R> funcion) {
+        // Se guarda la petición y no sus atributos: estos se marcan como inactivos al terminar el primer despacho,
+        // mientras que la petición sigue siendo válida hasta que se completa el procesamiento asíncrono.
+        HttpServletRequest peticion = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        return valor -> {
+            RequestAttributes anterior = RequestContextHolder.getRequestAttributes();
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(peticion));
+            try {
+                return funcion.apply(valor);
+            } finally {
+                if (anterior == null) {
+                    RequestContextHolder.resetRequestAttributes();
+                } else {
+                    RequestContextHolder.setRequestAttributes(anterior);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecomerce.concurrencia;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Difunde a sus suscriptores el último valor publicado, como mucho una vez por intervalo.
+ *
+ * Las publicaciones no envían nada por sí mismas: dejan el valor como pendiente y, si no hay ya un envío
+ * programado, programan uno para cuando se cumpla el intervalo desde el anterior. Varios cambios seguidos
+ * se funden en un solo envío con el último valor, y un valor igual al último enviado no se repite.
+ * Los envíos de un mismo difusor nunca se solapan. Un suscriptor que lanza una excepción se da de baja.
+ *
+ * Sin publicaciones, un difusor no ocupa hilos ni tareas programadas: solo su conjunto de suscriptores.
+ * @param <T> Tipo del valor difundido.
+ */
+public class DifusorCoalescido<T> {
+
+    private final ScheduledExecutorService programador;
+    private final long intervaloNanos;
+    private final Set<Consumer<T>> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<T> pendiente = new AtomicReference<>();
+    private final AtomicBoolean programado = new AtomicBoolean(); // Hay un envío programado o en curso
+    private volatile long ultimoEnvioNanos;
+    private T ultimoEnviado; // Solo lo tocan los envíos, que están serializados por 'programado'
+
+    /**
+     * @param programador Executor en el que se hacen los envíos.
+     * @param intervaloMillis Tiempo mínimo entre dos envíos.
+     */
+    public DifusorCoalescido(ScheduledExecutorService programador, long intervaloMillis) {
+        this.programador = programador;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMillis);
+        this.ultimoEnvioNanos = System.nanoTime() - intervaloNanos;
+    }
+
+    public void suscribir(Consumer<T> suscriptor) {
+        suscriptores.add(suscriptor);
+    }
+
+    public void desuscribir(Consumer<T> suscriptor) {
+        suscriptores.remove(suscriptor);
+    }
+
+    public int suscriptores() {
+        return suscriptores.size();
+    }
+
+    /**
+     * Publica un valor nuevo. No bloquea: el envío se hace en el programador.
+     * @param valor El valor (no null).
+     */
+    public void publicar(T valor) {
+        pendiente.set(Objects.requireNonNull(valor));
+        if (programado.compareAndSet(false, true)) {
+            programar();
+        }
+    }
+
+    private void programar() {
+        long espera = Math.max(0, ultimoEnvioNanos + intervaloNanos - System.nanoTime());
+        programador.schedule(this::enviar, espera, TimeUnit.NANOSECONDS);
+    }
+
+    private void enviar() {
+        try {
+            T valor = pendiente.getAndSet(null);
+            if (valor != null && !valor.equals(ultimoEnviado)) {
+                ultimoEnviado = valor;
+                ultimoEnvioNanos = System.nanoTime();
+                for (Consumer<T> suscriptor : suscriptores) {
+                    try {
+                        suscriptor.accept(valor);
+                    } catch (RuntimeException e) {
+                        suscriptores.remove(suscriptor);
+                    }
+                }
+            }
+        } finally {
+            programado.set(false);
+            // Lo publicado durante el envío no pudo programar otro (programado seguía a true): se programa aquí
+            if (pendiente.get() != null && programado.compareAndSet(false, true)) {
+                programar();
+            }
+        }
+    }
+}
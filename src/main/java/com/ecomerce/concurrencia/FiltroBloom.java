@@ -0,0 +1,127 @@
+package com.ecomerce.concurrencia;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de Bloom de cadenas, seguro para hilos y de tamaño fijo.
+ * Responde "seguro que no está" o "puede que esté": nunca da falsos negativos, y la proporción de falsos
+ * positivos se mantiene cerca de la indicada mientras no se añadan más elementos que la capacidad.
+ * No admite borrados; para olvidar elementos hay que construir uno nuevo.
+ *
+ * Los bits se guardan en un AtomicLongArray, así que añadir y consultar a la vez desde varios hilos no necesita
+ * cerrojos. Las k posiciones de cada elemento salen de dos hashes de 64 bits (doble hashing de Kirsch-Mitzenmacher).
+ */
+public class FiltroBloom {
+
+    private final AtomicLongArray palabras;
+    private final long numBits;
+    private final int numHashes;
+    private final LongAdder elementos = new LongAdder();
+
+    /**
+     * @param capacidad Número de elementos previsto.
+     * @param probabilidadFalsoPositivo Proporción de falsos positivos admitida con ese número de elementos (0 a 1).
+     */
+    public FiltroBloom(long capacidad, double probabilidadFalsoPositivo) {
+        if (capacidad < 1 || probabilidadFalsoPositivo <= 0 || probabilidadFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("Configuración de filtro de Bloom no válida");
+        }
+        // Tamaño óptimo: m = -n ln p / (ln 2)^2 bits y k = m/n ln 2 funciones hash
+        long bits = (long) Math.ceil(-capacidad * Math.log(probabilidadFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        int numPalabras = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.palabras = new AtomicLongArray(numPalabras);
+        this.numBits = (long) numPalabras * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacidad * Math.log(2)));
+    }
+
+    /**
+     * Añade un elemento.
+     * @param valor El elemento.
+     */
+    public void agregar(String valor) {
+        long[] h = hashes(valor);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = posicion(h, i);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = palabras.get(palabra);
+            while ((actual & mascara) == 0 && !palabras.weakCompareAndSetVolatile(palabra, actual, actual | mascara)) {
+                actual = palabras.get(palabra);
+            }
+        }
+        elementos.increment();
+    }
+
+    /**
+     * Consulta un elemento.
+     * @param valor El elemento.
+     * @return false si el elemento seguro que no se añadió; true si puede que sí.
+     */
+    public boolean podriaContener(String valor) {
+        long[] h = hashes(valor);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = posicion(h, i);
+            if ((palabras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Número de elementos añadidos (con repeticiones).
+     */
+    public long elementos() {
+        return elementos.sum();
+    }
+
+    /**
+     * @return Tamaño del filtro en bits.
+     */
+    public long numBits() {
+        return numBits;
+    }
+
+    /**
+     * @return Número de funciones hash por elemento.
+     */
+    public int numHashes() {
+        return numHashes;
+    }
+
+    /**
+     * @return Proporción de falsos positivos esperada con los elementos añadidos hasta ahora: (1 - e^(-kn/m))^k.
+     */
+    public double probabilidadFalsoPositivoEstimada() {
+        return Math.pow(1 - Math.exp(-(double) numHashes * elementos() / numBits), numHashes);
+    }
+
+    private long posicion(long[] h, int i) {
+        return Math.floorMod(h[0] + i * h[1], numBits);
+    }
+
+    /**
+     * Dos hashes de 64 bits independientes del valor (FNV-1a mezclado con el finalizador de MurmurHash3).
+     */
+    private static long[] hashes(String valor) {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x84222325cbf29ce4L;
+        for (byte b : bytes) {
+            h1 = (h1 ^ (b & 0xff)) * 0x100000001b3L;
+            h2 = (h2 ^ (b & 0xff)) * 0x9e3779b97f4a7c15L;
+        }
+        return new long[]{mezclar(h1), mezclar(h2) | 1}; // h2 impar: las k posiciones no se repiten en ciclos cortos
+    }
+
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
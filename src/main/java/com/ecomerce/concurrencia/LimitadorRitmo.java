@@ -0,0 +1,39 @@
+package com.ecomerce.concurrencia;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limita el ritmo de una tarea por lotes a un número de unidades por segundo, repartido entre todos los hilos
+ * que la ejecutan. Cada lote reserva el siguiente hueco libre, de duración proporcional a sus unidades, y espera
+ * a que llegue: los lotes salen espaciados en lugar de a ráfagas. Sin cerrojos (una reserva atómica por lote).
+ */
+public class LimitadorRitmo {
+
+    private final long unidadesPorSegundo;
+    private final AtomicLong siguienteTurno = new AtomicLong(Long.MIN_VALUE); // Instante (nanoTime) del siguiente hueco libre
+
+    /**
+     * @param unidadesPorSegundo Ritmo máximo; 0 o negativo para no limitar.
+     */
+    public LimitadorRitmo(long unidadesPorSegundo) {
+        this.unidadesPorSegundo = unidadesPorSegundo;
+    }
+
+    /**
+     * Espera hasta que se puedan procesar las unidades indicadas sin superar el ritmo.
+     * @param unidades Unidades del lote que va a procesarse.
+     */
+    public void esperar(long unidades) {
+        if (unidadesPorSegundo <= 0) {
+            return;
+        }
+        long intervalo = unidades * 1_000_000_000L / unidadesPorSegundo;
+        long ahora = System.nanoTime();
+        long turno = Math.max(ahora, siguienteTurno.getAndAccumulate(ahora, (siguiente, actual) -> Math.max(siguiente, actual) + intervalo));
+        long espera;
+        while ((espera = turno - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(espera);
+        }
+    }
+}
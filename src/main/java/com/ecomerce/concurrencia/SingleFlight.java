@@ -0,0 +1,119 @@
+package com.ecomerce.concurrencia;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalescencia de lecturas concurrentes ("single flight").
+ * Mientras hay una lectura en curso para una clave, las peticiones que llegan con la misma clave no lanzan otra:
+ * reciben un futuro que se completa con el resultado de la lectura ya en vuelo.
+ * Así, una avalancha de peticiones simultáneas sobre el mismo ID cuesta una sola consulta.
+ *
+ * No es una caché: en cuanto la lectura termina, la siguiente petición vuelve a leer.
+ * @param <K> Tipo de la clave (por ejemplo, el ID).
+ * @param <V> Tipo del resultado.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> enVuelo = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final LongAdder solicitudes = new LongAdder();
+    private final LongAdder lecturas = new LongAdder();
+
+    /**
+     * @param executor Executor en el que se ejecutan las lecturas reales.
+     */
+    public SingleFlight(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Obtiene el resultado para la clave, compartiendo la lectura si ya hay una en curso.
+     * @param clave La clave a leer.
+     * @param cargador La lectura real (solo se ejecuta si no hay otra en vuelo para la clave).
+     * @return Un futuro con el resultado; cada llamador recibe su propia copia.
+     */
+    public CompletableFuture<V> ejecutar(K clave, Supplier<V> cargador) {
+        solicitudes.increment();
+        CompletableFuture<V> nuevo = new CompletableFuture<>();
+        CompletableFuture<V> existente = enVuelo.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            return existente.copy(); // Se comparte la lectura en curso
+        }
+
+        lecturas.increment();
+        try {
+            executor.execute(() -> {
+                V valor;
+                try {
+                    valor = cargador.get();
+                } catch (Throwable e) {
+                    enVuelo.remove(clave, nuevo);
+                    nuevo.completeExceptionally(e);
+                    return;
+                }
+                enVuelo.remove(clave, nuevo); // Antes de completar: quien vea el resultado ya no encuentra la lectura en vuelo
+                nuevo.complete(valor);
+            });
+        } catch (RejectedExecutionException e) {
+            enVuelo.remove(clave, nuevo);
+            nuevo.completeExceptionally(e);
+        }
+        return nuevo.copy(); // Una copia: si un llamador la cancela, no afecta a los demás
+    }
+
+    /**
+     * @return Número total de solicitudes recibidas.
+     */
+    public long solicitudes() {
+        return solicitudes.sum();
+    }
+
+    /**
+     * @return Número de lecturas reales lanzadas (solicitudes que no se pudieron coalescer).
+     */
+    public long lecturas() {
+        return lecturas.sum();
+    }
+
+    /**
+     * @return Proporción de solicitudes servidas por una lectura ajena (0 = ninguna coalescencia).
+     */
+    public double ratioCoalescencia() {
+        long total = solicitudes();
+        return total == 0 ? 0.0 : 1.0 - (double) lecturas() / total;
+    }
+
+    /**
+     * Registra las métricas de esta instancia en Micrometer, etiquetadas con el nombre indicado.
+     * @param registro El registro de métricas.
+     * @param nombre Valor de la etiqueta "lectura" (por ejemplo, "inventario").
+     */
+    public void registrarMetricas(MeterRegistry registro, String nombre) {
+        FunctionCounter.builder("ecomerce.coalescencia.solicitudes", this, SingleFlight::solicitudes)
+                .description("Solicitudes de lectura recibidas")
+                .tag("lectura", nombre)
+                .register(registro);
+        FunctionCounter.builder("ecomerce.coalescencia.lecturas", this, SingleFlight::lecturas)
+                .description("Lecturas reales lanzadas contra la base de datos")
+                .tag("lectura", nombre)
+                .register(registro);
+        Gauge.builder("ecomerce.coalescencia.ratio", this, SingleFlight::ratioCoalescencia)
+                .description("Proporción de solicitudes servidas por una lectura ya en curso")
+                .tag("lectura", nombre)
+                .register(registro);
+        Gauge.builder("ecomerce.coalescencia.en-vuelo", enVuelo, Map::size)
+                .description("Lecturas en curso")
+                .tag("lectura", nombre)
+                .register(registro);
+    }
+}
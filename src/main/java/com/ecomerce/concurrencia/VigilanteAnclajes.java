@@ -0,0 +1,138 @@
+package com.ecomerce.concurrencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vigila el anclaje ("pinning") de hilos virtuales a su hilo portador cuando la aplicación atiende las peticiones
+ * con hilos virtuales (spring.threads.virtual.enabled=true).
+ * Un hilo virtual que se bloquea dentro de un bloque synchronized (o en código nativo) no suelta su portador,
+ * y con pocos portadores unas cuantas esperas de JDBC pueden frenar a toda la aplicación.
+ *
+ * Escucha el evento de JFR jdk.VirtualThreadPinned y cuenta los anclajes en la métrica
+ * ecomerce.hilos-virtuales.anclajes, separando los que ocurren dentro de una transacción (@Transactional o
+ * TransactionTemplate), que son los que retienen además una conexión del pool. De cada punto de anclaje
+ * transaccional distinto se registra un aviso con la pila, una sola vez.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VigilanteAnclajes {
+
+    private static final Logger log = LoggerFactory.getLogger(VigilanteAnclajes.class);
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+
+    private final Duration umbral;
+    private final Counter anclajesTransaccionales;
+    private final Counter anclajesOtros;
+    private final Set<String> puntosAvisados = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    public VigilanteAnclajes(MeterRegistry meterRegistry,
+                             @Value("${ecomerce.hilos-virtuales.umbral-anclaje:20ms}") Duration umbral) {
+        this.umbral = umbral;
+        this.anclajesTransaccionales = Counter.builder("ecomerce.hilos-virtuales.anclajes")
+                .tag("transaccional", "true")
+                .description("Hilos virtuales anclados a su portador más tiempo del umbral")
+                .register(meterRegistry);
+        this.anclajesOtros = Counter.builder("ecomerce.hilos-virtuales.anclajes")
+                .tag("transaccional", "false")
+                .description("Hilos virtuales anclados a su portador más tiempo del umbral")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Arranca la escucha de eventos de JFR en segundo plano.
+     */
+    @PostConstruct
+    public void iniciar() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO).withThreshold(umbral).withStackTrace();
+        stream.onEvent(EVENTO, this::registrar);
+        stream.startAsync();
+        log.info("Vigilancia de anclaje de hilos virtuales activa (umbral {} ms)", umbral.toMillis());
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return Número de anclajes detectados dentro de una transacción.
+     */
+    public long anclajesTransaccionales() {
+        return (long) anclajesTransaccionales.count();
+    }
+
+    /**
+     * @return Número de anclajes detectados fuera de una transacción.
+     */
+    public long anclajesOtros() {
+        return (long) anclajesOtros.count();
+    }
+
+    void registrar(RecordedEvent evento) {
+        RecordedStackTrace pila = evento.getStackTrace();
+        List<RecordedFrame> marcos = pila == null ? List.of() : pila.getFrames();
+        if (!esTransaccional(marcos, pila != null && pila.isTruncated())) {
+            anclajesOtros.increment();
+            return;
+        }
+        anclajesTransaccionales.increment();
+        String punto = primerMarcoPropio(marcos);
+        if (puntosAvisados.add(punto)) {
+            log.warn("Hilo virtual anclado {} ms dentro de una transacción en {}:\n{}",
+                    evento.getDuration().toMillis(), punto, formatear(marcos));
+        }
+    }
+
+    private static boolean esTransaccional(List<RecordedFrame> marcos, boolean truncada) {
+        boolean hibernate = false;
+        for (RecordedFrame marco : marcos) {
+            String clase = marco.getMethod().getType().getName();
+            if (clase.startsWith("org.springframework.transaction.")) {
+                return true; // TransactionInterceptor / TransactionTemplate en la pila
+            }
+            hibernate |= clase.startsWith("org.hibernate.");
+        }
+        // Las pilas de JFR se recortan por abajo (64 marcos por defecto): si no llega a verse el interceptor
+        // pero se está dentro de Hibernate, en esta aplicación solo puede ser desde un servicio transaccional.
+        return truncada && hibernate;
+    }
+
+    private static String primerMarcoPropio(List<RecordedFrame> marcos) {
+        return marcos.stream()
+                .filter(m -> m.getMethod().getType().getName().startsWith("com.ecomerce."))
+                .findFirst()
+                .or(() -> marcos.stream().findFirst())
+                .map(m -> m.getMethod().getType().getName() + "." + m.getMethod().getName() + ":" + m.getLineNumber())
+                .orElse("desconocido");
+    }
+
+    private static String formatear(List<RecordedFrame> marcos) {
+        StringBuilder sb = new StringBuilder();
+        for (RecordedFrame m : marcos) {
+            sb.append("\tat ").append(m.getMethod().getType().getName()).append('.')
+              .append(m.getMethod().getName()).append(':').append(m.getLineNumber()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecomerce.config;
+
+import com.ecomerce.concurrencia.Bulkhead;
+import com.ecomerce.concurrencia.BulkheadInterceptor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase de configuración de los bulkheads por grupo de endpoints.
+ * Cada grupo tiene su propio límite de concurrencia y su propia cola de espera
+ * (propiedades ecomerce.bulkheads.&lt;grupo&gt;.concurrencia, .cola y .espera):
+ *  - catalogo: lecturas y escrituras unitarias de /api/inventario/** (salvo los flujos SSE de stock, que pasan
+ *    minutos abiertos sin usar conexiones, y la búsqueda y las tendencias, que se sirven desde memoria)
+ *  - almacen: POST /api/inventario/stock/ajustes (lotes de hasta miles de filas: no ocupan turnos de lectura)
+ *  - usuarios: /api/usuarios/**
+ *  - carritos: /api/carritos/** y /api/pedidos/** (escrituras de carrito y checkout)
+ *
+ * No son sub-pools de conexiones: todos los grupos comparten el pool de Hikari de la primaria (y el catálogo, el de
+ * la réplica de lectura, si la hay) y el bulkhead solo limita cuántas peticiones de cada grupo se atienden a la vez.
+ * Como cada petición de catalogo, almacen y carritos usa como mucho una conexión a la vez durante todo su turno, si
+ * la suma de sus concurrencias no supera el pool, esos grupos tienen sus conexiones de hecho reservadas; por defecto
+ * se reparten así el pool de la primaria (catalogo 40 %, carritos 30 %, almacen 1) y lo que sobra queda para
+ * usuarios y las tareas programadas. El turno de usuarios dura sobre todo el BCrypt
+ * asíncrono, sin conexión: su concurrencia por defecto es el doble de los hilos de contraseñas, para mantenerlos
+ * ocupados, y no cuenta en el reparto del pool.
+ */
+@Configuration // Indica que esta clase contiene definiciones de beans de configuración.
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkheadConfig.class);
+
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+    private final boolean habilitado;
+    private final long retryAfterSegundos;
+
+    public BulkheadConfig(Environment env, MeterRegistry meterRegistry, List<HikariDataSource> pools,
+                          @Value("${ecomerce.bulkheads.habilitado:true}") boolean habilitado,
+                          @Value("${ecomerce.bulkheads.retry-after-segundos:1}") long retryAfterSegundos,
+                          @Value("${ecomerce.contrasenas.hilos:0}") int hilosContrasenas) {
+        this.habilitado = habilitado;
+        this.retryAfterSegundos = retryAfterSegundos;
+        // El pool de la réplica de lectura es de solo lectura (ver DataSourceConfig); el otro es el de la primaria
+        int tamanoPool = tamanoPool(pools, false);
+        int tamanoPoolLectura = tamanoPool(pools, true);
+        int hilosBcrypt = hilosContrasenas > 0 ? hilosContrasenas : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        crear(env, "catalogo", Math.max(1, tamanoPool * 4 / 10), 50, Duration.ofMillis(200));
+        crear(env, "almacen", 1, 2, Duration.ofSeconds(2));
+        crear(env, "usuarios", 2 * hilosBcrypt, 50, Duration.ofMillis(500));
+        crear(env, "carritos", Math.max(1, tamanoPool * 3 / 10), 20, Duration.ofMillis(500));
+        bulkheads.values().forEach(b -> b.registrarMetricas(meterRegistry));
+        comprobarRepartoDelPool(tamanoPool, tamanoPoolLectura);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!habilitado) {
+            return;
+        }
+        registry.addInterceptor(new BulkheadInterceptor(bulkheads.get("catalogo"), retryAfterSegundos))
+                .addPathPatterns("/api/inventario", "/api/inventario/**")
+                .excludePathPatterns("/api/inventario/stock/stream", "/api/inventario/*/stock/stream",
+                        "/api/inventario/search", "/api/inventario/trending", "/api/inventario/stock/ajustes");
+        registry.addInterceptor(new BulkheadInterceptor(bulkheads.get("almacen"), retryAfterSegundos))
+                .addPathPatterns("/api/inventario/stock/ajustes");
+        registry.addInterceptor(new BulkheadInterceptor(bulkheads.get("usuarios"), retryAfterSegundos))
+                .addPathPatterns("/api/usuarios", "/api/usuarios/**");
+        registry.addInterceptor(new BulkheadInterceptor(bulkheads.get("carritos"), retryAfterSegundos))
+                .addPathPatterns("/api/carritos/**", "/api/pedidos/**");
+    }
+
+    private void crear(Environment env, String grupo, int concurrencia, int cola, Duration espera) {
+        String prefijo = "ecomerce.bulkheads." + grupo + ".";
+        bulkheads.put(grupo, new Bulkhead(grupo,
+                env.getProperty(prefijo + "concurrencia", Integer.class, concurrencia),
+                env.getProperty(prefijo + "cola", Integer.class, cola),
+                env.getProperty(prefijo + "espera", Duration.class, espera)));
+    }
+
+    /**
+     * Avisa si la suma de las concurrencias de los grupos que ocupan una conexión durante todo su turno
+     * (todos salvo usuarios) supera el tamaño del pool de la primaria, o si la del catálogo supera el de la réplica
+     * de lectura: en ese caso esos grupos vuelven a competir por las mismas conexiones. Con la réplica retrasada
+     * o caída, todas las lecturas vuelven a la primaria, así que la suma se compara siempre con ella.
+     */
+    private void comprobarRepartoDelPool(int tamanoPool, int tamanoPoolLectura) {
+        int suma = bulkheads.entrySet().stream()
+                .filter(grupo -> !grupo.getKey().equals("usuarios"))
+                .mapToInt(grupo -> grupo.getValue().concurrencia())
+                .sum();
+        if (suma > tamanoPool) {
+            log.warn("La concurrencia de los bulkheads ({}) supera el pool de conexiones de la primaria ({}): los grupos no tienen conexiones reservadas",
+                    suma, tamanoPool);
+        }
+        int catalogo = bulkheads.get("catalogo").concurrencia();
+        if (tamanoPoolLectura > 0 && catalogo > tamanoPoolLectura) {
+            log.warn("La concurrencia del bulkhead del catálogo ({}) supera el pool de la réplica de lectura ({})",
+                    catalogo, tamanoPoolLectura);
+        }
+    }
+
+    /**
+     * Tamaño máximo del pool de Hikari de la primaria o de la réplica de lectura. Sin ninguno para la primaria
+     * (DataSource que no es Hikari), 10, el valor por defecto de Hikari; sin réplica, 0.
+     */
+    private static int tamanoPool(List<HikariDataSource> pools, boolean lectura) {
+        return pools.stream()
+                .filter(pool -> pool.isReadOnly() == lectura)
+                .mapToInt(HikariDataSource::getMaximumPoolSize)
+                .findFirst()
+                .orElse(lectura ? 0 : 10);
+    }
+}
@@ -0,0 +1,81 @@
+package com.ecomerce.config;
+
+import com.ecomerce.controller.CatalogoReactivoController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Servidor Reactor Netty para el catálogo reactivo (CatalogoReactivoController).
+ * La aplicación principal sigue siendo Spring MVC sobre Tomcat; este servidor escucha en un puerto aparte
+ * (ecomerce.catalogo-reactivo.puerto) para que las lecturas reactivas no dependan de los hilos de Tomcat.
+ */
+@Component
+@ConditionalOnProperty(name = "ecomerce.catalogo-reactivo.habilitado", havingValue = "true", matchIfMissing = true)
+public class CatalogoReactivoServidor implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoReactivoServidor.class);
+
+    private final CatalogoReactivoController controller;
+    private final ObjectMapper objectMapper;
+    private final int puertoConfigurado;
+    private volatile DisposableServer servidor;
+
+    public CatalogoReactivoServidor(CatalogoReactivoController controller, ObjectMapper objectMapper,
+                                    @Value("${ecomerce.catalogo-reactivo.puerto:8081}") int puertoConfigurado) {
+        this.controller = controller;
+        this.objectMapper = objectMapper;
+        this.puertoConfigurado = puertoConfigurado;
+    }
+
+    @Override
+    public void start() {
+        // Mismo ObjectMapper que la API bloqueante, para que Inventario se serialice igual en ambas
+        HandlerStrategies estrategias = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(controller.rutas(), estrategias);
+        servidor = HttpServer.create()
+                .port(puertoConfigurado)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Catálogo reactivo escuchando en el puerto {}", servidor.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer actual = servidor;
+        if (actual != null) {
+            actual.disposeNow();
+            servidor = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+
+    /**
+     * @return Puerto en el que escucha el servidor (útil si se configuró el puerto 0), o -1 si no está arrancado.
+     */
+    public int puerto() {
+        DisposableServer actual = servidor;
+        return actual == null ? -1 : actual.port();
+    }
+}
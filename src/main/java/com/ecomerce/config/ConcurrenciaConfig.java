@@ -0,0 +1,50 @@
+package com.ecomerce.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Clase de configuración de los executors propios de la aplicación.
+ */
+@Configuration // Indica que esta clase contiene definiciones de beans de configuración.
+public class ConcurrenciaConfig {
+
+    /**
+     * Executor acotado para las lecturas coalescidas de productos y usuarios (ver LecturasCoalescidasService).
+     * Como las lecturas repetidas se comparten, bastan pocos hilos; la cola absorbe los picos.
+     * También guarda los usuarios tras el hash de su contraseña (ver UsuarioService), fuera de los hilos de contraseñas.
+     * @return El executor de lecturas.
+     */
+    @Bean(name = "lecturasExecutor")
+    public ThreadPoolTaskExecutor lecturasExecutor(@Value("${ecomerce.lecturas.hilos:8}") int hilos,
+                                                   @Value("${ecomerce.lecturas.cola:1000}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("lecturas-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor acotado para el hash y la verificación de contraseñas (ver ContrasenaService).
+     * Es trabajo de CPU: pocos hilos (por defecto, la mitad de los núcleos) y una cola corta. Lo que no cabe
+     * se rechaza en el acto, de modo que una ráfaga de registros no deja sin CPU al resto de la API.
+     * @return El executor de contraseñas.
+     */
+    @Bean(name = "contrasenasExecutor")
+    public ThreadPoolTaskExecutor contrasenasExecutor(@Value("${ecomerce.contrasenas.hilos:0}") int hilos,
+                                                      @Value("${ecomerce.contrasenas.cola:100}") int cola) {
+        int tamano = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(tamano);
+        executor.setMaxPoolSize(tamano);
+        executor.setQueueCapacity(cola); // Con la cola llena se lanza TaskRejectedException (política por defecto)
+        executor.setThreadNamePrefix("contrasenas-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecomerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Clase de configuración del DataSource JDBC (Hikari) usado por JPA.
+ * Spring Boot no crea el DataSource por su cuenta cuando también hay una ConnectionFactory de R2DBC
+ * (la del catálogo reactivo), así que se declara aquí con las mismas propiedades de siempre:
+ * spring.datasource.* y spring.datasource.hikari.*.
+ *
+ * Si se configura una réplica de lectura (ecomerce.datasource.lectura.jdbc-url), las transacciones
+ * @Transactional(readOnly = true) se sirven desde ella mientras su retraso no supere
+ * ecomerce.datasource.lectura.retraso-max; las demás siguen yendo a la primaria.
+ */
+@Configuration // Indica que esta clase contiene definiciones de beans de configuración.
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    /**
+     * DataSource principal de la aplicación (pool de Hikari), cuando no hay réplica de lectura.
+     * @param properties Propiedades spring.datasource.*.
+     * @return El DataSource.
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    @ConditionalOnExpression("'${ecomerce.datasource.lectura.jdbc-url:}'.isEmpty()")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * DataSources con réplica de lectura: primaria, réplica y un proxy que elige entre ambas
+     * según el readOnly de la transacción.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "ecomerce.datasource.lectura.jdbc-url")
+    static class ConReplicaDeLectura {
+
+        /**
+         * Pool de la base de datos primaria (escrituras y lecturas no marcadas como readOnly).
+         */
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource dataSourcePrimaria(DataSourceProperties properties) {
+            return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        /**
+         * Pool de la réplica de lectura (propiedades ecomerce.datasource.lectura.*: jdbc-url, username,
+         * password, maximum-pool-size...). Espera poco por una conexión: si la réplica no responde se lee
+         * de la primaria.
+         */
+        @Bean
+        @ConfigurationProperties("ecomerce.datasource.lectura")
+        public HikariDataSource dataSourceLectura() {
+            HikariDataSource lectura = new HikariDataSource();
+            lectura.setPoolName("lectura");
+            lectura.setReadOnly(true);
+            lectura.setConnectionTimeout(1000);
+            return lectura;
+        }
+
+        @Bean
+        public MonitorRetrasoReplica monitorRetrasoReplica(@Qualifier("dataSourcePrimaria") DataSource primaria,
+                                                           @Qualifier("dataSourceLectura") DataSource lectura,
+                                                           @Value("${ecomerce.datasource.lectura.retraso-max:5s}") Duration retrasoMax,
+                                                           MeterRegistry meterRegistry) {
+            MonitorRetrasoReplica monitor = new MonitorRetrasoReplica(primaria, lectura, retrasoMax, Clock.systemUTC());
+            monitor.registrarMetricas(meterRegistry);
+            return monitor;
+        }
+
+        /**
+         * DataSource que usa la aplicación: conexiones perezosas que, al ejecutarse la primera sentencia, van a
+         * la réplica si la transacción es de solo lectura y a la primaria en caso contrario.
+         */
+        @Bean
+        @Primary
+        public DataSource dataSource(@Qualifier("dataSourcePrimaria") DataSource primaria,
+                                     @Qualifier("dataSourceLectura") DataSource lectura,
+                                     MonitorRetrasoReplica monitor, MeterRegistry meterRegistry) {
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaria);
+            proxy.setReadOnlyDataSource(new ReplicaLecturaDataSource(primaria, lectura, monitor, meterRegistry));
+            return proxy;
+        }
+    }
+}
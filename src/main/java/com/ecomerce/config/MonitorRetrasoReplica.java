@@ -0,0 +1,138 @@
+package com.ecomerce.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Mide el retraso de la réplica de lectura con un "latido".
+ * Periódicamente escribe la hora actual en la tabla replica_latido de la base de datos primaria y la lee
+ * de la réplica: la diferencia es el retraso de replicación. Si supera el máximo configurado, o la réplica
+ * no responde, la réplica deja de usarse (ver ReplicaLecturaDataSource) hasta el siguiente latido correcto.
+ */
+public class MonitorRetrasoReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitorRetrasoReplica.class);
+
+    private final JdbcTemplate primaria;
+    private final JdbcTemplate replica;
+    private final long retrasoMaxMillis;
+    private final Clock reloj;
+
+    private volatile boolean replicaUtilizable;
+    private volatile long retrasoMillis = -1; // -1 mientras no se haya podido medir
+
+    public MonitorRetrasoReplica(DataSource primaria, DataSource replica, Duration retrasoMax, Clock reloj) {
+        this.primaria = new JdbcTemplate(primaria);
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout(1); // Una réplica colgada no debe colgar también al monitor
+        this.retrasoMaxMillis = retrasoMax.toMillis();
+        this.reloj = reloj;
+    }
+
+    /**
+     * Crea la tabla del latido en la primaria si no existe (se replica como cualquier otra tabla).
+     */
+    @PostConstruct
+    public void crearTabla() {
+        try {
+            primaria.execute("create table if not exists replica_latido (id int primary key, marca bigint not null)");
+            if (primaria.queryForList("select id from replica_latido where id = 1").isEmpty()) {
+                primaria.update("insert into replica_latido (id, marca) values (1, ?)", reloj.millis());
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo preparar la tabla replica_latido en la primaria: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe un latido en la primaria y vuelve a medir el retraso de la réplica.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.datasource.lectura.latido-ms:1000}")
+    public void latir() {
+        try {
+            primaria.update("update replica_latido set marca = ? where id = 1", reloj.millis());
+        } catch (DataAccessException e) {
+            log.warn("No se pudo escribir el latido en la primaria: {}", e.getMessage());
+        }
+        comprobar();
+    }
+
+    /**
+     * Lee el último latido replicado y decide si la réplica puede usarse.
+     */
+    public void comprobar() {
+        try {
+            List<Long> marcas = replica.queryForList("select marca from replica_latido where id = 1", Long.class);
+            if (marcas.isEmpty()) {
+                marcarNoUtilizable(-1, "la réplica aún no tiene latido");
+                return;
+            }
+            long retraso = Math.max(0, reloj.millis() - marcas.get(0));
+            if (retraso > retrasoMaxMillis) {
+                marcarNoUtilizable(retraso, "retraso de " + retraso + " ms");
+                return;
+            }
+            retrasoMillis = retraso;
+            if (!replicaUtilizable) {
+                log.info("Réplica de lectura disponible (retraso {} ms)", retraso);
+            }
+            replicaUtilizable = true;
+        } catch (DataAccessException e) {
+            marcarNoUtilizable(-1, e.getMessage());
+        }
+    }
+
+    /**
+     * Deja de usar la réplica hasta el siguiente latido correcto (por ejemplo, si no se pudo obtener una conexión).
+     * @param motivo Motivo, para el registro.
+     */
+    public void marcarNoUtilizable(String motivo) {
+        marcarNoUtilizable(retrasoMillis, motivo);
+    }
+
+    /**
+     * @return true si las lecturas pueden ir a la réplica.
+     */
+    public boolean isReplicaUtilizable() {
+        return replicaUtilizable;
+    }
+
+    /**
+     * @return Último retraso medido en milisegundos, o -1 si no se pudo medir.
+     */
+    public long getRetrasoMillis() {
+        return retrasoMillis;
+    }
+
+    /**
+     * Publica el retraso medido y si la réplica está en uso (ecomerce.datasource.replica.*).
+     * @param registry El registro de métricas.
+     */
+    public void registrarMetricas(MeterRegistry registry) {
+        Gauge.builder("ecomerce.datasource.replica.retraso", this, MonitorRetrasoReplica::getRetrasoMillis)
+                .description("Último retraso de replicación medido (ms, -1 si no se pudo medir)")
+                .register(registry);
+        Gauge.builder("ecomerce.datasource.replica.en-uso", this, m -> m.replicaUtilizable ? 1 : 0)
+                .description("1 si las transacciones de solo lectura van a la réplica")
+                .register(registry);
+    }
+
+    private void marcarNoUtilizable(long retraso, String motivo) {
+        retrasoMillis = retraso;
+        if (replicaUtilizable) {
+            log.warn("Réplica de lectura descartada, se lee de la primaria: {}", motivo);
+        }
+        replicaUtilizable = false;
+    }
+}
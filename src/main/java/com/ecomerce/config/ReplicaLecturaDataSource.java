@@ -0,0 +1,75 @@
+package com.ecomerce.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+/**
+ * DataSource para las transacciones de solo lectura.
+ * Entrega conexiones de la réplica mientras MonitorRetrasoReplica la considere al día, y de la primaria
+ * en caso contrario o si la réplica no da conexión. Se usa como "readOnlyDataSource" de
+ * LazyConnectionDataSourceProxy (ver DataSourceConfig), que decide según el readOnly de la transacción.
+ * getConnection(username, password) se delega igual, con las credenciales indicadas, a la réplica o a la primaria.
+ */
+public class ReplicaLecturaDataSource extends AbstractDataSource {
+
+    private final DataSource primaria;
+    private final DataSource replica;
+    private final MonitorRetrasoReplica monitor;
+    private final Counter lecturasReplica;
+    private final Counter lecturasPrimaria;
+
+    public ReplicaLecturaDataSource(DataSource primaria, DataSource replica, MonitorRetrasoReplica monitor,
+                                    MeterRegistry meterRegistry) {
+        this.primaria = primaria;
+        this.replica = replica;
+        this.monitor = monitor;
+        this.lecturasReplica = Counter.builder("ecomerce.datasource.lecturas")
+                .tag("destino", "replica")
+                .description("Conexiones de solo lectura entregadas")
+                .register(meterRegistry);
+        this.lecturasPrimaria = Counter.builder("ecomerce.datasource.lecturas")
+                .tag("destino", "primaria")
+                .description("Conexiones de solo lectura entregadas")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conectar(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return conectar(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection conectar(Apertura apertura) throws SQLException {
+        if (monitor.isReplicaUtilizable()) {
+            try {
+                Connection conexion = apertura.abrir(replica);
+                lecturasReplica.increment();
+                return conexion;
+            } catch (SQLFeatureNotSupportedException e) {
+                throw e; // Hikari no admite credenciales por conexión: no dice nada del estado de la réplica
+            } catch (SQLException e) {
+                monitor.marcarNoUtilizable("sin conexión con la réplica: " + e.getMessage());
+            }
+        }
+        lecturasPrimaria.increment(); // Réplica retrasada o caída: se lee de la primaria
+        return apertura.abrir(primaria);
+    }
+
+    /**
+     * Cómo pedir la conexión a cada DataSource (con o sin credenciales).
+     */
+    @FunctionalInterface
+    private interface Apertura {
+        Connection abrir(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecomerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Clase de configuración que habilita las tareas programadas (@Scheduled) de la aplicación,
+ * como la reparación periódica de los totales de los carritos.
+ */
+@Configuration // Indica que esta clase contiene definiciones de beans de configuración.
+@EnableScheduling // Activa el procesamiento de las anotaciones @Scheduled.
+public class SchedulingConfig {
+}
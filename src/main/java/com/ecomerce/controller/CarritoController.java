@@ -1,9 +1,12 @@
 package com.ecomerce.controller;
 
 import com.ecomerce.assemblers.CarritoModelAssembler; // Importa el Assembler
-import com.ecomerce.model.Carrito;
-import com.ecomerce.model.CarritoItem;
+import com.ecomerce.concurrencia.AlmacenIdempotencia;
+import com.ecomerce.concurrencia.BloqueosPorUsuario;
+import com.ecomerce.dto.CarritoResumen;
+import com.ecomerce.dto.CarritoVista;
 import com.ecomerce.service.CarritoService;
+import com.ecomerce.service.RecursoNoEncontradoException;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,7 +20,6 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
-import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -27,6 +29,11 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 /**
  * Controlador REST para la gestión del carrito de compras.
  * Maneja las solicitudes HTTP relacionadas con los carritos y sus ítems, e incorpora HATEOAS.
+ * Todas las operaciones que modifican el carrito aceptan la cabecera Idempotency-Key: un reintento con la
+ * misma clave recibe la respuesta original sin volver a tocar el carrito ni el stock.
+ * Solo se responde 404 cuando el usuario, el producto o el carrito no existen (RecursoNoEncontradoException); el resto
+ * de errores se propagan sin guardar respuesta, de modo que un reintento con la misma clave vuelve a ejecutarse.
+ * Las operaciones de un mismo usuario se serializan en memoria (BloqueosPorUsuario) antes de abrir la transacción.
  */
 @RestController
 @RequestMapping("/api/carritos")
@@ -35,94 +42,122 @@ public class CarritoController {
 
     private final CarritoService carritoService;
     private final CarritoModelAssembler carritoAssembler; // Inyecta el Assembler
+    private final AlmacenIdempotencia idempotencia; // Respuestas guardadas por Idempotency-Key
+    private final BloqueosPorUsuario bloqueos; // Serializa las operaciones de un mismo usuario
 
-    public CarritoController(CarritoService carritoService, CarritoModelAssembler carritoAssembler) {
+    public CarritoController(CarritoService carritoService, CarritoModelAssembler carritoAssembler,
+                             AlmacenIdempotencia idempotencia, BloqueosPorUsuario bloqueos) {
         this.carritoService = carritoService;
         this.carritoAssembler = carritoAssembler;
+        this.idempotencia = idempotencia;
+        this.bloqueos = bloqueos;
     }
 
     /**
      * Obtiene el carrito de un usuario específico. Si no existe, lo crea.
-     * Incluye enlaces HATEOAS.
+     * Incluye enlaces HATEOAS. Se devuelve una vista plana (CarritoVista), nunca la entidad JPA.
      * GET /api/carritos/{usuarioId}
      * @param usuarioId El ID del usuario.
-     * @return ResponseEntity con EntityModel<Carrito> del usuario.
+     * @return ResponseEntity con EntityModel<CarritoVista> del usuario.
      */
     @Operation(summary = "Obtener o crear carrito de usuario", description = "Recupera el carrito de un usuario específico. Si el usuario no tiene un carrito, se crea uno nuevo.")
     @ApiResponse(responseCode = "200", description = "Carrito recuperado o creado exitosamente",
-                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Carrito.class)))
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CarritoVista.class)))
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
     @GetMapping("/{usuarioId}")
-    public ResponseEntity<EntityModel<Carrito>> obtenerOcrearCarrito(@Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId) {
+    public ResponseEntity<EntityModel<CarritoVista>> obtenerOcrearCarrito(@Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId) {
         try {
-            Carrito carrito = carritoService.obtenerOcrearCarrito(usuarioId);
-            EntityModel<Carrito> carritoModel = carritoAssembler.toModel(carrito); // Usa el assembler
+            CarritoVista carrito = bloqueos.ejecutar(usuarioId, () -> carritoService.obtenerVistaCarrito(usuarioId));
+            EntityModel<CarritoVista> carritoModel = carritoAssembler.toModel(carrito); // Usa el assembler
             return ResponseEntity.ok(carritoModel);
-        } catch (RuntimeException e) {
+        } catch (RecursoNoEncontradoException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build(); // Usuario no encontrado
+        }
+    }
+
+    /**
+     * Obtiene el resumen del carrito de un usuario (unidades y subtotal). Si no existe, lo crea.
+     * GET /api/carritos/{usuarioId}/resumen
+     * @param usuarioId El ID del usuario.
+     * @return ResponseEntity con el CarritoResumen del usuario.
+     */
+    @Operation(summary = "Obtener resumen del carrito", description = "Recupera el número de unidades y el subtotal del carrito de un usuario, sin recorrer sus ítems.")
+    @ApiResponse(responseCode = "200", description = "Resumen recuperado exitosamente",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CarritoResumen.class)))
+    @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
+    @GetMapping("/{usuarioId}/resumen")
+    public ResponseEntity<CarritoResumen> obtenerResumenCarrito(@Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId) {
+        try {
+            return ResponseEntity.ok(bloqueos.ejecutar(usuarioId, () -> carritoService.obtenerResumenCarrito(usuarioId)));
+        } catch (RecursoNoEncontradoException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build(); // Usuario no encontrado
         }
     }
 
     /**
      * Agrega un producto al carrito de un usuario.
-     * Incluye enlaces HATEOAS en la respuesta del CarritoItem.
+     * Responde con la vista del carrito tras el cambio (CarritoVista), con enlaces HATEOAS a la línea afectada.
      * POST /api/carritos/{usuarioId}/items
      * Cuerpo de la solicitud: { "productoId": 1, "cantidad": 2 }
      * @param usuarioId El ID del usuario.
      * @param request Un objeto que contenga productoId y cantidad.
-     * @return ResponseEntity con EntityModel<CarritoItem> agregado/actualizado.
+     * @return ResponseEntity con EntityModel<CarritoVista> del carrito actualizado.
      */
     @Operation(summary = "Agregar producto al carrito", description = "Añade un producto al carrito de un usuario. Si el producto ya existe en el carrito, se actualiza su cantidad.")
     @ApiResponse(responseCode = "200", description = "Producto agregado/actualizado en el carrito",
-                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CarritoItem.class)))
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CarritoVista.class)))
     @ApiResponse(responseCode = "400", description = "Solicitud inválida, stock insuficiente o cantidad inválida")
     @ApiResponse(responseCode = "404", description = "Usuario o Producto no encontrado")
     @PostMapping("/{usuarioId}/items")
-    public ResponseEntity<EntityModel<CarritoItem>> agregarProductoAlCarrito(
+    public ResponseEntity<EntityModel<CarritoVista>> agregarProductoAlCarrito(
             @Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId,
-            @RequestBody(description = "ID del producto y cantidad a agregar", required = true) CarritoItemRequest request) {
-        try {
-            return carritoService.agregarProductoAlCarrito(usuarioId, request.getProductoId(), request.getCantidad())
-                    .map(item -> EntityModel.of(item,
-                            linkTo(methodOn(CarritoController.class).obtenerOcrearCarrito(usuarioId)).withRel("carrito"),
-                            linkTo(methodOn(CarritoController.class).actualizarCantidadProductoEnCarrito(usuarioId, item.getProducto().getId(), item.getCantidad())).withRel("actualizarCantidad"),
-                            linkTo(methodOn(CarritoController.class).eliminarProductoDelCarrito(usuarioId, item.getProducto().getId())).withRel("eliminarItem")))
-                    .map(ResponseEntity::ok)
-                    .orElse(ResponseEntity.badRequest().build());
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        }
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "ID del producto y cantidad a agregar", required = true)
+            @org.springframework.web.bind.annotation.RequestBody CarritoItemRequest request,
+            @Parameter(description = "Clave de idempotencia para reintentos seguros") @RequestHeader(value = AlmacenIdempotencia.CABECERA, required = false) String idempotencyKey) {
+        String huella = request == null ? null : request.getProductoId() + ":" + request.getCantidad();
+        return idempotencia.ejecutar(AlmacenIdempotencia.clave(usuarioId, "agregarItem", idempotencyKey), huella, () -> {
+            try {
+                return bloqueos.ejecutar(usuarioId, () -> carritoService.agregarProductoAlCarrito(usuarioId, request.getProductoId(), request.getCantidad()))
+                        .map(carrito -> conEnlacesDeLinea(carrito, request.getProductoId()))
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.badRequest().build());
+            } catch (RecursoNoEncontradoException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+        });
     }
 
     /**
      * Actualiza la cantidad de un producto específico en el carrito.
+     * Responde con la vista del carrito tras el cambio (CarritoVista), con enlaces HATEOAS a la línea afectada.
      * PUT /api/carritos/{usuarioId}/items/{productoId}?cantidad={nuevaCantidad}
      * @param usuarioId El ID del usuario.
      * @param productoId El ID del producto en el carrito.
      * @param nuevaCantidad La nueva cantidad deseada.
-     * @return ResponseEntity con EntityModel<CarritoItem> actualizado.
+     * @return ResponseEntity con EntityModel<CarritoVista> del carrito actualizado.
      */
     @Operation(summary = "Actualizar cantidad de producto en carrito", description = "Modifica la cantidad de un producto específico en el carrito del usuario.")
     @ApiResponse(responseCode = "200", description = "Cantidad de producto actualizada",
-                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CarritoItem.class)))
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CarritoVista.class)))
     @ApiResponse(responseCode = "400", description = "Solicitud inválida, stock insuficiente o cantidad inválida")
     @ApiResponse(responseCode = "404", description = "Usuario o producto en carrito no encontrado")
     @PutMapping("/{usuarioId}/items/{productoId}")
-    public ResponseEntity<EntityModel<CarritoItem>> actualizarCantidadProductoEnCarrito(
+    public ResponseEntity<EntityModel<CarritoVista>> actualizarCantidadProductoEnCarrito(
             @Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId,
             @Parameter(description = "ID del producto en el carrito", example = "1") @PathVariable Long productoId,
-            @Parameter(description = "Nueva cantidad deseada del producto", example = "3") @RequestParam int nuevaCantidad) {
-        try {
-            return carritoService.actualizarCantidadProductoEnCarrito(usuarioId, productoId, nuevaCantidad)
-                    .map(item -> EntityModel.of(item,
-                            linkTo(methodOn(CarritoController.class).obtenerOcrearCarrito(usuarioId)).withRel("carrito"),
-                            linkTo(methodOn(CarritoController.class).actualizarCantidadProductoEnCarrito(usuarioId, item.getProducto().getId(), item.getCantidad())).withSelfRel(),
-                            linkTo(methodOn(CarritoController.class).eliminarProductoDelCarrito(usuarioId, item.getProducto().getId())).withRel("eliminarItem")))
-                    .map(ResponseEntity::ok)
-                    .orElse(ResponseEntity.badRequest().build());
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        }
+            @Parameter(description = "Nueva cantidad deseada del producto", example = "3") @RequestParam int nuevaCantidad,
+            @Parameter(description = "Clave de idempotencia para reintentos seguros") @RequestHeader(value = AlmacenIdempotencia.CABECERA, required = false) String idempotencyKey) {
+        String huella = productoId + ":" + nuevaCantidad;
+        return idempotencia.ejecutar(AlmacenIdempotencia.clave(usuarioId, "actualizarCantidad", idempotencyKey), huella, () -> {
+            try {
+                return bloqueos.ejecutar(usuarioId, () -> carritoService.actualizarCantidadProductoEnCarrito(usuarioId, productoId, nuevaCantidad))
+                        .map(carrito -> conEnlacesDeLinea(carrito, productoId))
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.badRequest().build());
+            } catch (RecursoNoEncontradoException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+        });
     }
 
     /**
@@ -138,17 +173,20 @@ public class CarritoController {
     @DeleteMapping("/{usuarioId}/items/{productoId}")
     public ResponseEntity<Void> eliminarProductoDelCarrito(
             @Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId,
-            @Parameter(description = "ID del producto a eliminar del carrito", example = "1") @PathVariable Long productoId) {
-        try {
-            boolean eliminado = carritoService.eliminarProductoDelCarrito(usuarioId, productoId);
-            if (eliminado) {
-                return ResponseEntity.noContent().build();
-            } else {
-                return ResponseEntity.notFound().build();
+            @Parameter(description = "ID del producto a eliminar del carrito", example = "1") @PathVariable Long productoId,
+            @Parameter(description = "Clave de idempotencia para reintentos seguros") @RequestHeader(value = AlmacenIdempotencia.CABECERA, required = false) String idempotencyKey) {
+        return idempotencia.ejecutar(AlmacenIdempotencia.clave(usuarioId, "eliminarItem", idempotencyKey), String.valueOf(productoId), () -> {
+            try {
+                boolean eliminado = bloqueos.ejecutar(usuarioId, () -> carritoService.eliminarProductoDelCarrito(usuarioId, productoId));
+                if (eliminado) {
+                    return ResponseEntity.noContent().<Void>build();
+                } else {
+                    return ResponseEntity.notFound().<Void>build();
+                }
+            } catch (RecursoNoEncontradoException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).<Void>build();
             }
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        }
+        });
     }
 
     /**
@@ -161,17 +199,35 @@ public class CarritoController {
     @ApiResponse(responseCode = "204", description = "Carrito vaciado exitosamente")
     @ApiResponse(responseCode = "404", description = "Usuario o carrito no encontrado")
     @DeleteMapping("/{usuarioId}/vaciar")
-    public ResponseEntity<Void> vaciarCarrito(@Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId) {
-        try {
-            boolean vaciado = carritoService.vaciarCarrito(usuarioId);
-            if (vaciado) {
-                return ResponseEntity.noContent().build();
-            } else {
-                return ResponseEntity.notFound().build();
+    public ResponseEntity<Void> vaciarCarrito(@Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId,
+            @Parameter(description = "Clave de idempotencia para reintentos seguros") @RequestHeader(value = AlmacenIdempotencia.CABECERA, required = false) String idempotencyKey) {
+        return idempotencia.ejecutar(AlmacenIdempotencia.clave(usuarioId, "vaciar", idempotencyKey), "", () -> {
+            try {
+                boolean vaciado = bloqueos.ejecutar(usuarioId, () -> carritoService.vaciarCarrito(usuarioId));
+                if (vaciado) {
+                    return ResponseEntity.noContent().<Void>build();
+                } else {
+                    return ResponseEntity.notFound().<Void>build();
+                }
+            } catch (RecursoNoEncontradoException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).<Void>build();
             }
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        }
+        });
+    }
+
+    /**
+     * Modelo de la vista del carrito (enlaces del assembler) con los enlaces para modificar o eliminar la línea
+     * del producto afectado, si sigue en el carrito.
+     */
+    private EntityModel<CarritoVista> conEnlacesDeLinea(CarritoVista carrito, Long productoId) {
+        EntityModel<CarritoVista> carritoModel = carritoAssembler.toModel(carrito);
+        carrito.items().stream()
+                .filter(linea -> linea.productoId().equals(productoId))
+                .findFirst()
+                .ifPresent(linea -> carritoModel.add(
+                        linkTo(methodOn(CarritoController.class).actualizarCantidadProductoEnCarrito(carrito.usuarioId(), productoId, linea.cantidad(), null)).withRel("actualizarCantidad"),
+                        linkTo(methodOn(CarritoController.class).eliminarProductoDelCarrito(carrito.usuarioId(), productoId, null)).withRel("eliminarItem")));
+        return carritoModel;
     }
 
     // Clase DTO (Data Transfer Object) para la solicitud de agregar/actualizar ítems al carrito.
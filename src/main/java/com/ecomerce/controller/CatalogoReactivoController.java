@@ -0,0 +1,96 @@
+package com.ecomerce.controller;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.service.CatalogoReactivoService;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Controlador reactivo de solo lectura para el catálogo (variante no bloqueante de InventarioController).
+ * Se sirve desde su propio servidor Reactor Netty (ver CatalogoReactivoServidor), de modo que un cliente lento
+ * no retiene ningún hilo: Netty solo escribe cuando el socket admite más datos y solo entonces se piden
+ * más filas a la base de datos.
+ *
+ * Endpoints:
+ *  - GET /api/reactivo/inventario: todo el catálogo como NDJSON (un producto por línea, en streaming).
+ *  - GET /api/reactivo/inventario/{id}: un producto (JSON) o 404.
+ *  - GET /api/reactivo/inventario/varios?ids=1,2,3: varios productos (JSON) en una sola consulta, o 400.
+ */
+@Component
+public class CatalogoReactivoController {
+
+    private final CatalogoReactivoService catalogoReactivoService;
+
+    public CatalogoReactivoController(CatalogoReactivoService catalogoReactivoService) {
+        this.catalogoReactivoService = catalogoReactivoService;
+    }
+
+    /**
+     * Rutas del catálogo reactivo.
+     * @return La función de enrutado con los tres endpoints.
+     */
+    public RouterFunction<ServerResponse> rutas() {
+        return route(GET("/api/reactivo/inventario"), this::listar)
+                .andRoute(GET("/api/reactivo/inventario/varios"), this::obtenerVarios)
+                .andRoute(GET("/api/reactivo/inventario/{id}"), this::obtener);
+    }
+
+    /**
+     * Lista todo el catálogo en streaming (NDJSON), con contrapresión hasta la base de datos.
+     * GET /api/reactivo/inventario
+     */
+    Mono<ServerResponse> listar(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(catalogoReactivoService.listar(), Inventario.class);
+    }
+
+    /**
+     * Obtiene un producto por su ID.
+     * GET /api/reactivo/inventario/{id}
+     */
+    Mono<ServerResponse> obtener(ServerRequest request) {
+        Long id;
+        try {
+            id = Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().build();
+        }
+        return catalogoReactivoService.obtenerPorId(id)
+                .flatMap(producto -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(producto))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * Obtiene varios productos por su ID. La respuesta está acotada (máximo de IDs), así que se devuelve como
+     * un array JSON en lugar de en streaming.
+     * GET /api/reactivo/inventario/varios?ids=1,2,3
+     */
+    Mono<ServerResponse> obtenerVarios(ServerRequest request) {
+        List<Long> ids;
+        try {
+            ids = request.queryParams().getOrDefault("ids", List.of()).stream()
+                    .flatMap(valor -> Arrays.stream(valor.split(",")))
+                    .map(String::trim)
+                    .filter(valor -> !valor.isEmpty())
+                    .map(Long::valueOf)
+                    .toList();
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().build();
+        }
+        return catalogoReactivoService.obtenerVarios(ids)
+                .collectList()
+                .flatMap(productos -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(productos))
+                .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest().build());
+    }
+}
@@ -1,14 +1,33 @@
 package com.ecomerce.controller;
 
 import com.ecomerce.assemblers.InventarioModelAssembler;
+import com.ecomerce.concurrencia.ContextoPeticion;
 import com.ecomerce.model.Inventario;
+import com.ecomerce.dto.AjusteStock;
+import com.ecomerce.dto.InformeAjusteStock;
+import com.ecomerce.dto.LecturaCatalogo;
+import com.ecomerce.dto.OrdenCatalogo;
+import com.ecomerce.dto.PaginaCatalogo;
+import com.ecomerce.dto.ProductoTendencia;
+import com.ecomerce.dto.TipoTendencia;
+import com.ecomerce.service.AjustesStockService;
+import com.ecomerce.service.BusquedaCatalogoService;
+import com.ecomerce.service.CatalogoSnapshotService;
 import com.ecomerce.service.InventarioService;
+import com.ecomerce.service.StockEnVivoService;
+import com.ecomerce.service.TendenciasService;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 // Importaciones para validación
@@ -30,6 +49,8 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 /**
  * Controlador REST para la gestión del inventario.
  * Maneja las solicitudes HTTP relacionadas con los productos en el inventario e incorpora HATEOAS.
+ * Las lecturas del catálogo pasan por CatalogoSnapshotService: si la base de datos está lenta se sirven
+ * desde la última foto en memoria, con las cabeceras Age y X-Catalogo-Obsoleto.
  */
 @RestController
 @RequestMapping("/api/inventario")
@@ -38,27 +59,150 @@ public class InventarioController {
 
     private final InventarioService inventarioService;
     private final InventarioModelAssembler assembler; // Inyecta el Assembler
+    private final CatalogoSnapshotService catalogo; // Lecturas con modo degradado (foto en memoria)
+    private final BusquedaCatalogoService busqueda; // Índice de búsqueda en memoria
+    private final StockEnVivoService stockEnVivo; // Stock en vivo por SSE
+    private final TendenciasService tendencias; // Analítica de productos más añadidos a los carritos
+    private final AjustesStockService ajustesStock; // Ajustes de stock en lote del almacén
 
-    public InventarioController(InventarioService inventarioService, InventarioModelAssembler assembler) {
+    /** Cabecera que indica que la respuesta se sirvió desde la foto en memoria del catálogo. */
+    public static final String CABECERA_OBSOLETO = "X-Catalogo-Obsoleto";
+
+    public InventarioController(InventarioService inventarioService, InventarioModelAssembler assembler,
+                                CatalogoSnapshotService catalogo, BusquedaCatalogoService busqueda,
+                                StockEnVivoService stockEnVivo, TendenciasService tendencias,
+                                AjustesStockService ajustesStock) {
         this.inventarioService = inventarioService;
         this.assembler = assembler;
+        this.catalogo = catalogo;
+        this.busqueda = busqueda;
+        this.stockEnVivo = stockEnVivo;
+        this.tendencias = tendencias;
+        this.ajustesStock = ajustesStock;
     }
 
     /**
      * Obtiene una lista de todos los productos en el inventario, incluyendo enlaces HATEOAS.
-     * GET /api/inventario
-     * @return CollectionModel de EntityModel<Inventario> con enlaces.
+     * Si la base de datos está lenta, se sirve la última foto del catálogo con las cabeceras de antigüedad.
+     * Con cualquiera de los parámetros de filtro, orden o página, devuelve en su lugar una página de un listado
+     * filtrado y ordenado, resuelto en la base de datos con paginación por clave (enlace "next" con el cursor).
+     * GET /api/inventario?precioMin=&precioMax=&enStock=&orden=&limite=&cursor=
+     * @param precioMin Precio mínimo (incluido).
+     * @param precioMax Precio máximo (incluido).
+     * @param enStock true para listar solo productos con stock.
+     * @param orden Orden del listado (PRECIO_ASC por defecto).
+     * @param limite Tamaño de la página.
+     * @param cursor Cursor de la página siguiente, tomado del enlace "next" de la página anterior.
+     * @return ResponseEntity con CollectionModel de EntityModel<Inventario> con enlaces, o 400 si los parámetros no son válidos.
      */
-    @Operation(summary = "Obtener todos los productos del inventario", description = "Recupera una lista de todos los productos disponibles en el inventario.")
+    @Operation(summary = "Obtener todos los productos del inventario", description = "Recupera una lista de todos los productos disponibles en el inventario. " +
+               "Con filtros (rango de precio, solo con stock), orden o límite, devuelve una página con enlace 'next' a la siguiente.")
     @ApiResponse(responseCode = "200", description = "Lista de productos recuperada exitosamente",
                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = CollectionModel.class)))
+    @ApiResponse(responseCode = "400", description = "Rango de precios o cursor no válidos")
     @GetMapping
-    public CollectionModel<EntityModel<Inventario>> listar() {
-        List<EntityModel<Inventario>> inventarios = inventarioService.obtenerTodos().stream()
+    public ResponseEntity<CollectionModel<EntityModel<Inventario>>> listar(
+            @Parameter(description = "Precio mínimo", example = "5") @RequestParam(required = false) Double precioMin,
+            @Parameter(description = "Precio máximo", example = "20") @RequestParam(required = false) Double precioMax,
+            @Parameter(description = "Solo productos con stock", example = "true") @RequestParam(required = false) Boolean enStock,
+            @Parameter(description = "Orden del listado", example = "PRECIO_ASC") @RequestParam(required = false) OrdenCatalogo orden,
+            @Parameter(description = "Tamaño de la página", example = "20") @RequestParam(required = false) Integer limite,
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor) {
+        if (precioMin != null || precioMax != null || enStock != null || orden != null || limite != null || cursor != null) {
+            return listarPagina(precioMin, precioMax, enStock, orden, limite, cursor);
+        }
+        LecturaCatalogo<List<Inventario>> lectura = catalogo.listar();
+        List<EntityModel<Inventario>> inventarios = lectura.valor().stream()
                 .map(assembler::toModel) // Usa el assembler
                 .collect(Collectors.toList());
 
-        return CollectionModel.of(inventarios, linkTo(methodOn(InventarioController.class).listar()).withSelfRel());
+        return conAntiguedad(ResponseEntity.ok(), lectura)
+                .body(CollectionModel.of(inventarios, linkTo(InventarioController.class).withSelfRel()));
+    }
+
+    /**
+     * Página de un listado filtrado y ordenado del catálogo (ver InventarioService#listarPagina).
+     * No pasa por la foto en memoria: cada página se lee de la base de datos por su índice.
+     */
+    private ResponseEntity<CollectionModel<EntityModel<Inventario>>> listarPagina(Double precioMin, Double precioMax,
+                                                                                  Boolean enStock, OrdenCatalogo orden,
+                                                                                  Integer limite, String cursor) {
+        OrdenCatalogo ordenPagina = orden != null ? orden : OrdenCatalogo.PRECIO_ASC;
+        int tamano = limite != null ? limite : 20;
+        PaginaCatalogo pagina;
+        try {
+            pagina = inventarioService.listarPagina(precioMin, precioMax, Boolean.TRUE.equals(enStock), ordenPagina,
+                    cursor, tamano);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<EntityModel<Inventario>> inventarios = pagina.productos().stream()
+                .map(assembler::toModel)
+                .collect(Collectors.toList());
+
+        CollectionModel<EntityModel<Inventario>> modelo = CollectionModel.of(inventarios,
+                linkTo(methodOn(InventarioController.class).listar(precioMin, precioMax, enStock, ordenPagina, tamano, cursor)).withSelfRel());
+        if (pagina.siguiente() != null) {
+            modelo.add(linkTo(methodOn(InventarioController.class)
+                    .listar(precioMin, precioMax, enStock, ordenPagina, tamano, pagina.siguiente())).withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(modelo);
+    }
+
+    /**
+     * Busca productos por texto libre en el nombre y la descripción, ordenados por relevancia.
+     * Se resuelve en el índice en memoria sin consultar la base de datos; mientras se construye al arrancar
+     * se responde 503 con Retry-After.
+     * GET /api/inventario/search?q={texto}&limite={limite}
+     * @param q El texto buscado (sin distinguir mayúsculas ni tildes; la última palabra vale como prefijo).
+     * @param limite Número máximo de resultados.
+     * @return ResponseEntity con CollectionModel de EntityModel<Inventario>, del más al menos relevante.
+     */
+    @Operation(summary = "Buscar productos", description = "Búsqueda de texto libre en el nombre y la descripción de los productos, ordenada por relevancia.")
+    @ApiResponse(responseCode = "200", description = "Resultados de la búsqueda",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CollectionModel.class)))
+    @ApiResponse(responseCode = "503", description = "El índice de búsqueda aún se está construyendo")
+    @GetMapping("/search")
+    public ResponseEntity<CollectionModel<EntityModel<Inventario>>> buscar(
+            @Parameter(description = "Texto a buscar", example = "jabón natural") @RequestParam String q,
+            @Parameter(description = "Número máximo de resultados", example = "20") @RequestParam(defaultValue = "20") int limite) {
+        if (!busqueda.isListo()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+        List<EntityModel<Inventario>> resultados = busqueda.buscar(q, limite).stream()
+                .map(assembler::toModel)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(CollectionModel.of(resultados,
+                linkTo(methodOn(InventarioController.class).buscar(q, limite)).withSelfRel()));
+    }
+
+    /**
+     * Obtiene los productos en tendencia o los más añadidos a los carritos, con un enlace a cada producto.
+     * Se resuelve con las ventanas de analítica en memoria, sin consultar la base de datos; las unidades son aproximadas.
+     * GET /api/inventario/trending?tipo={tipo}&limite={limite}
+     * @param tipo TENDENCIA (por encima de su ritmo habitual) o MAS_CARRITOS.
+     * @param limite Número máximo de productos.
+     * @return ResponseEntity con CollectionModel de EntityModel<ProductoTendencia>, o badRequest() si el límite no es válido.
+     */
+    @Operation(summary = "Productos en tendencia", description = "Productos que más se están añadiendo a los carritos, calculados en memoria sobre ventanas de tiempo deslizantes.")
+    @ApiResponse(responseCode = "200", description = "Lista de productos",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = CollectionModel.class)))
+    @ApiResponse(responseCode = "400", description = "Límite no válido")
+    @GetMapping("/trending")
+    public ResponseEntity<CollectionModel<EntityModel<ProductoTendencia>>> tendencias(
+            @Parameter(description = "Tipo de lista", example = "TENDENCIA") @RequestParam(defaultValue = "TENDENCIA") TipoTendencia tipo,
+            @Parameter(description = "Número máximo de productos", example = "10") @RequestParam(defaultValue = "10") int limite) {
+        try {
+            List<EntityModel<ProductoTendencia>> productos = tendencias.obtener(tipo, limite).stream()
+                    .map(p -> EntityModel.of(p, linkTo(InventarioController.class).slash(p.productoId()).withRel("producto")))
+                    .collect(Collectors.toList());
+
+            return ResponseEntity.ok(CollectionModel.of(productos,
+                    linkTo(methodOn(InventarioController.class).tendencias(tipo, limite)).withSelfRel()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -94,20 +238,23 @@ public class InventarioController {
 
     /**
      * Obtiene un producto del inventario por su ID, incluyendo enlaces HATEOAS.
+     * Las peticiones simultáneas del mismo ID comparten una única lectura, y el hilo de Tomcat
+     * se libera mientras se espera el resultado. En modo degradado se sirve desde la foto en memoria.
      * GET /api/inventario/{id}
      * @param id El ID del producto a buscar.
-     * @return ResponseEntity con EntityModel<Inventario> si se encuentra, o notFound().
+     * @return Futuro con ResponseEntity con EntityModel<Inventario> si se encuentra, o notFound().
      */
     @Operation(summary = "Obtener producto por ID", description = "Recupera los detalles de un producto específico del inventario por su ID.")
     @ApiResponse(responseCode = "200", description = "Producto encontrado exitosamente",
                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = Inventario.class)))
     @ApiResponse(responseCode = "404", description = "Producto no encontrado")
     @GetMapping("/{id}")
-    public ResponseEntity<EntityModel<Inventario>> obtener(@Parameter(description = "ID del producto a buscar", example = "1") @PathVariable Long id) {
-        return inventarioService.obtenerPorId(id)
-                .map(assembler::toModel) // Usa el assembler
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<EntityModel<Inventario>>> obtener(@Parameter(description = "ID del producto a buscar", example = "1") @PathVariable Long id) {
+        return catalogo.obtener(id)
+                .thenApply(ContextoPeticion.conPeticionActual(lectura -> lectura.valor()
+                        .map(assembler::toModel) // Usa el assembler (con la petición propagada para los enlaces)
+                        .map(modelo -> conAntiguedad(ResponseEntity.ok(), lectura).body(modelo))
+                        .orElse(ResponseEntity.notFound().build())));
     }
 
     /**
@@ -131,6 +278,7 @@ public class InventarioController {
 
     /**
      * Actualiza el stock de un producto existente, incluyendo enlaces HATEOAS.
+     * Es una entrada o salida de mercancía: también ajusta las unidades recibidas del producto.
      * PUT /api/inventario/{id}/stock?cantidad={cantidad}
      * @param id El ID del producto.
      * @param cantidad La cantidad a añadir (positivo) o quitar (negativo) del stock.
@@ -143,9 +291,86 @@ public class InventarioController {
     @PutMapping("/{id}/stock")
     public ResponseEntity<EntityModel<Inventario>> actualizarStock(@Parameter(description = "ID del producto", example = "1") @PathVariable Long id,
                                                                    @Parameter(description = "Cantidad a ajustar (ej. 10 para añadir, -5 para quitar)", example = "5") @RequestParam int cantidad) {
-        return inventarioService.actualizarStock(id, cantidad)
+        return inventarioService.recibirStock(id, cantidad)
                 .map(assembler::toModel) // Usa el assembler
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.badRequest().build());
     }
+
+    /**
+     * Aplica en lote los ajustes de stock del almacén: variaciones o stocks absolutos, como entradas y salidas de mercancía.
+     * Se aplican ordenados por producto, por bloques en transacciones cortas; los que no se pueden aplicar no detienen al resto.
+     * POST /api/inventario/stock/ajustes
+     * Cuerpo de la solicitud: [{ "productoId": 1, "cantidad": -3 }, { "productoId": 2, "stock": 40 }]
+     * @param ajustes Los ajustes a aplicar.
+     * @return ResponseEntity con el resultado de cada ajuste en el orden de la petición, o badRequest() si el lote está vacío o es demasiado grande.
+     */
+    @Operation(summary = "Ajustar stock en lote", description = "Aplica una lista de ajustes de stock (variación con 'cantidad' o valor absoluto con 'stock') y devuelve el resultado de cada uno.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; cada ajuste indica si se aplicó",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = InformeAjusteStock.class)))
+    @ApiResponse(responseCode = "400", description = "Lote vacío o con más ajustes de los permitidos")
+    @PostMapping("/stock/ajustes")
+    public ResponseEntity<InformeAjusteStock> ajustarStock(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Ajustes de stock", required = true)
+            @org.springframework.web.bind.annotation.RequestBody List<AjusteStock> ajustes) {
+        try {
+            return ResponseEntity.ok(ajustesStock.ajustar(ajustes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Abre un flujo de Server-Sent Events con el stock de un producto: un evento "stock" con el valor actual
+     * y otro por cada cambio confirmado (como mucho uno por intervalo), o "eliminado" si se borra el producto.
+     * Sustituye al sondeo periódico de GET /api/inventario/{id}.
+     * GET /api/inventario/{id}/stock/stream
+     * @param id El ID del producto.
+     * @return ResponseEntity con el emisor SSE, o notFound() si el producto no existe.
+     */
+    @Operation(summary = "Stock en vivo de un producto (SSE)", description = "Envía el stock actual del producto y cada cambio posterior como Server-Sent Events.")
+    @ApiResponse(responseCode = "200", description = "Flujo de eventos abierto", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE))
+    @ApiResponse(responseCode = "404", description = "Producto no encontrado")
+    @GetMapping(value = "/{id}/stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStock(@Parameter(description = "ID del producto", example = "1") @PathVariable Long id) {
+        return stockEnVivo.suscribir(List.of(id))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Variante de varios productos en una sola conexión (por ejemplo, un listado o el carrito).
+     * Cada evento lleva el ID del producto; los IDs que no existen se ignoran.
+     * GET /api/inventario/stock/stream?ids=1,2,3
+     * @param ids IDs de los productos.
+     * @return ResponseEntity con el emisor SSE, notFound() si no existe ninguno o badRequest() si hay demasiados.
+     */
+    @Operation(summary = "Stock en vivo de varios productos (SSE)", description = "Como /{id}/stock/stream, para varios productos en una sola conexión.")
+    @ApiResponse(responseCode = "200", description = "Flujo de eventos abierto", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE))
+    @ApiResponse(responseCode = "400", description = "Sin IDs o demasiados IDs")
+    @ApiResponse(responseCode = "404", description = "No existe ninguno de los productos")
+    @GetMapping(value = "/stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStockVarios(@Parameter(description = "IDs de los productos", example = "1,2,3") @RequestParam List<Long> ids) {
+        try {
+            return stockEnVivo.suscribir(ids)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Añade las cabeceras de antigüedad si la lectura se sirvió desde la foto en memoria del catálogo.
+     * @param respuesta El constructor de la respuesta.
+     * @param lectura La lectura del catálogo.
+     * @return El mismo constructor, con las cabeceras Age y X-Catalogo-Obsoleto si procede.
+     */
+    private static ResponseEntity.BodyBuilder conAntiguedad(ResponseEntity.BodyBuilder respuesta, LecturaCatalogo<?> lectura) {
+        if (lectura.obsoleta()) {
+            respuesta.header(HttpHeaders.AGE, String.valueOf(lectura.antiguedadSegundos()))
+                     .header(CABECERA_OBSOLETO, "true");
+        }
+        return respuesta;
+    }
 }
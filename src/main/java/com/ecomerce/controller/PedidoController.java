@@ -0,0 +1,89 @@
+package com.ecomerce.controller;
+
+import com.ecomerce.assemblers.PedidoModelAssembler;
+import com.ecomerce.concurrencia.AlmacenIdempotencia;
+import com.ecomerce.concurrencia.BloqueosPorUsuario;
+import com.ecomerce.model.Pedido;
+import com.ecomerce.service.PedidoService;
+import com.ecomerce.service.RecursoNoEncontradoException;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Importaciones adicionales para Swagger
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Controlador REST para la gestión de pedidos.
+ * Maneja el checkout (conversión del carrito en pedido) y la consulta de pedidos, e incorpora HATEOAS.
+ * El checkout solo responde 404 si no hay carrito o algún producto ya no existe; los fallos transitorios se propagan
+ * sin guardar respuesta bajo la Idempotency-Key, para que el reintento pueda ejecutarse.
+ */
+@RestController
+@RequestMapping("/api/pedidos")
+@Tag(name = "Pedidos", description = "API para el checkout y la consulta de pedidos de los usuarios")
+public class PedidoController {
+
+    private final PedidoService pedidoService;
+    private final PedidoModelAssembler assembler; // Inyecta el Assembler
+    private final AlmacenIdempotencia idempotencia; // Evita pedidos duplicados por reintentos
+    private final BloqueosPorUsuario bloqueos; // El checkout también modifica el carrito del usuario
+
+    public PedidoController(PedidoService pedidoService, PedidoModelAssembler assembler,
+                            AlmacenIdempotencia idempotencia, BloqueosPorUsuario bloqueos) {
+        this.pedidoService = pedidoService;
+        this.assembler = assembler;
+        this.idempotencia = idempotencia;
+        this.bloqueos = bloqueos;
+    }
+
+    /**
+     * Convierte el carrito de un usuario en un pedido y vacía el carrito.
+     * POST /api/pedidos/checkout/{usuarioId}
+     * @param usuarioId El ID del usuario.
+     * @return ResponseEntity con EntityModel<Pedido> del pedido creado.
+     */
+    @Operation(summary = "Realizar checkout", description = "Convierte el carrito del usuario en un pedido, confirma la venta de las unidades reservadas y vacía el carrito.")
+    @ApiResponse(responseCode = "201", description = "Pedido creado exitosamente",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Pedido.class)))
+    @ApiResponse(responseCode = "400", description = "El carrito está vacío")
+    @ApiResponse(responseCode = "404", description = "Carrito o producto no encontrado")
+    @PostMapping("/checkout/{usuarioId}")
+    public ResponseEntity<EntityModel<Pedido>> realizarCheckout(@Parameter(description = "ID del usuario", example = "1") @PathVariable Long usuarioId,
+            @Parameter(description = "Clave de idempotencia para reintentos seguros") @RequestHeader(value = AlmacenIdempotencia.CABECERA, required = false) String idempotencyKey) {
+        return idempotencia.ejecutar(AlmacenIdempotencia.clave(usuarioId, "checkout", idempotencyKey), "", () -> {
+            try {
+                return bloqueos.ejecutar(usuarioId, () -> pedidoService.realizarCheckout(usuarioId))
+                        .map(assembler::toModel) // Usa el assembler
+                        .map(pedidoModel -> ResponseEntity.created(pedidoModel.getRequiredLink("self").toUri()).body(pedidoModel))
+                        .orElse(ResponseEntity.badRequest().build());
+            } catch (RecursoNoEncontradoException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+        });
+    }
+
+    /**
+     * Obtiene un pedido por su ID, incluyendo sus líneas y enlaces HATEOAS.
+     * GET /api/pedidos/{id}
+     * @param id El ID del pedido.
+     * @return ResponseEntity con EntityModel<Pedido> si se encuentra, o notFound().
+     */
+    @Operation(summary = "Obtener pedido por ID", description = "Recupera un pedido con sus líneas.")
+    @ApiResponse(responseCode = "200", description = "Pedido encontrado exitosamente",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Pedido.class)))
+    @ApiResponse(responseCode = "404", description = "Pedido no encontrado")
+    @GetMapping("/{id}")
+    public ResponseEntity<EntityModel<Pedido>> obtener(@Parameter(description = "ID del pedido", example = "1") @PathVariable Long id) {
+        return pedidoService.obtenerPorId(id)
+                .map(assembler::toModel) // Usa el assembler
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
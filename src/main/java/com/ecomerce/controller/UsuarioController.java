@@ -1,14 +1,25 @@
 package com.ecomerce.controller;
 
 import com.ecomerce.assemblers.UsuarioModelAssembler; // Importa el Assembler
+import com.ecomerce.concurrencia.ContextoPeticion;
 import com.ecomerce.model.Usuario;
+import com.ecomerce.service.LecturasCoalescidasService;
 import com.ecomerce.service.UsuarioService;
 import org.springframework.hateoas.CollectionModel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -19,7 +30,6 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
-import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -35,11 +45,14 @@ public class UsuarioController {
 
     private final UsuarioService usuarioService;
     private final UsuarioModelAssembler assembler; // Inyecta el Assembler
+    private final LecturasCoalescidasService lecturasCoalescidas; // Comparte lecturas simultáneas del mismo ID
 
     // Constructor con inyección de dependencias
-    public UsuarioController(UsuarioService usuarioService, UsuarioModelAssembler assembler) {
+    public UsuarioController(UsuarioService usuarioService, UsuarioModelAssembler assembler,
+                             LecturasCoalescidasService lecturasCoalescidas) {
         this.usuarioService = usuarioService;
         this.assembler = assembler;
+        this.lecturasCoalescidas = lecturasCoalescidas;
     }
 
     /**
@@ -61,38 +74,88 @@ public class UsuarioController {
 
     /**
      * Crea un nuevo usuario, incluyendo enlaces HATEOAS en la respuesta.
+     * Si el email ya está registrado se responde 409 sin calcular el hash. El hash de la contraseña se calcula en el executor de contraseñas, sin ocupar el hilo de la petición;
+     * si ese executor está saturado se responde 503 con Retry-After.
      * POST /api/usuarios
      * @param usuario El objeto Usuario enviado en el cuerpo de la solicitud (JSON).
-     * @return ResponseEntity con EntityModel<Usuario> del usuario creado y enlaces.
+     * @return Futuro con ResponseEntity con EntityModel<Usuario> del usuario creado y enlaces.
      */
     @Operation(summary = "Crear un nuevo usuario", description = "Registra un nuevo usuario en el sistema con los datos proporcionados.")
     @ApiResponse(responseCode = "201", description = "Usuario creado exitosamente",
                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
     @ApiResponse(responseCode = "400", description = "Solicitud inválida o datos incompletos")
+    @ApiResponse(responseCode = "409", description = "Ya hay un usuario registrado con ese email")
+    @ApiResponse(responseCode = "503", description = "Demasiados registros simultáneos, vuelva a intentarlo más tarde")
     @PostMapping
-    public ResponseEntity<EntityModel<Usuario>> crear(@RequestBody(description = "Datos del nuevo usuario a crear", required = true) Usuario usuario) {
-        Usuario nuevoUsuario = usuarioService.guardar(usuario);
-        EntityModel<Usuario> usuarioModel = assembler.toModel(nuevoUsuario); // Usa el assembler
+    public CompletableFuture<ResponseEntity<EntityModel<Usuario>>> crear(@io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Datos del nuevo usuario a crear", required = true)
+                                                                         @org.springframework.web.bind.annotation.RequestBody Usuario usuario) {
+        return usuarioService.registrar(usuario)
+                .thenApply(ContextoPeticion.conPeticionActual(nuevoUsuario -> {
+                    EntityModel<Usuario> usuarioModel = assembler.toModel(nuevoUsuario); // Usa el assembler
+                    return ResponseEntity.created(usuarioModel.getRequiredLink("self").toUri()).body(usuarioModel);
+                }))
+                .exceptionally(UsuarioController::respuestaDeError);
+    }
 
-        return ResponseEntity.created(usuarioModel.getRequiredLink("self").toUri()).body(usuarioModel);
+    /**
+     * Busca un usuario por su email, incluyendo enlaces HATEOAS.
+     * GET /api/usuarios/buscar?email=...
+     * @param email El email del usuario.
+     * @return ResponseEntity con EntityModel<Usuario> si se encuentra, o notFound().
+     */
+    @Operation(summary = "Buscar usuario por email", description = "Recupera los detalles de un usuario a partir de su email.")
+    @ApiResponse(responseCode = "200", description = "Usuario encontrado exitosamente",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
+    @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
+    @GetMapping("/buscar")
+    public ResponseEntity<EntityModel<Usuario>> buscarPorEmail(@Parameter(description = "Email del usuario", example = "ana@example.com") @RequestParam String email) {
+        return usuarioService.obtenerPorEmail(email)
+                .map(assembler::toModel)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Comprueba las credenciales de un usuario (inicio de sesión).
+     * La verificación de la contraseña se ejecuta en el executor de contraseñas; si está saturado se responde 503.
+     * POST /api/usuarios/login
+     * @param credenciales Email y contraseña.
+     * @return Futuro con ResponseEntity con EntityModel<Usuario> si son correctas, o 401.
+     */
+    @Operation(summary = "Iniciar sesión", description = "Comprueba el email y la contraseña de un usuario.")
+    @ApiResponse(responseCode = "200", description = "Credenciales correctas",
+                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
+    @ApiResponse(responseCode = "401", description = "Email o contraseña incorrectos")
+    @ApiResponse(responseCode = "503", description = "Demasiados inicios de sesión simultáneos, vuelva a intentarlo más tarde")
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<EntityModel<Usuario>>> login(@io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Email y contraseña", required = true)
+                                                                         @org.springframework.web.bind.annotation.RequestBody CredencialesRequest credenciales) {
+        return usuarioService.verificarCredenciales(credenciales.getEmail(), credenciales.getPassword())
+                .thenApply(ContextoPeticion.conPeticionActual(usuario -> usuario
+                        .map(assembler::toModel)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build())))
+                .exceptionally(UsuarioController::respuestaDeError);
     }
 
     /**
      * Obtiene un usuario por su ID, incluyendo enlaces HATEOAS.
+     * Las peticiones simultáneas del mismo ID comparten una única lectura.
      * GET /api/usuarios/{id}
      * @param id El ID del usuario a buscar.
-     * @return ResponseEntity con EntityModel<Usuario> si se encuentra, o notFound().
+     * @return Futuro con ResponseEntity con EntityModel<Usuario> si se encuentra, o notFound().
      */
     @Operation(summary = "Obtener usuario por ID", description = "Recupera los detalles de un usuario específico por su ID.")
     @ApiResponse(responseCode = "200", description = "Usuario encontrado exitosamente",
                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class)))
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
     @GetMapping("/{id}")
-    public ResponseEntity<EntityModel<Usuario>> obtener(@Parameter(description = "ID del usuario a buscar", example = "1") @PathVariable Long id) {
-        return usuarioService.obtenerPorId(id)
-                .map(assembler::toModel) // Usa el assembler
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<EntityModel<Usuario>>> obtener(@Parameter(description = "ID del usuario a buscar", example = "1") @PathVariable Long id) {
+        return lecturasCoalescidas.obtenerUsuario(id)
+                .thenApply(ContextoPeticion.conPeticionActual(usuario -> usuario
+                        .map(assembler::toModel) // Usa el assembler (con la petición propagada para los enlaces)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build())));
     }
 
     /**
@@ -113,4 +176,28 @@ public class UsuarioController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Convierte el rechazo del executor de contraseñas en un 503 con Retry-After y el email duplicado en un 409;
+     * los demás errores se propagan.
+     */
+    private static <T> ResponseEntity<T> respuestaDeError(Throwable error) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (causa instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        if (causa instanceof DuplicateKeyException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        throw causa instanceof RuntimeException runtime ? runtime : new CompletionException(causa);
+    }
+
+    // Clase DTO para las credenciales de inicio de sesión
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class CredencialesRequest {
+        private String email;
+        private String password;
+    }
 }
@@ -0,0 +1,26 @@
+package com.ecomerce.dto;
+
+/**
+ * Ajuste de stock de un producto enviado por el almacén (POST /api/inventario/stock/ajustes).
+ * Debe indicar exactamente uno de los dos valores: una variación (cantidad) o el stock absoluto (stock).
+ * Es una entrada o salida de mercancía: las unidades recibidas del producto varían lo mismo que el stock.
+ * @param productoId ID del producto.
+ * @param cantidad Unidades que entran (positivo) o salen (negativo).
+ * @param stock Stock absoluto que debe quedar (no negativo).
+ */
+public record AjusteStock(Long productoId, Integer cantidad, Integer stock) {
+
+    /**
+     * @return true si el ajuste indica un producto y exactamente uno de los dos valores (y el stock absoluto no es negativo).
+     */
+    public boolean esValido() {
+        return productoId != null && (cantidad == null) != (stock == null) && (stock == null || stock >= 0);
+    }
+
+    /**
+     * @return true si es un stock absoluto; false si es una variación.
+     */
+    public boolean esAbsoluto() {
+        return stock != null;
+    }
+}
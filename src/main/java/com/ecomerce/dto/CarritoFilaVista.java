@@ -0,0 +1,18 @@
+package com.ecomerce.dto;
+
+/**
+ * Fila plana devuelta por la consulta de proyección del carrito.
+ * Cada fila corresponde a una línea del carrito (o a un carrito vacío, con los campos de línea en null).
+ * No es una entidad: Hibernate la construye directamente con una expresión "select new".
+ */
+public record CarritoFilaVista(
+        Long carritoId,
+        Long usuarioId,
+        Integer cantidadItems,
+        Double subtotal,
+        Long productoId,
+        String nombreProducto,
+        Double precioUnitario,
+        Integer cantidad,
+        Double totalLinea) {
+}
@@ -0,0 +1,14 @@
+package com.ecomerce.dto;
+
+/**
+ * Línea de la vista de lectura del carrito.
+ * Contiene solo datos planos del producto, por lo que serializarla nunca dispara cargas perezosas.
+ * El precio unitario es el guardado en el ítem al añadirlo, el mismo que usan los totales del carrito.
+ */
+public record CarritoLineaVista(
+        Long productoId,
+        String nombreProducto,
+        Double precioUnitario,
+        Integer cantidad,
+        Double totalLinea) {
+}
@@ -0,0 +1,12 @@
+package com.ecomerce.dto;
+
+/**
+ * Resumen del carrito de un usuario: número de unidades y subtotal.
+ * Se lee directamente de la fila del carrito (totales mantenidos de forma incremental).
+ */
+public record CarritoResumen(
+        Long carritoId,
+        Long usuarioId,
+        Integer cantidadItems,
+        Double subtotal) {
+}
@@ -0,0 +1,35 @@
+package com.ecomerce.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modelo de lectura del carrito de un usuario.
+ * Se construye a partir de una única consulta de proyección (ver CarritoRepository#findVistaByUsuarioId)
+ * y es lo que se serializa en GET /api/carritos/{usuarioId}, en lugar de la entidad Carrito.
+ */
+public record CarritoVista(
+        Long carritoId,
+        Long usuarioId,
+        Integer cantidadItems,
+        Double subtotal,
+        List<CarritoLineaVista> items) {
+
+    /**
+     * Agrupa las filas planas de la proyección en una vista de carrito.
+     * @param filas Filas devueltas por la consulta; todas pertenecen al mismo carrito. No puede estar vacía.
+     * @return La vista del carrito con sus líneas.
+     */
+    public static CarritoVista desdeFilas(List<CarritoFilaVista> filas) {
+        CarritoFilaVista primera = filas.get(0);
+        List<CarritoLineaVista> lineas = new ArrayList<>(filas.size());
+        for (CarritoFilaVista fila : filas) {
+            if (fila.productoId() != null) { // El LEFT JOIN devuelve una fila sin producto si el carrito está vacío
+                lineas.add(new CarritoLineaVista(fila.productoId(), fila.nombreProducto(),
+                        fila.precioUnitario(), fila.cantidad(), fila.totalLinea()));
+            }
+        }
+        return new CarritoVista(primera.carritoId(), primera.usuarioId(),
+                primera.cantidadItems(), primera.subtotal(), List.copyOf(lineas));
+    }
+}
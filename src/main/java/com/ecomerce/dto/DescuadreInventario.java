@@ -0,0 +1,21 @@
+package com.ecomerce.dto;
+
+/**
+ * Producto cuyas unidades no cuadran: stock + unidades en carritos + unidades vendidas ≠ unidades recibidas.
+ * @param productoId ID del producto.
+ * @param stock Stock disponible.
+ * @param unidadesVendidas Unidades vendidas.
+ * @param unidadesEnCarritos Unidades reservadas en los carritos.
+ * @param unidadesRecibidas Unidades recibidas, o null si el producto aún no las tiene registradas.
+ */
+public record DescuadreInventario(Long productoId, Integer stock, Integer unidadesVendidas, Long unidadesEnCarritos,
+                                  Integer unidadesRecibidas) {
+
+    /**
+     * @return El stock que haría cuadrar las unidades (puede ser negativo si hay más reservado y vendido que recibido),
+     *         o null si las unidades recibidas no están registradas.
+     */
+    public Long stockEsperado() {
+        return unidadesRecibidas == null ? null : (long) unidadesRecibidas - unidadesVendidas - unidadesEnCarritos;
+    }
+}
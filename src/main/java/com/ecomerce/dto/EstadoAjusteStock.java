@@ -0,0 +1,15 @@
+package com.ecomerce.dto;
+
+/**
+ * Resultado de cada ajuste de un lote de ajustes de stock.
+ */
+public enum EstadoAjusteStock {
+    /** El stock se ha actualizado. */
+    APLICADO,
+    /** El producto no existe. */
+    NO_ENCONTRADO,
+    /** El ajuste dejaría el stock en negativo: no se aplica. */
+    STOCK_INSUFICIENTE,
+    /** Falta el producto, se indican los dos valores o ninguno, o el stock absoluto es negativo. */
+    INVALIDO
+}
@@ -0,0 +1,14 @@
+package com.ecomerce.dto;
+
+import java.util.List;
+
+/**
+ * Respuesta de un lote de ajustes de stock (AjustesStockService).
+ * @param aplicados Ajustes aplicados.
+ * @param rechazados Ajustes no aplicados (producto inexistente, stock insuficiente o ajuste no válido).
+ * @param resultados Resultado de cada ajuste, en el orden de la petición.
+ * @param duracionMillis Duración del lote.
+ */
+public record InformeAjusteStock(int aplicados, int rechazados, List<ResultadoAjusteStock> resultados,
+                                 long duracionMillis) {
+}
@@ -0,0 +1,16 @@
+package com.ecomerce.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una pasada de conciliación del inventario (ConciliacionInventarioService).
+ * @param rangos Rangos de IDs revisados.
+ * @param descuadres Productos cuyas unidades no cuadraban.
+ * @param corregidos Productos cuyo stock se corrigió.
+ * @param registrados Productos a los que se registraron por primera vez las unidades recibidas.
+ * @param muestra Algunos de los descuadres encontrados (como mucho ecomerce.conciliacion.muestra).
+ * @param duracionMillis Duración de la pasada.
+ */
+public record InformeConciliacion(int rangos, int descuadres, int corregidos, int registrados,
+                                  List<DescuadreInventario> muestra, long duracionMillis) {
+}
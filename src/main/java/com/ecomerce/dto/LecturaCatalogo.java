@@ -0,0 +1,16 @@
+package com.ecomerce.dto;
+
+/**
+ * Resultado de una lectura del catálogo.
+ * Indica si el valor viene de la base de datos o de la última foto en memoria (modo degradado),
+ * y en ese caso su antigüedad, para que el controlador pueda informarlo en las cabeceras.
+ * @param valor El valor leído.
+ * @param obsoleta true si se sirvió desde la foto en memoria.
+ * @param antiguedadSegundos Antigüedad de la foto en segundos (0 si es una lectura fresca).
+ */
+public record LecturaCatalogo<T>(T valor, boolean obsoleta, long antiguedadSegundos) {
+
+    public static <T> LecturaCatalogo<T> fresca(T valor) {
+        return new LecturaCatalogo<>(valor, false, 0);
+    }
+}
@@ -0,0 +1,9 @@
+package com.ecomerce.dto;
+
+/**
+ * Stock de un producto en un momento dado: datos de los eventos de GET /api/inventario/{id}/stock/stream.
+ * @param productoId ID del producto.
+ * @param stock Unidades disponibles, o null si el producto se ha eliminado.
+ */
+public record NivelStock(Long productoId, Integer stock) {
+}
@@ -0,0 +1,13 @@
+package com.ecomerce.dto;
+
+/**
+ * Orden de los listados filtrados del catálogo (GET /api/inventario?orden=...).
+ * Cada orden se resuelve con su propio índice compuesto (precio, id) o (stock, id), y el ID desempata
+ * para que la paginación por clave no salte ni repita productos con el mismo precio o stock.
+ */
+public enum OrdenCatalogo {
+    PRECIO_ASC,
+    PRECIO_DESC,
+    STOCK_ASC,
+    STOCK_DESC
+}
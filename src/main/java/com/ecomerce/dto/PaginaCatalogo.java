@@ -0,0 +1,13 @@
+package com.ecomerce.dto;
+
+import com.ecomerce.model.Inventario;
+
+import java.util.List;
+
+/**
+ * Una página de un listado filtrado del catálogo.
+ * @param productos Los productos de la página, en el orden pedido.
+ * @param siguiente Cursor de la página siguiente (clave de orden e ID del último producto), o null si es la última.
+ */
+public record PaginaCatalogo(List<Inventario> productos, String siguiente) {
+}
@@ -0,0 +1,11 @@
+package com.ecomerce.dto;
+
+/**
+ * Un producto de las listas de GET /api/inventario/trending.
+ * @param productoId ID del producto.
+ * @param unidades Unidades netas añadidas a los carritos en la ventana de la lista (aproximadas).
+ * @param puntuacion Valor por el que se ordena la lista: las unidades en MAS_CARRITOS y, en TENDENCIA,
+ *                   las unidades de la ventana corta por encima de las esperadas según la ventana larga.
+ */
+public record ProductoTendencia(Long productoId, long unidades, double puntuacion) {
+}
@@ -0,0 +1,10 @@
+package com.ecomerce.dto;
+
+/**
+ * Resultado de un ajuste de stock, en la misma posición que el ajuste en la petición.
+ * @param productoId ID del producto.
+ * @param estado Si se aplicó y, si no, por qué.
+ * @param stock Stock del producto al terminar su bloque (null si no existe o el ajuste no era válido).
+ */
+public record ResultadoAjusteStock(Long productoId, EstadoAjusteStock estado, Integer stock) {
+}
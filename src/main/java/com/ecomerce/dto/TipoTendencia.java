@@ -0,0 +1,11 @@
+package com.ecomerce.dto;
+
+/**
+ * Listas de GET /api/inventario/trending.
+ * - TENDENCIA: productos que se añaden a los carritos por encima de su ritmo habitual (ventana corta frente a la larga).
+ * - MAS_CARRITOS: productos con más unidades añadidas a los carritos en la ventana larga.
+ */
+public enum TipoTendencia {
+    TENDENCIA,
+    MAS_CARRITOS
+}
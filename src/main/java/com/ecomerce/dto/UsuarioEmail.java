@@ -0,0 +1,10 @@
+package com.ecomerce.dto;
+
+/**
+ * ID y email de un usuario, sin el resto de la fila.
+ * Se usa para recorrer todos los emails por páginas al construir el filtro de emails registrados.
+ */
+public record UsuarioEmail(
+        Long id,
+        String email) {
+}
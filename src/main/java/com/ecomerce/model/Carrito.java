@@ -2,6 +2,8 @@ package com.ecomerce.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
@@ -13,7 +15,9 @@ import java.util.List;
  * Representa el carrito de un usuario.
  */
 @Entity
-@Table(name = "carritos") // Nombre de la tabla en la base de datos
+@Table(name = "carritos", // Nombre de la tabla en la base de datos
+       indexes = @Index(name = "idx_carritos_fecha_actualizacion_id", columnList = "fechaActualizacion, id")) // Limpieza de carritos abandonados
+// Sin caché de segundo nivel: cambia en casi cada petición de su usuario y otra instancia podría servir una copia desactualizada
 @Data // Genera getters, setters, toString, equals y hashCode
 @NoArgsConstructor // Genera un constructor sin argumentos (requerido por JPA)
 @AllArgsConstructor // Genera un constructor con todos los argumentos
@@ -33,7 +37,10 @@ public class Carrito {
     // mappedBy: Indica que la relación es bidireccional y el campo 'carrito' en CarritoItem es el propietario.
     // CascadeType.ALL: Operaciones de persistencia (guardar, eliminar) en Carrito se propagan a CarritoItem.
     // orphanRemoval = true: Si un CarritoItem se desvincula de un Carrito, se elimina de la base de datos.
+    // Excluida de toString/equals/hashCode: evita inicializar la colección perezosa y la recursión con CarritoItem.
     @OneToMany(mappedBy = "carrito", cascade = CascadeType.ALL, orphanRemoval = true)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<CarritoItem> items = new ArrayList<>();
 
     @Column(nullable = false) // Fecha de creación del carrito
@@ -41,6 +48,14 @@ public class Carrito {
 
     private LocalDateTime fechaActualizacion; // Fecha de última actualización del carrito
 
+    // Totales mantenidos de forma incremental por CarritoService (y reparados por CarritoTotalesReparacionService).
+    // Permiten leer el resumen del carrito con una sola fila, sin recorrer los ítems ni consultar el inventario.
+    @Column(nullable = false) // Número total de unidades en el carrito (suma de las cantidades de los ítems)
+    private Integer cantidadItems = 0;
+
+    @Column(nullable = false) // Suma de cantidad * precio unitario guardado en cada ítem
+    private Double subtotal = 0.0;
+
     // Métodos de ciclo de vida de JPA para gestionar fechas automáticamente
     @PrePersist // Se ejecuta antes de que la entidad sea persistida por primera vez
     protected void onCreate() {
@@ -72,4 +87,23 @@ public class Carrito {
         items.remove(item);
         item.setCarrito(null); // Rompe la relación para orphanRemoval
     }
+
+    /**
+     * Ajusta los totales del carrito con la variación producida por un cambio en un ítem.
+     * @param unidades Unidades añadidas (positivo) o quitadas (negativo).
+     * @param precioUnitario Precio unitario guardado en el ítem afectado.
+     */
+    public void ajustarTotales(int unidades, double precioUnitario) {
+        cantidadItems = cantidadItems + unidades;
+        // Se redondea a céntimos para que los ajustes sucesivos no acumulen error de coma flotante
+        subtotal = Math.round((subtotal + unidades * precioUnitario) * 100.0) / 100.0;
+    }
+
+    /**
+     * Pone a cero los totales del carrito (por ejemplo, al vaciarlo).
+     */
+    public void reiniciarTotales() {
+        cantidadItems = 0;
+        subtotal = 0.0;
+    }
 }
@@ -2,6 +2,9 @@ package com.ecomerce.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
@@ -21,8 +24,12 @@ public class CarritoItem {
     private Long id;
 
     // Relación ManyToOne con Carrito: Muchos ítems pueden pertenecer a un solo carrito.
+    // Lado "hijo" de la relación bidireccional: se excluye de toString/equals/hashCode y de JSON para cortar el ciclo.
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "carrito_id", nullable = false) // Columna de clave foránea en carrito_items
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
     private Carrito carrito;
 
     // Relación ManyToOne con Inventario: Muchos ítems pueden referirse al mismo producto del inventario.
@@ -33,7 +40,8 @@ public class CarritoItem {
     @Column(nullable = false) // Cantidad del producto en este ítem del carrito
     private Integer cantidad;
 
-    // Puedes añadir el precio unitario en el momento de la adición para historial de precios,
-    // aunque generalmente se toma del Inventario en tiempo real.
-    // private Double precioUnitarioEnMomentoDeAdicion;
+    // Precio unitario del producto en el momento de la adición.
+    // Es la base de los totales incrementales del Carrito; si el precio del Inventario cambia,
+    // CarritoTotalesReparacionService lo actualiza y recalcula los totales.
+    private Double precioUnitarioEnMomentoDeAdicion;
 }
\ No newline at end of file
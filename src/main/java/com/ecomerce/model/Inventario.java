@@ -7,13 +7,21 @@ import lombok.AllArgsConstructor;
 import jakarta.validation.constraints.NotBlank; // Importa esta anotación para validación
 import jakarta.validation.constraints.NotNull; // Importa esta anotación para validar que no sea nulo
 import com.fasterxml.jackson.annotation.JsonProperty; // <-- ¡IMPORTACIÓN CRÍTICA!
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Clase de Modelo (Entidad) para Inventario (o Producto).
  * Representa los ítems disponibles en la tienda.
  */
 @Entity
-@Table(name = "inventario") // Nombre de la tabla en la base de datos
+@Table(name = "inventario", // Nombre de la tabla en la base de datos
+       indexes = { // Listados filtrados y ordenados del catálogo con paginación por clave (ver InventarioRepository)
+           @Index(name = "idx_inventario_precio_id", columnList = "precio, id"),
+           @Index(name = "idx_inventario_stock_id", columnList = "stock, id")
+       })
+@Cacheable // Entidad en la caché de segundo nivel (región definida en ehcache.xml)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // Las actualizaciones de stock se reflejan en la caché al confirmar
 @Data // Genera getters, setters, toString, equals y hashCode
 @NoArgsConstructor // Genera un constructor sin argumentos (requerido por JPA)
 @AllArgsConstructor // Genera un constructor con todos los argumentos
@@ -40,6 +48,18 @@ public class Inventario {
     @NotNull(message = "El stock no puede ser nulo") // Validación: no nulo
     private Integer stock;
 
+    // Unidades ya vendidas (confirmadas en un pedido). El stock se descuenta al añadir al carrito;
+    // en el checkout esas unidades reservadas pasan a contarse aquí. Solo lo modifica el servidor.
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer unidadesVendidas = 0;
+
+    // Unidades recibidas en total (alta del producto más reposiciones). Se cumple siempre que
+    // stock + unidades en carritos + unidadesVendidas = unidadesRecibidas; ConciliacionInventarioService lo comprueba.
+    // Null en los productos anteriores a este campo, hasta que la conciliación lo registra. Solo lo modifica el servidor.
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer unidadesRecibidas;
+
     // Puedes añadir más campos según las necesidades de tu e-commerce ecológico:
     // private String imageUrl; // URL de la imagen del producto
     // private String categoria; // Categoría del producto (ej. "Hogar", "Cuidado Personal")
@@ -0,0 +1,41 @@
+package com.ecomerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clase de Modelo (Entidad) para InventarioCambio.
+ * Una fila por cada producto modificado: es el "bus" de invalidación entre instancias de la aplicación.
+ * Quien modifica un producto añade la fila en la misma transacción; cada instancia lee periódicamente las filas
+ * con ID mayor que la última que procesó (y las de fecha reciente, por las que se confirman tarde) y desaloja
+ * ese producto de sus cachés locales.
+ */
+@Entity
+@Table(name = "inventario_cambios", // Nombre de la tabla en la base de datos
+       indexes = @Index(name = "idx_inventario_cambios_fecha", columnList = "fecha")) // Relectura de los cambios recientes y purga
+@Data // Genera getters, setters, toString, equals y hashCode
+@NoArgsConstructor // Genera un constructor sin argumentos (requerido por JPA)
+@AllArgsConstructor // Genera un constructor con todos los argumentos
+public class InventarioCambio {
+
+    @Id // Clave primaria: creciente, sirve como marca de agua para las lecturas
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // Estrategia de generación de ID
+    private Long id;
+
+    @Column(name = "producto_id", nullable = false) // ID del producto modificado (sin FK: el producto puede haberse borrado)
+    private Long productoId;
+
+    @Column(nullable = false) // Fecha del cambio (para releer los recientes y purgar los antiguos)
+    private LocalDateTime fecha;
+
+    @PrePersist // Se ejecuta antes de que la entidad sea persistida por primera vez
+    protected void onCreate() {
+        if (fecha == null) {
+            fecha = LocalDateTime.now();
+        }
+    }
+}
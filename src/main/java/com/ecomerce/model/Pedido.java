@@ -0,0 +1,80 @@
+package com.ecomerce.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase de Modelo (Entidad) para Pedido.
+ * Representa una compra confirmada: una foto inmutable del carrito del usuario en el momento del checkout.
+ */
+@Entity
+@Table(name = "pedidos") // Nombre de la tabla en la base de datos
+@Data // Genera getters, setters, toString, equals y hashCode
+@NoArgsConstructor // Genera un constructor sin argumentos (requerido por JPA)
+@AllArgsConstructor // Genera un constructor con todos los argumentos
+public class Pedido {
+
+    @Id // Clave primaria
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // Estrategia de generación de ID
+    private Long id;
+
+    // Relación ManyToOne con Usuario: un usuario puede tener muchos pedidos.
+    // No se serializa (es perezosa); en su lugar se expone usuarioId.
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private Usuario usuario;
+
+    // Líneas del pedido. Se guardan en cascada junto con el pedido.
+    @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<PedidoItem> items = new ArrayList<>();
+
+    @Column(nullable = false) // Número total de unidades del pedido
+    private Integer cantidadItems = 0;
+
+    @Column(nullable = false) // Importe total del pedido (suma de los totales de línea)
+    private Double total = 0.0;
+
+    @Column(nullable = false) // Fecha de creación del pedido
+    private LocalDateTime fechaCreacion;
+
+    @PrePersist // Se ejecuta antes de que la entidad sea persistida por primera vez
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+    }
+
+    /**
+     * ID del usuario que realizó el pedido. Leer el ID de la referencia perezosa no la inicializa.
+     * @return El ID del usuario.
+     */
+    @JsonProperty("usuarioId")
+    public Long getUsuarioId() {
+        return usuario != null ? usuario.getId() : null;
+    }
+
+    /**
+     * Método de conveniencia para añadir una línea al pedido.
+     * Establece la relación bidireccional y acumula los totales del pedido.
+     * @param item El PedidoItem a añadir.
+     */
+    public void addItem(PedidoItem item) {
+        items.add(item);
+        item.setPedido(this);
+        cantidadItems = cantidadItems + item.getCantidad();
+        total = Math.round((total + item.getTotalLinea()) * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecomerce.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Clase de Modelo (Entidad) para PedidoItem.
+ * Línea de un pedido: copia del producto, precio y cantidad que había en el carrito al hacer el checkout.
+ * Guarda el ID y el nombre del producto en lugar de una relación con Inventario, para que el pedido
+ * no cambie (ni bloquee el borrado) si el producto se modifica después.
+ */
+@Entity
+@Table(name = "pedido_items") // Nombre de la tabla en la base de datos
+@Data // Genera getters, setters, toString, equals y hashCode
+@NoArgsConstructor // Genera un constructor sin argumentos (requerido por JPA)
+@AllArgsConstructor // Genera un constructor con todos los argumentos
+public class PedidoItem {
+
+    @Id // Clave primaria
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // Estrategia de generación de ID
+    private Long id;
+
+    // Relación ManyToOne con Pedido (lado hijo de la relación bidireccional).
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pedido_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    private Pedido pedido;
+
+    @Column(name = "producto_id", nullable = false) // ID del producto vendido
+    private Long productoId;
+
+    @Column(nullable = false) // Nombre del producto en el momento de la compra
+    private String nombreProducto;
+
+    @Column(nullable = false) // Precio unitario en el momento de la compra
+    private Double precioUnitario;
+
+    @Column(nullable = false) // Unidades compradas
+    private Integer cantidad;
+
+    @Column(nullable = false) // cantidad * precioUnitario
+    private Double totalLinea;
+}
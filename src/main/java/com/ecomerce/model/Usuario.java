@@ -1,9 +1,12 @@
     package com.ecomerce.model;
 
+    import com.fasterxml.jackson.annotation.JsonProperty;
     import jakarta.persistence.*;
     import lombok.Data;
     import lombok.NoArgsConstructor;
     import lombok.AllArgsConstructor;
+    import org.hibernate.annotations.Cache;
+    import org.hibernate.annotations.CacheConcurrencyStrategy;
 
     import java.time.LocalDate;
 
@@ -15,6 +18,8 @@
      */
     @Entity // Indica que esta clase es una entidad JPA y se mapea a una tabla de base de datos.
     @Table(name = "usuarios") // Especifica el nombre de la tabla en la base de datos.
+    @Cacheable // Entidad en la caché de segundo nivel (región definida en ehcache.xml)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // Se lee mucho más de lo que se escribe
     @Data // Anotación de Lombok para generar getters, setters, toString, equals y hashCode.
     @NoArgsConstructor // Anotación de Lombok para generar un constructor sin argumentos. REQUERIDO POR JPA.
     @AllArgsConstructor // Anotación de Lombok para generar un constructor con todos los argumentos.
@@ -33,7 +38,8 @@
         @Column(nullable = false, unique = true) // El email es obligatorio y debe ser único
         private String email;
 
-        @Column(nullable = false) // La contraseña es obligatoria (¡recuerda hashearla!)
+        @Column(nullable = false) // La contraseña es obligatoria; se guarda el hash BCrypt (ver ContrasenaService)
+        @JsonProperty(access = JsonProperty.Access.WRITE_ONLY) // Se recibe al registrarse, nunca se devuelve
         private String password; // Cambiado a 'password' por convención, pero 'contraseña' también es válido
 
         private String telefono; // Puede ser nulo
@@ -2,8 +2,13 @@ package com.ecomerce.repository;
 
 import com.ecomerce.model.CarritoItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Interfaz de Repositorio para CarritoItem.
  * Extiende JpaRepository para proporcionar operaciones CRUD básicas
@@ -13,6 +18,32 @@ import org.springframework.stereotype.Repository;
 public interface CarritoItemRepository extends JpaRepository<CarritoItem, Long> {
     // Métodos por defecto: save(), findById(), findAll(), deleteById(), etc.
 
+    /**
+     * Elimina en una sola sentencia todas las líneas de un carrito.
+     * @param carritoId ID del carrito a vaciar.
+     * @return Número de líneas eliminadas.
+     */
+    @Modifying
+    @Query("delete from CarritoItem i where i.carrito.id = :carritoId")
+    int eliminarPorCarritoId(@Param("carritoId") Long carritoId);
+
+    /**
+     * Elimina en una sola sentencia todas las líneas de varios carritos.
+     * @param carritoIds IDs de los carritos a vaciar.
+     * @return Número de líneas eliminadas.
+     */
+    @Modifying
+    @Query("delete from CarritoItem i where i.carrito.id in :carritoIds")
+    int eliminarPorCarritoIds(@Param("carritoIds") List<Long> carritoIds);
+
+    /**
+     * Suma las unidades de las líneas de los carritos indicados.
+     * @param carritoIds IDs de los carritos.
+     * @return Unidades en total (0 si no hay líneas).
+     */
+    @Query("select coalesce(sum(i.cantidad), 0) from CarritoItem i where i.carrito.id in :carritoIds")
+    long sumarUnidadesDeCarritos(@Param("carritoIds") List<Long> carritoIds);
+
     // Puedes añadir métodos personalizados si necesitas buscar ítems por carrito o producto.
     // List<CarritoItem> findByCarritoId(Long carritoId);
     // Optional<CarritoItem> findByCarritoIdAndProductoId(Long carritoId, Long productoId);
@@ -1,9 +1,19 @@
 package com.ecomerce.repository;
 
+import com.ecomerce.dto.CarritoFilaVista;
+import com.ecomerce.dto.CarritoResumen;
 import com.ecomerce.model.Carrito;
 import com.ecomerce.model.Usuario; // Necesario para el método findByUsuario
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,7 +22,7 @@ import java.util.Optional;
  * para la entidad Carrito.
  */
 @Repository // Indica que esta interfaz es un componente de repositorio de Spring
-public interface CarritoRepository extends JpaRepository<Carrito, Long> {
+public interface CarritoRepository extends JpaRepository<Carrito, Long>, CarritoRepositoryPersonalizado {
     // Métodos por defecto: save(), findById(), findAll(), deleteById(), etc.
 
     /**
@@ -23,6 +33,147 @@ public interface CarritoRepository extends JpaRepository<Carrito, Long> {
      */
     Optional<Carrito> findByUsuario(Usuario usuario);
 
+    /**
+     * Busca el carrito de un usuario por su ID, sin cargar la fila del usuario.
+     * @param usuarioId El ID del usuario.
+     * @return Un Optional que contiene el carrito si se encuentra, o vacío si el usuario aún no tiene carrito.
+     */
+    @Query("select c from Carrito c where c.usuario.id = :usuarioId")
+    Optional<Carrito> findByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Busca y bloquea (SELECT ... FOR UPDATE) el carrito de un usuario.
+     * Se usa en el checkout y en las operaciones de CarritoService para que nadie modifique el carrito (ni sus
+     * totales) mientras tanto.
+     * @param usuarioId El ID del usuario.
+     * @return Un Optional con el carrito bloqueado, o vacío si el usuario no tiene carrito.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Carrito c where c.usuario.id = :usuarioId")
+    Optional<Carrito> bloquearPorUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Pone a cero los totales de un carrito y registra la fecha de actualización.
+     * Se usa junto con CarritoItemRepository#eliminarPorCarritoId para vaciar el carrito sin cargar sus ítems.
+     * @param carritoId ID del carrito.
+     * @param fecha Fecha de actualización a registrar.
+     * @return Número de carritos actualizados.
+     */
+    @Modifying
+    @Query("update Carrito c set c.cantidadItems = 0, c.subtotal = 0, c.fechaActualizacion = :fecha where c.id = :carritoId")
+    int reiniciarTotales(@Param("carritoId") Long carritoId, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Proyección de lectura del carrito de un usuario en una sola consulta.
+     * Devuelve una fila por línea del carrito (o una única fila sin producto si el carrito está vacío),
+     * sin cargar las entidades Usuario, CarritoItem ni Inventario.
+     * Las líneas anteriores a la columna de precio guardado (aún null hasta que las alcance la reparación de
+     * totales) toman el precio actual del producto, para que la vista y el pedido nunca lleven un precio null.
+     * @param usuarioId El ID del usuario.
+     * @return Las filas planas del carrito, o una lista vacía si el usuario aún no tiene carrito.
+     */
+    @Query("select new com.ecomerce.dto.CarritoFilaVista(c.id, c.usuario.id, c.cantidadItems, c.subtotal, " +
+           "p.id, p.nombreProducto, coalesce(i.precioUnitarioEnMomentoDeAdicion, p.precio), i.cantidad, " +
+           "coalesce(i.precioUnitarioEnMomentoDeAdicion, p.precio) * i.cantidad) " +
+           "from Carrito c left join c.items i left join i.producto p " +
+           "where c.usuario.id = :usuarioId order by i.id")
+    List<CarritoFilaVista> findVistaByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Lee el resumen del carrito de un usuario (unidades y subtotal) de una sola fila de "carritos".
+     * @param usuarioId El ID del usuario.
+     * @return Un Optional con el resumen, o vacío si el usuario aún no tiene carrito.
+     */
+    @Query("select new com.ecomerce.dto.CarritoResumen(c.id, c.usuario.id, c.cantidadItems, c.subtotal) " +
+           "from Carrito c where c.usuario.id = :usuarioId")
+    Optional<CarritoResumen> findResumenByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Busca, en orden de ID a partir de uno dado, carritos cuyos totales deben repararse: con algún ítem cuyo precio
+     * guardado ya no coincide con el precio actual del producto (o que todavía no tiene precio guardado), o cuyas
+     * unidades o subtotal (con un céntimo de margen por el redondeo) no coinciden con la suma de sus ítems.
+     * @param desde ID a partir del cual buscar (excluido).
+     * @param limite Número máximo de carritos a devolver.
+     * @return Los IDs de los carritos cuyos totales deben repararse, en orden ascendente.
+     */
+    @Query("select c.id from Carrito c where c.id > :desde and (" +
+           "exists (select i.id from CarritoItem i join i.producto p where i.carrito = c " +
+           "and (i.precioUnitarioEnMomentoDeAdicion is null or i.precioUnitarioEnMomentoDeAdicion <> p.precio)) " +
+           "or c.cantidadItems <> coalesce((select sum(i.cantidad) from CarritoItem i where i.carrito = c), 0) " +
+           "or abs(c.subtotal - coalesce((select sum(i.cantidad * i.precioUnitarioEnMomentoDeAdicion) from CarritoItem i where i.carrito = c), 0)) >= 0.01) " +
+           "order by c.id")
+    List<Long> findIdsConTotalesDesactualizados(@Param("desde") Long desde, Limit limite);
+
+    /**
+     * Busca y bloquea (SELECT ... FOR UPDATE) los carritos indicados, en orden de ID.
+     * Los carritos que ya no existen no se devuelven.
+     * @param carritoIds IDs de los carritos.
+     * @return Los carritos bloqueados.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Carrito c where c.id in :carritoIds order by c.id")
+    List<Carrito> bloquearPorIds(@Param("carritoIds") List<Long> carritoIds);
+
+    /**
+     * Actualiza el precio guardado de todos los ítems de los carritos indicados con el precio actual del inventario.
+     * @param carritoIds IDs de los carritos a reparar.
+     * @return Número de ítems actualizados.
+     */
+    @Modifying
+    @Query("update CarritoItem i set i.precioUnitarioEnMomentoDeAdicion = " +
+           "(select p.precio from Inventario p where p.id = i.producto.id) where i.carrito.id in :carritoIds")
+    int actualizarPreciosDeItems(@Param("carritoIds") List<Long> carritoIds);
+
+    /**
+     * Recalcula desde sus ítems los totales de los carritos indicados.
+     * No modifica fechaActualizacion: la reparación no cuenta como actividad del usuario.
+     * @param carritoIds IDs de los carritos a reparar.
+     * @return Número de carritos actualizados.
+     */
+    @Modifying
+    @Query("update Carrito c set " +
+           "c.cantidadItems = coalesce((select sum(i.cantidad) from CarritoItem i where i.carrito.id = c.id), 0), " +
+           "c.subtotal = coalesce((select sum(i.cantidad * i.precioUnitarioEnMomentoDeAdicion) from CarritoItem i where i.carrito.id = c.id), 0) " +
+           "where c.id in :carritoIds")
+    int recalcularTotales(@Param("carritoIds") List<Long> carritoIds);
+
+    /**
+     * Cuenta los carritos sin actividad desde una fecha (recorre el índice de fechaActualizacion).
+     * @param limite Fecha de actualización límite (excluida).
+     * @return Número de carritos inactivos.
+     */
+    long countByFechaActualizacionBefore(LocalDateTime limite);
+
+    /**
+     * Busca y bloquea (SELECT ... FOR UPDATE) los carritos más antiguos sin actividad desde una fecha, en orden de
+     * fecha de actualización: recorre el índice (fechaActualizacion, id) desde el principio y se detiene en el límite.
+     * Con la fila bloqueada nadie puede modificar el carrito mientras se limpia.
+     * @param limite Fecha de actualización límite (excluida).
+     * @param bloque Número máximo de carritos.
+     * @return Los carritos bloqueados.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Carrito c where c.fechaActualizacion < :limite order by c.fechaActualizacion, c.id")
+    List<Carrito> bloquearInactivos(@Param("limite") LocalDateTime limite, Limit bloque);
+
+    /**
+     * IDs de los productos con unidades en los carritos indicados, en orden ascendente (el orden en que
+     * deben bloquearse las filas de inventario, como en el checkout).
+     * @param carritoIds IDs de los carritos.
+     * @return IDs de los productos, sin repetir.
+     */
+    @Query("select distinct i.producto.id from CarritoItem i where i.carrito.id in :carritoIds order by i.producto.id")
+    List<Long> findProductoIdsDeCarritos(@Param("carritoIds") List<Long> carritoIds);
+
+    /**
+     * Elimina en una sola sentencia los carritos indicados (sus líneas deben haberse eliminado antes).
+     * @param carritoIds IDs de los carritos.
+     * @return Número de carritos eliminados.
+     */
+    @Modifying
+    @Query("delete from Carrito c where c.id in :carritoIds")
+    int eliminarPorIds(@Param("carritoIds") List<Long> carritoIds);
+
     // Puedes añadir métodos personalizados para buscar carritos por estado, etc.
     // Optional<Carrito> findByUsuarioAndEstado(Usuario usuario, String estado);
 }
@@ -0,0 +1,20 @@
+package com.ecomerce.repository;
+
+import java.util.Optional;
+
+/**
+ * Operaciones de CarritoRepository que no se pueden expresar como consultas de Spring Data.
+ * Las implementa CarritoRepositoryPersonalizadoImpl.
+ */
+public interface CarritoRepositoryPersonalizado {
+
+    /**
+     * Crea el carrito vacío de un usuario si todavía no tiene uno, con una sola sentencia INSERT.
+     * Si otra transacción lo ha creado a la vez, la clave única de usuario_id lo rechaza y se devuelve vacío
+     * sin marcar la transacción en curso para rollback.
+     * @param usuarioId El ID del usuario.
+     * @return El ID del carrito creado, o vacío si el usuario ya tenía carrito.
+     * @throws org.springframework.dao.DataIntegrityViolationException Si el usuario no existe (clave foránea).
+     */
+    Optional<Long> insertarSiNoExiste(Long usuarioId);
+}
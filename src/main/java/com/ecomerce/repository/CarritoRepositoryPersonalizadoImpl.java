@@ -0,0 +1,47 @@
+package com.ecomerce.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Implementación de CarritoRepositoryPersonalizado.
+ * El INSERT va por JDBC sobre la conexión de la transacción JPA en curso: un error de clave duplicada lanzado
+ * por Hibernate marcaría la transacción para rollback, mientras que por JDBC solo falla la sentencia.
+ */
+public class CarritoRepositoryPersonalizadoImpl implements CarritoRepositoryPersonalizado {
+
+    private static final String INSERTAR = "insert into carritos (usuario_id, fecha_creacion, fecha_actualizacion, "
+            + "cantidad_items, subtotal) values (?, ?, ?, 0, 0)";
+
+    private final JdbcTemplate jdbc;
+
+    public CarritoRepositoryPersonalizadoImpl(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Optional<Long> insertarSiNoExiste(Long usuarioId) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder clave = new GeneratedKeyHolder();
+        try {
+            jdbc.update(conexion -> {
+                PreparedStatement sentencia = conexion.prepareStatement(INSERTAR, new String[]{"id"});
+                sentencia.setLong(1, usuarioId);
+                sentencia.setTimestamp(2, ahora);
+                sentencia.setTimestamp(3, ahora);
+                return sentencia;
+            }, clave);
+        } catch (DuplicateKeyException e) {
+            return Optional.empty(); // Otra petición ha creado el carrito a la vez
+        }
+        return Optional.of(clave.getKey().longValue());
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecomerce.repository;
+
+import com.ecomerce.model.InventarioCambio;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Interfaz de Repositorio para InventarioCambio (bus de invalidación de cachés entre instancias).
+ */
+@Repository // Indica que esta interfaz es un componente de repositorio de Spring
+public interface InventarioCambioRepository extends JpaRepository<InventarioCambio, Long> {
+
+    /**
+     * Lee los cambios posteriores a una marca de agua, en orden.
+     * @param id Marca de agua: se devuelven los cambios con ID mayor.
+     * @param limite Número máximo de cambios a devolver (tamaño del lote).
+     * @return Los cambios, en orden de ID.
+     */
+    List<InventarioCambio> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    /**
+     * Lee, en orden, los cambios registrados desde una fecha con ID dentro de un rango: los que una transacción
+     * confirmó después de que la marca de agua los hubiera dejado atrás.
+     * @param fecha Fecha mínima del cambio.
+     * @param desdeId Se devuelven los cambios con ID mayor (cursor de la lectura por lotes).
+     * @param hastaId Se devuelven los cambios con ID menor o igual (la marca de agua).
+     * @param limite Número máximo de cambios a devolver (tamaño del lote).
+     * @return Los cambios, en orden de ID.
+     */
+    @Query("select c from InventarioCambio c where c.fecha >= :fecha and c.id > :desdeId and c.id <= :hastaId order by c.id")
+    List<InventarioCambio> findRecientesEntre(@Param("fecha") LocalDateTime fecha, @Param("desdeId") Long desdeId,
+                                              @Param("hastaId") Long hastaId, Limit limite);
+
+    /**
+     * ID del último cambio registrado (0 si no hay ninguno). Es la marca de agua inicial de cada instancia.
+     * @return El ID máximo.
+     */
+    @Query("select coalesce(max(c.id), 0) from InventarioCambio c")
+    Long findMaxId();
+
+    /**
+     * Borra los cambios anteriores a una fecha (ya procesados por todas las instancias).
+     * @param fecha Fecha límite.
+     * @return El número de cambios borrados.
+     */
+    @Modifying
+    @Query("delete from InventarioCambio c where c.fecha < :fecha")
+    int purgarAnterioresA(@Param("fecha") LocalDateTime fecha);
+}
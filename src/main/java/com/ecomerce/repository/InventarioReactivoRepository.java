@@ -0,0 +1,75 @@
+package com.ecomerce.repository;
+
+import com.ecomerce.model.Inventario;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Repositorio reactivo (R2DBC) de solo lectura para la tabla 'inventario'.
+ * Lee las mismas filas que InventarioRepository (JPA) y las convierte al mismo modelo Inventario,
+ * pero sin bloquear hilos: las filas se emiten a medida que el cliente las pide.
+ */
+@Repository // Indica que esta clase es un componente de acceso a datos
+public class InventarioReactivoRepository {
+
+    private static final String COLUMNAS =
+            "select id, nombre_producto, descripcion, precio, stock, unidades_vendidas, unidades_recibidas from inventario";
+
+    private final DatabaseClient databaseClient;
+
+    public InventarioReactivoRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Lee todo el catálogo en orden de ID.
+     * @param tamanoLote Número de filas que se piden al driver en cada lote (pista de fetch size).
+     * @return Un Flux con los productos.
+     */
+    public Flux<Inventario> findAll(int tamanoLote) {
+        return databaseClient.sql(COLUMNAS + " order by id")
+                .filter(statement -> statement.fetchSize(tamanoLote))
+                .map(InventarioReactivoRepository::aInventario)
+                .all();
+    }
+
+    /**
+     * Lee un producto por su ID.
+     * @param id El ID del producto.
+     * @return Un Mono con el producto, o vacío si no existe.
+     */
+    public Mono<Inventario> findById(Long id) {
+        return databaseClient.sql(COLUMNAS + " where id = :id")
+                .bind("id", id)
+                .map(InventarioReactivoRepository::aInventario)
+                .one();
+    }
+
+    /**
+     * Lee varios productos por su ID en una sola consulta.
+     * @param ids Los IDs de los productos (no vacío).
+     * @return Un Flux con los productos encontrados, en orden de ID.
+     */
+    public Flux<Inventario> findAllById(Collection<Long> ids) {
+        return databaseClient.sql(COLUMNAS + " where id in (:ids) order by id")
+                .bind("ids", ids)
+                .map(InventarioReactivoRepository::aInventario)
+                .all();
+    }
+
+    private static Inventario aInventario(Readable fila) {
+        return new Inventario(
+                fila.get("id", Long.class),
+                fila.get("nombre_producto", String.class),
+                fila.get("descripcion", String.class),
+                fila.get("precio", Double.class),
+                fila.get("stock", Integer.class),
+                fila.get("unidades_vendidas", Integer.class),
+                fila.get("unidades_recibidas", Integer.class));
+    }
+}
@@ -1,19 +1,145 @@
 package com.ecomerce.repository;
 
+import com.ecomerce.dto.DescuadreInventario;
 import com.ecomerce.model.Inventario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Interfaz de Repositorio para Inventario.
  * Extiende JpaRepository para proporcionar operaciones CRUD básicas
  * para la entidad Inventario. Spring Data JPA se encarga de la implementación.
  */
 @Repository // Indica que esta interfaz es un componente de repositorio de Spring
-public interface InventarioRepository extends JpaRepository<Inventario, Long> {
+public interface InventarioRepository extends JpaRepository<Inventario, Long>, InventarioRepositoryPersonalizado {
     // JpaRepository<TipoDeEntidad, TipoDeIdDeLaEntidad>
     // Por defecto, ya tienes métodos como save(), findById(), findAll(), deleteById(), etc.
 
+    /** @return El menor ID del inventario, o null si está vacío. */
+    @Query("select min(p.id) from Inventario p")
+    Long findIdMinimo();
+
+    /** @return El mayor ID del inventario, o null si está vacío. */
+    @Query("select max(p.id) from Inventario p")
+    Long findIdMaximo();
+
+    /**
+     * Productos de un rango de IDs cuyas unidades no cuadran (stock + carritos + vendidas ≠ recibidas) o que aún
+     * no tienen registradas las unidades recibidas. Una sola consulta agregada por rango: recorre el rango de la
+     * clave primaria y suma las líneas de carrito de cada producto por su clave foránea.
+     * @param desde Primer ID del rango (incluido).
+     * @param hasta Último ID del rango (incluido).
+     * @return Los productos descuadrados del rango.
+     */
+    @Query("select new com.ecomerce.dto.DescuadreInventario(p.id, p.stock, p.unidadesVendidas, coalesce(sum(i.cantidad), 0L), " +
+           "p.unidadesRecibidas) from Inventario p left join CarritoItem i on i.producto = p " +
+           "where p.id between :desde and :hasta " +
+           "group by p.id, p.stock, p.unidadesVendidas, p.unidadesRecibidas " +
+           "having p.unidadesRecibidas is null or p.stock + p.unidadesVendidas + coalesce(sum(i.cantidad), 0L) <> p.unidadesRecibidas")
+    List<DescuadreInventario> findDescuadres(@Param("desde") Long desde, @Param("hasta") Long hasta);
+
+    /**
+     * Lee una página del catálogo en orden de ID (paginación por clave, sin OFFSET), para recorrerlo entero
+     * sin cargarlo de una vez en el contexto de persistencia.
+     * @param id Se devuelven los productos con ID mayor que este.
+     * @param limite Tamaño de la página.
+     * @return Los productos de la página.
+     */
+    List<Inventario> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    /**
+     * Como findByIdGreaterThanOrderByIdAsc, pero devuelve copias sin gestionar (proyección con constructor): no pasan
+     * por el contexto de persistencia ni por la caché de segundo nivel. Para recorrer el catálogo entero
+     * (foto en disco del catálogo).
+     * @param id Se devuelven los productos con ID mayor que este.
+     * @param limite Tamaño de la página.
+     * @return Los productos de la página.
+     */
+    @Query("select new com.ecomerce.model.Inventario(p.id, p.nombreProducto, p.descripcion, p.precio, p.stock, " +
+           "p.unidadesVendidas, p.unidadesRecibidas) from Inventario p where p.id > :id order by p.id")
+    List<Inventario> findCopiasDesde(@Param("id") Long id, Limit limite);
+
+    /**
+     * Copias sin gestionar (proyección con constructor) de los productos indicados.
+     * @param ids IDs de los productos.
+     * @return Los productos que existen, en orden de ID.
+     */
+    @Query("select new com.ecomerce.model.Inventario(p.id, p.nombreProducto, p.descripcion, p.precio, p.stock, " +
+           "p.unidadesVendidas, p.unidadesRecibidas) from Inventario p where p.id in :ids order by p.id")
+    List<Inventario> findCopiasPorIds(@Param("ids") Collection<Long> ids);
+
+    // Listados filtrados del catálogo (GET /api/inventario con filtros). Cada uno recorre un rango del índice
+    // compuesto de su clave de orden, (precio, id) o (stock, id), empezando justo después del cursor:
+    // "clave >= cursor and (clave > cursor or id > idCursor)" es la comparación de tuplas (clave, id) > (cursor, idCursor)
+    // escrita de forma que el optimizador la use como inicio del rango. Los filtros que no son la clave de orden
+    // se comprueban sobre las filas recorridas (salvo un rango de precio estrecho en los órdenes por stock,
+    // donde el optimizador puede preferir el índice de precio y ordenar las pocas filas que cumplen). Sin OFFSET: cada página cuesta lo mismo esté donde esté.
+
+    /**
+     * Página de productos por precio ascendente.
+     * @param precioMin Precio mínimo (incluido).
+     * @param precioMax Precio máximo (incluido).
+     * @param stockMin Stock mínimo (1 para solo productos con stock, 0 para todos).
+     * @param desdePrecio Precio del último producto de la página anterior (precioMin en la primera página).
+     * @param desdeId ID del último producto de la página anterior (0 en la primera página).
+     * @param limite Tamaño de la página.
+     * @return Los productos de la página.
+     */
+    @Query("select p from Inventario p where p.precio <= :precioMax and p.stock >= :stockMin " +
+           "and p.precio >= :desdePrecio and (p.precio > :desdePrecio or p.id > :desdeId) " +
+           "and p.precio >= :precioMin order by p.precio asc, p.id asc")
+    List<Inventario> findPaginaPorPrecioAsc(@Param("precioMin") Double precioMin, @Param("precioMax") Double precioMax,
+                                            @Param("stockMin") Integer stockMin, @Param("desdePrecio") Double desdePrecio,
+                                            @Param("desdeId") Long desdeId, Limit limite);
+
+    /**
+     * Página de productos por precio descendente.
+     * @param hastaPrecio Precio del último producto de la página anterior (precioMax en la primera página).
+     * @param hastaId ID del último producto de la página anterior (Long.MAX_VALUE en la primera página).
+     * @see #findPaginaPorPrecioAsc
+     */
+    @Query("select p from Inventario p where p.precio >= :precioMin and p.stock >= :stockMin " +
+           "and p.precio <= :hastaPrecio and (p.precio < :hastaPrecio or p.id < :hastaId) " +
+           "and p.precio <= :precioMax order by p.precio desc, p.id desc")
+    List<Inventario> findPaginaPorPrecioDesc(@Param("precioMin") Double precioMin, @Param("precioMax") Double precioMax,
+                                             @Param("stockMin") Integer stockMin, @Param("hastaPrecio") Double hastaPrecio,
+                                             @Param("hastaId") Long hastaId, Limit limite);
+
+    /**
+     * Página de productos por stock ascendente. El filtro de precio solo se aplica si sinFiltroPrecio es false:
+     * sin él, la consulta no tiene condición sobre precio y el optimizador no duda entre los dos índices.
+     * @param sinFiltroPrecio true si no se filtra por precio (precioMin y precioMax se ignoran).
+     * @param desdeStock Stock del último producto de la página anterior (stockMin en la primera página).
+     * @param desdeId ID del último producto de la página anterior (0 en la primera página).
+     * @see #findPaginaPorPrecioAsc
+     */
+    @Query("select p from Inventario p where (:sinFiltroPrecio = true or p.precio between :precioMin and :precioMax) " +
+           "and p.stock >= :stockMin and p.stock >= :desdeStock and (p.stock > :desdeStock or p.id > :desdeId) " +
+           "order by p.stock asc, p.id asc")
+    List<Inventario> findPaginaPorStockAsc(@Param("sinFiltroPrecio") boolean sinFiltroPrecio, @Param("precioMin") Double precioMin, @Param("precioMax") Double precioMax,
+                                           @Param("stockMin") Integer stockMin, @Param("desdeStock") Integer desdeStock,
+                                           @Param("desdeId") Long desdeId, Limit limite);
+
+    /**
+     * Página de productos por stock descendente.
+     * @param sinFiltroPrecio true si no se filtra por precio (precioMin y precioMax se ignoran).
+     * @param hastaStock Stock del último producto de la página anterior (Integer.MAX_VALUE en la primera página).
+     * @param hastaId ID del último producto de la página anterior (Long.MAX_VALUE en la primera página).
+     * @see #findPaginaPorPrecioAsc
+     */
+    @Query("select p from Inventario p where (:sinFiltroPrecio = true or p.precio between :precioMin and :precioMax) " +
+           "and p.stock >= :stockMin and p.stock <= :hastaStock and (p.stock < :hastaStock or p.id < :hastaId) " +
+           "order by p.stock desc, p.id desc")
+    List<Inventario> findPaginaPorStockDesc(@Param("sinFiltroPrecio") boolean sinFiltroPrecio, @Param("precioMin") Double precioMin, @Param("precioMax") Double precioMax,
+                                            @Param("stockMin") Integer stockMin, @Param("hastaStock") Integer hastaStock,
+                                            @Param("hastaId") Long hastaId, Limit limite);
+
     // Puedes añadir métodos personalizados si necesitas consultas específicas:
     // Optional<Inventario> findByNombreProducto(String nombreProducto);
     // List<Inventario> findByStockGreaterThan(Integer stock);
@@ -0,0 +1,48 @@
+package com.ecomerce.repository;
+
+import java.util.List;
+
+/**
+ * Actualizaciones masivas del inventario que no se pueden expresar como consultas de Spring Data sin vaciar la
+ * caché de segundo nivel: una sentencia UPDATE de HQL desaloja la región entera de Inventario al ejecutarse.
+ * Las implementa InventarioRepositoryPersonalizadoImpl con sentencias JDBC que solo desalojan los productos afectados.
+ */
+public interface InventarioRepositoryPersonalizado {
+
+    /**
+     * Confirma como vendidas las unidades reservadas en un carrito, en una única sentencia sobre todos sus productos.
+     * La lista de IDs debe ir ordenada: InnoDB resuelve un IN sobre la clave primaria como un recorrido ascendente,
+     * así que las filas se bloquean siempre en orden creciente de ID y dos checkouts con productos en común
+     * no pueden bloquearse mutuamente (deadlock).
+     * @param carritoId ID del carrito cuyas líneas se confirman.
+     * @param productoIds IDs de los productos del carrito, en orden ascendente.
+     * @return Número de productos actualizados.
+     */
+    int registrarVentaDesdeCarrito(Long carritoId, List<Long> productoIds);
+
+    /**
+     * Devuelve al stock las unidades reservadas en varios carritos, en una única sentencia sobre todos sus productos
+     * (por ejemplo, al limpiar carritos abandonados). Como en registrarVentaDesdeCarrito, la lista de IDs debe ir
+     * ordenada para bloquear las filas en orden creciente de ID.
+     * @param carritoIds IDs de los carritos cuyas líneas se devuelven.
+     * @param productoIds IDs de los productos de esas líneas, en orden ascendente.
+     * @return Número de productos actualizados.
+     */
+    int devolverStockDeCarritos(List<Long> carritoIds, List<Long> productoIds);
+
+    /**
+     * Corrige el stock de los productos descuadrados a recibidas − vendidas − unidades en carritos, calculado en la
+     * propia sentencia (sobre las filas ya bloqueadas) para no pisar un cambio hecho después de leer el descuadre.
+     * No toca los productos en los que el resultado sería negativo.
+     * @param ids IDs de los productos.
+     * @return Número de productos corregidos.
+     */
+    int corregirStock(List<Long> ids);
+
+    /**
+     * Registra las unidades recibidas de los productos que aún no las tienen, como stock + carritos + vendidas.
+     * @param ids IDs de los productos.
+     * @return Número de productos actualizados.
+     */
+    int registrarUnidadesRecibidas(List<Long> ids);
+}
@@ -0,0 +1,97 @@
+package com.ecomerce.repository;
+
+import com.ecomerce.model.Inventario;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Implementación de InventarioRepositoryPersonalizado.
+ * Las sentencias van por JDBC sobre la conexión de la transacción JPA en curso, como en AjustesStockService: no pasan
+ * por Hibernate, así que no vacían la región de Inventario de la caché de segundo nivel. En su lugar, los productos
+ * afectados se desalojan de la caché de esta instancia cuando la transacción se confirma (antes, otra lectura podría
+ * volver a cachear el valor anterior). Las demás instancias se enteran por el bus de invalidación: quien llama
+ * registra los productos con CambiosInventarioService#registrar, como antes.
+ */
+public class InventarioRepositoryPersonalizadoImpl implements InventarioRepositoryPersonalizado {
+
+    private static final String REGISTRAR_VENTA = "update inventario set unidades_vendidas = unidades_vendidas + "
+            + "(select sum(i.cantidad) from carrito_items i where i.carrito_id = :carritoId and i.producto_id = inventario.id) "
+            + "where id in (:productoIds)";
+    private static final String DEVOLVER_STOCK = "update inventario set stock = stock + "
+            + "(select sum(i.cantidad) from carrito_items i where i.carrito_id in (:carritoIds) and i.producto_id = inventario.id) "
+            + "where id in (:productoIds)";
+    private static final String EN_CARRITOS = "(select coalesce(sum(i.cantidad), 0) from carrito_items i where i.producto_id = inventario.id)";
+    private static final String CORREGIR_STOCK = "update inventario set stock = unidades_recibidas - unidades_vendidas - "
+            + EN_CARRITOS + " where id in (:ids) and unidades_recibidas is not null "
+            + "and unidades_recibidas - unidades_vendidas - " + EN_CARRITOS + " >= 0";
+    private static final String REGISTRAR_RECIBIDAS = "update inventario set unidades_recibidas = stock + unidades_vendidas + "
+            + EN_CARRITOS + " where id in (:ids) and unidades_recibidas is null";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public InventarioRepositoryPersonalizadoImpl(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public int registrarVentaDesdeCarrito(Long carritoId, List<Long> productoIds) {
+        int filas = jdbc.update(REGISTRAR_VENTA, new MapSqlParameterSource("carritoId", carritoId)
+                .addValue("productoIds", productoIds));
+        desalojarAlConfirmar(productoIds);
+        return filas;
+    }
+
+    @Override
+    public int devolverStockDeCarritos(List<Long> carritoIds, List<Long> productoIds) {
+        int filas = jdbc.update(DEVOLVER_STOCK, new MapSqlParameterSource("carritoIds", carritoIds)
+                .addValue("productoIds", productoIds));
+        desalojarAlConfirmar(productoIds);
+        return filas;
+    }
+
+    @Override
+    public int corregirStock(List<Long> ids) {
+        int filas = jdbc.update(CORREGIR_STOCK, new MapSqlParameterSource("ids", ids));
+        desalojarAlConfirmar(ids);
+        return filas;
+    }
+
+    @Override
+    public int registrarUnidadesRecibidas(List<Long> ids) {
+        int filas = jdbc.update(REGISTRAR_RECIBIDAS, new MapSqlParameterSource("ids", ids));
+        desalojarAlConfirmar(ids);
+        return filas;
+    }
+
+    /**
+     * Desaloja los productos de la caché de segundo nivel al confirmarse la transacción en curso
+     * (o en el acto, si no hay ninguna).
+     */
+    private void desalojarAlConfirmar(List<Long> ids) {
+        List<Long> copia = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            desalojar(copia);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                desalojar(copia);
+            }
+        });
+    }
+
+    private void desalojar(List<Long> ids) {
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(id -> cache.evict(Inventario.class, id));
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecomerce.repository;
+
+import com.ecomerce.model.Pedido;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Interfaz de Repositorio para Pedido.
+ * Extiende JpaRepository para proporcionar operaciones CRUD básicas
+ * para la entidad Pedido.
+ */
+@Repository // Indica que esta interfaz es un componente de repositorio de Spring
+public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+
+    /**
+     * Busca un pedido por su ID cargando sus líneas en la misma consulta.
+     * @param id El ID del pedido.
+     * @return Un Optional que contiene el pedido con sus líneas, o vacío si no existe.
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<Pedido> findConItemsById(Long id);
+}
@@ -1,9 +1,16 @@
  package com.ecomerce.repository;
 
+    import com.ecomerce.dto.UsuarioEmail;
     import com.ecomerce.model.Usuario;
+    import org.springframework.data.domain.Limit;
     import org.springframework.data.jpa.repository.JpaRepository;
+    import org.springframework.data.jpa.repository.Query;
+    import org.springframework.data.repository.query.Param;
     import org.springframework.stereotype.Repository;
 
+    import java.util.List;
+    import java.util.Optional;
+
     /**
      * Interfaz de Repositorio para Usuario.
      * Extiende JpaRepository para proporcionar operaciones CRUD (Crear, Leer, Actualizar, Eliminar)
@@ -19,5 +26,28 @@
         // Por ejemplo:
         // Optional<Usuario> findByNombreUsuario(String nombreUsuario);
         // List<Usuario> findByEmailContaining(String email);
+
+        /**
+         * Busca un usuario por su email (columna única, con índice).
+         * @param email El email del usuario.
+         * @return Un Optional con el usuario, o vacío si no existe.
+         */
+        Optional<Usuario> findByEmail(String email);
+
+        /**
+         * Comprueba si hay un usuario con ese email, sin cargar la fila.
+         * @param email El email a comprobar.
+         * @return true si ya está registrado.
+         */
+        boolean existsByEmail(String email);
+
+        /**
+         * Lee una página de emails en orden de ID (paginación por clave, sin OFFSET).
+         * @param desde Se devuelven los usuarios con ID mayor que este.
+         * @param limite Tamaño de la página.
+         * @return Los IDs y emails de la página.
+         */
+        @Query("select new com.ecomerce.dto.UsuarioEmail(u.id, u.email) from Usuario u where u.id > :desde order by u.id")
+        List<UsuarioEmail> findEmailsDesde(@Param("desde") Long desde, Limit limite);
     }
     
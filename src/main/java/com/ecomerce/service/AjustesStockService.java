@@ -0,0 +1,192 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.AjusteStock;
+import com.ecomerce.dto.EstadoAjusteStock;
+import com.ecomerce.dto.InformeAjusteStock;
+import com.ecomerce.dto.ResultadoAjusteStock;
+import com.ecomerce.model.Inventario;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Ajustes de stock en lote para la sincronización con el almacén (POST /api/inventario/stock/ajustes).
+ * Sustituye a miles de PUT /api/inventario/{id}/stock, cada uno con su lectura y su escritura por JPA.
+ *
+ * - Los ajustes se ordenan por ID de producto y se aplican por bloques, cada uno en su propia transacción corta:
+ *   las filas se bloquean en orden ascendente, como en el checkout, para no provocar interbloqueos con los carritos.
+ * - Cada bloque bloquea y lee el stock de sus productos, ejecuta un único batch JDBC de sentencias UPDATE
+ *   condicionales (el stock nunca queda negativo) y vuelve a leer el stock resultante. El resultado de cada ajuste
+ *   se calcula aplicando los ajustes, en orden, al stock leído: con las filas bloqueadas es lo que hace la base de
+ *   datos. Se contrasta con el número de filas de cada sentencia, si el driver lo da (puede devolver
+ *   Statement.SUCCESS_NO_INFO), y con el stock final; si algo no cuadra, el bloque se deshace y el lote falla.
+ * - Las unidades recibidas varían lo mismo que el stock, como en InventarioService#recibirStock.
+ * - Las sentencias no pasan por Hibernate: cada bloque registra sus productos en el bus de invalidación y, tras
+ *   confirmarse, los desaloja de la caché de segundo nivel de esta instancia.
+ * Métricas: ecomerce.inventario.ajustes.bloque y ecomerce.inventario.ajustes.aplicados.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class AjustesStockService {
+
+    // Un ajuste se expresa como nuevo stock = stock * factor + valor (factor 1: variación; factor 0: absoluto).
+    // unidades_recibidas va primero: MySQL evalúa las asignaciones en orden y debe ver el stock anterior.
+    private static final String AJUSTAR = "update inventario "
+            + "set unidades_recibidas = unidades_recibidas + (stock * :factor + :valor - stock), stock = stock * :factor + :valor "
+            + "where id = :id and stock * :factor + :valor >= 0";
+    private static final String BLOQUEAR_STOCK = "select id, stock from inventario where id in (:ids) order by id for update";
+    private static final String LEER_STOCK = "select id, stock from inventario where id in (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final CambiosInventarioService cambiosInventario;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoBloque;
+    private final int maxAjustes;
+    private final Timer bloque;
+    private final Counter aplicados;
+
+    public AjustesStockService(DataSource dataSource,
+                               CambiosInventarioService cambiosInventario,
+                               EntityManagerFactory entityManagerFactory,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${ecomerce.inventario.ajustes.tamano-bloque:500}") int tamanoBloque,
+                               @Value("${ecomerce.inventario.ajustes.max:20000}") int maxAjustes) {
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.cambiosInventario = cambiosInventario;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoBloque = tamanoBloque;
+        this.maxAjustes = maxAjustes;
+        this.bloque = Timer.builder("ecomerce.inventario.ajustes.bloque")
+                .description("Duración de la transacción de cada bloque de ajustes de stock")
+                .register(meterRegistry);
+        this.aplicados = Counter.builder("ecomerce.inventario.ajustes.aplicados")
+                .description("Ajustes de stock aplicados en lote")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Aplica un lote de ajustes de stock. Los ajustes no válidos o que no se pueden aplicar no detienen al resto.
+     * Varios ajustes del mismo producto se aplican en el orden de la petición.
+     * @param ajustes Ajustes a aplicar.
+     * @return El informe con el resultado de cada ajuste, en el orden de la petición.
+     * @throws IllegalArgumentException Si la lista está vacía o supera ecomerce.inventario.ajustes.max.
+     */
+    public InformeAjusteStock ajustar(List<AjusteStock> ajustes) {
+        if (ajustes == null || ajustes.isEmpty() || ajustes.size() > maxAjustes) {
+            throw new IllegalArgumentException("El lote debe tener entre 1 y " + maxAjustes + " ajustes");
+        }
+        long inicio = System.nanoTime();
+        ResultadoAjusteStock[] resultados = new ResultadoAjusteStock[ajustes.size()];
+        List<Integer> orden = new ArrayList<>();
+        for (int i = 0; i < ajustes.size(); i++) {
+            AjusteStock ajuste = ajustes.get(i);
+            if (ajuste == null || !ajuste.esValido()) {
+                resultados[i] = new ResultadoAjusteStock(ajuste == null ? null : ajuste.productoId(), EstadoAjusteStock.INVALIDO, null);
+            } else {
+                orden.add(i);
+            }
+        }
+        orden.sort(Comparator.comparing(i -> ajustes.get(i).productoId())); // Ordenación estable: se respeta el orden de un mismo producto
+
+        Cache cache = entityManagerFactory.getCache();
+        for (int desde = 0; desde < orden.size(); desde += tamanoBloque) {
+            List<Integer> indices = orden.subList(desde, Math.min(desde + tamanoBloque, orden.size()));
+            List<Long> modificados = bloque.record(() ->
+                    transactionTemplate.execute(status -> aplicarBloque(ajustes, indices, resultados)));
+            modificados.forEach(id -> cache.evict(Inventario.class, id)); // Ya confirmado: nadie volverá a cachear el valor anterior
+        }
+
+        int totalAplicados = (int) IntStream.range(0, resultados.length)
+                .filter(i -> resultados[i].estado() == EstadoAjusteStock.APLICADO)
+                .count();
+        aplicados.increment(totalAplicados);
+        return new InformeAjusteStock(totalAplicados, resultados.length - totalAplicados, List.of(resultados),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Aplica un bloque de ajustes (ya ordenados por ID) en la transacción en curso.
+     * @return IDs de los productos modificados.
+     * @throws IllegalStateException Si el resultado de la base de datos no cuadra con el calculado (se deshace el bloque).
+     */
+    private List<Long> aplicarBloque(List<AjusteStock> ajustes, List<Integer> indices, ResultadoAjusteStock[] resultados) {
+        List<Long> ids = indices.stream().map(i -> ajustes.get(i).productoId()).distinct().toList();
+        Map<Long, Integer> esperados = leerStock(BLOQUEAR_STOCK, ids); // En orden de ID, como el checkout
+
+        SqlParameterSource[] parametros = indices.stream().map(i -> new MapSqlParameterSource("id", ajustes.get(i).productoId())
+                .addValue("factor", factor(ajustes.get(i)))
+                .addValue("valor", valor(ajustes.get(i)))).toArray(SqlParameterSource[]::new);
+        int[] filas = jdbc.batchUpdate(AJUSTAR, parametros);
+
+        List<Long> modificados = new ArrayList<>();
+        EstadoAjusteStock[] estados = new EstadoAjusteStock[indices.size()];
+        for (int j = 0; j < indices.size(); j++) {
+            AjusteStock ajuste = ajustes.get(indices.get(j));
+            Integer stock = esperados.get(ajuste.productoId());
+            int nuevo = stock == null ? -1 : stock * factor(ajuste) + valor(ajuste);
+            boolean aplicado = stock != null && nuevo >= 0; // La misma condición que la sentencia, sobre filas bloqueadas
+            if (filas[j] != Statement.SUCCESS_NO_INFO && (filas[j] > 0) != aplicado) {
+                throw new IllegalStateException("El ajuste del producto " + ajuste.productoId()
+                        + " no coincide con el stock leído: se deshace el bloque");
+            }
+            if (aplicado) {
+                esperados.put(ajuste.productoId(), nuevo);
+                modificados.add(ajuste.productoId());
+                estados[j] = EstadoAjusteStock.APLICADO;
+            } else {
+                estados[j] = stock == null ? EstadoAjusteStock.NO_ENCONTRADO : EstadoAjusteStock.STOCK_INSUFICIENTE;
+            }
+        }
+
+        Map<Long, Integer> stocks = leerStock(LEER_STOCK, ids);
+        if (!stocks.equals(esperados)) { // Sin recuento del driver, el stock final es la comprobación
+            throw new IllegalStateException("El stock tras los ajustes no coincide con el calculado: se deshace el bloque");
+        }
+        for (int j = 0; j < indices.size(); j++) {
+            Long id = ajustes.get(indices.get(j)).productoId();
+            resultados[indices.get(j)] = new ResultadoAjusteStock(id, estados[j], stocks.get(id));
+        }
+        if (!modificados.isEmpty()) {
+            cambiosInventario.registrar(modificados); // La sentencia JDBC no pasa por la caché de segundo nivel
+        }
+        return modificados;
+    }
+
+    private Map<Long, Integer> leerStock(String sql, List<Long> ids) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        jdbc.query(sql, Map.of("ids", ids), fila -> {
+            stocks.put(fila.getLong("id"), fila.getInt("stock"));
+        });
+        return stocks;
+    }
+
+    // nuevo stock = stock * factor + valor
+
+    private static int factor(AjusteStock ajuste) {
+        return ajuste.esAbsoluto() ? 0 : 1;
+    }
+
+    private static int valor(AjusteStock ajuste) {
+        return ajuste.esAbsoluto() ? ajuste.stock() : ajuste.cantidad();
+    }
+}
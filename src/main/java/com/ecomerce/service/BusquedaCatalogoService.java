@@ -0,0 +1,233 @@
+package com.ecomerce.service;
+
+import com.ecomerce.busqueda.IndiceBusqueda;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.repository.InventarioRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda de texto libre en el catálogo (GET /api/inventario/search) sobre un índice invertido en memoria
+ * (IndiceBusqueda). Las búsquedas no tocan la base de datos.
+ *
+ * - El índice se construye al arrancar con la carga del catálogo de CatalogoEnDiscoService (foto en disco más los
+ *   cambios posteriores) y se indexa en paralelo en un ForkJoinPool propio. Las reconstrucciones posteriores leen el
+ *   catálogo por páginas. Hasta que termina, isListo() es false y el controlador responde 503.
+ * - Se mantiene al día con los InventarioModificadoEvento de esta instancia, al confirmarse la transacción,
+ *   y con los CambiosInventarioEvento del bus (cambios hechos en otras instancias), releyendo esos productos de la
+ *   primaria (la réplica de lectura puede no tener aún el cambio).
+ * - Los cambios que llegan mientras se construye el índice se anotan y se releen al terminar.
+ * Métricas: ecomerce.busqueda.duracion, ecomerce.busqueda.documentos y ecomerce.busqueda.terminos.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class BusquedaCatalogoService {
+
+    private static final Logger log = LoggerFactory.getLogger(BusquedaCatalogoService.class);
+
+    private final InventarioRepository inventarioRepository;
+    private final CatalogoEnDiscoService catalogoEnDisco;
+    private final TransactionTemplate lectura;
+    private final TransactionTemplate primaria; // Relecturas de productos cambiados
+    private final int tamanoPagina;
+    private final int hilos;
+    private final int limiteMax;
+    private final Timer duracion;
+
+    private volatile IndiceBusqueda indice; // null hasta que termina la primera construcción
+    private volatile Set<Long> pendientes; // Cambios recibidos durante la construcción (null si no se está construyendo)
+
+    public BusquedaCatalogoService(InventarioRepository inventarioRepository,
+                                   CatalogoEnDiscoService catalogoEnDisco,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ecomerce.busqueda.tamano-pagina:10000}") int tamanoPagina,
+                                   @Value("${ecomerce.busqueda.hilos:0}") int hilos,
+                                   @Value("${ecomerce.busqueda.limite-max:100}") int limiteMax) {
+        this.inventarioRepository = inventarioRepository;
+        this.catalogoEnDisco = catalogoEnDisco;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true); // Puede leerse de la réplica: los cambios posteriores llegan por eventos
+        // Lectura-escritura: los productos cambiados se releen de la primaria, la réplica puede no tener aún el cambio
+        this.primaria = new TransactionTemplate(transactionManager);
+        this.tamanoPagina = tamanoPagina;
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.limiteMax = limiteMax;
+        this.duracion = Timer.builder("ecomerce.busqueda.duracion")
+                .description("Tiempo de cada búsqueda en el índice en memoria")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.busqueda.documentos", this, s -> s.indice == null ? 0 : s.indice.numDocumentos())
+                .description("Productos en el índice de búsqueda")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.busqueda.terminos", this, s -> s.indice == null ? 0 : s.indice.numTerminos())
+                .description("Términos distintos en el índice de búsqueda")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Construye el índice al arrancar. La aplicación ya atiende peticiones mientras tanto.
+     * Va antes que los demás oyentes del arranque: los cambios se anotan desde antes de cargar el catálogo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void construirAlArrancar() {
+        construir(() -> catalogoEnDisco.cargarAlArrancar().productos());
+    }
+
+    /**
+     * Construye un índice nuevo con todo el catálogo y lo pone en uso.
+     */
+    public void reconstruir() {
+        construir(this::leerCatalogo);
+    }
+
+    private synchronized void construir(Supplier<List<Inventario>> catalogo) {
+        long inicio = System.nanoTime();
+        pendientes = ConcurrentHashMap.newKeySet();
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        try {
+            IndiceBusqueda nuevo = IndiceBusqueda.construir(catalogo.get(), pool);
+            indice = nuevo;
+            Set<Long> cambiados = pendientes;
+            pendientes = null;
+            releer(cambiados); // Lo que cambió mientras se leía el catálogo
+            log.info("Índice de búsqueda construido: {} productos, {} términos, {} ms", nuevo.numDocumentos(),
+                    nuevo.numTerminos(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            pendientes = null;
+            log.warn("No se pudo construir el índice de búsqueda: {}", e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<Inventario> leerCatalogo() {
+        List<Inventario> productos = new ArrayList<>();
+        long desde = 0;
+        while (true) {
+            long inicioPagina = desde;
+            List<Inventario> pagina = lectura.execute(status ->
+                    inventarioRepository.findByIdGreaterThanOrderByIdAsc(inicioPagina, Limit.of(tamanoPagina)));
+            if (pagina == null || pagina.isEmpty()) {
+                break;
+            }
+            pagina.forEach(producto -> productos.add(copia(producto)));
+            desde = pagina.get(pagina.size() - 1).getId();
+            if (pagina.size() < tamanoPagina) {
+                break;
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * @return true si el índice ya está construido.
+     */
+    public boolean isListo() {
+        return indice != null;
+    }
+
+    /**
+     * Busca productos por texto libre (nombre y descripción), de más a menos relevante.
+     * @param consulta El texto buscado.
+     * @param limite Número máximo de resultados (como mucho ecomerce.busqueda.limite-max).
+     * @return Los productos encontrados (vacío si el índice aún no está listo).
+     */
+    public List<Inventario> buscar(String consulta, int limite) {
+        IndiceBusqueda actual = indice;
+        if (actual == null) {
+            return List.of();
+        }
+        int acotado = Math.max(1, Math.min(limite, limiteMax));
+        return duracion.record(() -> actual.buscar(consulta, acotado).stream()
+                .map(IndiceBusqueda.Resultado::producto)
+                .toList());
+    }
+
+    /**
+     * Aplica al índice un cambio de esta instancia, una vez confirmado.
+     * @param evento El producto guardado o eliminado.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarInventario(InventarioModificadoEvento evento) {
+        Set<Long> anotar = pendientes;
+        if (anotar != null) {
+            anotar.add(evento.productoId());
+        }
+        IndiceBusqueda actual = indice;
+        if (actual == null) {
+            return;
+        }
+        if (evento.producto() == null) {
+            actual.eliminar(evento.productoId());
+        } else {
+            actual.actualizar(copia(evento.producto()));
+        }
+    }
+
+    /**
+     * Aplica al índice los cambios leídos del bus (también los de otras instancias), releyendo esos productos.
+     * @param evento Productos modificados.
+     */
+    @EventListener
+    public void alCambiarInventario(CambiosInventarioEvento evento) {
+        Set<Long> anotar = pendientes;
+        if (anotar != null) {
+            anotar.addAll(evento.productoIds());
+        }
+        if (indice != null) {
+            releer(evento.productoIds());
+        }
+    }
+
+    private void releer(Collection<Long> ids) {
+        IndiceBusqueda actual = indice;
+        if (actual == null || ids.isEmpty()) {
+            return;
+        }
+        List<Inventario> productos = primaria.execute(status -> inventarioRepository.findCopiasPorIds(ids));
+        Map<Long, Inventario> porId = productos == null ? Map.of()
+                : productos.stream().collect(Collectors.toMap(Inventario::getId, Function.identity()));
+        for (Long id : ids) {
+            Inventario producto = porId.get(id);
+            if (producto == null) {
+                actual.eliminar(id);
+            } else {
+                actual.actualizar(copia(producto));
+            }
+        }
+    }
+
+    /**
+     * Copia desligada de la sesión de JPA: el índice no debe ver cambios que aún no se han confirmado.
+     */
+    private static Inventario copia(Inventario producto) {
+        return new Inventario(producto.getId(), producto.getNombreProducto(), producto.getDescripcion(),
+                producto.getPrecio(), producto.getStock(), producto.getUnidadesVendidas(),
+                producto.getUnidadesRecibidas());
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecomerce.service;
+
+import java.util.List;
+
+/**
+ * Evento publicado por CambiosInventarioService cuando lee del bus productos modificados (por esta u otra
+ * instancia), para que las cachés locales los invaliden.
+ * @param productoIds IDs de los productos modificados.
+ */
+public record CambiosInventarioEvento(List<Long> productoIds) {
+}
@@ -0,0 +1,225 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.InventarioCambio;
+import com.ecomerce.repository.InventarioCambioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bus de invalidación de cachés entre instancias a través de la tabla inventario_cambios.
+ * - Quien modifica productos llama a registrar() dentro de su transacción: el cambio se publica solo si se confirma.
+ * - Cada instancia lee periódicamente los cambios posteriores a su marca de agua, por lotes, desaloja esos
+ *   productos de la caché de segundo nivel y publica un CambiosInventarioEvento para las demás cachés locales
+ *   (por ejemplo, la foto del catálogo).
+ *
+ * Los IDs se asignan al insertar pero las transacciones se confirman en otro orden, así que un cambio puede
+ * aparecer con un ID menor que la marca de agua. Por eso cada lectura vuelve a mirar también los cambios con fecha
+ * posterior a la lectura anterior menos 'margen' (un tiempo, no un número de IDs: no depende de cuántos cambios
+ * se registren mientras tanto) y recuerda cuáles ya procesó, para no desalojar dos veces el mismo cambio.
+ * El margen debe cubrir la transacción más larga que registra cambios más el desfase de relojes entre instancias
+ * (la fecha la pone la instancia que escribe).
+ *
+ * Tras desalojar, los productos se vuelven a cargar en la caché leyéndolos de la primaria. Si no, la siguiente
+ * lectura de solo lectura iría a la réplica, que puede no tener aún el cambio, y volvería a cachear la fila antigua
+ * (y con el tiempo de inactividad de la caché, un producto muy consultado no saldría nunca de ella).
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class CambiosInventarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(CambiosInventarioService.class);
+
+    private final InventarioCambioRepository inventarioCambioRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final Duration margen;
+    private final Duration retencion;
+    private final Clock reloj = Clock.systemDefaultZone();
+    private final Counter desalojos;
+
+    private final ReentrantLock sondeando = new ReentrantLock();
+    private long marcaAgua = -1; // -1 hasta la primera lectura
+    private LocalDateTime ultimaLectura; // Inicio de la lectura anterior
+    private final Map<Long, LocalDateTime> procesados = new HashMap<>(); // IDs (y fechas) ya procesados dentro del margen
+
+    public CambiosInventarioService(InventarioCambioRepository inventarioCambioRepository,
+                                    EntityManagerFactory entityManagerFactory,
+                                    EntityManager entityManager,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${ecomerce.cambios-inventario.tamano-lote:500}") int tamanoLote,
+                                    @Value("${ecomerce.cambios-inventario.margen:PT30S}") Duration margen,
+                                    @Value("${ecomerce.cambios-inventario.retencion:PT1H}") Duration retencion) {
+        this.inventarioCambioRepository = inventarioCambioRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        // Transacción de lectura-escritura: el bus se lee siempre de la primaria, nunca de una réplica retrasada
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoLote = tamanoLote;
+        this.margen = margen;
+        this.retencion = retencion;
+        this.desalojos = Counter.builder("ecomerce.cambios-inventario.desalojos")
+                .description("Productos desalojados de las cachés locales por cambios leídos del bus")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra que los productos han cambiado. Debe llamarse dentro de la transacción que los modifica.
+     * @param productoIds IDs de los productos modificados.
+     */
+    @Transactional
+    public void registrar(Collection<Long> productoIds) {
+        inventarioCambioRepository.saveAll(productoIds.stream()
+                .distinct()
+                .map(id -> new InventarioCambio(null, id, null))
+                .toList());
+    }
+
+    /**
+     * Lee periódicamente los cambios nuevos.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.cambios-inventario.intervalo-ms:1000}")
+    public void sondearPeriodicamente() {
+        sondear();
+    }
+
+    /**
+     * Lee los cambios posteriores a la marca de agua y los confirmados tarde dentro del margen, por lotes,
+     * y desaloja los productos afectados. Si ya hay una lectura en curso, no hace nada.
+     * @return Número de cambios nuevos procesados.
+     */
+    public int sondear() {
+        if (!sondeando.tryLock()) {
+            return 0;
+        }
+        try {
+            LocalDateTime ahora = LocalDateTime.now(reloj);
+            if (marcaAgua < 0) {
+                // Primera lectura: los cambios anteriores al arranque no afectan a cachés que aún están vacías
+                marcaAgua = transactionTemplate.execute(status -> inventarioCambioRepository.findMaxId());
+                ultimaLectura = ahora;
+                return 0;
+            }
+            int nuevos = 0;
+            // Cambios confirmados tarde: ID por debajo de la marca de agua, registrados dentro del margen
+            LocalDateTime desdeFecha = ultimaLectura.minus(margen);
+            long hasta = marcaAgua;
+            long desde = 0;
+            while (true) {
+                long inicioLote = desde;
+                List<InventarioCambio> lote = transactionTemplate.execute(status ->
+                        inventarioCambioRepository.findRecientesEntre(desdeFecha, inicioLote, hasta, Limit.of(tamanoLote)));
+                if (lote == null || lote.isEmpty()) {
+                    break;
+                }
+                nuevos += procesar(lote);
+                desde = lote.get(lote.size() - 1).getId();
+                if (lote.size() < tamanoLote) {
+                    break;
+                }
+            }
+            // Cambios nuevos: ID por encima de la marca de agua
+            desde = marcaAgua;
+            while (true) {
+                long inicioLote = desde;
+                List<InventarioCambio> lote = transactionTemplate.execute(status ->
+                        inventarioCambioRepository.findByIdGreaterThanOrderByIdAsc(inicioLote, Limit.of(tamanoLote)));
+                if (lote == null || lote.isEmpty()) {
+                    break;
+                }
+                nuevos += procesar(lote);
+                desde = lote.get(lote.size() - 1).getId();
+                marcaAgua = Math.max(marcaAgua, desde);
+                if (lote.size() < tamanoLote) {
+                    break;
+                }
+            }
+            ultimaLectura = ahora;
+            LocalDateTime limite = ahora.minus(margen);
+            procesados.values().removeIf(fecha -> fecha.isBefore(limite)); // Fuera del margen ya no se vuelven a leer
+            return nuevos;
+        } finally {
+            sondeando.unlock();
+        }
+    }
+
+    /**
+     * Borra periódicamente los cambios más antiguos que la retención (todas las instancias los han leído ya).
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.cambios-inventario.purga-ms:60000}")
+    public void purgar() {
+        LocalDateTime limite = LocalDateTime.now(reloj).minus(retencion);
+        transactionTemplate.executeWithoutResult(status -> inventarioCambioRepository.purgarAnterioresA(limite));
+    }
+
+    /**
+     * Desaloja los productos de los cambios del lote que aún no se habían procesado.
+     * @return Número de cambios nuevos.
+     */
+    private int procesar(List<InventarioCambio> lote) {
+        List<InventarioCambio> sinProcesar = lote.stream()
+                .filter(cambio -> procesados.putIfAbsent(cambio.getId(), cambio.getFecha()) == null)
+                .toList();
+        desalojar(sinProcesar.stream().map(InventarioCambio::getProductoId).distinct().toList());
+        return sinProcesar.size();
+    }
+
+    private void desalojar(List<Long> productoIds) {
+        if (productoIds.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache();
+        productoIds.forEach(id -> cache.evict(Inventario.class, id));
+        desalojos.increment(productoIds.size());
+        recargar(productoIds);
+        eventPublisher.publishEvent(new CambiosInventarioEvento(productoIds));
+    }
+
+    /**
+     * Carga en la caché de segundo nivel los productos leídos de la primaria (transacción de lectura-escritura).
+     * CacheMode.REFRESH sobrescribe la entrada aunque otra lectura la haya vuelto a cachear entretanto.
+     */
+    private void recargar(List<Long> productoIds) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.REFRESH);
+                entityManager.createQuery("select p from Inventario p where p.id in :ids", Inventario.class)
+                        .setParameter("ids", productoIds)
+                        .getResultList();
+            });
+        } catch (DataAccessException e) {
+            // Sin recarga, la siguiente lectura los cachea de nuevo (quizá desde la réplica)
+            log.warn("No se pudieron recargar en caché {} productos cambiados: {}", productoIds.size(), e.getMessage());
+        }
+    }
+}
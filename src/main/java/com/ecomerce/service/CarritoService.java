@@ -1,56 +1,91 @@
 package com.ecomerce.service;
 
+import com.ecomerce.dto.CarritoFilaVista;
+import com.ecomerce.dto.CarritoResumen;
+import com.ecomerce.dto.CarritoVista;
 import com.ecomerce.model.Carrito;
 import com.ecomerce.model.CarritoItem;
 import com.ecomerce.model.Inventario; // Necesario para referenciar productos
-import com.ecomerce.model.Usuario; // Necesario para referenciar usuarios
 import com.ecomerce.repository.CarritoRepository;
 import com.ecomerce.repository.CarritoItemRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import jakarta.transaction.Transactional; // Importación necesaria para @Transactional
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Clase de Servicio para Carrito.
  * Contiene la lógica de negocio para la gestión de carritos de compras.
- * Interactúa con CarritoRepository, CarritoItemRepository, UsuarioService e InventarioService.
+ * Interactúa con CarritoRepository, CarritoItemRepository e InventarioService.
+ * Cada cambio de unidades de un producto se publica como ProductoEnCarritoEvento (analítica de tendencias).
+ *
+ * Las operaciones que modifican el carrito bloquean primero su fila (SELECT ... FOR UPDATE) y después las filas de
+ * inventario, en el mismo orden que el checkout y la limpieza de carritos abandonados. Así los totales se calculan
+ * sobre la fila actual, aunque otra instancia o CarritoTotalesReparacionService la haya cambiado entretanto.
  */
 @Service // Indica que esta clase es un componente de servicio de Spring
 public class CarritoService {
 
     private final CarritoRepository carritoRepository;
     private final CarritoItemRepository carritoItemRepository;
-    private final UsuarioService usuarioService; // Inyección de UsuarioService
     private final InventarioService inventarioService; // Inyección de InventarioService
+    private final ApplicationEventPublisher eventos; // Cambios de unidades en los carritos
 
     // Constructor con inyección de dependencias
     public CarritoService(CarritoRepository carritoRepository,
                           CarritoItemRepository carritoItemRepository,
-                          UsuarioService usuarioService,
-                          InventarioService inventarioService) {
+                          InventarioService inventarioService,
+                          ApplicationEventPublisher eventos) {
         this.carritoRepository = carritoRepository;
         this.carritoItemRepository = carritoItemRepository;
-        this.usuarioService = usuarioService;
         this.inventarioService = inventarioService;
+        this.eventos = eventos;
     }
 
     /**
      * Obtiene el carrito activo de un usuario. Si no existe, crea uno nuevo.
+     * Se busca por el ID del usuario, sin cargar la fila del usuario.
      * @param usuarioId El ID del usuario.
      * @return El carrito del usuario.
-     * @throws RuntimeException Si el usuario no es encontrado.
+     * @throws RecursoNoEncontradoException Si el usuario no es encontrado.
      */
     @Transactional // Asegura que toda la operación sea una única transacción de base de datos.
     public Carrito obtenerOcrearCarrito(Long usuarioId) {
-        Usuario usuario = usuarioService.obtenerPorId(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + usuarioId));
-
-        return carritoRepository.findByUsuario(usuario)
-                .orElseGet(() -> {
-                    Carrito nuevoCarrito = new Carrito();
-                    nuevoCarrito.setUsuario(usuario);
-                    return carritoRepository.save(nuevoCarrito);
-                });
+        return carritoRepository.findByUsuarioId(usuarioId)
+                .orElseGet(() -> carritoRepository.findById(crearCarrito(usuarioId)).orElseThrow());
+    }
+
+    /**
+     * Obtiene la vista de lectura del carrito de un usuario. Si no existe, crea el carrito.
+     * La vista se construye con una única consulta de proyección, sin cargar entidades perezosas.
+     * @param usuarioId El ID del usuario.
+     * @return La vista plana del carrito (ID, usuario y líneas con sus totales).
+     * @throws RecursoNoEncontradoException Si el usuario no es encontrado.
+     */
+    @Transactional
+    public CarritoVista obtenerVistaCarrito(Long usuarioId) {
+        List<CarritoFilaVista> filas = carritoRepository.findVistaByUsuarioId(usuarioId);
+        if (filas.isEmpty()) {
+            // Primera visita: se crea el carrito, que necesariamente está vacío
+            return new CarritoVista(crearCarrito(usuarioId), usuarioId, 0, 0.0, List.of());
+        }
+        return CarritoVista.desdeFilas(filas);
+    }
+
+    /**
+     * Obtiene el resumen (unidades y subtotal) del carrito de un usuario. Si no existe, crea el carrito.
+     * Los totales se mantienen de forma incremental en la fila del carrito, por lo que la lectura
+     * es una única fila sin unión con el inventario.
+     * @param usuarioId El ID del usuario.
+     * @return El resumen del carrito.
+     * @throws RecursoNoEncontradoException Si el usuario no es encontrado.
+     */
+    @Transactional
+    public CarritoResumen obtenerResumenCarrito(Long usuarioId) {
+        return carritoRepository.findResumenByUsuarioId(usuarioId)
+                .orElseGet(() -> new CarritoResumen(crearCarrito(usuarioId), usuarioId, 0, 0.0));
     }
 
     /**
@@ -59,19 +94,25 @@ public class CarritoService {
      * @param usuarioId El ID del usuario.
      * @param productoId El ID del producto a añadir.
      * @param cantidad La cantidad a añadir.
-     * @return El CarritoItem actualizado o nuevo, o Optional.empty() si hay un problema (stock, cantidad).
-     * @throws RuntimeException Si el usuario o producto no es encontrado.
+     * @return La vista del carrito tras el cambio, o Optional.empty() si hay un problema (stock, cantidad).
+     * @throws RecursoNoEncontradoException Si el usuario o producto no es encontrado.
      */
     @Transactional
-    public Optional<CarritoItem> agregarProductoAlCarrito(Long usuarioId, Long productoId, int cantidad) {
+    public Optional<CarritoVista> agregarProductoAlCarrito(Long usuarioId, Long productoId, int cantidad) {
         if (cantidad <= 0) {
             // La cantidad debe ser positiva para añadir
             return Optional.empty();
         }
 
-        Carrito carrito = obtenerOcrearCarrito(usuarioId); // Obtiene o crea el carrito
+        Carrito carrito = bloquearOcrearCarrito(usuarioId); // Obtiene o crea el carrito, con su fila bloqueada
         Inventario producto = inventarioService.obtenerPorId(productoId)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + productoId));
+                .orElseThrow(() -> new RecursoNoEncontradoException("Producto no encontrado con ID: " + productoId));
+
+        // Primero se reserva el stock (disminuye en el inventario). Lo decide la fila bloqueada, no la copia de
+        // la caché: comprobar antes con esa copia dejaría pasar reservas sin stock y rechazaría otras con stock
+        if (inventarioService.actualizarStock(productoId, -cantidad).isEmpty()) {
+            return Optional.empty(); // Stock insuficiente
+        }
 
         // Busca si el producto ya existe en el carrito
         Optional<CarritoItem> existingItem = carrito.getItems().stream()
@@ -81,28 +122,20 @@ public class CarritoService {
         CarritoItem item;
         if (existingItem.isPresent()) {
             item = existingItem.get();
-            // Calcular la cantidad total si se añade más
-            int cantidadTotalDeseada = item.getCantidad() + cantidad;
-            // Verificar si hay suficiente stock para la cantidad total deseada
-            if (producto.getStock() < (cantidadTotalDeseada - item.getCantidad())) { // Solo verificamos el stock adicional necesario
-                return Optional.empty(); // Stock insuficiente
-            }
-            item.setCantidad(cantidadTotalDeseada);
-            inventarioService.actualizarStock(productoId, -cantidad); // Disminuir stock del inventario
+            item.setCantidad(item.getCantidad() + cantidad);
+            carrito.ajustarTotales(cantidad, precioUnitarioDe(item)); // Suma solo las unidades añadidas
         } else {
-            // Verificar stock para el nuevo ítem
-            if (producto.getStock() < cantidad) {
-                return Optional.empty(); // Stock insuficiente
-            }
             item = new CarritoItem();
             item.setProducto(producto);
             item.setCantidad(cantidad);
+            item.setPrecioUnitarioEnMomentoDeAdicion(producto.getPrecio()); // Foto del precio para los totales
             carrito.addItem(item); // Añadir al carrito (establece la relación bidireccional)
-            inventarioService.actualizarStock(productoId, -cantidad); // Disminuir stock del inventario
+            carrito.ajustarTotales(cantidad, item.getPrecioUnitarioEnMomentoDeAdicion());
         }
 
         carritoRepository.save(carrito); // Guarda el carrito para persistir los cambios en los ítems
-        return Optional.of(item);
+        eventos.publishEvent(new ProductoEnCarritoEvento(productoId, cantidad));
+        return Optional.of(vistaCarrito(usuarioId));
     }
 
     /**
@@ -110,45 +143,51 @@ public class CarritoService {
      * @param usuarioId El ID del usuario.
      * @param productoId El ID del producto en el carrito.
      * @param nuevaCantidad La nueva cantidad deseada.
-     * @return El CarritoItem actualizado, o Optional.empty() si no se encuentra o hay error de stock/cantidad.
-     * @throws RuntimeException Si el usuario no es encontrado.
+     * @return La vista del carrito tras el cambio, o Optional.empty() si no se encuentra, hay error de stock/cantidad
+     *         o la nueva cantidad es 0 (el ítem se elimina).
+     * @throws RecursoNoEncontradoException Si el usuario no es encontrado.
      */
     @Transactional
-    public Optional<CarritoItem> actualizarCantidadProductoEnCarrito(Long usuarioId, Long productoId, int nuevaCantidad) {
+    public Optional<CarritoVista> actualizarCantidadProductoEnCarrito(Long usuarioId, Long productoId, int nuevaCantidad) {
         if (nuevaCantidad < 0) {
             // La cantidad no puede ser negativa
             return Optional.empty();
         }
 
-        Carrito carrito = obtenerOcrearCarrito(usuarioId);
+        Carrito carrito = bloquearOcrearCarrito(usuarioId);
         Optional<CarritoItem> existingItem = carrito.getItems().stream()
                 .filter(item -> item.getProducto().getId().equals(productoId))
                 .findFirst();
 
         if (existingItem.isPresent()) {
             CarritoItem item = existingItem.get();
-            Inventario producto = item.getProducto();
             int cantidadActual = item.getCantidad();
             int diferenciaCantidad = nuevaCantidad - cantidadActual;
 
-            if (diferenciaCantidad > 0) { // Si se está aumentando la cantidad
-                if (producto.getStock() < diferenciaCantidad) {
-                    return Optional.empty(); // Stock insuficiente para aumentar
-                }
+            if (diferenciaCantidad > 0 && inventarioService.actualizarStock(productoId, -diferenciaCantidad).isEmpty()) {
+                return Optional.empty(); // Stock insuficiente para aumentar (la reserva se hace sobre la fila bloqueada)
             }
 
             if (nuevaCantidad == 0) {
                 // Si la nueva cantidad es 0, eliminar el ítem del carrito
+                carrito.ajustarTotales(-cantidadActual, precioUnitarioDe(item));
                 carrito.removeItem(item);
                 carritoItemRepository.delete(item); // Eliminar de la base de datos
                 inventarioService.actualizarStock(productoId, cantidadActual); // Devolver stock al inventario
                 carritoRepository.save(carrito); // Guardar el carrito para reflejar la eliminación
+                eventos.publishEvent(new ProductoEnCarritoEvento(productoId, -cantidadActual));
                 return Optional.empty(); // No hay ítem después de eliminar
             } else {
                 item.setCantidad(nuevaCantidad);
-                inventarioService.actualizarStock(productoId, -diferenciaCantidad); // Ajustar stock en inventario
+                carrito.ajustarTotales(diferenciaCantidad, precioUnitarioDe(item));
+                if (diferenciaCantidad < 0) {
+                    inventarioService.actualizarStock(productoId, -diferenciaCantidad); // Devolver las unidades sobrantes
+                }
                 carritoRepository.save(carrito); // Guardar el carrito para reflejar el cambio
-                return Optional.of(item);
+                if (diferenciaCantidad != 0) {
+                    eventos.publishEvent(new ProductoEnCarritoEvento(productoId, diferenciaCantidad));
+                }
+                return Optional.of(vistaCarrito(usuarioId));
             }
         }
         return Optional.empty(); // Ítem no encontrado en el carrito
@@ -159,21 +198,23 @@ public class CarritoService {
      * @param usuarioId El ID del usuario.
      * @param productoId El ID del producto a eliminar del carrito.
      * @return true si se eliminó, false si no se encontró.
-     * @throws RuntimeException Si el usuario no es encontrado.
+     * @throws RecursoNoEncontradoException Si el usuario no es encontrado.
      */
     @Transactional
     public boolean eliminarProductoDelCarrito(Long usuarioId, Long productoId) {
-        Carrito carrito = obtenerOcrearCarrito(usuarioId);
+        Carrito carrito = bloquearOcrearCarrito(usuarioId);
         Optional<CarritoItem> existingItem = carrito.getItems().stream()
                 .filter(item -> item.getProducto().getId().equals(productoId))
                 .findFirst();
 
         if (existingItem.isPresent()) {
             CarritoItem item = existingItem.get();
+            carrito.ajustarTotales(-item.getCantidad(), precioUnitarioDe(item));
             carrito.removeItem(item); // Elimina de la lista en memoria (y por orphanRemoval de la DB)
             carritoItemRepository.delete(item); // Asegura la eliminación explícita
             inventarioService.actualizarStock(productoId, item.getCantidad()); // Devolver stock al inventario
             carritoRepository.save(carrito); // Guarda el carrito para reflejar la eliminación
+            eventos.publishEvent(new ProductoEnCarritoEvento(productoId, -item.getCantidad()));
             return true;
         }
         return false;
@@ -182,24 +223,86 @@ public class CarritoService {
     /**
      * Vacía completamente el carrito de un usuario.
      * @param usuarioId El ID del usuario.
-     * @return true si se vació, false si el carrito no existe.
-     * @throws RuntimeException Si el usuario no es encontrado.
+     * @return true si se vació, false si el carrito no existe (o el usuario no existe).
      */
     @Transactional
     public boolean vaciarCarrito(Long usuarioId) {
-        Usuario usuario = usuarioService.obtenerPorId(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + usuarioId));
-
-        Optional<Carrito> carritoOptional = carritoRepository.findByUsuario(usuario);
+        Optional<Carrito> carritoOptional = carritoRepository.bloquearPorUsuarioId(usuarioId);
         if (carritoOptional.isPresent()) {
             Carrito carrito = carritoOptional.get();
             // Devolver stock de todos los ítems al inventario antes de eliminarlos del carrito
-            carrito.getItems().forEach(item -> inventarioService.actualizarStock(item.getProducto().getId(), item.getCantidad()));
+            carrito.getItems().forEach(item -> {
+                inventarioService.actualizarStock(item.getProducto().getId(), item.getCantidad());
+                eventos.publishEvent(new ProductoEnCarritoEvento(item.getProducto().getId(), -item.getCantidad()));
+            });
 
             carrito.getItems().clear(); // Limpia la lista de ítems en memoria
+            carrito.reiniciarTotales();
             carritoRepository.save(carrito); // Guarda el carrito para que JPA elimine los ítems huérfanos
             return true;
         }
         return false;
     }
+
+    /**
+     * Obtiene o crea el carrito de un usuario y bloquea su fila hasta el final de la transacción.
+     * Se lee con el bloqueo para partir de los totales actuales y no de una copia desfasada: los totales se escriben
+     * enteros al guardar y, sin el bloqueo, una escritura concurrente de otra instancia o de la reparación de
+     * totales se perdería. La existencia se comprueba antes sin bloqueo: una lectura bloqueante de un carrito que
+     * no existe bloquearía el hueco del índice único y dos primeras visitas simultáneas chocarían al insertar.
+     */
+    private Carrito bloquearOcrearCarrito(Long usuarioId) {
+        if (carritoRepository.findResumenByUsuarioId(usuarioId).isEmpty()) {
+            crearCarrito(usuarioId); // La fila insertada queda bloqueada por esta transacción
+        }
+        return carritoRepository.bloquearPorUsuarioId(usuarioId)
+                .orElseThrow(() -> carritoEliminado(usuarioId));
+    }
+
+    /**
+     * Lee la vista del carrito de un usuario que ya lo tiene, con la misma consulta de proyección que
+     * obtenerVistaCarrito. Los cambios pendientes de la transacción se vuelcan antes de la consulta, así que
+     * la vista ya los incluye; la respuesta no serializa la entidad ni su producto perezoso.
+     */
+    private CarritoVista vistaCarrito(Long usuarioId) {
+        return CarritoVista.desdeFilas(carritoRepository.findVistaByUsuarioId(usuarioId));
+    }
+
+    /**
+     * Crea el carrito vacío de un usuario que no lo tiene (un INSERT) y devuelve su ID.
+     * Si dos primeras peticiones del mismo usuario llegan a la vez, la que pierde choca con la clave única de
+     * usuario_id y relee el carrito de la otra con una lectura bloqueante: una lectura normal, con la instantánea
+     * de su transacción, no vería la fila recién confirmada.
+     */
+    private Long crearCarrito(Long usuarioId) {
+        Optional<Long> creado;
+        try {
+            creado = carritoRepository.insertarSiNoExiste(usuarioId);
+        } catch (DataIntegrityViolationException e) { // Clave foránea: el usuario no existe
+            throw new RecursoNoEncontradoException("Usuario no encontrado con ID: " + usuarioId);
+        }
+        return creado.orElseGet(() -> carritoRepository.bloquearPorUsuarioId(usuarioId)
+                .orElseThrow(() -> carritoEliminado(usuarioId))
+                .getId());
+    }
+
+    /**
+     * El carrito existía pero otra transacción (la limpieza de abandonados) lo ha eliminado entretanto.
+     * No es un 404: el reintento creará un carrito nuevo.
+     */
+    private static IllegalStateException carritoEliminado(Long usuarioId) {
+        return new IllegalStateException("El carrito del usuario con ID " + usuarioId + " se ha eliminado durante la operación");
+    }
+
+    /**
+     * Devuelve el precio unitario guardado en el ítem.
+     * Los ítems creados antes de existir la foto de precio no lo tienen; en ese caso se toma el precio actual
+     * y la siguiente pasada de CarritoTotalesReparacionService corrige los totales.
+     */
+    private double precioUnitarioDe(CarritoItem item) {
+        if (item.getPrecioUnitarioEnMomentoDeAdicion() == null) {
+            item.setPrecioUnitarioEnMomentoDeAdicion(item.getProducto().getPrecio());
+        }
+        return item.getPrecioUnitarioEnMomentoDeAdicion();
+    }
 }
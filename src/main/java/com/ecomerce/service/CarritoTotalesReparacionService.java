@@ -0,0 +1,82 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Carrito;
+import com.ecomerce.repository.CarritoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Tarea en segundo plano que repara los totales de los carritos cuando cambian los precios del inventario.
+ * CarritoService mantiene los totales de forma incremental con el precio guardado en cada ítem;
+ * esta tarea recorre los carritos en orden de ID buscando los que tienen ítems cuyo precio guardado ya no coincide
+ * con el del inventario o totales que no cuadran con sus ítems, actualiza esos precios y recalcula los totales,
+ * por bloques y en transacciones cortas. Cada bloque bloquea antes sus carritos (como hace CarritoService en cada
+ * cambio), para que una operación simultánea sobre el mismo carrito no sobrescriba los totales reparados.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class CarritoTotalesReparacionService {
+
+    private final CarritoRepository carritoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoBloque;
+
+    public CarritoTotalesReparacionService(CarritoRepository carritoRepository,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${ecomerce.carritos.reparacion-totales.tamano-bloque:500}") int tamanoBloque) {
+        this.carritoRepository = carritoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Ejecuta la reparación periódicamente.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.carritos.reparacion-totales.intervalo-ms:300000}",
+               initialDelayString = "${ecomerce.carritos.reparacion-totales.intervalo-ms:300000}")
+    public void repararPeriodicamente() {
+        repararTotales();
+    }
+
+    /**
+     * Repara todos los carritos con precios o totales desactualizados, un bloque por transacción.
+     * @return Número de carritos reparados.
+     */
+    public int repararTotales() {
+        int reparados = 0;
+        long desde = 0; // Cursor por ID: cada carrito se revisa una vez por pasada
+        while (true) {
+            long inicio = desde;
+            Bloque bloque = transactionTemplate.execute(status -> repararBloque(inicio));
+            if (bloque == null) {
+                return reparados;
+            }
+            reparados += bloque.reparados();
+            desde = bloque.ultimoId();
+        }
+    }
+
+    private Bloque repararBloque(long desde) {
+        List<Long> ids = carritoRepository.findIdsConTotalesDesactualizados(desde, Limit.of(tamanoBloque));
+        if (ids.isEmpty()) {
+            return null;
+        }
+        // Los carritos eliminados entretanto (limpieza de abandonados, otra instancia) ya no se bloquean ni se reparan
+        List<Long> bloqueados = carritoRepository.bloquearPorIds(ids).stream()
+                .map(Carrito::getId)
+                .toList();
+        if (!bloqueados.isEmpty()) {
+            carritoRepository.actualizarPreciosDeItems(bloqueados);
+            carritoRepository.recalcularTotales(bloqueados);
+        }
+        return new Bloque(ids.get(ids.size() - 1), bloqueados.size());
+    }
+
+    private record Bloque(long ultimoId, int reparados) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecomerce.service;
+
+import com.ecomerce.concurrencia.LimitadorRitmo;
+import com.ecomerce.model.Carrito;
+import com.ecomerce.repository.CarritoItemRepository;
+import com.ecomerce.repository.CarritoRepository;
+import com.ecomerce.repository.InventarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tarea en segundo plano que elimina los carritos abandonados (sin actividad durante más de
+ * ecomerce.carritos.limpieza.antiguedad) y devuelve al stock las unidades que tenían reservadas.
+ *
+ * - Los carritos se buscan por el índice (fechaActualizacion, id), de los más antiguos a los más recientes.
+ * - Se procesan por bloques de tamaño fijo, cada uno en su propia transacción corta: bloquea los carritos del
+ *   bloque, devuelve el stock con una sola sentencia sobre todos sus productos (en orden de ID, como el checkout)
+ *   y elimina las líneas y los carritos con una sentencia cada uno.
+ * - El ritmo se limita a ecomerce.carritos.limpieza.carritos-por-segundo para no competir con el tráfico normal.
+ * Métricas: ecomerce.carritos.limpieza.pendientes, ecomerce.carritos.limpieza.eliminados,
+ * ecomerce.carritos.limpieza.unidades-devueltas y ecomerce.carritos.limpieza.bloque.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class CarritosAbandonadosService {
+
+    private static final Logger log = LoggerFactory.getLogger(CarritosAbandonadosService.class);
+
+    private final CarritoRepository carritoRepository;
+    private final CarritoItemRepository carritoItemRepository;
+    private final InventarioRepository inventarioRepository;
+    private final CambiosInventarioService cambiosInventario;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration antiguedad;
+    private final int tamanoBloque;
+    private final LimitadorRitmo ritmo; // Carritos por segundo
+    private final AtomicLong pendientes = new AtomicLong(); // Carritos abandonados que quedan en la pasada en curso
+    private final Counter eliminados;
+    private final Counter unidadesDevueltas;
+    private final Timer bloque;
+
+    public CarritosAbandonadosService(CarritoRepository carritoRepository,
+                                      CarritoItemRepository carritoItemRepository,
+                                      InventarioRepository inventarioRepository,
+                                      CambiosInventarioService cambiosInventario,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${ecomerce.carritos.limpieza.antiguedad:7d}") Duration antiguedad,
+                                      @Value("${ecomerce.carritos.limpieza.tamano-bloque:200}") int tamanoBloque,
+                                      @Value("${ecomerce.carritos.limpieza.carritos-por-segundo:1000}") long carritosPorSegundo) {
+        this.carritoRepository = carritoRepository;
+        this.carritoItemRepository = carritoItemRepository;
+        this.inventarioRepository = inventarioRepository;
+        this.cambiosInventario = cambiosInventario;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.antiguedad = antiguedad;
+        this.tamanoBloque = tamanoBloque;
+        this.ritmo = new LimitadorRitmo(carritosPorSegundo);
+        Gauge.builder("ecomerce.carritos.limpieza.pendientes", pendientes, AtomicLong::get)
+                .description("Carritos abandonados pendientes de eliminar en la limpieza en curso")
+                .register(meterRegistry);
+        this.eliminados = Counter.builder("ecomerce.carritos.limpieza.eliminados")
+                .description("Carritos abandonados eliminados")
+                .register(meterRegistry);
+        this.unidadesDevueltas = Counter.builder("ecomerce.carritos.limpieza.unidades-devueltas")
+                .description("Unidades devueltas al stock desde carritos abandonados")
+                .register(meterRegistry);
+        this.bloque = Timer.builder("ecomerce.carritos.limpieza.bloque")
+                .description("Duración de la transacción de cada bloque de la limpieza de carritos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la limpieza periódicamente.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.carritos.limpieza.intervalo-ms:3600000}",
+               initialDelayString = "${ecomerce.carritos.limpieza.intervalo-ms:3600000}")
+    public void limpiarPeriodicamente() {
+        limpiar();
+    }
+
+    /**
+     * Elimina todos los carritos abandonados, un bloque por transacción.
+     * @return Número de carritos eliminados.
+     */
+    public synchronized int limpiar() {
+        LocalDateTime limite = LocalDateTime.now().minus(antiguedad);
+        pendientes.set(carritoRepository.countByFechaActualizacionBefore(limite));
+        int total = 0;
+        try {
+            while (true) {
+                ritmo.esperar(tamanoBloque);
+                Integer enBloque = bloque.record(() -> transactionTemplate.execute(status -> limpiarBloque(limite)));
+                if (enBloque == null || enBloque == 0) {
+                    break;
+                }
+                total += enBloque;
+                pendientes.updateAndGet(p -> Math.max(0, p - enBloque));
+                if (enBloque < tamanoBloque) {
+                    break;
+                }
+            }
+        } finally {
+            pendientes.set(0);
+        }
+        if (total > 0) {
+            log.info("Limpieza de carritos abandonados: {} carritos eliminados", total);
+        }
+        return total;
+    }
+
+    private int limpiarBloque(LocalDateTime limite) {
+        List<Long> carritoIds = carritoRepository.bloquearInactivos(limite, Limit.of(tamanoBloque)).stream()
+                .map(Carrito::getId)
+                .toList();
+        if (carritoIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> productoIds = carritoRepository.findProductoIdsDeCarritos(carritoIds);
+        if (!productoIds.isEmpty()) {
+            long unidades = carritoItemRepository.sumarUnidadesDeCarritos(carritoIds);
+            inventarioRepository.devolverStockDeCarritos(carritoIds, productoIds);
+            cambiosInventario.registrar(productoIds); // Las demás instancias desalojarán su copia en caché
+            carritoItemRepository.eliminarPorCarritoIds(carritoIds);
+            unidadesDevueltas.increment(unidades);
+        }
+        carritoRepository.eliminarPorIds(carritoIds);
+        eliminados.increment(carritoIds.size());
+        return carritoIds.size();
+    }
+}
@@ -0,0 +1,312 @@
+package com.ecomerce.service;
+
+import com.ecomerce.catalogo.ArchivoCatalogo;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.InventarioCambio;
+import com.ecomerce.repository.InventarioCambioRepository;
+import com.ecomerce.repository.InventarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Arranque en caliente del catálogo desde una foto binaria en disco (ArchivoCatalogo).
+ *
+ * - Cada ecomerce.catalogo.disco.intervalo-ms se lee el catálogo de la primaria y se escribe la foto, junto con la
+ *   marca de cambios: el último ID del bus inventario_cambios, leído antes que el catálogo.
+ * - Al arrancar, la foto se carga proyectada en memoria y en paralelo, y solo se leen de la base de datos los
+ *   productos que el bus registra como cambiados desde la marca (y los registrados desde la hora de la foto menos
+ *   el margen del bus, por las transacciones que se confirman en otro orden). Si no hay foto, no es válida o es
+ *   demasiado antigua para que el bus conserve los cambios posteriores, se lee todo el catálogo (y se escribe una
+ *   foto nueva).
+ * - La carga del arranque se hace una sola vez y la comparten el índice de búsqueda y la foto en memoria
+ *   del modo degradado (cargarAlArrancar). Después se suelta, para no retener el catálogo decodificado.
+ * Métricas: ecomerce.catalogo.disco.carga y ecomerce.catalogo.disco.escritura.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class CatalogoEnDiscoService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoEnDiscoService.class);
+    private static final int PRODUCTOS_POR_BLOQUE = 16_384; // Unidad de lectura en paralelo de la foto
+
+    /**
+     * Catálogo completo cargado al arrancar.
+     * @param productos Productos, en orden de ID.
+     * @param tomadaEnMillis Instante (epoch ms) al que corresponde el catálogo.
+     * @param desdeDisco true si se partió de la foto en disco; false si se leyó todo de la base de datos.
+     */
+    public record CatalogoCargado(List<Inventario> productos, long tomadaEnMillis, boolean desdeDisco) {
+    }
+
+    private final InventarioRepository inventarioRepository;
+    private final InventarioCambioRepository inventarioCambioRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final Path archivo;
+    private final int hilos;
+    private final int tamanoPagina;
+    private final Duration margen;
+    private final Duration retencion;
+    private final Clock reloj = Clock.systemUTC();
+    private final Timer carga;
+    private final Timer escritura;
+
+    private CatalogoCargado alArrancar; // Carga compartida del arranque, hasta soltarla (protegida por el monitor de la instancia)
+
+    public CatalogoEnDiscoService(InventarioRepository inventarioRepository,
+                                  InventarioCambioRepository inventarioCambioRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${ecomerce.catalogo.disco.habilitado:true}") boolean habilitado,
+                                  @Value("${ecomerce.catalogo.disco.archivo:datos/catalogo.foto}") Path archivo,
+                                  @Value("${ecomerce.catalogo.disco.hilos:0}") int hilos,
+                                  @Value("${ecomerce.catalogo.disco.tamano-pagina:10000}") int tamanoPagina,
+                                  @Value("${ecomerce.cambios-inventario.margen:PT30S}") Duration margen,
+                                  @Value("${ecomerce.cambios-inventario.retencion:PT1H}") Duration retencion) {
+        this.inventarioRepository = inventarioRepository;
+        this.inventarioCambioRepository = inventarioCambioRepository;
+        // Transacción de lectura-escritura: la marca y el catálogo se leen de la primaria, nunca de una réplica retrasada
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.archivo = archivo;
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.tamanoPagina = tamanoPagina;
+        this.margen = margen;
+        this.retencion = retencion;
+        this.carga = Timer.builder("ecomerce.catalogo.disco.carga")
+                .description("Duración de la carga del catálogo al arrancar")
+                .register(meterRegistry);
+        this.escritura = Timer.builder("ecomerce.catalogo.disco.escritura")
+                .description("Duración de cada escritura de la foto del catálogo en disco")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Carga del catálogo del arranque: la primera llamada carga el catálogo y las siguientes reciben el mismo resultado.
+     * @return El catálogo completo.
+     */
+    public synchronized CatalogoCargado cargarAlArrancar() {
+        if (alArrancar == null) {
+            alArrancar = cargar();
+        }
+        return alArrancar;
+    }
+
+    /**
+     * Suelta la carga del arranque cuando ya la han tomado sus consumidores (oyentes del arranque con más precedencia),
+     * para que el catálogo decodificado no quede retenido durante toda la vida del bean. Si alguien vuelve a llamar
+     * a cargarAlArrancar, se carga de nuevo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public synchronized void soltarCargaDelArranque() {
+        alArrancar = null;
+    }
+
+    /**
+     * Carga el catálogo completo: desde la foto en disco más los cambios posteriores o, si no se puede, desde la base de datos.
+     * @return El catálogo completo.
+     */
+    public CatalogoCargado cargar() {
+        return carga.record(() -> {
+            if (habilitado && Files.exists(archivo)) {
+                try {
+                    Optional<CatalogoCargado> desdeDisco = cargarDesdeDisco();
+                    if (desdeDisco.isPresent()) {
+                        return desdeDisco.get();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("No se pudo cargar la foto del catálogo {}: {}", archivo, e.getMessage());
+                }
+            }
+            ArchivoCatalogo.Contenido leido = leerCatalogo();
+            if (habilitado) {
+                escribir(leido); // El próximo arranque ya puede partir de la foto
+            }
+            return new CatalogoCargado(leido.productos(), leido.tomadaEnMillis(), false);
+        });
+    }
+
+    /**
+     * Escribe la foto periódicamente.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.catalogo.disco.intervalo-ms:900000}",
+               initialDelayString = "${ecomerce.catalogo.disco.intervalo-ms:900000}")
+    public void guardarPeriodicamente() {
+        if (habilitado) {
+            guardar();
+        }
+    }
+
+    /**
+     * Lee el catálogo de la base de datos y lo escribe como foto en disco.
+     */
+    public synchronized void guardar() {
+        escribir(leerCatalogo());
+    }
+
+    private Optional<CatalogoCargado> cargarDesdeDisco() throws IOException {
+        long inicio = System.nanoTime();
+        ArchivoCatalogo.Contenido foto;
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        try {
+            foto = ArchivoCatalogo.leer(archivo, pool);
+        } finally {
+            pool.shutdown();
+        }
+        long ahora = reloj.millis();
+        // Margen de media retención: los cambios posteriores a la foto deben seguir en el bus aunque la purga se adelante
+        if (ahora - foto.tomadaEnMillis() > retencion.toMillis() / 2) {
+            log.info("La foto del catálogo {} es demasiado antigua: se lee todo el catálogo", archivo);
+            return Optional.empty();
+        }
+        Long marcaActual = transactionTemplate.execute(status -> inventarioCambioRepository.findMaxId());
+        if (marcaActual == null || marcaActual < foto.marcaCambios()) {
+            log.warn("La foto del catálogo {} no corresponde a esta base de datos: se lee todo el catálogo", archivo);
+            return Optional.empty();
+        }
+        // La fecha de los cambios es la hora local de la instancia que los registra
+        LocalDateTime desdeFecha = LocalDateTime.ofInstant(Instant.ofEpochMilli(foto.tomadaEnMillis()), ZoneId.systemDefault())
+                .minus(margen);
+        Set<Long> cambiados = productosCambiadosDesde(foto.marcaCambios(), desdeFecha);
+        List<Inventario> productos = aplicarCambios(foto.productos(), cambiados, leerProductos(cambiados));
+        log.info("Catálogo cargado desde {}: {} productos, {} releídos de la base de datos, {} ms", archivo,
+                productos.size(), cambiados.size(), (System.nanoTime() - inicio) / 1_000_000);
+        return Optional.of(new CatalogoCargado(productos, ahora, true));
+    }
+
+    /**
+     * IDs de los productos con cambios en el bus posteriores a una marca, o con ID menor pero registrados desde una fecha
+     * (confirmados después de leer la marca).
+     */
+    private Set<Long> productosCambiadosDesde(long marca, LocalDateTime desdeFecha) {
+        Set<Long> cambiados = new LinkedHashSet<>();
+        long desde = 0;
+        while (true) {
+            long inicioLote = desde;
+            List<InventarioCambio> lote = transactionTemplate.execute(status ->
+                    inventarioCambioRepository.findRecientesEntre(desdeFecha, inicioLote, marca, Limit.of(tamanoPagina)));
+            if (lote == null || lote.isEmpty()) {
+                break;
+            }
+            lote.forEach(cambio -> cambiados.add(cambio.getProductoId()));
+            desde = lote.get(lote.size() - 1).getId();
+            if (lote.size() < tamanoPagina) {
+                break;
+            }
+        }
+        desde = marca;
+        while (true) {
+            long inicioLote = desde;
+            List<InventarioCambio> lote = transactionTemplate.execute(status ->
+                    inventarioCambioRepository.findByIdGreaterThanOrderByIdAsc(inicioLote, Limit.of(tamanoPagina)));
+            if (lote == null || lote.isEmpty()) {
+                break;
+            }
+            lote.forEach(cambio -> cambiados.add(cambio.getProductoId()));
+            desde = lote.get(lote.size() - 1).getId();
+            if (lote.size() < tamanoPagina) {
+                break;
+            }
+        }
+        return cambiados;
+    }
+
+    private Map<Long, Inventario> leerProductos(Set<Long> ids) {
+        Map<Long, Inventario> productos = new HashMap<>();
+        List<Long> pendientes = List.copyOf(ids);
+        for (int desde = 0; desde < pendientes.size(); desde += tamanoPagina) {
+            List<Long> pagina = pendientes.subList(desde, Math.min(desde + tamanoPagina, pendientes.size()));
+            List<Inventario> leidos = transactionTemplate.execute(status -> inventarioRepository.findCopiasPorIds(pagina));
+            if (leidos != null) {
+                leidos.forEach(producto -> productos.put(producto.getId(), producto));
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * Sustituye en la foto los productos cambiados por su versión actual, quita los eliminados y añade los nuevos.
+     */
+    private static List<Inventario> aplicarCambios(List<Inventario> foto, Set<Long> cambiados, Map<Long, Inventario> actuales) {
+        List<Inventario> productos = new ArrayList<>(foto.size() + actuales.size());
+        for (Inventario producto : foto) {
+            if (!cambiados.contains(producto.getId())) {
+                productos.add(producto);
+            } else {
+                Inventario actual = actuales.remove(producto.getId()); // null: eliminado
+                if (actual != null) {
+                    productos.add(actual);
+                }
+            }
+        }
+        if (!actuales.isEmpty()) { // Productos creados después de la foto
+            productos.addAll(actuales.values());
+            productos.sort(Comparator.comparing(Inventario::getId));
+        }
+        return productos;
+    }
+
+    /**
+     * Lee todo el catálogo de la primaria, por páginas en orden de ID. La marca de cambios se lee antes que el
+     * catálogo: lo que cambie durante la lectura queda por encima de la marca y se relee en el próximo arranque.
+     */
+    private ArchivoCatalogo.Contenido leerCatalogo() {
+        long tomadaEnMillis = reloj.millis();
+        Long marca = transactionTemplate.execute(status -> inventarioCambioRepository.findMaxId());
+        List<Inventario> productos = new ArrayList<>();
+        long desde = 0;
+        while (true) {
+            long inicioPagina = desde;
+            List<Inventario> pagina = transactionTemplate.execute(status ->
+                    inventarioRepository.findCopiasDesde(inicioPagina, Limit.of(tamanoPagina)));
+            if (pagina == null || pagina.isEmpty()) {
+                break;
+            }
+            productos.addAll(pagina); // Copias sin gestionar: no llenan el contexto de persistencia ni la caché
+            desde = pagina.get(pagina.size() - 1).getId();
+            if (pagina.size() < tamanoPagina) {
+                break;
+            }
+        }
+        return new ArchivoCatalogo.Contenido(productos, marca == null ? 0 : marca, tomadaEnMillis);
+    }
+
+    private void escribir(ArchivoCatalogo.Contenido contenido) {
+        try {
+            long bytes = escritura.recordCallable(() -> ArchivoCatalogo.escribir(archivo, contenido, PRODUCTOS_POR_BLOQUE));
+            log.info("Foto del catálogo escrita en {}: {} productos, {} bytes", archivo, contenido.productos().size(), bytes);
+        } catch (Exception e) {
+            log.warn("No se pudo escribir la foto del catálogo en {}: {}", archivo, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.repository.InventarioReactivoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Clase de Servicio para las lecturas reactivas del catálogo.
+ * Variante no bloqueante de las lecturas de InventarioService: listar, obtener por ID y obtener varios.
+ * Los listados se emiten por lotes y solo a medida que el consumidor los pide (contrapresión),
+ * de modo que un cliente lento no obliga a cargar la tabla entera en memoria.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class CatalogoReactivoService {
+
+    private final InventarioReactivoRepository inventarioReactivoRepository;
+    private final int tamanoLote;
+    private final int maxIds;
+
+    public CatalogoReactivoService(InventarioReactivoRepository inventarioReactivoRepository,
+                                   @Value("${ecomerce.catalogo-reactivo.tamano-lote:256}") int tamanoLote,
+                                   @Value("${ecomerce.catalogo-reactivo.max-ids:100}") int maxIds) {
+        this.inventarioReactivoRepository = inventarioReactivoRepository;
+        this.tamanoLote = tamanoLote;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Lista todo el catálogo en orden de ID.
+     * Como mucho se piden al driver 'tamanoLote' filas por delante de lo que el consumidor ha pedido.
+     * @return Un Flux con los productos.
+     */
+    public Flux<Inventario> listar() {
+        return inventarioReactivoRepository.findAll(tamanoLote).limitRate(tamanoLote);
+    }
+
+    /**
+     * Obtiene un producto por su ID.
+     * @param id El ID del producto.
+     * @return Un Mono con el producto, o vacío si no existe.
+     */
+    public Mono<Inventario> obtenerPorId(Long id) {
+        return inventarioReactivoRepository.findById(id);
+    }
+
+    /**
+     * Obtiene varios productos por su ID en una sola consulta.
+     * @param ids Los IDs de los productos (se ignoran los repetidos).
+     * @return Un Flux con los productos encontrados; error IllegalArgumentException si no hay IDs o hay demasiados.
+     */
+    public Flux<Inventario> obtenerVarios(List<Long> ids) {
+        List<Long> distintos = ids.stream().distinct().toList();
+        if (distintos.isEmpty() || distintos.size() > maxIds) {
+            return Flux.error(new IllegalArgumentException("Se requieren entre 1 y " + maxIds + " IDs"));
+        }
+        return inventarioReactivoRepository.findAllById(distintos);
+    }
+}
@@ -0,0 +1,390 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.LecturaCatalogo;
+import com.ecomerce.model.Inventario;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lecturas del catálogo con modo degradado "stale-while-revalidate".
+ * Guarda en memoria la última foto completa del catálogo. Si la base de datos se vuelve lenta (la latencia
+ * media de los listados completos o de las lecturas por ID, medidas por separado, o el número de hilos esperando
+ * conexión del pool de la primaria o del de la réplica de lectura supera su umbral) o falla, las lecturas del
+ * catálogo se sirven desde esa foto, marcadas como obsoletas, y se lanza en segundo plano un sondeo barato (una
+ * consulta por clave primaria). Cuando el sondeo vuelve a ser rápido, se sale del modo degradado.
+ *
+ * La foto no se relee entera con cada cambio: los productos modificados que llegan por el bus se acumulan y se
+ * releen por ID cada ecomerce.catalogo.degradado.refresco-ms (solo fuera del modo degradado). Los listados
+ * completos servidos desde la base de datos la renuevan entera. Cada sustitución de la foto comprueba que nadie la
+ * ha cambiado desde que empezó su lectura (versión de la foto): un listado completo que termina después de un
+ * refresco no pisa las filas más nuevas de este.
+ *
+ * Solo afecta a la navegación del catálogo: las escrituras (carritos, stock) siguen yendo siempre a la base de datos.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class CatalogoSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoSnapshotService.class);
+    private static final double PESO_EWMA = 0.2; // Peso de la última medición en la latencia media
+    private static final int BLOQUE_REFRESCO = 500; // IDs por consulta al releer los productos cambiados
+
+    private final InventarioService inventarioService;
+    private final CatalogoEnDiscoService catalogoEnDisco; // Carga del catálogo del arranque
+    private final LecturasCoalescidasService lecturasCoalescidas;
+    private final Executor segundoPlanoExecutor;
+    private final List<HikariDataSource> pools; // Primaria y, si hay, réplica de lectura
+    private final boolean habilitado;
+    private final long latenciaMaxMillis; // Umbral de las lecturas por ID y del sondeo
+    private final long latenciaListadoMaxMillis; // Umbral de los listados completos
+    private final int esperaPoolMax;
+    private final long sondeoMinMillis;
+    private final Clock reloj = Clock.systemUTC();
+
+    private volatile Foto foto; // Última foto completa del catálogo (null hasta la primera lectura)
+    private volatile long versionFoto; // Aumenta con cada sustitución de la foto (se escribe con cerrojoFoto)
+    private final ReentrantLock cerrojoFoto = new ReentrantLock();
+    private volatile boolean degradado;
+    private volatile double latenciaListadoMillis; // EWMA de los listados completos
+    private volatile double latenciaPorIdMillis; // EWMA de las lecturas por ID y de los sondeos
+    private volatile long ultimoSondeoMillis;
+    private final Set<Long> cambiosPendientes = ConcurrentHashMap.newKeySet(); // Productos a releer en la foto
+    private final AtomicBoolean sondeando = new AtomicBoolean();
+    private final AtomicBoolean cargandoFoto = new AtomicBoolean();
+    private final Counter respuestasObsoletas;
+
+    public CatalogoSnapshotService(InventarioService inventarioService,
+                                   CatalogoEnDiscoService catalogoEnDisco,
+                                   LecturasCoalescidasService lecturasCoalescidas,
+                                   @Qualifier("lecturasExecutor") Executor segundoPlanoExecutor,
+                                   List<HikariDataSource> pools,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ecomerce.catalogo.degradado.habilitado:true}") boolean habilitado,
+                                   @Value("${ecomerce.catalogo.degradado.latencia-max-ms:500}") long latenciaMaxMillis,
+                                   @Value("${ecomerce.catalogo.degradado.latencia-listado-max-ms:2000}") long latenciaListadoMaxMillis,
+                                   @Value("${ecomerce.catalogo.degradado.espera-pool-max:5}") int esperaPoolMax,
+                                   @Value("${ecomerce.catalogo.degradado.sondeo-min-ms:1000}") long sondeoMinMillis) {
+        this.inventarioService = inventarioService;
+        this.catalogoEnDisco = catalogoEnDisco;
+        this.lecturasCoalescidas = lecturasCoalescidas;
+        this.segundoPlanoExecutor = segundoPlanoExecutor;
+        this.pools = List.copyOf(pools);
+        this.habilitado = habilitado;
+        this.latenciaMaxMillis = latenciaMaxMillis;
+        this.latenciaListadoMaxMillis = latenciaListadoMaxMillis;
+        this.esperaPoolMax = esperaPoolMax;
+        this.sondeoMinMillis = sondeoMinMillis;
+        this.respuestasObsoletas = Counter.builder("ecomerce.catalogo.respuestas-obsoletas")
+                .description("Lecturas del catálogo servidas desde la foto en memoria")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.catalogo.degradado", this, s -> s.degradado ? 1 : 0)
+                .description("1 si el catálogo se está sirviendo en modo degradado")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.catalogo.latencia-listado", this, s -> s.latenciaListadoMillis)
+                .description("Latencia media (EWMA) de los listados completos del catálogo en milisegundos")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.catalogo.latencia-por-id", this, s -> s.latenciaPorIdMillis)
+                .description("Latencia media (EWMA) de las lecturas por ID y de los sondeos en milisegundos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Toma la primera foto del catálogo al arrancar, para poder degradar desde el principio. Parte de la carga
+     * compartida del arranque (CatalogoEnDiscoService), antes de que esta se suelte; si falla, la toma en segundo
+     * plano de la base de datos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1) // Después del índice de búsqueda, antes de soltarse la carga del arranque
+    public void tomarFotoInicial() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            CatalogoEnDiscoService.CatalogoCargado catalogo = catalogoEnDisco.cargarAlArrancar();
+            reemplazarFoto(catalogo.productos(), catalogo.tomadaEnMillis());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo cargar el catálogo del arranque: {}", e.getMessage());
+            cargarFotoEnSegundoPlano();
+        }
+    }
+
+    /**
+     * Apunta los productos que otra instancia (o esta) ha modificado, para releerlos en la foto en el siguiente
+     * refresco: así el modo degradado no sirve datos más antiguos de lo necesario sin releer todo el catálogo.
+     * @param evento Productos modificados.
+     */
+    @EventListener
+    public void alCambiarInventario(CambiosInventarioEvento evento) {
+        if (habilitado && foto != null) {
+            cambiosPendientes.addAll(evento.productoIds());
+        }
+    }
+
+    /**
+     * Relee por ID los productos modificados desde el último refresco y los sustituye en la foto
+     * (los que ya no existen se quitan). En modo degradado no se consulta la base de datos: los cambios
+     * siguen pendientes hasta que se sale del modo degradado.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.catalogo.degradado.refresco-ms:5000}",
+               initialDelayString = "${ecomerce.catalogo.degradado.refresco-ms:5000}")
+    public void refrescarFoto() {
+        if (!habilitado || foto == null || cambiosPendientes.isEmpty() || debeDegradar()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(cambiosPendientes);
+        cambiosPendientes.removeAll(ids);
+        long version = versionFoto;
+        try {
+            List<Inventario> leidos = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i += BLOQUE_REFRESCO) {
+                // De la primaria: la réplica puede no tener aún los cambios que llegan por el bus
+                leidos.addAll(inventarioService.obtenerCopiasDeLaPrimaria(ids.subList(i, Math.min(ids.size(), i + BLOQUE_REFRESCO))));
+            }
+            aplicarCambios(version, ids, leidos);
+        } catch (RuntimeException e) {
+            cambiosPendientes.addAll(ids); // Se reintentan en el siguiente refresco
+            log.warn("No se pudo refrescar la foto del catálogo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lista todo el catálogo: desde la base de datos o, en modo degradado, desde la foto en memoria.
+     * @return La lista de productos, indicando si es obsoleta.
+     */
+    public LecturaCatalogo<List<Inventario>> listar() {
+        Foto actual = foto;
+        if (debeDegradar() && actual != null) {
+            sondearEnSegundoPlano();
+            return obsoleta(actual.productos(), actual);
+        }
+        try {
+            long version = versionFoto;
+            long inicio = System.nanoTime();
+            List<Inventario> productos = inventarioService.obtenerTodos();
+            latenciaListadoMillis = ewma(latenciaListadoMillis, inicio);
+            sustituirSiNoHaCambiado(version, productos); // La lectura completa renueva la foto
+            return LecturaCatalogo.fresca(productos);
+        } catch (RuntimeException e) {
+            if (!habilitado || actual == null) {
+                throw e;
+            }
+            log.warn("Fallo al listar el catálogo, se sirve la última foto: {}", e.getMessage());
+            degradado = true;
+            sondearEnSegundoPlano();
+            return obsoleta(actual.productos(), actual);
+        }
+    }
+
+    /**
+     * Obtiene un producto por su ID: con la lectura coalescida o, en modo degradado, desde la foto en memoria.
+     * Si el producto no está en la foto (por ejemplo, se creó después), se consulta igualmente la base de datos.
+     * @param id El ID del producto.
+     * @return Un futuro con el producto (o vacío), indicando si es obsoleto.
+     */
+    public CompletableFuture<LecturaCatalogo<Optional<Inventario>>> obtener(Long id) {
+        Foto actual = foto;
+        if (debeDegradar() && actual != null && actual.porId().containsKey(id)) {
+            sondearEnSegundoPlano();
+            return CompletableFuture.completedFuture(obsoleta(Optional.of(actual.porId().get(id)), actual));
+        }
+        long inicio = System.nanoTime();
+        return lecturasCoalescidas.obtenerProducto(id)
+                .thenApply(producto -> {
+                    latenciaPorIdMillis = ewma(latenciaPorIdMillis, inicio);
+                    return LecturaCatalogo.fresca(producto);
+                })
+                .exceptionally(error -> {
+                    if (!habilitado || actual == null || !actual.porId().containsKey(id)) {
+                        throw error instanceof RuntimeException re ? re : new RuntimeException(error);
+                    }
+                    degradado = true;
+                    sondearEnSegundoPlano();
+                    return obsoleta(Optional.of(actual.porId().get(id)), actual);
+                });
+    }
+
+    /**
+     * @return true si el catálogo se está sirviendo en modo degradado.
+     */
+    public boolean isDegradado() {
+        return degradado;
+    }
+
+    /**
+     * Sustituye la foto del catálogo (por ejemplo, al cargarla desde disco en el arranque).
+     * @param productos Catálogo completo.
+     * @param tomadaEnMillis Instante (epoch ms) en que se tomó la foto.
+     */
+    public void reemplazarFoto(List<Inventario> productos, long tomadaEnMillis) {
+        Foto nueva = new Foto(List.copyOf(productos), indexar(productos), tomadaEnMillis);
+        cerrojoFoto.lock();
+        try {
+            foto = nueva;
+            versionFoto++;
+        } finally {
+            cerrojoFoto.unlock();
+        }
+    }
+
+    /**
+     * Lanza en segundo plano un sondeo de la base de datos (una consulta por clave primaria), salvo que ya haya
+     * uno en curso o el último sea de hace menos de ecomerce.catalogo.degradado.sondeo-min-ms.
+     * Si el sondeo está por debajo del umbral y el pool no está saturado, se sale del modo degradado.
+     */
+    void sondearEnSegundoPlano() {
+        long ahora = reloj.millis();
+        if (ahora - ultimoSondeoMillis < sondeoMinMillis || !sondeando.compareAndSet(false, true)) {
+            return;
+        }
+        ultimoSondeoMillis = ahora;
+        Foto actual = foto;
+        Long idSondeo = actual == null || actual.productos().isEmpty() ? 0L : actual.productos().get(0).getId();
+        try {
+            segundoPlanoExecutor.execute(() -> {
+                try {
+                    long inicio = System.nanoTime();
+                    inventarioService.existe(idSondeo);
+                    double millis = (System.nanoTime() - inicio) / 1_000_000.0;
+                    latenciaPorIdMillis = millis; // El sondeo marca la nueva referencia de latencia
+                    if (millis <= latenciaMaxMillis && !poolSaturado()) {
+                        latenciaListadoMillis = 0; // El siguiente listado completo la vuelve a medir
+                        degradado = false;
+                        log.info("Base de datos recuperada (sondeo de {} ms): el catálogo sale del modo degradado", Math.round(millis));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Fallo al sondear la base de datos: {}", e.getMessage());
+                } finally {
+                    sondeando.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sondeando.set(false);
+        }
+    }
+
+    /**
+     * Lee todo el catálogo en segundo plano cuando aún no hay foto (si falló la carga del arranque).
+     */
+    private void cargarFotoEnSegundoPlano() {
+        if (!cargandoFoto.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            segundoPlanoExecutor.execute(() -> {
+                try {
+                    long version = versionFoto;
+                    sustituirSiNoHaCambiado(version, inventarioService.obtenerTodos());
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo tomar la foto del catálogo: {}", e.getMessage());
+                } finally {
+                    cargandoFoto.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cargandoFoto.set(false);
+        }
+    }
+
+    /**
+     * Pone en la foto un catálogo completo leído a partir de la versión indicada, salvo que la foto haya cambiado
+     * mientras se leía: entonces la foto actual ya tiene filas más nuevas que la lectura y se conserva.
+     */
+    private void sustituirSiNoHaCambiado(long versionLeida, List<Inventario> productos) {
+        Foto nueva = new Foto(productos, indexar(productos), reloj.millis());
+        cerrojoFoto.lock();
+        try {
+            if (versionFoto == versionLeida) {
+                foto = nueva;
+                versionFoto++;
+            }
+        } finally {
+            cerrojoFoto.unlock();
+        }
+    }
+
+    /**
+     * Sustituye en la foto los productos releídos a partir de la versión indicada. Si la foto ha cambiado mientras
+     * se leían (por ejemplo, un listado completo más reciente), no se aplican y se vuelven a dejar pendientes.
+     */
+    private void aplicarCambios(long versionLeida, List<Long> ids, List<Inventario> leidos) {
+        cerrojoFoto.lock();
+        try {
+            if (versionFoto != versionLeida) {
+                cambiosPendientes.addAll(ids);
+                return;
+            }
+            TreeMap<Long, Inventario> porId = new TreeMap<>(foto.porId()); // Mantiene el orden por ID del listado
+            ids.forEach(porId::remove);
+            leidos.forEach(producto -> porId.put(producto.getId(), producto));
+            List<Inventario> productos = List.copyOf(porId.values());
+            foto = new Foto(productos, indexar(productos), reloj.millis());
+            versionFoto++;
+        } finally {
+            cerrojoFoto.unlock();
+        }
+    }
+
+    private boolean debeDegradar() {
+        if (!habilitado) {
+            return false;
+        }
+        if (!degradado && (latenciaPorIdMillis > latenciaMaxMillis || latenciaListadoMillis > latenciaListadoMaxMillis
+                || poolSaturado())) {
+            log.warn("Base de datos lenta (latencia media por ID {} ms, de listado {} ms): el catálogo pasa a modo degradado",
+                    Math.round(latenciaPorIdMillis), Math.round(latenciaListadoMillis));
+            degradado = true;
+        }
+        return degradado;
+    }
+
+    private boolean poolSaturado() {
+        return pools.stream()
+                .map(HikariDataSource::getHikariPoolMXBean)
+                .anyMatch(mxBean -> mxBean != null && mxBean.getThreadsAwaitingConnection() > esperaPoolMax);
+    }
+
+    private static double ewma(double media, long inicioNanos) {
+        double millis = (System.nanoTime() - inicioNanos) / 1_000_000.0;
+        return PESO_EWMA * millis + (1 - PESO_EWMA) * media;
+    }
+
+    private <T> LecturaCatalogo<T> obsoleta(T valor, Foto origen) {
+        respuestasObsoletas.increment();
+        long antiguedad = Math.max(0, (reloj.millis() - origen.tomadaEnMillis()) / 1000);
+        return new LecturaCatalogo<>(valor, true, antiguedad);
+    }
+
+    private static Map<Long, Inventario> indexar(List<Inventario> productos) {
+        return productos.stream().collect(Collectors.toUnmodifiableMap(Inventario::getId, Function.identity()));
+    }
+
+    private record Foto(List<Inventario> productos, Map<Long, Inventario> porId, long tomadaEnMillis) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.ecomerce.service;
+
+import com.ecomerce.concurrencia.LimitadorRitmo;
+import com.ecomerce.dto.DescuadreInventario;
+import com.ecomerce.dto.InformeConciliacion;
+import com.ecomerce.repository.InventarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conciliación del inventario: comprueba que stock + unidades en carritos + unidades vendidas = unidades recibidas
+ * en cada producto. Las actualizaciones de stock perdidas (dos lecturas-modificaciones-escrituras simultáneas)
+ * rompen esa igualdad sin dejar rastro; esta tarea las detecta y, si se pide, las corrige.
+ *
+ * - El espacio de IDs se divide en rangos que se revisan en paralelo en un ForkJoinPool propio, con una sola
+ *   consulta agregada por rango. Las lecturas no bloquean filas.
+ * - La corrección de cada rango es una transacción corta: recalcula el stock a partir de las unidades recibidas
+ *   en la propia sentencia de actualización. Los productos que aún no tienen unidades recibidas las registran.
+ * - Se puede limitar el ritmo (IDs por segundo, entre todos los hilos) para no competir con el tráfico normal.
+ * Métricas: ecomerce.conciliacion.duracion, ecomerce.conciliacion.descuadres y ecomerce.conciliacion.corregidos.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class ConciliacionInventarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConciliacionInventarioService.class);
+
+    private final InventarioRepository inventarioRepository;
+    private final CambiosInventarioService cambiosInventario;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoRango;
+    private final int hilos;
+    private final LimitadorRitmo ritmo; // IDs por segundo entre todos los hilos
+    private final int maxMuestra;
+    private final boolean corregirPeriodicamente;
+    private final Timer duracion;
+    private final Counter corregidos;
+    private final AtomicInteger ultimosDescuadres = new AtomicInteger();
+
+    public ConciliacionInventarioService(InventarioRepository inventarioRepository,
+                                         CambiosInventarioService cambiosInventario,
+                                         PlatformTransactionManager transactionManager,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${ecomerce.conciliacion.tamano-rango:10000}") int tamanoRango,
+                                         @Value("${ecomerce.conciliacion.hilos:2}") int hilos,
+                                         @Value("${ecomerce.conciliacion.ids-por-segundo:0}") long idsPorSegundo,
+                                         @Value("${ecomerce.conciliacion.muestra:100}") int maxMuestra,
+                                         @Value("${ecomerce.conciliacion.corregir:false}") boolean corregirPeriodicamente) {
+        this.inventarioRepository = inventarioRepository;
+        this.cambiosInventario = cambiosInventario;
+        // Transacción de lectura-escritura: se lee de la primaria, una réplica retrasada daría falsos descuadres
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoRango = tamanoRango;
+        this.hilos = hilos;
+        this.ritmo = new LimitadorRitmo(idsPorSegundo);
+        this.maxMuestra = maxMuestra;
+        this.corregirPeriodicamente = corregirPeriodicamente;
+        this.duracion = Timer.builder("ecomerce.conciliacion.duracion")
+                .description("Duración de cada pasada de conciliación del inventario")
+                .register(meterRegistry);
+        this.corregidos = Counter.builder("ecomerce.conciliacion.corregidos")
+                .description("Productos cuyo stock ha corregido la conciliación")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.conciliacion.descuadres", ultimosDescuadres, AtomicInteger::get)
+                .description("Productos descuadrados en la última conciliación")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la conciliación periódicamente (corrigiendo solo si ecomerce.conciliacion.corregir=true).
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.conciliacion.intervalo-ms:86400000}",
+               initialDelayString = "${ecomerce.conciliacion.intervalo-ms:86400000}")
+    public void conciliarPeriodicamente() {
+        conciliar(corregirPeriodicamente);
+    }
+
+    /**
+     * Revisa todo el inventario.
+     * @param corregir Si es true, corrige el stock de los productos descuadrados; si no, solo informa.
+     * @return El informe de la pasada.
+     */
+    public synchronized InformeConciliacion conciliar(boolean corregir) {
+        long inicio = System.nanoTime();
+        Long minimo = inventarioRepository.findIdMinimo();
+        Long maximo = inventarioRepository.findIdMaximo();
+        Parcial total = new Parcial();
+        if (minimo != null) {
+            ForkJoinPool pool = new ForkJoinPool(hilos);
+            try {
+                total = pool.invoke(new Rango(minimo, maximo, corregir));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long nanos = System.nanoTime() - inicio;
+        long millis = nanos / 1_000_000;
+        duracion.record(nanos, TimeUnit.NANOSECONDS);
+        ultimosDescuadres.set(total.descuadres);
+        corregidos.increment(total.corregidos);
+
+        InformeConciliacion informe = new InformeConciliacion(total.rangos, total.descuadres, total.corregidos,
+                total.registrados, List.copyOf(total.muestra), millis);
+        if (total.descuadres > 0) {
+            log.warn("Conciliación del inventario: {} productos descuadrados, {} corregidos, {} con unidades recibidas registradas ({} ms). Muestra: {}",
+                    total.descuadres, total.corregidos, total.registrados, millis, total.muestra);
+        } else {
+            log.info("Conciliación del inventario: sin descuadres en {} rangos ({} ms)", total.rangos, millis);
+        }
+        return informe;
+    }
+
+    /**
+     * Revisa (y corrige, si se pide) un rango de IDs.
+     */
+    private Parcial revisar(long desde, long hasta, boolean corregir) {
+        ritmo.esperar(hasta - desde + 1);
+        Parcial parcial = new Parcial();
+        parcial.rangos = 1;
+        List<DescuadreInventario> descuadres = transactionTemplate.execute(status ->
+                inventarioRepository.findDescuadres(desde, hasta));
+        if (descuadres == null || descuadres.isEmpty()) {
+            return parcial;
+        }
+        List<Long> sinRegistrar = descuadres.stream().filter(d -> d.unidadesRecibidas() == null)
+                .map(DescuadreInventario::productoId).toList();
+        List<Long> descuadrados = descuadres.stream().filter(d -> d.unidadesRecibidas() != null)
+                .map(DescuadreInventario::productoId).toList();
+        parcial.descuadres = descuadrados.size();
+        descuadres.stream().filter(d -> d.unidadesRecibidas() != null).limit(maxMuestra).forEach(parcial.muestra::add);
+
+        if (!sinRegistrar.isEmpty() || (corregir && !descuadrados.isEmpty())) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> modificados = new ArrayList<>();
+                if (!sinRegistrar.isEmpty()) {
+                    parcial.registrados = inventarioRepository.registrarUnidadesRecibidas(sinRegistrar);
+                }
+                if (corregir && !descuadrados.isEmpty()) {
+                    parcial.corregidos = inventarioRepository.corregirStock(descuadrados);
+                    modificados.addAll(descuadrados);
+                }
+                if (!modificados.isEmpty()) {
+                    cambiosInventario.registrar(modificados); // Las demás instancias desalojarán su copia en caché
+                }
+            });
+        }
+        return parcial;
+    }
+
+    /**
+     * Resultado acumulado de uno o varios rangos.
+     */
+    private final class Parcial {
+        int rangos;
+        int descuadres;
+        int corregidos;
+        int registrados;
+        final List<DescuadreInventario> muestra = new ArrayList<>();
+
+        Parcial sumar(Parcial otro) {
+            rangos += otro.rangos;
+            descuadres += otro.descuadres;
+            corregidos += otro.corregidos;
+            registrados += otro.registrados;
+            otro.muestra.stream().limit(Math.max(0, maxMuestra - muestra.size())).forEach(muestra::add);
+            return this;
+        }
+    }
+
+    /**
+     * Tarea fork/join sobre un rango de IDs: lo parte por la mitad hasta llegar al tamaño de rango configurado.
+     */
+    private final class Rango extends RecursiveTask<Parcial> {
+
+        private final long desde;
+        private final long hasta;
+        private final boolean corregir;
+
+        Rango(long desde, long hasta, boolean corregir) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.corregir = corregir;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde < tamanoRango) {
+                return revisar(desde, hasta, corregir);
+            }
+            long mitad = desde + (hasta - desde) / 2;
+            Rango izquierda = new Rango(desde, mitad, corregir);
+            izquierda.fork();
+            Parcial derecha = new Rango(mitad + 1, hasta, corregir).compute();
+            return izquierda.join().sumar(derecha);
+        }
+    }
+}
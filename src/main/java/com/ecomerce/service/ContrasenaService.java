@@ -0,0 +1,141 @@
+package com.ecomerce.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Hash y verificación de contraseñas con BCrypt, fuera de los hilos que atienden peticiones.
+ * Todo el trabajo se ejecuta en el executor acotado "contrasenasExecutor": si su cola está llena,
+ * la operación falla en el acto con RejectedExecutionException (el controlador responde 503).
+ *
+ * El coste de BCrypt es adaptativo: con ecomerce.contrasenas.coste=0 se calibra al arrancar para que un hash
+ * tarde aproximadamente ecomerce.contrasenas.tiempo-objetivo en esta máquina. Los hashes con un coste menor
+ * que el actual se rehacen en el siguiente inicio de sesión correcto (ver necesitaRehash).
+ * Métricas: ecomerce.contrasenas.duracion y ecomerce.contrasenas.espera (por operación) y
+ * ecomerce.contrasenas.rechazadas.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class ContrasenaService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContrasenaService.class);
+
+    private static final int COSTE_MIN = 10; // Mínimo razonable hoy para BCrypt
+    private static final int COSTE_MAX = 16; // Cada punto duplica el tiempo: por encima, el login sería inusable
+
+    private final Executor executor;
+    private final BCryptPasswordEncoder encoder;
+    private final String hashFicticio; // Para verificar en el mismo tiempo aunque el usuario no exista
+    private final Timer duracionHash;
+    private final Timer duracionVerificacion;
+    private final Timer esperaHash;
+    private final Timer esperaVerificacion;
+    private final Counter rechazadas;
+
+    public ContrasenaService(@Qualifier("contrasenasExecutor") Executor executor,
+                             MeterRegistry meterRegistry,
+                             @Value("${ecomerce.contrasenas.coste:0}") int coste,
+                             @Value("${ecomerce.contrasenas.tiempo-objetivo:250ms}") Duration tiempoObjetivo) {
+        this.executor = executor;
+        this.encoder = new BCryptPasswordEncoder(coste > 0 ? coste : calibrarCoste(tiempoObjetivo));
+        this.hashFicticio = encoder.encode("contraseña-ficticia");
+        this.duracionHash = temporizador(meterRegistry, "ecomerce.contrasenas.duracion", "hashear",
+                "Tiempo de CPU de cada operación con contraseñas");
+        this.duracionVerificacion = temporizador(meterRegistry, "ecomerce.contrasenas.duracion", "verificar",
+                "Tiempo de CPU de cada operación con contraseñas");
+        this.esperaHash = temporizador(meterRegistry, "ecomerce.contrasenas.espera", "hashear",
+                "Tiempo en la cola del executor de contraseñas");
+        this.esperaVerificacion = temporizador(meterRegistry, "ecomerce.contrasenas.espera", "verificar",
+                "Tiempo en la cola del executor de contraseñas");
+        this.rechazadas = Counter.builder("ecomerce.contrasenas.rechazadas")
+                .description("Operaciones con contraseñas rechazadas por tener la cola llena")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calcula el hash de una contraseña en el executor de contraseñas.
+     * @param contrasena La contraseña en claro.
+     * @return Un futuro con el hash; falla con RejectedExecutionException si el executor está saturado.
+     */
+    public CompletableFuture<String> hashear(String contrasena) {
+        return ejecutar(() -> encoder.encode(contrasena), esperaHash, duracionHash);
+    }
+
+    /**
+     * Comprueba una contraseña contra su hash en el executor de contraseñas.
+     * Si no hay hash (usuario inexistente), se compara con uno ficticio para no delatar por el tiempo de respuesta
+     * qué emails están registrados.
+     * @param contrasena La contraseña en claro.
+     * @param hash El hash guardado, o null si no hay usuario.
+     * @return Un futuro con true si la contraseña es correcta.
+     */
+    public CompletableFuture<Boolean> verificar(String contrasena, String hash) {
+        String comparado = hash != null ? hash : hashFicticio;
+        return ejecutar(() -> encoder.matches(contrasena, comparado) && hash != null, esperaVerificacion, duracionVerificacion);
+    }
+
+    /**
+     * Indica si el hash se calculó con un coste menor que el actual (o con otro formato) y conviene rehacerlo.
+     * @param hash El hash guardado.
+     * @return true si hay que rehacerlo.
+     */
+    public boolean necesitaRehash(String hash) {
+        return hash == null || !hash.startsWith("$2") || encoder.upgradeEncoding(hash);
+    }
+
+    private <T> CompletableFuture<T> ejecutar(Supplier<T> operacion, Timer espera, Timer duracion) {
+        long encolada = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long inicio = System.nanoTime();
+                espera.record(Duration.ofNanos(inicio - encolada));
+                try {
+                    return operacion.get();
+                } finally {
+                    duracion.record(Duration.ofNanos(System.nanoTime() - inicio));
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Mide un hash con el coste mínimo y sube el coste (cada punto duplica el tiempo) hasta acercarse al objetivo.
+     */
+    private static int calibrarCoste(Duration tiempoObjetivo) {
+        BCryptPasswordEncoder prueba = new BCryptPasswordEncoder(COSTE_MIN);
+        prueba.encode("calentamiento"); // La primera llamada incluye la carga de clases y el JIT
+        long inicio = System.nanoTime();
+        prueba.encode("calibracion");
+        long nanos = Math.max(1, System.nanoTime() - inicio);
+        int coste = COSTE_MIN;
+        while (coste < COSTE_MAX && nanos * 2 <= tiempoObjetivo.toNanos()) {
+            nanos *= 2;
+            coste++;
+        }
+        log.info("Coste de BCrypt calibrado en {} (~{} ms por hash)", coste, Duration.ofNanos(nanos).toMillis());
+        return coste;
+    }
+
+    private static Timer temporizador(MeterRegistry registry, String nombre, String operacion, String descripcion) {
+        return Timer.builder(nombre)
+                .tag("operacion", operacion)
+                .description(descripcion)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
@@ -0,0 +1,231 @@
+package com.ecomerce.service;
+
+import com.ecomerce.concurrencia.FiltroBloom;
+import com.ecomerce.dto.UsuarioEmail;
+import com.ecomerce.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtro en memoria de los emails registrados (filtro de Bloom), delante de la comprobación de email repetido
+ * que se hace antes de registrar un usuario. Si el filtro dice que un email no está, no se consulta la base de
+ * datos: una ráfaga de registros nuevos no se convierte en una ráfaga de búsquedas en el índice único de usuarios.email.
+ *
+ * - Se construye al arrancar (y después cada reconstruccion-ms) leyendo los emails por páginas, y se sustituye
+ *   de golpe al terminar; después se repasan los usuarios insertados mientras tanto. Mientras no hay filtro,
+ *   todo email "puede estar" y se consulta la base de datos.
+ * - Cada registro añade su email antes de insertar. Los emails añadidos en el último minuto (o desde que empezó la
+ *   reconstrucción en curso) se guardan aparte y se copian al filtro nuevo al sustituirlo, con el mismo cerrojo que
+ *   agregar(): un registro cuya inserción se confirma después de que la reconstrucción lea su tramo no se pierde.
+ * - Los borrados y los registros hechos en otras instancias solo se reflejan en la siguiente reconstrucción.
+ *   Por eso el filtro no sirve para buscar usuarios ni para el inicio de sesión (un "no está" podría ser un usuario
+ *   recién registrado en otra instancia), y al registrar es el índice único quien decide si un email está repetido.
+ * Métricas: ecomerce.filtro-emails.consultas (etiqueta resultado), .elementos y .falsos-positivos-estimados.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class FiltroEmailsService {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroEmailsService.class);
+    private static final long VENTANA_RECIENTES_MILLIS = 60_000; // Más que lo que tarda un registro en confirmarse
+
+    private final UsuarioRepository usuarioRepository;
+    private final TransactionTemplate lectura;
+    private final long capacidad;
+    private final double probabilidadFalsoPositivo;
+    private final int tamanoPagina;
+    private final Counter descartadas;
+    private final Counter posibles;
+    private final Counter falsosPositivos;
+
+    private final ReentrantLock construyendo = new ReentrantLock();
+    private final ReentrantLock cerrojo = new ReentrantLock(); // agregar() frente a la sustitución del filtro
+    private volatile FiltroBloom filtro; // null hasta la primera construcción
+    private final LinkedHashMap<String, Long> recientes = new LinkedHashMap<>(); // Email -> cuándo se añadió (con cerrojo)
+    private long inicioConstruccion = -1; // Inicio de la reconstrucción en curso, -1 si no hay ninguna (con cerrojo)
+
+    public FiltroEmailsService(UsuarioRepository usuarioRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${ecomerce.usuarios.filtro-emails.capacidad:1000000}") long capacidad,
+                               @Value("${ecomerce.usuarios.filtro-emails.falsos-positivos:0.01}") double probabilidadFalsoPositivo,
+                               @Value("${ecomerce.usuarios.filtro-emails.tamano-pagina:10000}") int tamanoPagina) {
+        this.usuarioRepository = usuarioRepository;
+        // Transacción de lectura-escritura: se lee de la primaria, una réplica retrasada daría falsos negativos
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.capacidad = capacidad;
+        this.probabilidadFalsoPositivo = probabilidadFalsoPositivo;
+        this.tamanoPagina = tamanoPagina;
+        this.descartadas = Counter.builder("ecomerce.filtro-emails.consultas").tag("resultado", "descartada")
+                .description("Consultas por email resueltas por el filtro, sin ir a la base de datos")
+                .register(meterRegistry);
+        this.posibles = Counter.builder("ecomerce.filtro-emails.consultas").tag("resultado", "posible")
+                .description("Consultas por email resueltas por el filtro, sin ir a la base de datos")
+                .register(meterRegistry);
+        this.falsosPositivos = Counter.builder("ecomerce.filtro-emails.consultas").tag("resultado", "falso-positivo")
+                .description("Consultas por email resueltas por el filtro, sin ir a la base de datos")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.filtro-emails.elementos", this, s -> s.filtro == null ? 0 : s.filtro.elementos())
+                .description("Emails en el filtro")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.filtro-emails.falsos-positivos-estimados", this,
+                        s -> s.filtro == null ? 1.0 : s.filtro.probabilidadFalsoPositivoEstimada())
+                .description("Proporción de falsos positivos esperada con los emails actuales")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si el email puede estar registrado. Si devuelve false, seguro que no lo está.
+     * @param email El email.
+     * @return false si no hace falta consultar la base de datos.
+     */
+    public boolean podriaExistir(String email) {
+        FiltroBloom actual = filtro;
+        if (actual != null && !actual.podriaContener(normalizar(email))) {
+            descartadas.increment();
+            return false;
+        }
+        posibles.increment();
+        return true;
+    }
+
+    /**
+     * Añade un email al filtro. Se llama antes de insertar el usuario: si la inserción falla,
+     * solo queda un falso positivo más.
+     * @param email El email registrado.
+     */
+    public void agregar(String email) {
+        String clave = normalizar(email);
+        long ahora = System.currentTimeMillis();
+        cerrojo.lock();
+        try {
+            FiltroBloom actual = filtro;
+            if (actual != null) {
+                actual.agregar(clave);
+            }
+            recientes.remove(clave); // Se reinserta al final: el mapa queda en orden de llegada
+            recientes.put(clave, ahora);
+            purgarRecientes(ahora);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Anota que el filtro dijo "puede estar" para un email que la base de datos no tiene.
+     */
+    public void registrarFalsoPositivo() {
+        falsosPositivos.increment();
+    }
+
+    /**
+     * Construye el filtro al arrancar. La aplicación ya atiende peticiones: hasta que termina, se consulta la base de datos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlArrancar() {
+        reconstruir();
+    }
+
+    /**
+     * Reconstruye el filtro periódicamente para olvidar los emails borrados e incorporar los registrados
+     * en otras instancias.
+     */
+    @Scheduled(initialDelayString = "${ecomerce.usuarios.filtro-emails.reconstruccion-ms:3600000}",
+               fixedDelayString = "${ecomerce.usuarios.filtro-emails.reconstruccion-ms:3600000}")
+    public void reconstruirPeriodicamente() {
+        reconstruir();
+    }
+
+    /**
+     * Construye un filtro nuevo con todos los emails registrados y lo pone en uso.
+     * Si ya hay una reconstrucción en curso, no hace nada.
+     */
+    public void reconstruir() {
+        if (!construyendo.tryLock()) {
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            cambiarInicioConstruccion(System.currentTimeMillis());
+            long total = usuarioRepository.count();
+            FiltroBloom nuevo = new FiltroBloom(Math.max(capacidad, total + total / 4), probabilidadFalsoPositivo);
+            long ultimoId = cargarDesde(nuevo, 0);
+            cerrojo.lock();
+            try {
+                recientes.keySet().forEach(nuevo::agregar); // Registros aún sin confirmar cuando se leyó su tramo
+                filtro = nuevo;
+            } finally {
+                cerrojo.unlock();
+            }
+            cargarDesde(nuevo, ultimoId); // Se repasa la cola por si alguna inserción se confirmó durante la lectura
+            log.info("Filtro de emails construido: {} emails, {} bits, {} ms", nuevo.elementos(), nuevo.numBits(),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo construir el filtro de emails (se sigue consultando la base de datos): {}", e.getMessage());
+        } finally {
+            cambiarInicioConstruccion(-1);
+            construyendo.unlock();
+        }
+    }
+
+    private void cambiarInicioConstruccion(long millis) {
+        cerrojo.lock();
+        try {
+            inicioConstruccion = millis;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Olvida los emails añadidos antes de la ventana. Durante una reconstrucción, la ventana se cuenta desde su
+     * inicio: todo lo que se añada después debe llegar al filtro nuevo. Se llama con el cerrojo tomado.
+     */
+    private void purgarRecientes(long ahora) {
+        long limite = (inicioConstruccion >= 0 ? Math.min(ahora, inicioConstruccion) : ahora) - VENTANA_RECIENTES_MILLIS;
+        Iterator<Long> fechas = recientes.values().iterator();
+        while (fechas.hasNext() && fechas.next() < limite) {
+            fechas.remove();
+        }
+    }
+
+    /**
+     * Añade al filtro los emails de los usuarios con ID mayor que 'desde', por páginas.
+     * @return El último ID leído.
+     */
+    private long cargarDesde(FiltroBloom nuevo, long desde) {
+        while (true) {
+            long inicioPagina = desde;
+            List<UsuarioEmail> pagina = lectura.execute(status ->
+                    usuarioRepository.findEmailsDesde(inicioPagina, Limit.of(tamanoPagina)));
+            if (pagina == null || pagina.isEmpty()) {
+                return desde;
+            }
+            pagina.forEach(usuario -> nuevo.agregar(normalizar(usuario.email())));
+            desde = pagina.get(pagina.size() - 1).id();
+            if (pagina.size() < tamanoPagina) {
+                return desde;
+            }
+        }
+    }
+
+    private static String normalizar(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT); // MySQL compara los emails sin distinguir mayúsculas
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Inventario;
+
+/**
+ * Evento publicado por InventarioService cada vez que guarda, elimina o cambia el stock de un producto.
+ * Se publica dentro de la transacción: quien necesite ver solo cambios confirmados lo escucha con
+ * {@code @TransactionalEventListener} (fase AFTER_COMMIT, la fase por defecto).
+ * @param productoId ID del producto.
+ * @param producto El producto tal como ha quedado, o null si se ha eliminado.
+ */
+public record InventarioModificadoEvento(Long productoId, Inventario producto) {
+}
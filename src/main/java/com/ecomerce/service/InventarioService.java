@@ -1,9 +1,17 @@
 package com.ecomerce.service;
 
+import com.ecomerce.dto.OrdenCatalogo;
+import com.ecomerce.dto.PaginaCatalogo;
 import com.ecomerce.model.Inventario;
 import com.ecomerce.repository.InventarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import jakarta.transaction.Transactional; // Importación necesaria para @Transactional
+import org.springframework.transaction.annotation.Transactional; // @Transactional de Spring: admite readOnly
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,60 +24,214 @@ import java.util.Optional;
 public class InventarioService {
 
     private final InventarioRepository inventarioRepository;
+    private final CambiosInventarioService cambiosInventario;
+    private final ApplicationEventPublisher eventPublisher; // InventarioModificadoEvento para los índices en memoria
+    private final EntityManager entityManager;
+    private final int limitePaginaMax; // Tamaño máximo de página de los listados filtrados
 
     // Inyección de dependencias
-    public InventarioService(InventarioRepository inventarioRepository) {
+    public InventarioService(InventarioRepository inventarioRepository, CambiosInventarioService cambiosInventario,
+                             ApplicationEventPublisher eventPublisher, EntityManager entityManager,
+                             @Value("${ecomerce.catalogo.pagina.limite-max:100}") int limitePaginaMax) {
         this.inventarioRepository = inventarioRepository;
+        this.cambiosInventario = cambiosInventario;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.limitePaginaMax = limitePaginaMax;
     }
 
     /**
      * Guarda un nuevo producto en el inventario o actualiza uno existente.
+     * Un producto nuevo cuenta su stock inicial como unidades recibidas.
+     * Registra el cambio en el bus de invalidación en la misma transacción y publica un InventarioModificadoEvento.
      * @param inventario El objeto Inventario a guardar.
      * @return El Inventario guardado.
      */
+    @Transactional
     public Inventario guardar(Inventario inventario) {
-        return inventarioRepository.save(inventario);
+        if (inventario.getId() == null) {
+            inventario.setUnidadesRecibidas(inventario.getStock() + inventario.getUnidadesVendidas());
+        }
+        Inventario guardado = inventarioRepository.save(inventario);
+        cambiosInventario.registrar(List.of(guardado.getId()));
+        eventPublisher.publishEvent(new InventarioModificadoEvento(guardado.getId(), guardado));
+        return guardado;
     }
 
     /**
      * Obtiene todos los productos del inventario.
+     * Transacción de solo lectura: si hay réplica de lectura configurada (y al día), se lee de ella.
      * @return Una lista de todos los productos.
      */
+    @Transactional(readOnly = true)
     public List<Inventario> obtenerTodos() {
         return inventarioRepository.findAll();
     }
 
+    /**
+     * Obtiene una página de un listado filtrado y ordenado del catálogo, con paginación por clave.
+     * Cada orden usa su consulta y su índice compuesto en InventarioRepository: el filtro y el orden se resuelven
+     * en la base de datos y solo se leen las filas de la página (más una para saber si hay página siguiente).
+     * @param precioMin Precio mínimo (null = sin mínimo).
+     * @param precioMax Precio máximo (null = sin máximo).
+     * @param soloConStock true para devolver solo productos con stock.
+     * @param orden Orden del listado.
+     * @param cursor Cursor devuelto en la página anterior (null para la primera página).
+     * @param limite Tamaño de la página (como mucho ecomerce.catalogo.pagina.limite-max).
+     * @return La página y el cursor de la siguiente.
+     * @throws IllegalArgumentException si el cursor no es válido o el rango de precios está invertido.
+     */
+    @Transactional(readOnly = true) // Puede servirse desde la réplica de lectura
+    public PaginaCatalogo listarPagina(Double precioMin, Double precioMax, boolean soloConStock, OrdenCatalogo orden,
+                                       String cursor, int limite) {
+        double min = precioMin != null ? precioMin : -Double.MAX_VALUE;
+        double max = precioMax != null ? precioMax : Double.MAX_VALUE;
+        if (min > max) {
+            throw new IllegalArgumentException("precioMin no puede ser mayor que precioMax");
+        }
+        boolean sinFiltroPrecio = precioMin == null && precioMax == null;
+        int stockMin = soloConStock ? 1 : 0; // El stock nunca es negativo
+        int tamano = Math.max(1, Math.min(limite, limitePaginaMax));
+        Limit unaMas = Limit.of(tamano + 1); // La fila de más indica si hay página siguiente
+
+        List<Inventario> filas = switch (orden) {
+            case PRECIO_ASC -> cursor == null
+                    ? inventarioRepository.findPaginaPorPrecioAsc(min, max, stockMin, min, 0L, unaMas)
+                    : inventarioRepository.findPaginaPorPrecioAsc(min, max, stockMin,
+                            Double.parseDouble(claveDeCursor(cursor)), idDeCursor(cursor), unaMas);
+            case PRECIO_DESC -> cursor == null
+                    ? inventarioRepository.findPaginaPorPrecioDesc(min, max, stockMin, max, Long.MAX_VALUE, unaMas)
+                    : inventarioRepository.findPaginaPorPrecioDesc(min, max, stockMin,
+                            Double.parseDouble(claveDeCursor(cursor)), idDeCursor(cursor), unaMas);
+            case STOCK_ASC -> cursor == null
+                    ? inventarioRepository.findPaginaPorStockAsc(sinFiltroPrecio, min, max, stockMin, stockMin, 0L, unaMas)
+                    : inventarioRepository.findPaginaPorStockAsc(sinFiltroPrecio, min, max, stockMin,
+                            Integer.parseInt(claveDeCursor(cursor)), idDeCursor(cursor), unaMas);
+            case STOCK_DESC -> cursor == null
+                    ? inventarioRepository.findPaginaPorStockDesc(sinFiltroPrecio, min, max, stockMin, Integer.MAX_VALUE, Long.MAX_VALUE, unaMas)
+                    : inventarioRepository.findPaginaPorStockDesc(sinFiltroPrecio, min, max, stockMin,
+                            Integer.parseInt(claveDeCursor(cursor)), idDeCursor(cursor), unaMas);
+        };
+        if (filas.size() <= tamano) {
+            return new PaginaCatalogo(filas, null);
+        }
+        List<Inventario> pagina = filas.subList(0, tamano);
+        Inventario ultimo = pagina.get(tamano - 1);
+        String clave = orden == OrdenCatalogo.PRECIO_ASC || orden == OrdenCatalogo.PRECIO_DESC
+                ? String.valueOf(ultimo.getPrecio()) : String.valueOf(ultimo.getStock());
+        return new PaginaCatalogo(List.copyOf(pagina), clave + "_" + ultimo.getId());
+    }
+
+    // El cursor es "clave_id": la clave de orden (precio o stock) y el ID del último producto de la página.
+    // NumberFormatException es una IllegalArgumentException: un cursor manipulado se rechaza como petición inválida.
+
+    private static String claveDeCursor(String cursor) {
+        int separador = cursor.lastIndexOf('_');
+        if (separador <= 0) {
+            throw new IllegalArgumentException("Cursor no válido: " + cursor);
+        }
+        return cursor.substring(0, separador);
+    }
+
+    private static long idDeCursor(String cursor) {
+        return Long.parseLong(cursor.substring(cursor.lastIndexOf('_') + 1));
+    }
+
     /**
      * Obtiene un producto del inventario por su ID.
      * @param id El ID del producto.
      * @return Un Optional que contiene el producto si se encuentra, o vacío si no.
      */
+    @Transactional(readOnly = true) // Puede servirse desde la réplica de lectura
     public Optional<Inventario> obtenerPorId(Long id) {
         return inventarioRepository.findById(id);
     }
 
+    /**
+     * Obtiene varios productos del inventario en una sola consulta.
+     * @param ids Los IDs de los productos.
+     * @return Los productos encontrados (los IDs inexistentes se omiten).
+     */
+    @Transactional(readOnly = true) // Puede servirse desde la réplica de lectura
+    public List<Inventario> obtenerPorIds(Collection<Long> ids) {
+        return inventarioRepository.findAllById(ids);
+    }
+
+    /**
+     * Lee de la base de datos primaria copias sin gestionar de varios productos, sin pasar por la caché de segundo
+     * nivel ni por la réplica de lectura. Para releer productos que acaban de cambiar (avisos del bus): la réplica
+     * puede no tener aún el cambio.
+     * @param ids Los IDs de los productos.
+     * @return Los productos encontrados, en orden de ID (los IDs inexistentes se omiten).
+     */
+    @Transactional // Lectura-escritura: la transacción siempre va a la primaria
+    public List<Inventario> obtenerCopiasDeLaPrimaria(Collection<Long> ids) {
+        return inventarioRepository.findCopiasPorIds(ids);
+    }
+
+    /**
+     * Comprueba si existe un producto con una consulta por clave primaria que no pasa por la caché de segundo nivel.
+     * CatalogoSnapshotService la usa como sondeo barato de la latencia de la base de datos.
+     * @param id El ID del producto.
+     * @return true si el producto existe.
+     */
+    @Transactional(readOnly = true) // Puede servirse desde la réplica de lectura
+    public boolean existe(Long id) {
+        return inventarioRepository.existsById(id);
+    }
+
     /**
      * Elimina un producto del inventario por su ID.
      * @param id El ID del producto a eliminar.
      */
+    @Transactional
     public void eliminar(Long id) {
         inventarioRepository.deleteById(id);
+        cambiosInventario.registrar(List.of(id));
+        eventPublisher.publishEvent(new InventarioModificadoEvento(id, null));
     }
 
     /**
      * Actualiza el stock de un producto.
      * Esta operación es transaccional para asegurar la consistencia.
+     * Las unidades solo cambian de sitio (por ejemplo, reservas de los carritos): las recibidas no varían.
      * @param id El ID del producto.
      * @param cantidad El cambio en la cantidad (positivo para añadir, negativo para quitar).
      * @return El Inventario actualizado, o Optional.empty() si el producto no existe o el stock es insuficiente.
      */
     @Transactional // Asegura que la operación de stock sea atómica
     public Optional<Inventario> actualizarStock(Long id, int cantidad) {
+        return ajustarStock(id, cantidad, false);
+    }
+
+    /**
+     * Registra una entrada (reposición) o salida (merma, devolución al proveedor) de mercancía:
+     * ajusta el stock y las unidades recibidas del producto en la misma cantidad.
+     * @param id El ID del producto.
+     * @param cantidad Unidades que entran (positivo) o salen (negativo).
+     * @return El Inventario actualizado, o Optional.empty() si el producto no existe o el stock es insuficiente.
+     */
+    @Transactional
+    public Optional<Inventario> recibirStock(Long id, int cantidad) {
+        return ajustarStock(id, cantidad, true);
+    }
+
+    private Optional<Inventario> ajustarStock(Long id, int cantidad, boolean recepcion) {
         return inventarioRepository.findById(id).map(producto -> {
+            // Se parte de la fila bloqueada y recién leída, no de la copia de la caché o de la sesión: con una copia
+            // desfasada, dos reservas simultáneas del mismo producto escribirían el mismo stock (y las unidades
+            // vendidas que hubiera confirmado un checkout entretanto se sobrescribirían)
+            entityManager.refresh(producto, LockModeType.PESSIMISTIC_WRITE);
             int nuevoStock = producto.getStock() + cantidad;
             if (nuevoStock >= 0) { // Asegura que el stock no sea negativo
                 producto.setStock(nuevoStock);
-                return inventarioRepository.save(producto);
+                if (recepcion && producto.getUnidadesRecibidas() != null) {
+                    producto.setUnidadesRecibidas(producto.getUnidadesRecibidas() + cantidad);
+                }
+                cambiosInventario.registrar(List.of(id)); // Las demás instancias desalojarán su copia en caché
+                Inventario guardado = inventarioRepository.save(producto);
+                eventPublisher.publishEvent(new InventarioModificadoEvento(id, guardado));
+                return guardado;
             }
             return null; // Retorna null si el stock sería negativo (se manejará como Optional.empty())
         });
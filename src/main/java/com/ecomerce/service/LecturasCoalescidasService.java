@@ -0,0 +1,57 @@
+package com.ecomerce.service;
+
+import com.ecomerce.concurrencia.SingleFlight;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Capa de coalescencia delante de InventarioService.obtenerPorId y UsuarioService.obtenerPorId.
+ * Las lecturas concurrentes del mismo ID comparten una única consulta a la base de datos y el resultado
+ * se entrega como futuro, sin bloquear el hilo que atiende la petición.
+ * Las métricas (ecomerce.coalescencia.*) permiten ver qué proporción de lecturas se ha ahorrado.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class LecturasCoalescidasService {
+
+    private final InventarioService inventarioService;
+    private final UsuarioService usuarioService;
+    private final SingleFlight<Long, Optional<Inventario>> lecturasInventario;
+    private final SingleFlight<Long, Optional<Usuario>> lecturasUsuarios;
+
+    public LecturasCoalescidasService(InventarioService inventarioService,
+                                      UsuarioService usuarioService,
+                                      @Qualifier("lecturasExecutor") Executor lecturasExecutor,
+                                      MeterRegistry meterRegistry) {
+        this.inventarioService = inventarioService;
+        this.usuarioService = usuarioService;
+        this.lecturasInventario = new SingleFlight<>(lecturasExecutor);
+        this.lecturasUsuarios = new SingleFlight<>(lecturasExecutor);
+        lecturasInventario.registrarMetricas(meterRegistry, "inventario");
+        lecturasUsuarios.registrarMetricas(meterRegistry, "usuario");
+    }
+
+    /**
+     * Obtiene un producto del inventario por su ID, compartiendo la lectura con otras peticiones simultáneas.
+     * @param id El ID del producto.
+     * @return Un futuro con el producto, o vacío si no existe.
+     */
+    public CompletableFuture<Optional<Inventario>> obtenerProducto(Long id) {
+        return lecturasInventario.ejecutar(id, () -> inventarioService.obtenerPorId(id));
+    }
+
+    /**
+     * Obtiene un usuario por su ID, compartiendo la lectura con otras peticiones simultáneas.
+     * @param id El ID del usuario.
+     * @return Un futuro con el usuario, o vacío si no existe.
+     */
+    public CompletableFuture<Optional<Usuario>> obtenerUsuario(Long id) {
+        return lecturasUsuarios.ejecutar(id, () -> usuarioService.obtenerPorId(id));
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.CarritoFilaVista;
+import com.ecomerce.model.Carrito;
+import com.ecomerce.model.Pedido;
+import com.ecomerce.model.PedidoItem;
+import com.ecomerce.repository.CarritoItemRepository;
+import com.ecomerce.repository.CarritoRepository;
+import com.ecomerce.repository.InventarioRepository;
+import com.ecomerce.repository.PedidoRepository;
+import com.ecomerce.repository.UsuarioRepository;
+import org.springframework.stereotype.Service;
+import jakarta.transaction.Transactional; // Importación necesaria para @Transactional
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Clase de Servicio para Pedido.
+ * Contiene la lógica del checkout: convierte el carrito de un usuario en un pedido.
+ * Interactúa con PedidoRepository, CarritoRepository, CarritoItemRepository e InventarioRepository.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class PedidoService {
+
+    private final PedidoRepository pedidoRepository;
+    private final CarritoRepository carritoRepository;
+    private final CarritoItemRepository carritoItemRepository;
+    private final InventarioRepository inventarioRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final CambiosInventarioService cambiosInventario;
+
+    // Constructor con inyección de dependencias
+    public PedidoService(PedidoRepository pedidoRepository,
+                         CarritoRepository carritoRepository,
+                         CarritoItemRepository carritoItemRepository,
+                         InventarioRepository inventarioRepository,
+                         UsuarioRepository usuarioRepository,
+                         CambiosInventarioService cambiosInventario) {
+        this.pedidoRepository = pedidoRepository;
+        this.carritoRepository = carritoRepository;
+        this.carritoItemRepository = carritoItemRepository;
+        this.inventarioRepository = inventarioRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.cambiosInventario = cambiosInventario;
+    }
+
+    /**
+     * Convierte el carrito de un usuario en un pedido, en una única transacción:
+     * 1. Bloquea la fila del carrito para que no cambie durante el checkout.
+     * 2. Lee las líneas con la proyección plana del carrito.
+     * 3. Confirma como vendidas las unidades reservadas con una sola sentencia sobre todos los productos,
+     *    que bloquea las filas de inventario en orden ascendente de ID.
+     * 4. Guarda el pedido con la foto de las líneas y vacía el carrito sin devolver stock.
+     * Orden de bloqueo: primero el carrito y después el inventario, el mismo que siguen CarritoService (que bloquea
+     * el carrito antes de reservar stock) y la limpieza de carritos abandonados. Con el orden inverso, un checkout y
+     * una reserva del mismo usuario en dos instancias podrían bloquearse mutuamente: la reserva bloquearía el
+     * producto y, al insertar la línea, esperaría por la fila del carrito (clave foránea) que tiene el checkout.
+     * @param usuarioId El ID del usuario.
+     * @return El pedido creado, o Optional.empty() si el carrito está vacío.
+     * @throws RecursoNoEncontradoException Si el usuario no tiene carrito o algún producto ya no existe.
+     */
+    @Transactional
+    public Optional<Pedido> realizarCheckout(Long usuarioId) {
+        Carrito carrito = carritoRepository.bloquearPorUsuarioId(usuarioId)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Carrito no encontrado para el usuario con ID: " + usuarioId));
+
+        List<CarritoFilaVista> lineas = carritoRepository.findVistaByUsuarioId(usuarioId).stream()
+                .filter(fila -> fila.productoId() != null) // El carrito vacío devuelve una fila sin producto
+                .toList();
+        if (lineas.isEmpty()) {
+            return Optional.empty(); // No hay nada que comprar
+        }
+
+        List<Long> productoIds = lineas.stream()
+                .map(CarritoFilaVista::productoId)
+                .distinct()
+                .sorted() // Orden ascendente: todos los checkouts bloquean el inventario en el mismo orden
+                .toList();
+        int confirmados = inventarioRepository.registrarVentaDesdeCarrito(carrito.getId(), productoIds);
+        if (confirmados != productoIds.size()) {
+            throw new RecursoNoEncontradoException("Algún producto del carrito ya no existe en el inventario");
+        }
+        cambiosInventario.registrar(productoIds); // Las demás instancias desalojarán su copia en caché
+
+        Pedido pedido = new Pedido();
+        pedido.setUsuario(usuarioRepository.getReferenceById(usuarioId)); // Referencia sin cargar el usuario
+        for (CarritoFilaVista linea : lineas) {
+            PedidoItem item = new PedidoItem();
+            item.setProductoId(linea.productoId());
+            item.setNombreProducto(linea.nombreProducto());
+            item.setPrecioUnitario(linea.precioUnitario());
+            item.setCantidad(linea.cantidad());
+            item.setTotalLinea(linea.totalLinea());
+            pedido.addItem(item);
+        }
+        Pedido guardado = pedidoRepository.save(pedido);
+
+        // El stock ya se descontó al añadir al carrito: se eliminan las líneas sin devolverlo
+        carritoItemRepository.eliminarPorCarritoId(carrito.getId());
+        carritoRepository.reiniciarTotales(carrito.getId(), LocalDateTime.now());
+        return Optional.of(guardado);
+    }
+
+    /**
+     * Obtiene un pedido por su ID junto con sus líneas.
+     * @param id El ID del pedido.
+     * @return Un Optional que contiene el pedido si se encuentra, o vacío si no.
+     */
+    public Optional<Pedido> obtenerPorId(Long id) {
+        return pedidoRepository.findConItemsById(id);
+    }
+}
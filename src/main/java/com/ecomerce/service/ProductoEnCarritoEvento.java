@@ -0,0 +1,11 @@
+package com.ecomerce.service;
+
+/**
+ * Evento publicado por CarritoService cuando cambian las unidades de un producto en un carrito
+ * (añadir, cambiar la cantidad, quitar o vaciar). Se publica dentro de la transacción; TendenciasService
+ * lo escucha tras la confirmación.
+ * @param productoId ID del producto.
+ * @param unidades Unidades añadidas (positivas) o quitadas (negativas).
+ */
+public record ProductoEnCarritoEvento(Long productoId, int unidades) {
+}
@@ -0,0 +1,14 @@
+package com.ecomerce.service;
+
+/**
+ * Excepción lanzada por los servicios cuando no existe el usuario, el producto o el carrito sobre el que se opera.
+ * Los controladores la traducen a 404. Cualquier otra excepción (tiempo de espera de un bloqueo, pool agotado...)
+ * es un fallo transitorio: se propaga para que la respuesta no se guarde bajo la Idempotency-Key y el reintento
+ * pueda ejecutarse.
+ */
+public class RecursoNoEncontradoException extends RuntimeException {
+
+    public RecursoNoEncontradoException(String mensaje) {
+        super(mensaje);
+    }
+}
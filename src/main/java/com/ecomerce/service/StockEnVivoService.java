@@ -0,0 +1,267 @@
+package com.ecomerce.service;
+
+import com.ecomerce.concurrencia.DifusorCoalescido;
+import com.ecomerce.dto.NivelStock;
+import com.ecomerce.model.Inventario;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Stock en vivo por Server-Sent Events (GET /api/inventario/{id}/stock/stream y GET /api/inventario/stock/stream).
+ *
+ * - Un DifusorCoalescido por producto observado, compartido por todos sus clientes: un cambio de stock se lee
+ *   una vez y se envía a todos, y los cambios seguidos se funden en un envío por intervalo.
+ * - Se alimenta de los InventarioModificadoEvento de esta instancia, tras confirmarse la transacción, y de los
+ *   CambiosInventarioEvento del bus (cambios en otras instancias), releyendo solo los productos observados.
+ *   Los productos sin clientes no tienen difusor y sus cambios no cuestan nada.
+ * - Un cliente inactivo es un SseEmitter (petición asíncrona, sin hilo) y una entrada en los difusores de sus
+ *   productos. Un latido periódico mantiene viva la conexión a través de proxies y detecta clientes desconectados.
+ * Métricas: ecomerce.stock-stream.suscripciones, ecomerce.stock-stream.productos y ecomerce.stock-stream.eventos.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class StockEnVivoService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockEnVivoService.class);
+
+    private final InventarioService inventarioService;
+    private final ScheduledExecutorService programador; // Envíos de los difusores (escribir en una conexión lenta bloquea)
+    private final long intervaloMillis;
+    private final long timeoutMillis;
+    private final int maxProductos;
+    private final Counter eventos;
+
+    private final ConcurrentHashMap<Long, DifusorCoalescido<NivelStock>> difusores = new ConcurrentHashMap<>();
+    private final Set<Suscripcion> suscripciones = ConcurrentHashMap.newKeySet();
+
+    public StockEnVivoService(InventarioService inventarioService,
+                              MeterRegistry meterRegistry,
+                              @Value("${ecomerce.stock-stream.intervalo-ms:1000}") long intervaloMillis,
+                              @Value("${ecomerce.stock-stream.timeout:30m}") Duration timeout,
+                              @Value("${ecomerce.stock-stream.max-productos:50}") int maxProductos,
+                              @Value("${ecomerce.stock-stream.hilos:2}") int hilos) {
+        this.inventarioService = inventarioService;
+        this.intervaloMillis = intervaloMillis;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxProductos = maxProductos;
+        AtomicInteger contador = new AtomicInteger();
+        this.programador = Executors.newScheduledThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "stock-stream-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.eventos = Counter.builder("ecomerce.stock-stream.eventos")
+                .description("Eventos de stock enviados a los clientes SSE")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.stock-stream.suscripciones", suscripciones, Set::size)
+                .description("Conexiones SSE de stock abiertas")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.stock-stream.productos", difusores, ConcurrentHashMap::size)
+                .description("Productos con al menos un cliente SSE")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abre un flujo SSE con el stock de uno o varios productos. Primero se envía el stock actual de cada producto
+     * (evento "stock") y después cada cambio; si un producto se elimina, se envía un evento "eliminado".
+     * @param productoIds IDs de los productos (entre 1 y ecomerce.stock-stream.max-productos).
+     * @return El emisor SSE, o vacío si no existe ninguno de los productos.
+     * @throws IllegalArgumentException si no hay IDs o hay demasiados.
+     */
+    public Optional<SseEmitter> suscribir(Collection<Long> productoIds) {
+        Set<Long> ids = new HashSet<>(productoIds);
+        if (ids.isEmpty() || ids.size() > maxProductos) {
+            throw new IllegalArgumentException("Se requieren entre 1 y " + maxProductos + " productos");
+        }
+        SseEmitter emisor = new SseEmitter(timeoutMillis);
+        Suscripcion suscripcion = new Suscripcion(emisor, ids);
+        // Primero la suscripción y después la lectura: un cambio confirmado entre medias llega por el difusor
+        suscripciones.add(suscripcion);
+        ids.forEach(id -> difusores.compute(id, (clave, difusor) -> {
+            DifusorCoalescido<NivelStock> d = difusor != null ? difusor : new DifusorCoalescido<>(programador, intervaloMillis);
+            d.suscribir(suscripcion);
+            return d;
+        }));
+        emisor.onCompletion(() -> cancelar(suscripcion));
+        emisor.onTimeout(() -> cancelar(suscripcion));
+        emisor.onError(e -> cancelar(suscripcion));
+
+        List<Inventario> productos = inventarioService.obtenerPorIds(ids);
+        if (productos.isEmpty()) {
+            cancelar(suscripcion);
+            return Optional.empty();
+        }
+        Set<Long> existentes = new HashSet<>();
+        for (Inventario producto : productos) {
+            existentes.add(producto.getId());
+            suscripcion.inicial(new NivelStock(producto.getId(), producto.getStock()));
+        }
+        ids.stream().filter(id -> !existentes.contains(id)).forEach(suscripcion::olvidar);
+        return Optional.of(emisor);
+    }
+
+    /**
+     * Difunde un cambio de stock de esta instancia, una vez confirmado.
+     * @param evento El producto guardado o eliminado.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarInventario(InventarioModificadoEvento evento) {
+        DifusorCoalescido<NivelStock> difusor = difusores.get(evento.productoId());
+        if (difusor != null) {
+            difusor.publicar(new NivelStock(evento.productoId(),
+                    evento.producto() == null ? null : evento.producto().getStock()));
+        }
+    }
+
+    /**
+     * Difunde los cambios leídos del bus (también los de otras instancias), releyendo de la primaria solo los
+     * productos observados.
+     * Los cambios de esta instancia llegan dos veces (evento local y bus): el difusor no repite un valor ya enviado.
+     * @param evento Productos modificados.
+     */
+    @EventListener
+    public void alCambiarInventario(CambiosInventarioEvento evento) {
+        List<Long> observados = evento.productoIds().stream().filter(difusores::containsKey).toList();
+        if (observados.isEmpty()) {
+            return;
+        }
+        Set<Long> existentes = new HashSet<>();
+        for (Inventario producto : inventarioService.obtenerCopiasDeLaPrimaria(observados)) { // La réplica puede ir retrasada
+            existentes.add(producto.getId());
+            publicar(new NivelStock(producto.getId(), producto.getStock()));
+        }
+        observados.stream().filter(id -> !existentes.contains(id)).forEach(id -> publicar(new NivelStock(id, null)));
+    }
+
+    /**
+     * Envía un comentario a todas las conexiones abiertas: evita que los proxies las cierren por inactividad
+     * y detecta (al fallar la escritura) los clientes que se han ido sin cerrar.
+     */
+    @Scheduled(fixedDelayString = "${ecomerce.stock-stream.latido-ms:15000}",
+               initialDelayString = "${ecomerce.stock-stream.latido-ms:15000}")
+    public void latido() {
+        suscripciones.forEach(Suscripcion::latido);
+    }
+
+    @PreDestroy
+    public void detener() {
+        suscripciones.forEach(s -> s.emisor.complete());
+        programador.shutdownNow();
+    }
+
+    private void publicar(NivelStock nivel) {
+        DifusorCoalescido<NivelStock> difusor = difusores.get(nivel.productoId());
+        if (difusor != null) {
+            difusor.publicar(nivel);
+        }
+    }
+
+    private void cancelar(Suscripcion suscripcion) {
+        if (suscripciones.remove(suscripcion)) {
+            suscripcion.productos.forEach(id -> dejarDeObservar(suscripcion, id));
+        }
+    }
+
+    private void dejarDeObservar(Suscripcion suscripcion, Long productoId) {
+        // Dentro de computeIfPresent: nadie puede suscribirse al difusor mientras se decide si se descarta
+        difusores.computeIfPresent(productoId, (id, difusor) -> {
+            difusor.desuscribir(suscripcion);
+            return difusor.suscriptores() == 0 ? null : difusor;
+        });
+    }
+
+    /**
+     * Un cliente SSE. Los envíos de los distintos difusores se serializan en la propia suscripción.
+     */
+    private final class Suscripcion implements Consumer<NivelStock> {
+
+        private final SseEmitter emisor;
+        private final Set<Long> productos = ConcurrentHashMap.newKeySet(); // Productos que aún observa
+        private final Set<Long> conValor = new HashSet<>(); // Productos de los que ya se envió algún valor
+        private boolean cerrada;
+
+        Suscripcion(SseEmitter emisor, Set<Long> productos) {
+            this.emisor = emisor;
+            this.productos.addAll(productos);
+        }
+
+        /** Valor leído al suscribirse: solo se envía si el difusor no se ha adelantado con uno más reciente. */
+        synchronized void inicial(NivelStock nivel) {
+            if (conValor.add(nivel.productoId())) {
+                enviar(nivel);
+            }
+        }
+
+        @Override
+        public synchronized void accept(NivelStock nivel) {
+            conValor.add(nivel.productoId());
+            enviar(nivel);
+            if (nivel.stock() == null && !cerrada) { // Producto eliminado: se deja de observar
+                olvidar(nivel.productoId());
+                if (productos.isEmpty()) {
+                    emisor.complete();
+                }
+            }
+        }
+
+        void olvidar(Long productoId) {
+            productos.remove(productoId);
+            dejarDeObservar(this, productoId);
+        }
+
+        synchronized void latido() {
+            if (cerrada) {
+                return;
+            }
+            try {
+                emisor.send(SseEmitter.event().comment("latido"));
+            } catch (IOException | IllegalStateException e) {
+                cerrar(e);
+            }
+        }
+
+        private void enviar(NivelStock nivel) {
+            if (cerrada) {
+                return;
+            }
+            try {
+                emisor.send(SseEmitter.event()
+                        .name(nivel.stock() == null ? "eliminado" : "stock")
+                        .data(nivel, MediaType.APPLICATION_JSON));
+                eventos.increment();
+            } catch (IOException | IllegalStateException e) {
+                cerrar(e); // Cliente desconectado
+            }
+        }
+
+        private void cerrar(Exception e) {
+            cerrada = true;
+            log.debug("Conexión SSE de stock cerrada: {}", e.getMessage());
+            cancelar(this);
+            emisor.completeWithError(e);
+        }
+    }
+}
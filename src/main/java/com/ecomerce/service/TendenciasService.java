@@ -0,0 +1,97 @@
+package com.ecomerce.service;
+
+import com.ecomerce.analitica.VentanaDeslizante;
+import com.ecomerce.dto.ProductoTendencia;
+import com.ecomerce.dto.TipoTendencia;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Analítica en streaming de los productos más añadidos a los carritos (GET /api/inventario/trending).
+ *
+ * - Se alimenta de los ProductoEnCarritoEvento de CarritoService, tras confirmarse la transacción: las unidades
+ *   añadidas suman y las quitadas (o al vaciar el carrito) restan. El checkout no resta: lo vendido sigue contando.
+ * - Dos ventanas deslizantes con count-min sketch y candidatos a más frecuentes (VentanaDeslizante), en memoria
+ *   fija sea cual sea el número de productos: una corta (por defecto, la última hora) y una larga (último día).
+ * - MAS_CARRITOS son los más frecuentes de la ventana larga. TENDENCIA ordena los candidatos de la ventana corta
+ *   por sus unidades menos las esperadas según su ritmo en la ventana larga.
+ * - La lectura no consulta la base de datos. Los datos son de esta instancia y se pierden al reiniciar.
+ * Métricas: ecomerce.tendencias.eventos y ecomerce.tendencias.memoria.
+ */
+@Service // Indica que esta clase es un componente de servicio de Spring
+public class TendenciasService {
+
+    private final VentanaDeslizante corta;
+    private final VentanaDeslizante larga;
+    private final int limiteMax;
+    private final Counter eventos;
+
+    public TendenciasService(MeterRegistry meterRegistry,
+                             @Value("${ecomerce.tendencias.corta.cubetas:12}") int cubetasCorta,
+                             @Value("${ecomerce.tendencias.corta.cubeta:5m}") Duration cubetaCorta,
+                             @Value("${ecomerce.tendencias.larga.cubetas:24}") int cubetasLarga,
+                             @Value("${ecomerce.tendencias.larga.cubeta:1h}") Duration cubetaLarga,
+                             @Value("${ecomerce.tendencias.profundidad:4}") int profundidad,
+                             @Value("${ecomerce.tendencias.anchura:2048}") int anchura,
+                             @Value("${ecomerce.tendencias.candidatos:256}") int candidatos,
+                             @Value("${ecomerce.tendencias.limite-max:100}") int limiteMax) {
+        this.corta = new VentanaDeslizante(cubetasCorta, cubetaCorta, profundidad, anchura, candidatos, System::currentTimeMillis);
+        this.larga = new VentanaDeslizante(cubetasLarga, cubetaLarga, profundidad, anchura, candidatos, System::currentTimeMillis);
+        this.limiteMax = limiteMax;
+        this.eventos = Counter.builder("ecomerce.tendencias.eventos")
+                .description("Cambios de unidades en carritos registrados por la analítica de tendencias")
+                .register(meterRegistry);
+        Gauge.builder("ecomerce.tendencias.memoria", this, s -> s.corta.bytes() + s.larga.bytes())
+                .description("Memoria de los contadores de las ventanas de tendencias, en bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra un cambio de unidades en un carrito, una vez confirmado.
+     * @param evento Producto y unidades añadidas (o quitadas, en negativo).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarCarrito(ProductoEnCarritoEvento evento) {
+        corta.registrar(evento.productoId(), evento.unidades());
+        larga.registrar(evento.productoId(), evento.unidades());
+        eventos.increment();
+    }
+
+    /**
+     * Lista de productos de un tipo, de mayor a menor puntuación.
+     * @param tipo La lista.
+     * @param limite Número máximo de productos (como mucho ecomerce.tendencias.limite-max).
+     * @return Los productos con puntuación positiva.
+     * @throws IllegalArgumentException si el límite no es positivo.
+     */
+    public List<ProductoTendencia> obtener(TipoTendencia tipo, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser positivo");
+        }
+        int n = Math.min(limite, limiteMax);
+        if (tipo == TipoTendencia.MAS_CARRITOS) {
+            return larga.masFrecuentes(n).stream()
+                    .map(f -> new ProductoTendencia(f.clave(), f.frecuencia(), f.frecuencia()))
+                    .toList();
+        }
+        // Unidades que cabría esperar en la ventana corta si el producto mantuviera su ritmo de la ventana larga
+        double proporcion = (double) corta.duracion().toMillis() / larga.duracion().toMillis();
+        return corta.masFrecuentes(Integer.MAX_VALUE).stream()
+                .map(f -> new ProductoTendencia(f.clave(), f.frecuencia(),
+                        f.frecuencia() - larga.estimar(f.clave()) * proporcion))
+                .filter(p -> p.puntuacion() > 0)
+                .sorted(Comparator.comparingDouble(ProductoTendencia::puntuacion).reversed()
+                        .thenComparing(ProductoTendencia::productoId))
+                .limit(n)
+                .toList();
+    }
+}
@@ -2,9 +2,16 @@ package com.ecomerce.service;
 
 import com.ecomerce.model.Usuario;
 import com.ecomerce.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional; // @Transactional de Spring: admite readOnly
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Clase de Servicio para Usuario.
@@ -15,25 +22,132 @@ import java.util.Optional;
 public class UsuarioService {
 
     private final UsuarioRepository usuarioRepository;
+    private final ContrasenaService contrasenaService; // Hash de contraseñas en su propio executor
+    private final FiltroEmailsService filtroEmails; // Comprobación previa al registro: descarta emails nuevos en memoria
+    private final Executor guardadoExecutor; // Guardados tras el hash: los hilos de contraseñas no esperan a la base de datos
 
     // Inyección de dependencias: Spring inyecta una instancia de UsuarioRepository.
-    public UsuarioService(UsuarioRepository usuarioRepository) {
+    public UsuarioService(UsuarioRepository usuarioRepository, ContrasenaService contrasenaService,
+                          FiltroEmailsService filtroEmails, @Qualifier("lecturasExecutor") Executor guardadoExecutor) {
         this.usuarioRepository = usuarioRepository;
+        this.contrasenaService = contrasenaService;
+        this.filtroEmails = filtroEmails;
+        this.guardadoExecutor = guardadoExecutor;
     }
 
     /**
-     * Guarda un nuevo usuario o actualiza uno existente.
-     * @param usuario El objeto Usuario a guardar.
+     * Registra un usuario: comprueba que el email no esté ya registrado, calcula el hash de su contraseña en el
+     * executor de contraseñas y lo guarda. El hilo que llama no ejecuta el hash; el guardado se hace en el executor
+     * de lecturas, para no tener ocupado un hilo de contraseñas (CPU) esperando a la base de datos.
+     * @param usuario El usuario, con la contraseña en claro.
+     * @return Un futuro con el usuario guardado; falla con DuplicateKeyException si el email ya está registrado
+     *         y con RejectedExecutionException si el executor de contraseñas está saturado.
+     */
+    public CompletableFuture<Usuario> registrar(Usuario usuario) {
+        if (emailRegistrado(usuario.getEmail())) { // Antes del hash: un duplicado no gasta CPU
+            return CompletableFuture.failedFuture(emailDuplicado(usuario.getEmail()));
+        }
+        return contrasenaService.hashear(usuario.getPassword()).thenApplyAsync(hash -> {
+            usuario.setPassword(hash);
+            filtroEmails.agregar(usuario.getEmail()); // Antes de insertar: el filtro nunca debe dar falsos negativos
+            try {
+                return usuarioRepository.save(usuario);
+            } catch (DataIntegrityViolationException e) {
+                // Otro registro simultáneo con el mismo email ganó la carrera: lo decide el índice único
+                throw usuarioRepository.existsByEmail(usuario.getEmail()) ? emailDuplicado(usuario.getEmail()) : e;
+            }
+        }, guardadoExecutor);
+    }
+
+    /**
+     * Comprueba si un email ya está registrado, antes de registrar un usuario. Solo consulta la base de datos si el
+     * filtro en memoria no puede descartarlo. El filtro de esta instancia puede no tener aún los emails registrados
+     * en otras: en ese caso devuelve false y es el índice único de usuarios.email quien rechaza el duplicado.
+     * @param email El email a comprobar.
+     * @return true si hay un usuario con ese email.
+     */
+    @Transactional(readOnly = true)
+    public boolean emailRegistrado(String email) {
+        if (email == null || !filtroEmails.podriaExistir(email)) {
+            return false;
+        }
+        boolean existe = usuarioRepository.existsByEmail(email);
+        if (!existe) {
+            filtroEmails.registrarFalsoPositivo();
+        }
+        return existe;
+    }
+
+    /**
+     * Obtiene un usuario por su email. Consulta siempre la base de datos: el filtro de emails solo se usa antes de
+     * registrar, porque no tiene los usuarios registrados en otras instancias hasta su siguiente reconstrucción.
+     * @param email El email del usuario.
+     * @return Un Optional que contiene el usuario si se encuentra, o vacío si no.
+     */
+    @Transactional(readOnly = true) // Puede servirse desde la réplica de lectura
+    public Optional<Usuario> obtenerPorEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return usuarioRepository.findByEmail(email);
+    }
+
+    /**
+     * Guarda un nuevo usuario con la contraseña hasheada, esperando al resultado.
+     * Bloquea al llamador: desde los controladores se usa registrar().
+     * @param usuario El objeto Usuario a guardar, con la contraseña en claro.
      * @return El Usuario guardado.
+     * @throws DataIntegrityViolationException Si el email ya está registrado (DuplicateKeyException) o falla la inserción.
      */
     public Usuario guardar(Usuario usuario) {
-        return usuarioRepository.save(usuario);
+        try {
+            return registrar(usuario).join();
+        } catch (CompletionException e) {
+            // Se lanza la causa, como si el registro hubiera sido síncrono
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Comprueba las credenciales de un usuario (inicio de sesión). La verificación se ejecuta en el executor
+     * de contraseñas; si el hash se hizo con un coste menor que el actual, se rehace con la contraseña recibida
+     * (y se guarda en el executor de lecturas, como en registrar()).
+     * @param email El email del usuario.
+     * @param password La contraseña en claro.
+     * @return Un futuro con el usuario si las credenciales son correctas, o vacío si no.
+     */
+    public CompletableFuture<Optional<Usuario>> verificarCredenciales(String email, String password) {
+        Optional<Usuario> usuario = obtenerPorEmail(email);
+        String hash = usuario.map(Usuario::getPassword).orElse(null);
+        return contrasenaService.verificar(password, hash).thenCompose(correcta -> {
+            if (!correcta) {
+                return CompletableFuture.completedFuture(Optional.<Usuario>empty());
+            }
+            if (!contrasenaService.necesitaRehash(hash)) {
+                return CompletableFuture.completedFuture(usuario);
+            }
+            Usuario encontrado = usuario.get();
+            return contrasenaService.hashear(password)
+                    .thenApplyAsync(nuevoHash -> {
+                        encontrado.setPassword(nuevoHash);
+                        return Optional.of(usuarioRepository.save(encontrado));
+                    }, guardadoExecutor)
+                    .exceptionally(error -> usuario); // El rehash es una mejora: si falla, el login sigue siendo válido
+        });
     }
 
     /**
      * Obtiene todos los usuarios.
+     * Transacción de solo lectura: si hay réplica de lectura configurada (y al día), se lee de ella.
      * @return Una lista de todos los usuarios.
      */
+    @Transactional(readOnly = true)
     public List<Usuario> obtenerTodos() {
         return usuarioRepository.findAll();
     }
@@ -43,6 +157,7 @@ public class UsuarioService {
      * @param id El ID del usuario.
      * @return Un Optional que contiene el usuario si se encuentra, o vacío si no.
      */
+    @Transactional(readOnly = true) // Puede servirse desde la réplica de lectura
     public Optional<Usuario> obtenerPorId(Long id) {
         return usuarioRepository.findById(id);
     }
@@ -55,8 +170,10 @@ public class UsuarioService {
         usuarioRepository.deleteById(id);
     }
 
+    private static DuplicateKeyException emailDuplicado(String email) {
+        return new DuplicateKeyException("Ya hay un usuario registrado con el email " + email);
+    }
+
     // Puedes añadir más métodos de lógica de negocio aquí, como:
     // - validarUsuario(Usuario usuario)
-    // - encriptarPassword(String password)
-    // - iniciarSesion(String nombreUsuario, String password)
 }
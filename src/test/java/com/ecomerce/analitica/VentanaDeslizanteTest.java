@@ -0,0 +1,96 @@
+package com.ecomerce.analitica;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para CountMinSketch y VentanaDeslizante, con un reloj simulado.
+ */
+public class VentanaDeslizanteTest {
+
+    private final AtomicLong reloj = new AtomicLong(1_000_000_000L);
+
+    private VentanaDeslizante ventana(int candidatos) {
+        // 4 cubetas de 1 minuto: la ventana cubre los últimos 4 minutos
+        return new VentanaDeslizante(4, Duration.ofMinutes(1), 4, 1024, candidatos, reloj::get);
+    }
+
+    @Test
+    @DisplayName("El count-min sketch nunca se queda corto y casi siempre se pasa menos de e·total/anchura")
+    void countMinSketch_cotaDeError() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        Random aleatorio = new Random(42);
+        long[] reales = new long[20_000];
+        long total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            int clave = (int) Math.min(reales.length - 1, Math.abs(aleatorio.nextGaussian()) * 3_000);
+            sketch.sumar(clave, 1);
+            reales[clave]++;
+            total++;
+        }
+
+        double cota = Math.E * total / 1024;
+        int dentroDeCota = 0;
+        for (int clave = 0; clave < reales.length; clave++) {
+            long estimada = sketch.estimar(clave);
+            assertTrue(estimada >= reales[clave], "Estimación por debajo de la cuenta real de " + clave);
+            if (estimada - reales[clave] <= cota) {
+                dentroDeCota++;
+            }
+        }
+        assertTrue(dentroDeCota >= reales.length * 0.95, "Demasiadas estimaciones fuera de la cota: " + dentroDeCota);
+    }
+
+    @Test
+    @DisplayName("Las unidades salen de la ventana al pasar su cubeta y las quitadas restan sin bajar de cero")
+    void ventana_caducidadYRestas() {
+        VentanaDeslizante ventana = ventana(16);
+        ventana.registrar(1, 10);
+        reloj.addAndGet(Duration.ofMinutes(2).toMillis());
+        ventana.registrar(1, 5);
+        ventana.registrar(2, 3);
+        ventana.registrar(2, -5); // Más de lo añadido en la ventana
+        assertEquals(15, ventana.estimar(1));
+        assertEquals(0, ventana.estimar(2));
+
+        reloj.addAndGet(Duration.ofMinutes(2).toMillis()); // Caduca la cubeta de las 10 primeras unidades
+        assertEquals(5, ventana.estimar(1));
+        assertEquals(List.of(new VentanaDeslizante.Frecuencia(1, 5)), ventana.masFrecuentes(10));
+
+        reloj.addAndGet(Duration.ofHours(1).toMillis()); // Salto mayor que la ventana: todo caduca
+        assertEquals(0, ventana.estimar(1));
+        assertTrue(ventana.masFrecuentes(10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Encuentra los productos más frecuentes entre mucho ruido con pocos candidatos")
+    void masFrecuentes_entreRuido() {
+        VentanaDeslizante ventana = ventana(32);
+        Random aleatorio = new Random(7);
+        Set<Long> frecuentes = Set.of(11L, 22L, 33L, 44L, 55L);
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 20 == 0) {
+                ventana.registrar(List.copyOf(frecuentes).get((i / 20) % 5), 1 + aleatorio.nextInt(3));
+            } else {
+                ventana.registrar(1_000 + aleatorio.nextInt(50_000), 1); // Ruido: cada clave aparece ~2 veces
+            }
+            if (i % 10_000 == 0) {
+                reloj.addAndGet(Duration.ofSeconds(20).toMillis()); // El tiempo avanza dentro de la ventana
+            }
+        }
+
+        List<VentanaDeslizante.Frecuencia> top = ventana.masFrecuentes(5);
+        assertEquals(frecuentes, top.stream().map(VentanaDeslizante.Frecuencia::clave).collect(Collectors.toSet()));
+        top.forEach(f -> assertTrue(f.frecuencia() >= 1_000 * 2 * 0.9, "Frecuencia demasiado baja: " + f));
+        assertTrue(ventana.bytes() <= 4 * 4 * 1024 * 8, "La memoria no depende del número de claves");
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.dto.AjusteStock;
+import com.ecomerce.dto.InformeAjusteStock;
+import com.ecomerce.service.AjustesStockService;
+import com.ecomerce.service.InventarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de una sincronización del almacén: el mismo número de ajustes de stock aplicados uno a uno
+ * (InventarioService#recibirStock, lo que hace cada PUT /api/inventario/{id}/stock) y en lote (AjustesStockService).
+ * Los ajustes van desordenados, como llegan del almacén; la mitad son variaciones y la otra mitad stocks absolutos.
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.ajustes.productos, benchmark.ajustes.uno-a-uno.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ajustes_benchmark;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=ajustes_benchmark",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+public class AjustesStockBenchmarkTest {
+
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.ajustes.productos", 20_000);
+    private static final int UNO_A_UNO = Integer.getInteger("benchmark.ajustes.uno-a-uno", 2_000); // Muestra del camino lento
+
+    @Autowired
+    private AjustesStockService ajustesStock;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Ajustes de stock uno a uno frente a en lote")
+    void ajustesUnoAUnoFrenteALote() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        List<Long> ids = LongStream.rangeClosed(1, PRODUCTOS).boxed().toList();
+        jdbc.batchUpdate("insert into inventario (id, nombre_producto, descripcion, precio, stock, unidades_vendidas, "
+                + "unidades_recibidas) values (?, ?, 'Descripción', 1.0, 100, 0, 100)", ids, 10_000, (ps, id) -> {
+            ps.setLong(1, id);
+            ps.setString(2, "Producto ajuste " + id);
+        });
+        Random random = new Random(42);
+        List<AjusteStock> ajustes = random.longs(PRODUCTOS, 1, PRODUCTOS + 1)
+                .mapToObj(id -> id % 2 == 0 ? new AjusteStock(id, random.nextInt(21) - 10, null)
+                        : new AjusteStock(id, null, random.nextInt(200)))
+                .toList();
+
+        long inicio = System.nanoTime();
+        for (AjusteStock ajuste : ajustes.subList(0, UNO_A_UNO)) {
+            inventarioService.recibirStock(ajuste.productoId(), ajuste.cantidad() != null ? ajuste.cantidad() : 1);
+        }
+        double porAjusteUnoAUno = (System.nanoTime() - inicio) / 1_000_000.0 / UNO_A_UNO;
+
+        InformeAjusteStock informe = ajustesStock.ajustar(ajustes);
+        double porAjusteLote = (double) informe.duracionMillis() / ajustes.size();
+
+        System.out.printf("BENCHMARK ajustes de stock: %d ajustes sobre %d productos%n", ajustes.size(), PRODUCTOS);
+        System.out.printf("  uno a uno: %.3f ms/ajuste (%d medidos, %.1f s estimados para el lote)%n",
+                porAjusteUnoAUno, UNO_A_UNO, porAjusteUnoAUno * ajustes.size() / 1000);
+        System.out.printf("  en lote: %.3f ms/ajuste (%.2f s, %d aplicados, %d rechazados)%n",
+                porAjusteLote, informe.duracionMillis() / 1000.0, informe.aplicados(), informe.rechazados());
+
+        assertEquals(ajustes.size(), informe.aplicados() + informe.rechazados());
+        assertTrue(porAjusteLote < porAjusteUnoAUno, "El lote debería ser más rápido por ajuste que el camino uno a uno");
+    }
+}
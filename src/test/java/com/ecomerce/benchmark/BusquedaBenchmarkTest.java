@@ -0,0 +1,95 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.busqueda.IndiceBusqueda;
+import com.ecomerce.model.Inventario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark del índice de búsqueda en memoria con un catálogo sintético grande (1M de productos por defecto).
+ * Mide el tiempo de construcción en paralelo y la latencia de búsquedas de una, dos y tres palabras,
+ * con y sin prefijo. No usa la base de datos: la búsqueda tampoco la usa.
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.busqueda.productos, benchmark.busqueda.consultas.
+ */
+@Tag("benchmark")
+public class BusquedaBenchmarkTest {
+
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.busqueda.productos", 1_000_000);
+    private static final int CONSULTAS = Integer.getInteger("benchmark.busqueda.consultas", 20_000);
+
+    private static final String[] TIPOS = {"Jabón", "Champú", "Cepillo", "Botella", "Bolsa", "Vela", "Crema",
+            "Desodorante", "Esponja", "Pajita", "Taza", "Fiambrera", "Detergente", "Bálsamo", "Peine"};
+    private static final String[] MATERIALES = {"bambú", "vidrio", "acero", "algodón", "coco", "cera", "lino",
+            "corcho", "cáñamo", "silicona", "madera", "arcilla"};
+    private static final String[] ATRIBUTOS = {"natural", "ecológico", "reutilizable", "biodegradable", "vegano",
+            "artesanal", "sólido", "compostable", "recargable", "orgánico", "sin plástico", "de comercio justo"};
+    private static final String[] AROMAS = {"lavanda", "romero", "limón", "menta", "avena", "rosa", "eucalipto",
+            "naranja", "vainilla", "té verde", "canela", "jengibre"};
+
+    @Test
+    @DisplayName("Construcción y latencia de búsqueda con un catálogo grande")
+    void busquedaEnCatalogoGrande() {
+        Random random = new Random(42);
+        List<Inventario> productos = new ArrayList<>(PRODUCTOS);
+        for (long id = 1; id <= PRODUCTOS; id++) {
+            String nombre = elegir(random, TIPOS) + " de " + elegir(random, MATERIALES) + " " + elegir(random, AROMAS);
+            String descripcion = elegir(random, ATRIBUTOS) + " y " + elegir(random, ATRIBUTOS) + ", hecho con "
+                    + elegir(random, MATERIALES) + " " + elegir(random, ATRIBUTOS);
+            productos.add(new Inventario(id, nombre, descripcion, 1.0 + random.nextInt(50), 100, 0, null));
+        }
+
+        long inicio = System.nanoTime();
+        IndiceBusqueda indice = IndiceBusqueda.construir(productos, ForkJoinPool.commonPool());
+        double segundosConstruccion = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        String[] consultas = new String[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            consultas[i] = switch (i % 4) {
+                case 0 -> elegir(random, TIPOS);
+                case 1 -> elegir(random, TIPOS) + " " + elegir(random, AROMAS);
+                case 2 -> elegir(random, MATERIALES) + " " + elegir(random, ATRIBUTOS) + " " + elegir(random, AROMAS);
+                default -> elegir(random, TIPOS).substring(0, 3); // Solo prefijo
+            };
+        }
+        for (int i = 0; i < Math.min(2_000, CONSULTAS); i++) { // Calentamiento del JIT
+            indice.buscar(consultas[i], 20);
+        }
+        long[] latenciasNanos = new long[CONSULTAS];
+        int vacias = 0;
+        for (int i = 0; i < CONSULTAS; i++) {
+            long t = System.nanoTime();
+            if (indice.buscar(consultas[i], 20).isEmpty()) {
+                vacias++;
+            }
+            latenciasNanos[i] = System.nanoTime() - t;
+        }
+
+        Arrays.sort(latenciasNanos);
+        System.out.printf("BENCHMARK búsqueda: %d productos, %d términos, construcción %.2f s%n",
+                indice.numDocumentos(), indice.numTerminos(), segundosConstruccion);
+        System.out.printf("BENCHMARK búsqueda: %d consultas, p50=%.3f ms, p99=%.3f ms, máx=%.3f ms, vacías=%d%n",
+                CONSULTAS,
+                latenciasNanos[latenciasNanos.length / 2] / 1_000_000.0,
+                latenciasNanos[(int) (latenciasNanos.length * 0.99)] / 1_000_000.0,
+                latenciasNanos[latenciasNanos.length - 1] / 1_000_000.0,
+                vacias);
+
+        assertEquals(PRODUCTOS, indice.numDocumentos());
+        assertTrue(vacias < CONSULTAS / 10, "Casi todas las consultas deberían encontrar productos");
+    }
+
+    private static String elegir(Random random, String[] opciones) {
+        return opciones[random.nextInt(opciones.length)];
+    }
+}
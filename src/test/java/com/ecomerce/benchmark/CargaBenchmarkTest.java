@@ -0,0 +1,517 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.EcomerceApplication;
+import com.ecomerce.concurrencia.AlmacenIdempotencia;
+import com.ecomerce.dto.InformeConciliacion;
+import com.ecomerce.service.BusquedaCatalogoService;
+import com.ecomerce.service.ConciliacionInventarioService;
+import com.ecomerce.service.ContrasenaService;
+import com.ecomerce.service.FiltroEmailsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de carga de extremo a extremo: arranca la aplicación completa (Tomcat en un puerto aleatorio y H2 en memoria
+ * en lugar de MySQL), la siembra con usuarios, productos y carritos, y lanza por HTTP tráfico mixto de muchos clientes
+ * simultáneos contra InventarioController, UsuarioController, CarritoController y PedidoController.
+ *
+ * Escenarios:
+ * - Mixto: cada cliente consulta fichas, páginas y búsquedas del catálogo, consulta usuarios, inicia sesión, llena y
+ *   vacía su carrito y a veces compra. Los bulkheads y demás protecciones tienen la configuración de producción.
+ * - Rebajas: muchos compradores a la vez sobre un único producto con stock limitado (añadir una unidad y comprarla,
+ *   reintentando los 503 y los fallos de red con la misma clave de idempotencia), con tráfico mixto de fondo.
+ *
+ * Informa por escenario y por operación de peticiones/s, latencias (p50, p95, p99 y máxima) y tasas de rechazos
+ * (4xx esperados: sin stock, email repetido...), descartes (503 de los bulkheads) y errores (resto de 5xx, tiempos
+ * de espera y fallos de red). Al terminar comprueba contra el stock final que no hay sobreventa (más unidades
+ * confirmadas a los compradores, o reservadas y vendidas, que las descontadas del stock) ni infraventa (compradores
+ * rechazados por falta de stock mientras quedaban unidades), que la conciliación no encuentra descuadres y que la
+ * tasa de errores no supera benchmark.carga.max-errores.
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark -Dtest=CargaBenchmarkTest
+ * Parámetros (propiedades del sistema): benchmark.carga.usuarios, benchmark.carga.productos,
+ * benchmark.carga.carritos, benchmark.carga.clientes, benchmark.carga.peticiones (por cliente),
+ * benchmark.carga.rebajas.compradores, benchmark.carga.rebajas.stock, benchmark.carga.rebajas.reintentos,
+ * benchmark.carga.max-errores.
+ */
+@Tag("benchmark")
+public class CargaBenchmarkTest {
+
+    private static final int USUARIOS = Integer.getInteger("benchmark.carga.usuarios", 2_000);
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.carga.productos", 5_000);
+    private static final int CARRITOS = Integer.getInteger("benchmark.carga.carritos", 1_000);
+    private static final int CLIENTES = Integer.getInteger("benchmark.carga.clientes", 200);
+    private static final int PETICIONES_POR_CLIENTE = Integer.getInteger("benchmark.carga.peticiones", 50);
+    private static final int COMPRADORES = Integer.getInteger("benchmark.carga.rebajas.compradores", 500);
+    private static final int STOCK_REBAJAS = Integer.getInteger("benchmark.carga.rebajas.stock", 100);
+    private static final int REINTENTOS = Integer.getInteger("benchmark.carga.rebajas.reintentos", 30);
+    private static final double MAX_ERRORES = Double.parseDouble(System.getProperty("benchmark.carga.max-errores", "0.01"));
+
+    private static final int STOCK_INICIAL = 1_000;
+    private static final String CONTRASENA = "secreto";
+    private static final String[] PRODUCTOS_BASE = {"Jabón", "Champú", "Cepillo", "Bolsa", "Botella", "Detergente", "Vela", "Esponja"};
+    private static final String[] MATERIALES = {"natural", "bambú", "orgánico", "reciclado", "compostable", "vegano"};
+
+    @Test
+    @DisplayName("Tráfico mixto y rebajas sobre un producto con stock limitado, con comprobación del stock final")
+    void traficoMixtoYRebajas() throws Exception {
+        assertTrue(USUARIOS >= Math.max(CLIENTES, CARRITOS) + COMPRADORES,
+                "Los compradores de las rebajas necesitan usuarios propios, sin carrito sembrado");
+        try (ConfigurableApplicationContext contexto = arrancar()) {
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            Datos datos = sembrar(contexto);
+            List<String> informe = new ArrayList<>();
+            informe.add(String.format("BENCHMARK carga: %d usuarios, %d productos, %d carritos sembrados; %d clientes x %d peticiones; "
+                    + "rebajas: %d compradores para %d unidades", USUARIOS, PRODUCTOS, CARRITOS, CLIENTES,
+                    PETICIONES_POR_CLIENTE, COMPRADORES, STOCK_REBAJAS));
+
+            try (HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build()) {
+                Cliente cliente = new Cliente(http, "http://localhost:" + puerto);
+
+                Medidor mixto = new Medidor();
+                ejecutar(CLIENTES, c -> traficoMixto(cliente, mixto, datos, c));
+                mixto.informar("mixto", informe);
+
+                // Rebajas con la mitad de los clientes generando tráfico mixto de fondo
+                Medidor rebajas = new Medidor();
+                Rebajas resultado = new Rebajas();
+                int fondo = CLIENTES / 2;
+                ejecutar(COMPRADORES + fondo, c -> {
+                    if (c < COMPRADORES) {
+                        comprarEnRebajas(cliente, rebajas, resultado, datos.compradores().get(c), datos.productoRebajas());
+                    } else {
+                        traficoMixto(cliente, rebajas, datos, c - COMPRADORES);
+                    }
+                });
+                rebajas.informar("rebajas", informe);
+
+                // Comprobación contra el stock final
+                JdbcTemplate jdbc = new JdbcTemplate(contexto.getBean(DataSource.class));
+                Map<String, Object> fila = jdbc.queryForMap(
+                        "select stock, unidades_vendidas from inventario where id = ?", datos.productoRebajas());
+                int stockFinal = ((Number) fila.get("stock")).intValue();
+                int vendidas = ((Number) fila.get("unidades_vendidas")).intValue();
+                int enCarritos = jdbc.queryForObject("select coalesce(sum(cantidad), 0) from carrito_items where producto_id = ?",
+                        Integer.class, datos.productoRebajas());
+                int negativos = jdbc.queryForObject("select count(*) from inventario where stock < 0", Integer.class);
+                InformeConciliacion conciliacion = contexto.getBean(ConciliacionInventarioService.class).conciliar(false);
+
+                int descontadas = STOCK_REBAJAS - stockFinal;
+                int sobreventa = Math.max(0, Math.max(resultado.confirmadas.get(), vendidas + enCarritos) - descontadas);
+                int infraventa = resultado.sinStock.get() > 0 ? Math.max(0, stockFinal) : 0;
+                informe.add(String.format("BENCHMARK carga rebajas: %d confirmadas, %d compradas, %d sin stock, %d abandonos; "
+                                + "stock final=%d, vendidas=%d, en carritos=%d -> sobreventa=%d, infraventa=%d",
+                        resultado.confirmadas.get(), resultado.compradas.get(), resultado.sinStock.get(),
+                        resultado.abandonos.get(), stockFinal, vendidas, enCarritos, sobreventa, infraventa));
+                informe.add(String.format("BENCHMARK carga stock: %d productos con stock negativo, %d descuadres en la conciliación",
+                        negativos, conciliacion.descuadres()));
+                informe.forEach(System.out::println);
+
+                assertTrue(mixto.exitos() > 0 && resultado.compradas.get() > 0, "Alguna petición debería completarse");
+                assertEquals(0, sobreventa, "No se pueden confirmar más unidades que las descontadas del stock");
+                assertEquals(0, infraventa, "No se puede rechazar a un comprador por falta de stock quedando unidades");
+                assertEquals(0, negativos, "Ningún producto puede quedar con stock negativo");
+                assertEquals(0, conciliacion.descuadres(), "stock + carritos + vendidas debe cuadrar con lo recibido");
+                assertTrue(mixto.tasaErrores() <= MAX_ERRORES, "Tasa de errores del tráfico mixto: " + mixto.tasaErrores());
+                assertTrue(rebajas.tasaErrores() <= MAX_ERRORES, "Tasa de errores de las rebajas: " + rebajas.tasaErrores());
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext arrancar() {
+        // Como argumentos de línea de comandos para que prevalezcan sobre application.properties
+        return new SpringApplicationBuilder(EcomerceApplication.class).run(
+                "--spring.profiles.active=benchmark",
+                "--spring.datasource.url=jdbc:h2:mem:db_benchmark_carga;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "--spring.jpa.properties.hibernate.cache.region_prefix=db_benchmark_carga",
+                "--spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+    }
+
+    /**
+     * Siembra la base de datos por JDBC (mucho más rápido que por los servicios) y reconstruye lo que la aplicación
+     * preparó al arrancar con la base de datos vacía: cachés de segundo nivel, índice de búsqueda y filtro de emails.
+     * Cada carrito sembrado tiene una línea, con su stock ya descontado del producto.
+     */
+    private static Datos sembrar(ConfigurableApplicationContext contexto) {
+        JdbcTemplate jdbc = new JdbcTemplate(contexto.getBean(DataSource.class));
+        String hash = contexto.getBean(ContrasenaService.class).hashear(CONTRASENA).join(); // Un solo hash para todos
+        jdbc.batchUpdate("insert into usuarios (nombre, apellido, email, password, fecha_registro) values ('Usuario', ?, ?, ?, current_date)",
+                IntStream.range(0, USUARIOS).boxed().toList(), 1_000, (ps, i) -> {
+                    ps.setString(1, "Carga " + i);
+                    ps.setString(2, email(i));
+                    ps.setString(3, hash);
+                });
+        jdbc.batchUpdate("insert into inventario (nombre_producto, descripcion, precio, stock, unidades_vendidas, unidades_recibidas) "
+                        + "values (?, ?, ?, ?, 0, ?)",
+                IntStream.range(0, PRODUCTOS).boxed().toList(), 1_000, (ps, i) -> {
+                    ps.setString(1, PRODUCTOS_BASE[i % PRODUCTOS_BASE.length] + " " + MATERIALES[i % MATERIALES.length] + " " + i);
+                    ps.setString(2, "Producto ecológico número " + i + " para la prueba de carga");
+                    ps.setDouble(3, 1.0 + i % 50);
+                    ps.setInt(4, STOCK_INICIAL);
+                    ps.setInt(5, STOCK_INICIAL);
+                });
+        jdbc.update("insert into inventario (nombre_producto, descripcion, precio, stock, unidades_vendidas, unidades_recibidas) "
+                + "values ('Producto de las rebajas', 'Unidades limitadas', 9.99, ?, 0, ?)", STOCK_REBAJAS, STOCK_REBAJAS);
+        Long productoRebajas = jdbc.queryForObject("select id from inventario where nombre_producto = 'Producto de las rebajas'", Long.class);
+        List<Long> productoIds = jdbc.queryForList("select id from inventario where id <> ? order by id", Long.class, productoRebajas);
+        List<Long> usuarioIds = jdbc.queryForList("select id from usuarios order by id", Long.class);
+
+        Random random = new Random(42);
+        jdbc.batchUpdate("insert into carritos (usuario_id, fecha_creacion, fecha_actualizacion, cantidad_items, subtotal) "
+                        + "values (?, current_timestamp, current_timestamp, 0, 0)",
+                usuarioIds.subList(0, CARRITOS), 1_000, (ps, usuarioId) -> ps.setLong(1, usuarioId));
+        jdbc.batchUpdate("insert into carrito_items (carrito_id, producto_id, cantidad, precio_unitario_en_momento_de_adicion) "
+                        + "select ?, p.id, ?, p.precio from inventario p where p.id = ?",
+                jdbc.queryForList("select id from carritos order by id", Long.class), 1_000, (ps, carritoId) -> {
+                    ps.setLong(1, carritoId);
+                    ps.setInt(2, 1 + random.nextInt(3));
+                    ps.setLong(3, productoIds.get(random.nextInt(productoIds.size())));
+                });
+        jdbc.update("update carritos c set cantidad_items = (select coalesce(sum(i.cantidad), 0) from carrito_items i where i.carrito_id = c.id), "
+                + "subtotal = (select coalesce(sum(i.cantidad * i.precio_unitario_en_momento_de_adicion), 0) from carrito_items i where i.carrito_id = c.id)");
+        jdbc.update("update inventario p set stock = unidades_recibidas - "
+                + "(select coalesce(sum(i.cantidad), 0) from carrito_items i where i.producto_id = p.id)");
+
+        contexto.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getCache().evictAllRegions();
+        contexto.getBean(BusquedaCatalogoService.class).reconstruir();
+        contexto.getBean(FiltroEmailsService.class).reconstruir();
+        return new Datos(usuarioIds.subList(0, CLIENTES), usuarioIds.subList(USUARIOS - COMPRADORES, USUARIOS),
+                usuarioIds, productoIds, productoRebajas);
+    }
+
+    /**
+     * Lanza los clientes en hilos virtuales, todos a la vez, y espera a que terminen.
+     */
+    private static void ejecutar(int clientes, TareaCliente tarea) throws InterruptedException {
+        CountDownLatch salida = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clientes; c++) {
+                int cliente = c;
+                executor.submit(() -> {
+                    salida.await();
+                    tarea.ejecutar(cliente);
+                    return null;
+                });
+            }
+            salida.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES), "La prueba de carga no terminó a tiempo");
+        }
+    }
+
+    /**
+     * Sesión de un cliente del tráfico mixto, siempre con el mismo usuario (el suyo) y sin tocar el producto de las rebajas.
+     */
+    private static void traficoMixto(Cliente http, Medidor medidor, Datos datos, int cliente) {
+        Random random = new Random(cliente);
+        Long usuarioId = datos.clientes().get(cliente);
+        List<Long> enCarrito = new ArrayList<>();
+        for (int p = 0; p < PETICIONES_POR_CLIENTE; p++) {
+            int tirada = random.nextInt(100);
+            Long producto = datos.productos().get(random.nextInt(datos.productos().size()));
+            int otro = random.nextInt(datos.usuarios().size());
+            if (tirada < 27) {
+                http.enviar(medidor, "inventario.ficha", http.get("/api/inventario/" + producto));
+            } else if (tirada < 42) {
+                http.enviar(medidor, "inventario.pagina", http.get("/api/inventario?enStock=true&orden=PRECIO_ASC&limite=20&precioMin="
+                        + random.nextInt(40)));
+            } else if (tirada < 52) {
+                String consulta = PRODUCTOS_BASE[random.nextInt(PRODUCTOS_BASE.length)] + " " + MATERIALES[random.nextInt(MATERIALES.length)];
+                http.enviar(medidor, "inventario.busqueda", http.get("/api/inventario/search?limite=20&q=" + codificar(consulta)));
+            } else if (tirada < 53) {
+                http.enviar(medidor, "inventario.catalogo", http.get("/api/inventario"));
+            } else if (tirada < 63) {
+                http.enviar(medidor, "usuarios.ficha", http.get("/api/usuarios/" + datos.usuarios().get(otro)));
+            } else if (tirada < 68) {
+                http.enviar(medidor, "usuarios.email", http.get("/api/usuarios/buscar?email=" + codificar(email(otro))));
+            } else if (tirada < 70) {
+                http.enviar(medidor, "usuarios.login", http.post("/api/usuarios/login",
+                        "{\"email\":\"" + email(otro) + "\",\"password\":\"" + CONTRASENA + "\"}", null));
+            } else if (tirada < 71) {
+                http.enviar(medidor, "usuarios.registro", http.post("/api/usuarios", "{\"nombre\":\"Usuario\",\"apellido\":\"Nuevo\","
+                        + "\"email\":\"carga-" + UUID.randomUUID() + "@example.com\",\"password\":\"" + CONTRASENA + "\"}", null));
+            } else if (tirada < 81) {
+                http.enviar(medidor, "carritos.resumen", http.get("/api/carritos/" + usuarioId + "/resumen"));
+            } else if (tirada < 93 || enCarrito.isEmpty()) {
+                int estado = http.enviar(medidor, "carritos.agregar", http.post("/api/carritos/" + usuarioId + "/items",
+                        "{\"productoId\":" + producto + ",\"cantidad\":" + (1 + random.nextInt(2)) + "}", UUID.randomUUID().toString()));
+                if (estado == 200) {
+                    enCarrito.add(producto);
+                }
+            } else if (tirada < 97) {
+                Long eliminado = enCarrito.remove(random.nextInt(enCarrito.size()));
+                http.enviar(medidor, "carritos.eliminar", http.delete("/api/carritos/" + usuarioId + "/items/" + eliminado,
+                        UUID.randomUUID().toString()));
+            } else {
+                int estado = http.enviar(medidor, "pedidos.checkout", http.post("/api/pedidos/checkout/" + usuarioId, "",
+                        UUID.randomUUID().toString()));
+                if (estado == 201) {
+                    enCarrito.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Un comprador de las rebajas: añade una unidad del producto y la compra. Los 503 y los fallos de red se
+     * reintentan con la misma clave de idempotencia, de modo que ninguna operación se aplica dos veces.
+     */
+    private static void comprarEnRebajas(Cliente http, Medidor medidor, Rebajas rebajas, Long usuarioId, Long productoId) {
+        int agregar = http.conReintentos(medidor, "rebajas.agregar", http.post("/api/carritos/" + usuarioId + "/items",
+                "{\"productoId\":" + productoId + ",\"cantidad\":1}", UUID.randomUUID().toString()));
+        if (agregar == 400) {
+            rebajas.sinStock.incrementAndGet();
+            return;
+        }
+        if (agregar != 200) {
+            rebajas.abandonos.incrementAndGet();
+            return;
+        }
+        rebajas.confirmadas.incrementAndGet();
+        int checkout = http.conReintentos(medidor, "rebajas.checkout", http.post("/api/pedidos/checkout/" + usuarioId, "",
+                UUID.randomUUID().toString()));
+        if (checkout == 201) {
+            rebajas.compradas.incrementAndGet();
+        } else {
+            rebajas.abandonos.incrementAndGet();
+        }
+    }
+
+    private static String email(int usuario) {
+        return "carga" + usuario + "@example.com";
+    }
+
+    private static String codificar(String texto) {
+        return URLEncoder.encode(texto, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface TareaCliente {
+        void ejecutar(int cliente) throws Exception;
+    }
+
+    private record Datos(List<Long> clientes, List<Long> compradores, List<Long> usuarios, List<Long> productos,
+                         Long productoRebajas) {
+    }
+
+    private static final class Rebajas {
+        final AtomicInteger confirmadas = new AtomicInteger(); // Unidades reservadas con respuesta 200
+        final AtomicInteger compradas = new AtomicInteger();
+        final AtomicInteger sinStock = new AtomicInteger(); // Compradores rechazados con 400 por falta de stock
+        final AtomicInteger abandonos = new AtomicInteger(); // Reintentos agotados o checkout fallido
+    }
+
+    /**
+     * Cliente HTTP de la prueba: construye las peticiones y mide cada intento.
+     */
+    private record Cliente(HttpClient http, String base) {
+
+        HttpRequest get(String ruta) {
+            return peticion(ruta, null).GET().build();
+        }
+
+        HttpRequest post(String ruta, String cuerpo, String idempotencyKey) {
+            return peticion(ruta, idempotencyKey).header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo)).build();
+        }
+
+        HttpRequest delete(String ruta, String idempotencyKey) {
+            return peticion(ruta, idempotencyKey).DELETE().build();
+        }
+
+        private HttpRequest.Builder peticion(String ruta, String idempotencyKey) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + ruta)).timeout(Duration.ofSeconds(30));
+            return idempotencyKey == null ? builder : builder.header(AlmacenIdempotencia.CABECERA, idempotencyKey);
+        }
+
+        /**
+         * @return El código de estado, o -1 si la petición falló sin respuesta (tiempo de espera, conexión...).
+         */
+        int enviar(Medidor medidor, String operacion, HttpRequest peticion) {
+            return enviarConRespuesta(medidor, operacion, peticion).estado();
+        }
+
+        /**
+         * Envía la petición y la repite (como haría un cliente real) mientras la respuesta sea 503 o un fallo de red,
+         * esperando lo que indique Retry-After.
+         */
+        int conReintentos(Medidor medidor, String operacion, HttpRequest peticion) {
+            Intento intento = null;
+            for (int i = 0; i < REINTENTOS; i++) {
+                intento = enviarConRespuesta(medidor, operacion, peticion);
+                if (intento.estado() != 503 && intento.estado() != -1) {
+                    return intento.estado();
+                }
+                try {
+                    Thread.sleep(intento.reintentarEnMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return intento == null ? -1 : intento.estado();
+        }
+
+        private Intento enviarConRespuesta(Medidor medidor, String operacion, HttpRequest peticion) {
+            long inicio = System.nanoTime();
+            int estado;
+            long reintentarEnMillis = 200;
+            try {
+                HttpResponse<Void> respuesta = http.send(peticion, HttpResponse.BodyHandlers.discarding());
+                estado = respuesta.statusCode();
+                reintentarEnMillis = respuesta.headers().firstValueAsLong("Retry-After").orElse(0) * 1000 + 200;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                estado = -1;
+            } catch (Exception e) {
+                estado = -1;
+            }
+            medidor.registrar(operacion, estado, System.nanoTime() - inicio);
+            return new Intento(estado, reintentarEnMillis);
+        }
+    }
+
+    private record Intento(int estado, long reintentarEnMillis) {
+    }
+
+    /**
+     * Latencias y resultados de un escenario, por operación.
+     */
+    private static final class Medidor {
+
+        private final Map<String, Operacion> operaciones = new ConcurrentSkipListMap<>(); // En orden alfabético en el informe
+        private final long inicio = System.nanoTime();
+        private volatile long fin;
+
+        void registrar(String operacion, int estado, long nanos) {
+            operaciones.computeIfAbsent(operacion, o -> new Operacion()).registrar(estado, nanos);
+            fin = System.nanoTime();
+        }
+
+        int exitos() {
+            return operaciones.values().stream().mapToInt(o -> o.exitos).sum();
+        }
+
+        double tasaErrores() {
+            Operacion total = total();
+            return total.total() == 0 ? 0 : (double) total.errores / total.total();
+        }
+
+        void informar(String escenario, List<String> informe) {
+            double segundos = (fin - inicio) / 1_000_000_000.0;
+            Operacion total = total();
+            informe.add(String.format("BENCHMARK carga %-8s %-20s %s  %8.1f pet/s", escenario, "TOTAL", total.resumen(),
+                    total.total() / segundos));
+            operaciones.forEach((nombre, operacion) -> informe.add(String.format("BENCHMARK carga %-8s %-20s %s  %8.1f pet/s",
+                    escenario, nombre, operacion.resumen(), operacion.total() / segundos)));
+        }
+
+        private Operacion total() {
+            Operacion total = new Operacion();
+            operaciones.values().forEach(total::sumar);
+            return total;
+        }
+    }
+
+    private static final class Operacion {
+
+        private long[] latenciasNanos = new long[256];
+        private int exitos;
+        private int rechazos; // 4xx
+        private int descartes; // 503
+        private int errores; // Resto de 5xx y fallos sin respuesta
+
+        synchronized void registrar(int estado, long nanos) {
+            if (estado >= 200 && estado < 300) {
+                exitos++;
+            } else if (estado >= 400 && estado < 500) {
+                rechazos++;
+            } else if (estado == 503) {
+                descartes++;
+            } else {
+                errores++;
+            }
+            agregarLatencia(nanos);
+        }
+
+        synchronized void sumar(Operacion otra) {
+            synchronized (otra) {
+                int n = total();
+                int m = otra.total();
+                latenciasNanos = Arrays.copyOf(latenciasNanos, Math.max(latenciasNanos.length, n + m));
+                System.arraycopy(otra.latenciasNanos, 0, latenciasNanos, n, m);
+                exitos += otra.exitos;
+                rechazos += otra.rechazos;
+                descartes += otra.descartes;
+                errores += otra.errores;
+            }
+        }
+
+        int total() {
+            return exitos + rechazos + descartes + errores;
+        }
+
+        synchronized String resumen() {
+            int n = total();
+            long[] ordenadas = Arrays.copyOf(latenciasNanos, n);
+            Arrays.sort(ordenadas);
+            return String.format("%7d pet  p50=%7.2f  p95=%7.2f  p99=%8.2f  máx=%8.2f ms  rechazos=%5.1f%%  descartes=%5.1f%%  errores=%5.2f%%",
+                    n, percentil(ordenadas, 0.50), percentil(ordenadas, 0.95), percentil(ordenadas, 0.99),
+                    n == 0 ? 0 : ordenadas[n - 1] / 1_000_000.0,
+                    porcentaje(rechazos, n), porcentaje(descartes, n), porcentaje(errores, n));
+        }
+
+        private void agregarLatencia(long nanos) {
+            int n = total() - 1; // El resultado ya está contado
+            if (n >= latenciasNanos.length) {
+                latenciasNanos = Arrays.copyOf(latenciasNanos, latenciasNanos.length * 2);
+            }
+            latenciasNanos[n] = nanos;
+        }
+
+        private static double percentil(long[] ordenadas, double p) {
+            return ordenadas.length == 0 ? 0 : ordenadas[Math.min(ordenadas.length - 1, (int) (ordenadas.length * p))] / 1_000_000.0;
+        }
+
+        private static double porcentaje(int parte, int total) {
+            return total == 0 ? 0 : 100.0 * parte / total;
+        }
+    }
+}
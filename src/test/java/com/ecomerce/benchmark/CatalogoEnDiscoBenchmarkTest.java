@@ -0,0 +1,95 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.dto.AjusteStock;
+import com.ecomerce.service.AjustesStockService;
+import com.ecomerce.service.CatalogoEnDiscoService;
+import com.ecomerce.service.InventarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark del arranque en caliente del catálogo con un catálogo grande (200.000 productos por defecto):
+ * lectura completa con findAll() (lo que hacía cada instancia al arrancar) frente a la carga de la foto en disco
+ * más los productos cambiados desde entonces (benchmark.disco.cambios, aplicados como ajustes de stock).
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.disco.productos, benchmark.disco.cambios.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalogo_en_disco_benchmark;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=catalogo_en_disco_benchmark",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "ecomerce.catalogo.disco.habilitado=true",
+        "ecomerce.catalogo.disco.archivo=" + CatalogoEnDiscoBenchmarkTest.ARCHIVO})
+@ActiveProfiles("benchmark")
+public class CatalogoEnDiscoBenchmarkTest {
+
+    static final String ARCHIVO = "target/catalogo-en-disco-benchmark/catalogo.foto";
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.disco.productos", 200_000);
+    private static final int CAMBIOS = Integer.getInteger("benchmark.disco.cambios", 1_000);
+
+    @Autowired
+    private CatalogoEnDiscoService catalogoEnDisco;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private AjustesStockService ajustesStock;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Lectura completa del catálogo frente a foto en disco más cambios")
+    void lecturaCompletaFrenteAFotoEnDisco() throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        List<Long> ids = LongStream.rangeClosed(1, PRODUCTOS).boxed().toList();
+        jdbc.batchUpdate("insert into inventario (id, nombre_producto, descripcion, precio, stock, unidades_vendidas, "
+                + "unidades_recibidas) values (?, ?, ?, 2.5, 100, 0, 100)", ids, 10_000, (ps, id) -> {
+            ps.setLong(1, id);
+            ps.setString(2, "Producto ecológico " + id);
+            ps.setString(3, "Descripción del producto ecológico número " + id + ", biodegradable y sin plásticos");
+        });
+
+        long inicio = System.nanoTime();
+        int leidos = inventarioService.obtenerTodos().size();
+        double segundosFindAll = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        inicio = System.nanoTime();
+        catalogoEnDisco.guardar();
+        double segundosEscritura = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        Random random = new Random(42);
+        ajustesStock.ajustar(random.longs(1, PRODUCTOS + 1).distinct().limit(CAMBIOS)
+                .mapToObj(id -> new AjusteStock(id, 1, null)).toList()); // Cambios registrados en el bus
+
+        inicio = System.nanoTime();
+        CatalogoEnDiscoService.CatalogoCargado cargado = catalogoEnDisco.cargar();
+        double segundosCarga = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        System.out.printf("BENCHMARK catálogo en disco: %d productos, %d cambiados tras la foto%n", PRODUCTOS, CAMBIOS);
+        System.out.printf("  findAll(): %.2f s%n", segundosFindAll);
+        System.out.printf("  escritura de la foto: %.2f s (%.1f MB)%n", segundosEscritura,
+                Files.size(Path.of(ARCHIVO)) / 1_048_576.0);
+        System.out.printf("  foto en disco + cambios: %.2f s%n", segundosCarga);
+
+        assertEquals(PRODUCTOS, leidos);
+        assertTrue(cargado.desdeDisco());
+        assertEquals(PRODUCTOS, cargado.productos().size());
+        assertEquals(CAMBIOS, cargado.productos().stream().filter(p -> p.getStock() == 101).count());
+        assertTrue(segundosCarga < segundosFindAll, "La foto en disco debería cargar antes que findAll()");
+    }
+}
@@ -0,0 +1,135 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.config.CatalogoReactivoServidor;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.service.InventarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark que compara las lecturas del catálogo bloqueantes (InventarioController, Tomcat + JPA)
+ * con las reactivas (CatalogoReactivoController, Reactor Netty + R2DBC) sobre la misma base de datos.
+ * Mide peticiones/s y latencia del listado completo y de la lectura por ID con muchos clientes simultáneos.
+ *
+ * Los bulkheads y el modo degradado del catálogo se desactivan para comparar solo el camino de lectura.
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.reactivo.productos, benchmark.reactivo.clientes,
+ * benchmark.reactivo.peticiones (por cliente).
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"ecomerce.bulkheads.habilitado=false", "ecomerce.catalogo.degradado.habilitado=false"})
+@ActiveProfiles("benchmark")
+public class CatalogoReactivoBenchmarkTest {
+
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.reactivo.productos", 2000);
+    private static final int CLIENTES = Integer.getInteger("benchmark.reactivo.clientes", 100);
+    private static final int PETICIONES_POR_CLIENTE = Integer.getInteger("benchmark.reactivo.peticiones", 5);
+
+    @LocalServerPort
+    private int puertoBloqueante;
+    @Autowired
+    private CatalogoReactivoServidor servidorReactivo;
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Test
+    @DisplayName("Catálogo bloqueante frente a catálogo reactivo")
+    void bloqueanteFrenteAReactivo() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            ids.add(inventarioService.guardar(
+                    new Inventario(null, "Producto reactivo " + i, "Descripción " + i, 1.0 + i, 100, 0, null)).getId());
+        }
+        String bloqueante = "http://localhost:" + puertoBloqueante + "/api/inventario";
+        String reactivo = "http://localhost:" + servidorReactivo.puerto() + "/api/reactivo/inventario";
+
+        // Calentamiento de ambos caminos antes de medir
+        medir(i -> bloqueante, 20, 5);
+        medir(i -> reactivo, 20, 5);
+
+        List<String> informe = new ArrayList<>();
+        informe.add(medir(i -> bloqueante, CLIENTES, PETICIONES_POR_CLIENTE).informe("bloqueante listado"));
+        informe.add(medir(i -> reactivo, CLIENTES, PETICIONES_POR_CLIENTE).informe("reactivo   listado"));
+        informe.add(medir(i -> bloqueante + "/" + ids.get(i % ids.size()), CLIENTES, PETICIONES_POR_CLIENTE * 10)
+                .informe("bloqueante por ID"));
+        informe.add(medir(i -> reactivo + "/" + ids.get(i % ids.size()), CLIENTES, PETICIONES_POR_CLIENTE * 10)
+                .informe("reactivo   por ID"));
+        informe.forEach(System.out::println);
+    }
+
+    private static Resultado medir(IntFunction<String> url, int clientes, int peticionesPorCliente) throws InterruptedException {
+        int total = clientes * peticionesPorCliente;
+        long[] latenciasNanos = new long[total];
+        AtomicInteger errores = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        CountDownLatch salida = new CountDownLatch(1);
+        long inicio;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            for (int c = 0; c < clientes; c++) {
+                int cliente = c;
+                executor.submit(() -> {
+                    salida.await();
+                    for (int p = 0; p < peticionesPorCliente; p++) {
+                        int indice = cliente * peticionesPorCliente + p;
+                        HttpRequest peticion = HttpRequest.newBuilder(URI.create(url.apply(indice)))
+                                .timeout(Duration.ofSeconds(60)).GET().build();
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> respuesta = http.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+                            if (respuesta.statusCode() != 200) {
+                                errores.incrementAndGet();
+                            }
+                            bytes.addAndGet(respuesta.body().length);
+                        } catch (Exception e) {
+                            errores.incrementAndGet();
+                        }
+                        latenciasNanos[indice] = System.nanoTime() - t0;
+                    }
+                    return null;
+                });
+            }
+            inicio = System.nanoTime();
+            salida.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES), "El benchmark no terminó a tiempo");
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        Arrays.sort(latenciasNanos);
+        assertEquals(0, errores.get(), "Ninguna petición debería fallar");
+        return new Resultado(clientes, total / segundos, latenciasNanos[total / 2] / 1_000_000.0,
+                latenciasNanos[(int) (total * 0.99)] / 1_000_000.0, (int) (bytes.get() / total));
+    }
+
+    private record Resultado(int clientes, double peticionesPorSegundo, double p50Millis, double p99Millis, int bytesMedios) {
+        String informe(String caso) {
+            return String.format("BENCHMARK catálogo %s: clientes=%d %8.1f pet/s  p50=%8.2f ms  p99=%8.2f ms  %d bytes/resp",
+                    caso, clientes, peticionesPorSegundo, p50Millis, p99Millis, bytesMedios);
+        }
+    }
+}
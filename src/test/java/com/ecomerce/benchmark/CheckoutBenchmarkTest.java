@@ -0,0 +1,136 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import com.ecomerce.repository.CarritoItemRepository;
+import com.ecomerce.repository.InventarioRepository;
+import com.ecomerce.service.CarritoService;
+import com.ecomerce.service.InventarioService;
+import com.ecomerce.service.PedidoService;
+import com.ecomerce.service.UsuarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de rendimiento del checkout concurrente sobre productos compartidos.
+ * Cada usuario tiene un carrito con varios productos elegidos de un catálogo pequeño, de modo que
+ * casi todos los checkouts compiten por las mismas filas de inventario.
+ * Mide el rendimiento (checkouts/s) y la latencia, y comprueba que no hay fallos ni unidades perdidas.
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.checkout.productos, benchmark.checkout.usuarios,
+ * benchmark.checkout.lineas, benchmark.checkout.hilos.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("benchmark")
+public class CheckoutBenchmarkTest {
+
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.checkout.productos", 20);
+    private static final int USUARIOS = Integer.getInteger("benchmark.checkout.usuarios", 400);
+    private static final int LINEAS_POR_CARRITO = Integer.getInteger("benchmark.checkout.lineas", 5);
+    private static final int HILOS = Integer.getInteger("benchmark.checkout.hilos", 16);
+
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private InventarioRepository inventarioRepository;
+    @Autowired
+    private CarritoItemRepository carritoItemRepository;
+
+    @Test
+    @DisplayName("Checkouts concurrentes sobre productos compartidos")
+    void checkoutsConcurrentes() throws InterruptedException {
+        // Preparación: catálogo pequeño y un carrito por usuario con productos solapados
+        List<Long> productoIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Inventario producto = inventarioService.guardar(
+                    new Inventario(null, "Producto benchmark " + i, "Descripción " + i, 10.0 + i, 1_000_000, 0, null));
+            productoIds.add(producto.getId());
+        }
+        Random random = new Random(42);
+        List<Long> usuarioIds = new ArrayList<>();
+        long unidadesReservadas = 0;
+        for (int u = 0; u < USUARIOS; u++) {
+            Usuario usuario = usuarioService.guardar(new Usuario(null, "Usuario", "Benchmark " + u,
+                    "benchmark" + u + "@example.com", "secreto", null, null, null, null, null));
+            usuarioIds.add(usuario.getId());
+            List<Long> elegidos = new ArrayList<>(productoIds);
+            Collections.shuffle(elegidos, random);
+            for (Long productoId : elegidos.subList(0, LINEAS_POR_CARRITO)) {
+                int cantidad = 1 + random.nextInt(3);
+                carritoService.agregarProductoAlCarrito(usuario.getId(), productoId, cantidad);
+                unidadesReservadas += cantidad;
+            }
+        }
+
+        // Ejecución: todos los checkouts arrancan a la vez
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger exitos = new AtomicInteger();
+        AtomicInteger fallos = new AtomicInteger();
+        long[] latenciasNanos = new long[USUARIOS];
+        for (int i = 0; i < usuarioIds.size(); i++) {
+            int indice = i;
+            Long usuarioId = usuarioIds.get(i);
+            executor.submit(() -> {
+                salida.await();
+                long inicio = System.nanoTime();
+                try {
+                    if (pedidoService.realizarCheckout(usuarioId).isPresent()) {
+                        exitos.incrementAndGet();
+                    } else {
+                        fallos.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    fallos.incrementAndGet();
+                }
+                latenciasNanos[indice] = System.nanoTime() - inicio;
+                return null;
+            });
+        }
+        long inicio = System.nanoTime();
+        salida.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "El benchmark no terminó a tiempo");
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        Arrays.sort(latenciasNanos);
+        System.out.printf("BENCHMARK checkout: %d usuarios, %d productos, %d líneas/carrito, %d hilos%n",
+                USUARIOS, PRODUCTOS, LINEAS_POR_CARRITO, HILOS);
+        System.out.printf("BENCHMARK checkout: %.1f checkouts/s, p50=%.2f ms, p99=%.2f ms, fallos=%d%n",
+                exitos.get() / segundos,
+                latenciasNanos[latenciasNanos.length / 2] / 1_000_000.0,
+                latenciasNanos[(int) (latenciasNanos.length * 0.99)] / 1_000_000.0,
+                fallos.get());
+
+        // Comprobaciones: todos los checkouts terminan y ninguna unidad se pierde ni se duplica
+        assertEquals(0, fallos.get(), "Ningún checkout debería fallar");
+        long unidadesVendidas = inventarioRepository.findAll().stream().mapToLong(Inventario::getUnidadesVendidas).sum();
+        assertEquals(unidadesReservadas, unidadesVendidas, "Las unidades vendidas deben coincidir con las reservadas");
+        assertEquals(0, carritoItemRepository.count(), "Todos los carritos deben quedar vacíos");
+    }
+}
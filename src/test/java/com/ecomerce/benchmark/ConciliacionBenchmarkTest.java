@@ -0,0 +1,97 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.dto.InformeConciliacion;
+import com.ecomerce.model.Usuario;
+import com.ecomerce.service.CarritoService;
+import com.ecomerce.service.ConciliacionInventarioService;
+import com.ecomerce.service.UsuarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de la conciliación del inventario con un catálogo grande (1M de productos por defecto), una décima
+ * parte de ellos con unidades en un carrito, y un número fijo de descuadres provocados.
+ * Mide una pasada que solo informa y otra que corrige, y comprueba que encuentran y corrigen todos los descuadres.
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.conciliacion.productos, benchmark.conciliacion.descuadres.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:conciliacion_benchmark;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=conciliacion_benchmark",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+public class ConciliacionBenchmarkTest {
+
+    private static final int PRODUCTOS = Integer.getInteger("benchmark.conciliacion.productos", 1_000_000);
+    private static final int DESCUADRES = Integer.getInteger("benchmark.conciliacion.descuadres", 1_000);
+
+    @Autowired
+    private ConciliacionInventarioService conciliacion;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Conciliación de un catálogo grande")
+    void conciliacionDeCatalogoGrande() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long inicioCarga = System.nanoTime();
+        List<Long> ids = LongStream.rangeClosed(1, PRODUCTOS).boxed().toList();
+        // Stock 100; los productos con ID múltiplo de 10 tienen además 2 unidades en el carrito
+        jdbc.batchUpdate("insert into inventario (id, nombre_producto, descripcion, precio, stock, unidades_vendidas, "
+                + "unidades_recibidas) values (?, ?, 'Descripción', 1.0, 100, 0, ?)", ids, 10_000, (ps, id) -> {
+            ps.setLong(1, id);
+            ps.setString(2, "Producto conciliación " + id);
+            ps.setInt(3, id % 10 == 0 ? 102 : 100);
+        });
+        Usuario usuario = usuarioService.guardar(new Usuario(null, "Ana", "Conciliación", "ana.conciliacion.benchmark@example.com",
+                "secreto", null, null, null, null, null));
+        Long carritoId = carritoService.obtenerOcrearCarrito(usuario.getId()).getId();
+        List<Long> enCarrito = ids.stream().filter(id -> id % 10 == 0).toList();
+        jdbc.batchUpdate("insert into carrito_items (carrito_id, producto_id, cantidad, precio_unitario_en_momento_de_adicion) "
+                + "values (?, ?, 2, 1.0)", enCarrito, 10_000, (ps, id) -> {
+            ps.setLong(1, carritoId);
+            ps.setLong(2, id);
+        });
+        Random random = new Random(42);
+        List<Object[]> perdidas = new ArrayList<>();
+        random.longs(1, PRODUCTOS + 1).distinct().limit(DESCUADRES).forEach(id -> perdidas.add(new Object[]{id}));
+        jdbc.batchUpdate("update inventario set stock = stock - 1 where id = ?", perdidas);
+        jdbc.execute("analyze");
+        double segundosCarga = (System.nanoTime() - inicioCarga) / 1_000_000_000.0;
+
+        InformeConciliacion informe = conciliacion.conciliar(false);
+        InformeConciliacion correccion = conciliacion.conciliar(true);
+        InformeConciliacion despues = conciliacion.conciliar(false);
+
+        System.out.printf("BENCHMARK conciliación: %d productos (%d en carritos, carga %.1f s), %d rangos%n",
+                PRODUCTOS, enCarrito.size(), segundosCarga, informe.rangos());
+        System.out.printf("  solo informe: %d descuadres en %.2f s (%.0f productos/s)%n", informe.descuadres(),
+                informe.duracionMillis() / 1000.0, PRODUCTOS * 1000.0 / Math.max(1, informe.duracionMillis()));
+        System.out.printf("  con corrección: %d corregidos en %.2f s%n", correccion.corregidos(),
+                correccion.duracionMillis() / 1000.0);
+
+        assertEquals(DESCUADRES, informe.descuadres());
+        assertEquals(DESCUADRES, correccion.corregidos());
+        assertEquals(0, despues.descuadres());
+        assertTrue(informe.duracionMillis() < 300_000, "La conciliación debería terminar en minutos");
+    }
+}
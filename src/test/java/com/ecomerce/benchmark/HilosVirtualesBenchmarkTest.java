@@ -0,0 +1,196 @@
+package com.ecomerce.benchmark;
+
+import com.ecomerce.EcomerceApplication;
+import com.ecomerce.concurrencia.VigilanteAnclajes;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import com.ecomerce.service.CarritoService;
+import com.ecomerce.service.InventarioService;
+import com.ecomerce.service.UsuarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark que compara la atención de peticiones con hilos de plataforma (pool de Tomcat) y con hilos virtuales
+ * (spring.threads.virtual.enabled=true).
+ * Arranca la aplicación dos veces, una por modo, y lanza contra GET /api/carritos/{usuarioId}/resumen
+ * (varias idas y vueltas transaccionales a la base de datos) un número creciente de clientes simultáneos.
+ * Mide peticiones/s, latencia, errores, pico de memoria de heap y pico de hilos de plataforma, y en el modo
+ * virtual los anclajes detectados por VigilanteAnclajes.
+ *
+ * Los bulkheads se desactivan para medir solo el modo de ejecución (con ellos, el exceso se rechaza con 503).
+ * Con 10k clientes hacen falta unos 20k descriptores de fichero (ulimit -n).
+ *
+ * Se ejecuta con: ./mvnw test -Pbenchmark
+ * Parámetros (propiedades del sistema): benchmark.hilos.clientes (lista, por defecto 1000,10000),
+ * benchmark.hilos.peticiones (por cliente), benchmark.hilos.usuarios.
+ */
+@Tag("benchmark")
+public class HilosVirtualesBenchmarkTest {
+
+    private static final int[] CLIENTES = Arrays.stream(System.getProperty("benchmark.hilos.clientes", "1000,10000").split(","))
+            .map(String::trim).mapToInt(Integer::parseInt).toArray();
+    private static final int PETICIONES_POR_CLIENTE = Integer.getInteger("benchmark.hilos.peticiones", 3);
+    private static final int USUARIOS = Integer.getInteger("benchmark.hilos.usuarios", 200);
+
+    @Test
+    @DisplayName("Hilos de plataforma frente a hilos virtuales con muchos clientes simultáneos")
+    void plataformaFrenteAVirtuales() throws Exception {
+        List<String> informe = new ArrayList<>();
+        for (boolean virtuales : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext contexto = arrancar(virtuales)) {
+                int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+                List<Long> usuarioIds = preparar(contexto);
+                for (int clientes : CLIENTES) {
+                    Resultado r = cargar(puerto, usuarioIds, clientes);
+                    VigilanteAnclajes vigilante = contexto.getBeanProvider(VigilanteAnclajes.class).getIfAvailable();
+                    informe.add(String.format("BENCHMARK hilos %-10s clientes=%-6d %8.1f pet/s  p50=%7.2f ms  p99=%8.2f ms  errores=%-5d heap pico=%5d MB  hilos plataforma pico=%-4d anclajes tx=%s",
+                            virtuales ? "virtuales" : "plataforma", clientes, r.peticionesPorSegundo(), r.p50Millis(), r.p99Millis(),
+                            r.errores(), r.heapPicoBytes() / (1024 * 1024), r.hilosPico(),
+                            vigilante == null ? "-" : String.valueOf(vigilante.anclajesTransaccionales())));
+                    assertTrue(r.exitos() > 0, "Alguna petición debería completarse");
+                }
+            }
+        }
+        informe.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext arrancar(boolean virtuales) {
+        String modo = virtuales ? "virtuales" : "plataforma";
+        // Como argumentos de línea de comandos para que prevalezcan sobre application.properties
+        return new SpringApplicationBuilder(EcomerceApplication.class).run(
+                "--spring.profiles.active=benchmark",
+                "--spring.datasource.url=jdbc:h2:mem:db_benchmark_hilos_" + modo + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "--spring.threads.virtual.enabled=" + virtuales,
+                "--server.port=0",
+                "--server.tomcat.max-connections=20000",
+                "--server.tomcat.accept-count=10000",
+                "--ecomerce.bulkheads.habilitado=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+    }
+
+    private static List<Long> preparar(ConfigurableApplicationContext contexto) {
+        UsuarioService usuarioService = contexto.getBean(UsuarioService.class);
+        InventarioService inventarioService = contexto.getBean(InventarioService.class);
+        CarritoService carritoService = contexto.getBean(CarritoService.class);
+        List<Long> productoIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            productoIds.add(inventarioService.guardar(
+                    new Inventario(null, "Producto hilos " + i, "Descripción " + i, 5.0 + i, 1_000_000, 0, null)).getId());
+        }
+        List<Long> usuarioIds = new ArrayList<>();
+        for (int u = 0; u < USUARIOS; u++) {
+            Usuario usuario = usuarioService.guardar(new Usuario(null, "Usuario", "Hilos " + u,
+                    "hilos" + u + "@example.com", "secreto", null, null, null, null, null));
+            for (int l = 0; l < 3; l++) {
+                carritoService.agregarProductoAlCarrito(usuario.getId(), productoIds.get((u + l) % productoIds.size()), 1);
+            }
+            usuarioIds.add(usuario.getId());
+        }
+        return usuarioIds;
+    }
+
+    private static Resultado cargar(int puerto, List<Long> usuarioIds, int clientes) throws InterruptedException {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        System.gc();
+
+        // Muestreo de memoria y de hilos de plataforma mientras dura la carga
+        AtomicBoolean midiendo = new AtomicBoolean(true);
+        AtomicLong heapPico = new AtomicLong();
+        AtomicInteger hilosPico = new AtomicInteger();
+        Thread muestreo = Thread.ofPlatform().daemon().start(() -> {
+            while (midiendo.get()) {
+                heapPico.accumulateAndGet(memoria.getHeapMemoryUsage().getUsed(), Math::max);
+                hilosPico.accumulateAndGet(hilos.getThreadCount(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        int total = clientes * PETICIONES_POR_CLIENTE;
+        long[] latenciasNanos = new long[total];
+        AtomicInteger exitos = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        long inicio;
+        // Los clientes son siempre hilos virtuales, para que el lado cliente no limite a ninguno de los dos modos
+        try (ExecutorService clientesExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .build()) {
+            for (int c = 0; c < clientes; c++) {
+                int cliente = c;
+                clientesExecutor.submit(() -> {
+                    salida.await();
+                    for (int p = 0; p < PETICIONES_POR_CLIENTE; p++) {
+                        Long usuarioId = usuarioIds.get((cliente + p) % usuarioIds.size());
+                        HttpRequest peticion = HttpRequest.newBuilder(
+                                        URI.create("http://localhost:" + puerto + "/api/carritos/" + usuarioId + "/resumen"))
+                                .timeout(Duration.ofSeconds(60))
+                                .GET().build();
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<Void> respuesta = http.send(peticion, HttpResponse.BodyHandlers.discarding());
+                            if (respuesta.statusCode() == 200) {
+                                exitos.incrementAndGet();
+                            } else {
+                                errores.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errores.incrementAndGet();
+                        }
+                        latenciasNanos[cliente * PETICIONES_POR_CLIENTE + p] = System.nanoTime() - t0;
+                    }
+                    return null;
+                });
+            }
+            inicio = System.nanoTime();
+            salida.countDown();
+            clientesExecutor.shutdown();
+            assertTrue(clientesExecutor.awaitTermination(10, TimeUnit.MINUTES), "El benchmark no terminó a tiempo");
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        midiendo.set(false);
+        muestreo.join();
+
+        Arrays.sort(latenciasNanos);
+        return new Resultado(exitos.get(), errores.get(), exitos.get() / segundos,
+                latenciasNanos[total / 2] / 1_000_000.0, latenciasNanos[(int) (total * 0.99)] / 1_000_000.0,
+                heapPico.get(), hilosPico.get());
+    }
+
+    private record Resultado(int exitos, int errores, double peticionesPorSegundo, double p50Millis, double p99Millis,
+                             long heapPicoBytes, int hilosPico) {
+    }
+}
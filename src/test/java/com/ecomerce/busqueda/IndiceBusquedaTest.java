@@ -0,0 +1,117 @@
+package com.ecomerce.busqueda;
+
+import com.ecomerce.model.Inventario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para IndiceBusqueda y AnalizadorTexto.
+ */
+public class IndiceBusquedaTest {
+
+    private static Inventario producto(long id, String nombre, String descripcion) {
+        return new Inventario(id, nombre, descripcion, 9.99, 10, 0, null);
+    }
+
+    private static IndiceBusqueda indice(Inventario... productos) {
+        return IndiceBusqueda.construir(List.of(productos), ForkJoinPool.commonPool());
+    }
+
+    private static List<Long> ids(List<IndiceBusqueda.Resultado> resultados) {
+        return resultados.stream().map(r -> r.producto().getId()).toList();
+    }
+
+    @Test
+    @DisplayName("Normaliza tildes, mayúsculas, palabras vacías y plurales")
+    void analizador() {
+        assertEquals(List.of("jabon", "natural", "botella", "flor", "luz", "dulce", "madre"),
+                AnalizadorTexto.tokenizar("Jabón NATURAL de las botellas, flores y luces; dulces para madres"));
+        assertTrue(AnalizadorTexto.tokenizar(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Encuentra sin distinguir tildes ni plurales y exige todos los términos")
+    void coincidencias() {
+        IndiceBusqueda indice = indice(
+                producto(1, "Jabón de lavanda", "Pastilla artesanal"),
+                producto(2, "Botella reutilizable", "Acero inoxidable"),
+                producto(3, "Jabón líquido", "Botella de vidrio"));
+
+        assertEquals(List.of(1L, 3L), ids(indice.buscar("jabon", 10)).stream().sorted().toList());
+        assertEquals(List.of(3L), ids(indice.buscar("JABONES botellas", 10)));
+        assertTrue(indice.buscar("jabón acero", 10).isEmpty());
+        assertTrue(indice.buscar("de la", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("La última palabra incompleta vale como prefijo")
+    void prefijos() {
+        IndiceBusqueda indice = indice(
+                producto(1, "Botella de vidrio", "Para agua"),
+                producto(2, "Botones de coco", "Para camisas"),
+                producto(3, "Cepillo de bambú", "Dental"));
+
+        assertEquals(List.of(1L, 2L), ids(indice.buscar("bot", 10)).stream().sorted().toList());
+        assertTrue(indice.buscar("b", 10).isEmpty(), "Una sola letra no se expande");
+    }
+
+    @Test
+    @DisplayName("El nombre pesa más que la descripción y la coincidencia exacta más que el prefijo")
+    void ranking() {
+        IndiceBusqueda indice = indice(
+                producto(1, "Cepillo de dientes", "Mango de bambú sostenible"),
+                producto(2, "Bambú natural", "Cepillo"),
+                producto(3, "Bambusa decorativa", "Planta"));
+
+        List<Long> resultado = ids(indice.buscar("bambu", 10));
+        assertEquals(List.of(2L, 1L, 3L), resultado);
+        assertEquals(List.of(2L), ids(indice.buscar("bambu", 1)));
+    }
+
+    @Test
+    @DisplayName("Actualizar y eliminar se reflejan en las búsquedas")
+    void actualizarYEliminar() {
+        IndiceBusqueda indice = indice(
+                producto(1, "Jabón de lavanda", "Pastilla"),
+                producto(2, "Champú sólido", "Pastilla"));
+
+        indice.actualizar(producto(1, "Jabón de romero", "Pastilla"));
+        assertTrue(indice.buscar("lavanda", 10).isEmpty());
+        assertEquals(List.of(1L), ids(indice.buscar("romero", 10)));
+
+        Inventario masBarato = producto(2, "Champú sólido", "Pastilla");
+        masBarato.setPrecio(4.5);
+        indice.actualizar(masBarato);
+        assertEquals(4.5, indice.buscar("champu", 10).get(0).producto().getPrecio());
+
+        indice.actualizar(producto(3, "Jabón de avena", "Nuevo"));
+        assertEquals(3, indice.numDocumentos());
+        indice.eliminar(1L);
+        assertEquals(List.of(3L), ids(indice.buscar("jabon", 10)));
+        assertEquals(2, indice.numDocumentos());
+    }
+
+    @Test
+    @DisplayName("La construcción en paralelo reparte el catálogo en tramos y une bien sus listas")
+    void construccionParalela() {
+        List<Inventario> productos = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            productos.add(producto(id, "Producto " + (id % 97) + " ecológico", "Lote " + (id % 13)));
+        }
+        IndiceBusqueda indice = IndiceBusqueda.construir(productos, ForkJoinPool.commonPool());
+
+        List<Long> esperados = LongStream.rangeClosed(1, 50_000)
+                .filter(id -> id % 97 == 42 && id % 13 == 5)
+                .boxed().toList();
+        assertEquals(50_000, indice.numDocumentos());
+        assertEquals(esperados, ids(indice.buscar("producto 42 lote 5", 1000)).stream().sorted().toList());
+        assertEquals(10, indice.buscar("ecologicos", 10).size());
+    }
+}
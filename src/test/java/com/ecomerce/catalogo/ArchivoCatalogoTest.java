@@ -0,0 +1,94 @@
+package com.ecomerce.catalogo;
+
+import com.ecomerce.model.Inventario;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para ArchivoCatalogo (foto binaria del catálogo).
+ */
+public class ArchivoCatalogoTest {
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directorio;
+
+    @BeforeAll
+    static void crearPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void cerrarPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Lo que se escribe se lee igual, en orden y con los campos nulos, repartido en varios bloques")
+    void escribirYLeer_conservaElContenido() throws IOException {
+        List<Inventario> productos = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            productos.add(new Inventario(id, "Jabón ecológico nº " + id, id % 7 == 0 ? null : "Descripción «" + id + "» ✓",
+                    id % 11 == 0 ? null : id * 0.5, (int) id, (int) (id % 3), id % 5 == 0 ? null : (int) id + 10));
+        }
+        Path archivo = directorio.resolve("catalogo.foto");
+
+        long bytes = ArchivoCatalogo.escribir(archivo, new ArchivoCatalogo.Contenido(productos, 42, 1_700_000_000_000L), 64);
+        ArchivoCatalogo.Contenido leido = ArchivoCatalogo.leer(archivo, pool);
+
+        assertEquals(bytes, Files.size(archivo));
+        assertEquals(42, leido.marcaCambios());
+        assertEquals(1_700_000_000_000L, leido.tomadaEnMillis());
+        assertEquals(productos, leido.productos()); // Inventario es @Data: compara todos los campos
+        try (var temporales = Files.list(directorio)) {
+            assertEquals(1, temporales.count(), "No deben quedar archivos temporales");
+        }
+    }
+
+    @Test
+    @DisplayName("Un catálogo vacío también es una foto válida")
+    void catalogoVacio() throws IOException {
+        Path archivo = directorio.resolve("vacio.foto");
+        ArchivoCatalogo.escribir(archivo, new ArchivoCatalogo.Contenido(List.of(), 0, 1), 64);
+        assertTrue(ArchivoCatalogo.leer(archivo, pool).productos().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Un archivo dañado, truncado o ajeno se rechaza con IOException")
+    void archivoNoValido_seRechaza() throws IOException {
+        List<Inventario> productos = List.of(new Inventario(1L, "Producto", "Descripción", 1.0, 5, 0, 5),
+                new Inventario(2L, "Otro", "Descripción", 2.0, 6, 0, 6));
+        Path archivo = directorio.resolve("catalogo.foto");
+        long bytes = ArchivoCatalogo.escribir(archivo, new ArchivoCatalogo.Contenido(productos, 1, 1), 1);
+
+        try (RandomAccessFile acceso = new RandomAccessFile(archivo.toFile(), "rw")) {
+            acceso.seek(bytes - 3);
+            acceso.write(acceso.read() ^ 0xFF); // Un bit cambiado en el último bloque
+        }
+        assertThrows(IOException.class, () -> ArchivoCatalogo.leer(archivo, pool));
+
+        ArchivoCatalogo.escribir(archivo, new ArchivoCatalogo.Contenido(productos, 1, 1), 1);
+        try (RandomAccessFile acceso = new RandomAccessFile(archivo.toFile(), "rw")) {
+            acceso.setLength(bytes - 10);
+        }
+        assertThrows(IOException.class, () -> ArchivoCatalogo.leer(archivo, pool));
+
+        Path ajeno = directorio.resolve("ajeno.foto");
+        Files.writeString(ajeno, "esto no es una foto del catálogo");
+        assertThrows(IOException.class, () -> ArchivoCatalogo.leer(ajeno, pool));
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecomerce.concurrencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para AlmacenIdempotencia.
+ */
+public class AlmacenIdempotenciaTest {
+
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    private ResponseEntity<String> operacion() {
+        return ResponseEntity.ok("respuesta " + ejecuciones.incrementAndGet());
+    }
+
+    @Test
+    @DisplayName("Una repetición con la misma clave devuelve la respuesta guardada sin ejecutar la operación")
+    void repeticion_devuelveRespuestaGuardada() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofMinutes(5));
+
+        ResponseEntity<String> primera = almacen.ejecutar("1:agregarItem:abc", "5:2", this::operacion);
+        ResponseEntity<String> repetida = almacen.ejecutar("1:agregarItem:abc", "5:2", this::operacion);
+
+        assertEquals(1, ejecuciones.get(), "La operación solo debe ejecutarse una vez");
+        assertEquals(primera.getBody(), repetida.getBody(), "La repetición debe recibir la respuesta original");
+        assertEquals("true", repetida.getHeaders().getFirst(AlmacenIdempotencia.CABECERA_REPETIDA));
+    }
+
+    @Test
+    @DisplayName("Sin clave de idempotencia la operación se ejecuta siempre")
+    void sinClave_ejecutaSiempre() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofMinutes(5));
+
+        almacen.ejecutar(AlmacenIdempotencia.clave(1L, "agregarItem", null), "5:2", this::operacion);
+        almacen.ejecutar(AlmacenIdempotencia.clave(1L, "agregarItem", " "), "5:2", this::operacion);
+
+        assertEquals(2, ejecuciones.get());
+        assertEquals(0, almacen.tamano());
+    }
+
+    @Test
+    @DisplayName("Una clave reutilizada con otros parámetros se rechaza con 422")
+    void claveReutilizada_conOtraHuella_seRechaza() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofMinutes(5));
+
+        almacen.ejecutar("1:agregarItem:abc", "5:2", this::operacion);
+        ResponseEntity<String> rechazada = almacen.ejecutar("1:agregarItem:abc", "7:1", this::operacion);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rechazada.getStatusCode());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Las entradas caducadas se vuelven a ejecutar")
+    void entradaCaducada_seVuelveAEjecutar() {
+        RelojAjustable reloj = new RelojAjustable();
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofSeconds(30), reloj);
+
+        almacen.ejecutar("1:vaciar:abc", "", this::operacion);
+        reloj.avanzar(Duration.ofSeconds(31));
+        almacen.ejecutar("1:vaciar:abc", "", this::operacion);
+
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("El almacén descarta las claves menos usadas al superar su tamaño máximo")
+    void almacenAcotado_descartaLasMasAntiguas() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(2, Duration.ofMinutes(5));
+
+        almacen.ejecutar("a", "", this::operacion);
+        almacen.ejecutar("b", "", this::operacion);
+        almacen.ejecutar("c", "", this::operacion);
+        almacen.ejecutar("a", "", this::operacion); // "a" fue desalojada: se ejecuta de nuevo
+
+        assertEquals(2, almacen.tamano());
+        assertEquals(4, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Si la operación falla, la clave se libera para permitir el reintento")
+    void operacionFallida_liberaLaClave() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofMinutes(5));
+
+        assertThrows(IllegalStateException.class, () -> almacen.ejecutar("x", "", () -> {
+            throw new IllegalStateException("fallo");
+        }));
+        almacen.ejecutar("x", "", this::operacion);
+
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Si la operación falla mientras una repetición espera, la repetición recibe el error original y la clave queda libre")
+    void operacionFallida_conRepeticionEsperando() throws Exception {
+        AlmacenIdempotencia almacen = new AlmacenIdempotencia(10, Duration.ofMinutes(5));
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch fallar = new CountDownLatch(1);
+        try (ExecutorService hilos = Executors.newFixedThreadPool(2)) {
+            Future<?> primera = hilos.submit(() -> almacen.ejecutar("y", "", () -> {
+                dentro.countDown();
+                try {
+                    fallar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("fallo");
+            }));
+            assertTrue(dentro.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<String>> repeticion = hilos.submit(() -> almacen.ejecutar("y", "", this::operacion));
+            Thread.sleep(100); // La repetición queda esperando a la primera
+            fallar.countDown();
+
+            ExecutionException error = assertThrows(ExecutionException.class, repeticion::get);
+            assertInstanceOf(IllegalStateException.class, error.getCause(), "Sin CompletionException de por medio");
+            assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, primera::get).getCause());
+        }
+        assertEquals(0, ejecuciones.get());
+        assertEquals("respuesta 1", almacen.ejecutar("y", "", this::operacion).getBody(), "La clave queda libre para el reintento");
+    }
+
+    // Reloj manual para controlar la caducidad sin esperar
+    private static class RelojAjustable extends Clock {
+        private Instant ahora = Instant.parse("2024-07-18T10:00:00Z");
+
+        void avanzar(Duration duracion) {
+            ahora = ahora.plus(duracion);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
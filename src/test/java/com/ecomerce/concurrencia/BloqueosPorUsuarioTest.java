@@ -0,0 +1,102 @@
+package com.ecomerce.concurrencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para BloqueosPorUsuario.
+ */
+public class BloqueosPorUsuarioTest {
+
+    @Test
+    @DisplayName("El número de franjas se redondea a potencia de dos y un mismo usuario cae siempre en la misma franja")
+    void mismoUsuario_mismaFranja() {
+        BloqueosPorUsuario bloqueos = new BloqueosPorUsuario(1000);
+        assertEquals(1024, bloqueos.numeroFranjas());
+        assertEquals(1, new BloqueosPorUsuario(1).numeroFranjas());
+
+        for (long usuarioId = 1; usuarioId <= 10_000; usuarioId++) {
+            int indice = bloqueos.indice(usuarioId);
+            assertTrue(indice >= 0 && indice < 1024);
+            assertEquals(indice, bloqueos.indice(usuarioId));
+            assertEquals(indice, new BloqueosPorUsuario(1000).indice(usuarioId), "La franja no depende de la instancia");
+        }
+    }
+
+    @Test
+    @DisplayName("Las operaciones de un mismo usuario se ejecutan de una en una")
+    void mismoUsuario_seSerializa() throws Exception {
+        BloqueosPorUsuario bloqueos = new BloqueosPorUsuario(16);
+        AtomicInteger enCurso = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        int[] contador = {0}; // Sin sincronización propia: solo cuadra si las operaciones no se solapan
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                tareas.add(hilos.submit(() -> {
+                    salida.await();
+                    for (int j = 0; j < 50; j++) {
+                        bloqueos.ejecutar(7L, () -> {
+                            maximo.accumulateAndGet(enCurso.incrementAndGet(), Math::max);
+                            int valor = contador[0];
+                            Thread.onSpinWait();
+                            contador[0] = valor + 1;
+                            enCurso.decrementAndGet();
+                            return null;
+                        });
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        }
+        assertEquals(1, maximo.get(), "Nunca debe haber dos operaciones del mismo usuario a la vez");
+        assertEquals(400, contador[0]);
+    }
+
+    @Test
+    @DisplayName("Un usuario en otra franja no espera, y el cerrojo es reentrante")
+    void otraFranja_noEspera_yReentrante() throws Exception {
+        BloqueosPorUsuario bloqueos = new BloqueosPorUsuario(16);
+        long otro = 2;
+        while (bloqueos.indice(otro) == bloqueos.indice(1L)) {
+            otro++;
+        }
+        long otroUsuario = otro;
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        try (ExecutorService hilos = Executors.newFixedThreadPool(2)) {
+            Future<?> ocupado = hilos.submit(() -> bloqueos.ejecutar(1L, () -> {
+                dentro.countDown();
+                try {
+                    return liberar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(dentro.await(5, TimeUnit.SECONDS));
+
+            Future<String> libre = hilos.submit(() -> bloqueos.ejecutar(otroUsuario, () -> "hecho"));
+            assertEquals("hecho", libre.get(5, TimeUnit.SECONDS), "El usuario de otra franja no debe esperar");
+            liberar.countDown();
+            ocupado.get();
+        }
+
+        assertEquals("anidada", bloqueos.ejecutar(1L, () -> bloqueos.ejecutar(1L, () -> "anidada")));
+    }
+}
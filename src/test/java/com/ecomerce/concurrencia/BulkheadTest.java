@@ -0,0 +1,71 @@
+package com.ecomerce.concurrencia;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para Bulkhead.
+ */
+public class BulkheadTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Sin cola, una petición por encima de la concurrencia se rechaza en el acto")
+    void sinCola_rechazaAlSuperarLaConcurrencia() {
+        Bulkhead bulkhead = new Bulkhead("prueba", 2, 0, Duration.ofSeconds(5));
+
+        assertTrue(bulkhead.intentarEntrar());
+        assertTrue(bulkhead.intentarEntrar());
+        long inicio = System.nanoTime();
+        assertFalse(bulkhead.intentarEntrar());
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(1), "No debe esperar con la cola llena");
+
+        assertEquals(2, bulkhead.enCurso());
+        assertEquals(1.0, bulkhead.saturacion());
+        assertEquals(1, bulkhead.rechazadas());
+    }
+
+    @Test
+    @DisplayName("Una petición en cola entra cuando se libera un turno")
+    void enCola_entraAlLiberarseUnTurno() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("prueba", 1, 1, Duration.ofSeconds(5));
+        assertTrue(bulkhead.intentarEntrar());
+
+        Future<Boolean> enEspera = executor.submit(bulkhead::intentarEntrar);
+        while (bulkhead.enCola() == 0) {
+            Thread.onSpinWait();
+        }
+        assertFalse(bulkhead.intentarEntrar(), "La cola (1) ya está ocupada");
+
+        bulkhead.salir();
+        assertTrue(enEspera.get(1, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.enCola());
+        assertEquals(1, bulkhead.enCurso());
+    }
+
+    @Test
+    @DisplayName("Si el turno no llega a tiempo, la petición se rechaza")
+    void esperaAgotada_rechaza() {
+        Bulkhead bulkhead = new Bulkhead("prueba", 1, 5, Duration.ofMillis(20));
+        assertTrue(bulkhead.intentarEntrar());
+
+        assertFalse(bulkhead.intentarEntrar());
+        assertEquals(1, bulkhead.rechazadas());
+        assertEquals(0, bulkhead.enCola());
+    }
+}
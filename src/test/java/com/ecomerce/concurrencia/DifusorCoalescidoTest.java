@@ -0,0 +1,102 @@
+package com.ecomerce.concurrencia;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para DifusorCoalescido.
+ */
+public class DifusorCoalescidoTest {
+
+    private final ScheduledExecutorService programador = Executors.newScheduledThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        programador.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Una ráfaga de cambios llega a todos los suscriptores como un único envío con el último valor")
+    void rafaga_seFundeEnUnEnvio() throws InterruptedException {
+        DifusorCoalescido<Integer> difusor = new DifusorCoalescido<>(programador, 200);
+        List<Integer> primero = new CopyOnWriteArrayList<>();
+        List<Integer> segundo = new CopyOnWriteArrayList<>();
+        difusor.suscribir(primero::add);
+        difusor.suscribir(segundo::add);
+
+        difusor.publicar(1); // Sin envíos previos: sale enseguida
+        esperarHasta(() -> primero.size() == 1);
+        for (int i = 2; i <= 100; i++) {
+            difusor.publicar(i);
+        }
+        esperarHasta(() -> primero.size() == 2);
+        Thread.sleep(400);
+
+        assertEquals(List.of(1, 100), primero);
+        assertEquals(List.of(1, 100), segundo);
+    }
+
+    @Test
+    @DisplayName("Respeta el intervalo entre envíos y no repite un valor ya enviado")
+    void intervaloYValoresRepetidos() throws InterruptedException {
+        DifusorCoalescido<Integer> difusor = new DifusorCoalescido<>(programador, 300);
+        List<Long> instantes = new CopyOnWriteArrayList<>();
+        List<Integer> valores = new CopyOnWriteArrayList<>();
+        difusor.suscribir(valor -> {
+            instantes.add(System.nanoTime());
+            valores.add(valor);
+        });
+
+        difusor.publicar(5);
+        esperarHasta(() -> valores.size() == 1);
+        difusor.publicar(6); // Dentro del intervalo: se funden con el siguiente
+        difusor.publicar(7);
+        esperarHasta(() -> valores.size() == 2);
+        difusor.publicar(8);
+        esperarHasta(() -> valores.size() == 3);
+        difusor.publicar(8); // Igual al último enviado: no se reenvía
+        Thread.sleep(500);
+
+        assertEquals(List.of(5, 7, 8), valores);
+        assertTrue(instantes.get(1) - instantes.get(0) >= 290_000_000L, "Dos envíos separados menos que el intervalo");
+        assertTrue(instantes.get(2) - instantes.get(1) >= 290_000_000L, "Dos envíos separados menos que el intervalo");
+    }
+
+    @Test
+    @DisplayName("Un suscriptor que falla se da de baja sin afectar a los demás")
+    void suscriptorQueFalla_seDaDeBaja() {
+        DifusorCoalescido<Integer> difusor = new DifusorCoalescido<>(programador, 0);
+        List<Integer> recibidos = new CopyOnWriteArrayList<>();
+        Consumer<Integer> roto = valor -> {
+            throw new IllegalStateException("Conexión cerrada");
+        };
+        difusor.suscribir(roto);
+        difusor.suscribir(recibidos::add);
+
+        difusor.publicar(1);
+        esperarHasta(() -> recibidos.size() == 1 && difusor.suscriptores() == 1);
+
+        difusor.publicar(2);
+        esperarHasta(() -> recibidos.size() == 2);
+        assertEquals(List.of(1, 2), recibidos);
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "Tiempo de espera agotado");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+}
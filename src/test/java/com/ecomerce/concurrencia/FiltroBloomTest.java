@@ -0,0 +1,56 @@
+package com.ecomerce.concurrencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para FiltroBloom.
+ */
+public class FiltroBloomTest {
+
+    @Test
+    @DisplayName("Nunca da falsos negativos, tampoco con varios hilos añadiendo a la vez")
+    void sinFalsosNegativos() throws Exception {
+        FiltroBloom filtro = new FiltroBloom(100_000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            IntStream.range(0, 4).forEach(hilo -> executor.execute(() -> {
+                for (int i = hilo; i < 100_000; i += 4) {
+                    filtro.agregar("usuario" + i + "@example.com");
+                }
+            }));
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filtro.podriaContener("usuario" + i + "@example.com"), "Falso negativo en el elemento " + i);
+        }
+        assertEquals(100_000, filtro.elementos());
+    }
+
+    @Test
+    @DisplayName("Con la capacidad prevista, la proporción de falsos positivos se mantiene cerca de la configurada")
+    void falsosPositivos_cercaDeLaConfigurada() {
+        FiltroBloom filtro = new FiltroBloom(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filtro.agregar("usuario" + i + "@example.com");
+        }
+
+        long falsosPositivos = IntStream.range(0, 100_000)
+                .filter(i -> filtro.podriaContener("otro" + i + "@example.org"))
+                .count();
+
+        assertTrue(falsosPositivos < 2_000, "Demasiados falsos positivos: " + falsosPositivos);
+        assertEquals(0.01, filtro.probabilidadFalsoPositivoEstimada(), 0.005);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecomerce.concurrencia;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para SingleFlight.
+ */
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Las lecturas simultáneas de la misma clave comparten una única carga")
+    void lecturasSimultaneas_compartenUnaCarga() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(executor);
+        AtomicInteger cargas = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> futuros = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futuros.add(singleFlight.ejecutar(7L, () -> {
+                cargas.incrementAndGet();
+                await(liberar); // La carga sigue "en vuelo" hasta que llegan todas las solicitudes
+                return "producto 7";
+            }));
+        }
+        liberar.countDown();
+
+        for (CompletableFuture<String> futuro : futuros) {
+            assertEquals("producto 7", futuro.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, cargas.get(), "Solo debe lanzarse una lectura real");
+        assertEquals(100, singleFlight.solicitudes());
+        assertEquals(1, singleFlight.lecturas());
+        assertEquals(0.99, singleFlight.ratioCoalescencia(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("Una vez terminada la lectura, la siguiente solicitud vuelve a leer")
+    void lecturaTerminada_noSeReutiliza() throws Exception {
+        SingleFlight<Long, Integer> singleFlight = new SingleFlight<>(executor);
+        AtomicInteger cargas = new AtomicInteger();
+
+        assertEquals(1, singleFlight.ejecutar(1L, cargas::incrementAndGet).get(5, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.ejecutar(1L, cargas::incrementAndGet).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Un error en la lectura se propaga a todos los que esperan y libera la clave")
+    void errorEnLectura_sePropagaYLiberaLaClave() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(executor);
+
+        CompletableFuture<String> fallida = singleFlight.ejecutar(3L, () -> {
+            throw new IllegalStateException("base de datos caída");
+        });
+        ExecutionException error = assertThrows(ExecutionException.class, () -> fallida.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+
+        assertEquals("ok", singleFlight.ejecutar(3L, () -> "ok").get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
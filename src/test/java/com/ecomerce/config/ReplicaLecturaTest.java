@@ -0,0 +1,131 @@
+package com.ecomerce.config;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.service.CambiosInventarioService;
+import com.ecomerce.service.InventarioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.SQLFeatureNotSupportedException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración del enrutado de lecturas a la réplica, con dos bases de datos H2 independientes
+ * (primaria y réplica). Como entre ellas no hay replicación real, las pruebas escriben a mano el latido
+ * y las filas en la réplica.
+ * Las regiones de caché llevan prefijo propio: el CacheManager de Ehcache se comparte entre todos los
+ * contextos de Spring de la JVM y la primaria de esta prueba reutiliza los IDs de las demás.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primaria_replica_test;DB_CLOSE_DELAY=-1",
+        "ecomerce.datasource.lectura.jdbc-url=jdbc:h2:mem:replica_test;DB_CLOSE_DELAY=-1",
+        "ecomerce.datasource.lectura.username=sa",
+        "ecomerce.datasource.lectura.retraso-max=5s",
+        "ecomerce.datasource.lectura.latido-ms=3600000",
+        "ecomerce.cambios-inventario.intervalo-ms=3600000", // Las lecturas del bus se lanzan a mano
+        "spring.jpa.properties.hibernate.cache.region_prefix=replica_lectura_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+public class ReplicaLecturaTest {
+
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private MonitorRetrasoReplica monitor;
+    @Autowired
+    private CambiosInventarioService cambiosInventario;
+    @Autowired
+    @Qualifier("dataSourcePrimaria")
+    private DataSource primaria;
+    @Autowired
+    @Qualifier("dataSourceLectura")
+    private DataSource lectura;
+
+    private JdbcTemplate jdbcPrimaria;
+    private JdbcTemplate jdbcReplica;
+
+    @BeforeEach
+    void setUp() {
+        jdbcPrimaria = new JdbcTemplate(primaria);
+        jdbcReplica = new JdbcTemplate(lectura);
+        jdbcReplica.execute("create table if not exists replica_latido (id int primary key, marca bigint not null)");
+        jdbcReplica.execute("create table if not exists inventario (id bigint primary key, nombre_producto varchar(255) not null, "
+                + "descripcion varchar(255) not null, precio float(53) not null, stock integer not null, unidades_vendidas integer not null, "
+                + "unidades_recibidas integer)");
+    }
+
+    @Test
+    @DisplayName("Con la réplica al día, las lecturas readOnly van a la réplica y las escrituras a la primaria")
+    void replicaAlDia_leeDeLaReplica() {
+        latidoEnReplica(System.currentTimeMillis());
+        insertar(jdbcReplica, 9001L, "Solo en la réplica");
+
+        assertTrue(monitor.isReplicaUtilizable());
+        assertTrue(inventarioService.obtenerPorId(9001L).isPresent(), "La lectura debería ir a la réplica");
+
+        Inventario guardado = inventarioService.guardar(new Inventario(null, "Escrito en la primaria", "Descripción", 1.0, 1, 0, null));
+        assertEquals(1, jdbcPrimaria.queryForObject("select count(*) from inventario where id = ?", Integer.class, guardado.getId()));
+        assertEquals(0, jdbcReplica.queryForObject("select count(*) from inventario where id = ?", Integer.class, guardado.getId()));
+    }
+
+    @Test
+    @DisplayName("Con la réplica retrasada, las lecturas readOnly vuelven a la primaria")
+    void replicaRetrasada_leeDeLaPrimaria() {
+        latidoEnReplica(System.currentTimeMillis() - 60_000); // Un minuto de retraso
+        insertar(jdbcReplica, 9002L, "Solo en la réplica 2");
+        insertar(jdbcPrimaria, 9003L, "Solo en la primaria");
+
+        assertFalse(monitor.isReplicaUtilizable());
+        assertTrue(monitor.getRetrasoMillis() >= 60_000);
+        assertTrue(inventarioService.obtenerPorId(9002L).isEmpty(), "No debería leerse de la réplica retrasada");
+        assertTrue(inventarioService.obtenerPorId(9003L).isPresent(), "La lectura debería ir a la primaria");
+    }
+
+    @Test
+    @DisplayName("Tras un cambio leído del bus, la caché se recarga de la primaria aunque la réplica aún tenga la fila antigua")
+    void cambioDelBus_recargaLaCacheDeLaPrimaria() {
+        latidoEnReplica(System.currentTimeMillis());
+        Inventario producto = inventarioService.guardar(new Inventario(null, "Cambiado en la primaria", "Descripción", 1.0, 5, 0, null));
+        insertar(jdbcReplica, producto.getId(), "Cambiado en la primaria"); // La réplica tiene la fila con stock 5
+        cambiosInventario.sondear();
+
+        // Otra instancia cambia el stock en la primaria; la réplica aún no lo tiene
+        jdbcPrimaria.update("update inventario set stock = 2 where id = ?", producto.getId());
+        jdbcPrimaria.update("insert into inventario_cambios (producto_id, fecha) values (?, current_timestamp)", producto.getId());
+        cambiosInventario.sondear();
+
+        assertTrue(monitor.isReplicaUtilizable());
+        assertEquals(2, inventarioService.obtenerPorId(producto.getId()).orElseThrow().getStock(),
+                "La lectura no debe volver a cachear la fila antigua de la réplica");
+    }
+
+    @Test
+    @DisplayName("getConnection con credenciales se delega al pool elegido y no marca la réplica como caída")
+    void conexionConCredenciales_seDelegaAlPool() {
+        latidoEnReplica(System.currentTimeMillis());
+        ReplicaLecturaDataSource enrutado = new ReplicaLecturaDataSource(primaria, lectura, monitor, new SimpleMeterRegistry());
+
+        // Hikari no admite credenciales por conexión: el error es el suyo, no un UnsupportedOperationException
+        assertThrows(SQLFeatureNotSupportedException.class, () -> enrutado.getConnection("sa", ""));
+        assertTrue(monitor.isReplicaUtilizable());
+    }
+
+    private void latidoEnReplica(long marca) {
+        jdbcReplica.update("merge into replica_latido (id, marca) key (id) values (1, ?)", marca);
+        monitor.comprobar();
+    }
+
+    private static void insertar(JdbcTemplate jdbc, Long id, String nombre) {
+        jdbc.update("insert into inventario (id, nombre_producto, descripcion, precio, stock, unidades_vendidas) "
+                + "values (?, ?, 'Descripción', 1.0, 5, 0)", id, nombre);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecomerce.controller;
+
+import com.ecomerce.assemblers.CarritoModelAssembler;
+import com.ecomerce.concurrencia.AlmacenIdempotencia;
+import com.ecomerce.concurrencia.BloqueosPorUsuario;
+import com.ecomerce.dto.CarritoLineaVista;
+import com.ecomerce.dto.CarritoVista;
+import com.ecomerce.service.CarritoService;
+import com.ecomerce.service.RecursoNoEncontradoException;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Clase de pruebas para CarritoController, con el CarritoService simulado.
+ */
+public class CarritoControllerTest {
+
+    private CarritoService carritoService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        carritoService = mock(CarritoService.class);
+        CarritoController controller = new CarritoController(carritoService, new CarritoModelAssembler(),
+                new AlmacenIdempotencia(100, Duration.ofMinutes(5)), new BloqueosPorUsuario(16));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private static CarritoVista carrito(long productoId, int cantidad) {
+        return new CarritoVista(10L, 1L, cantidad, cantidad * 5.0,
+                List.of(new CarritoLineaVista(productoId, "Producto " + productoId, 5.0, cantidad, cantidad * 5.0)));
+    }
+
+    @Test
+    @DisplayName("El cuerpo JSON de 'agregar producto' llega al servicio (productoId y cantidad)")
+    void agregarProducto_vinculaCuerpoJson() throws Exception {
+        when(carritoService.agregarProductoAlCarrito(1L, 5L, 2)).thenReturn(Optional.of(carrito(5, 2)));
+
+        mockMvc.perform(post("/api/carritos/1/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productoId\": 5, \"cantidad\": 2}"))
+                .andExpect(status().isOk());
+
+        verify(carritoService).agregarProductoAlCarrito(1L, 5L, 2);
+    }
+
+    @Test
+    @DisplayName("Agregar y actualizar responden con la vista del carrito y los enlaces de la línea, no con la entidad")
+    void cambiosDeItems_respondenConLaVista() throws Exception {
+        when(carritoService.agregarProductoAlCarrito(1L, 5L, 2)).thenReturn(Optional.of(carrito(5, 2)));
+        when(carritoService.actualizarCantidadProductoEnCarrito(1L, 5L, 3)).thenReturn(Optional.of(carrito(5, 3)));
+
+        mockMvc.perform(post("/api/carritos/1/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productoId\": 5, \"cantidad\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.carritoId").value(10))
+                .andExpect(jsonPath("$.items[0].productoId").value(5))
+                .andExpect(jsonPath("$.items[0].nombreProducto").value("Producto 5"))
+                .andExpect(jsonPath("$.items[0].producto").doesNotExist())
+                .andExpect(jsonPath("$.links[?(@.rel == 'eliminarItem')].href").value("http://localhost/api/carritos/1/items/5"));
+
+        mockMvc.perform(put("/api/carritos/1/items/5").param("nuevaCantidad", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cantidadItems").value(3))
+                .andExpect(jsonPath("$.items[0].cantidad").value(3));
+    }
+
+    @Test
+    @DisplayName("Un fallo transitorio no se guarda bajo la Idempotency-Key: el reintento con la misma clave se ejecuta")
+    void falloTransitorio_elReintentoSeEjecuta() throws Exception {
+        when(carritoService.agregarProductoAlCarrito(1L, 5L, 2))
+                .thenThrow(new CannotAcquireLockException("Tiempo de espera del bloqueo agotado"))
+                .thenReturn(Optional.of(carrito(5, 2)));
+
+        ServletException error = assertThrows(ServletException.class, () -> mockMvc.perform(agregar("clave-1")));
+        assertInstanceOf(CannotAcquireLockException.class, error.getCause(), "El fallo se propaga, no se convierte en 404");
+
+        mockMvc.perform(agregar("clave-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(AlmacenIdempotencia.CABECERA_REPETIDA))
+                .andExpect(jsonPath("$.cantidadItems").value(2));
+        verify(carritoService, times(2)).agregarProductoAlCarrito(1L, 5L, 2);
+    }
+
+    @Test
+    @DisplayName("Un producto inexistente responde 404 y la repetición con la misma clave recibe el mismo 404")
+    void productoInexistente_404Guardado() throws Exception {
+        when(carritoService.agregarProductoAlCarrito(1L, 5L, 2))
+                .thenThrow(new RecursoNoEncontradoException("Producto no encontrado con ID: 5"));
+
+        mockMvc.perform(agregar("clave-2")).andExpect(status().isNotFound());
+        mockMvc.perform(agregar("clave-2"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(AlmacenIdempotencia.CABECERA_REPETIDA, "true"));
+        verify(carritoService, times(1)).agregarProductoAlCarrito(1L, 5L, 2);
+    }
+
+    private static MockHttpServletRequestBuilder agregar(String idempotencyKey) {
+        return post("/api/carritos/1/items")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productoId\": 5, \"cantidad\": 2}")
+                .header(AlmacenIdempotencia.CABECERA, idempotencyKey);
+    }
+}
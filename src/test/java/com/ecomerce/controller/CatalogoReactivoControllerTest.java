@@ -0,0 +1,115 @@
+package com.ecomerce.controller;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.repository.InventarioReactivoRepository;
+import com.ecomerce.service.CatalogoReactivoService;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas para el catálogo reactivo, contra una base de datos H2 embebida (driver r2dbc-h2).
+ */
+public class CatalogoReactivoControllerTest {
+
+    private static final int PRODUCTOS = 50;
+
+    private CatalogoReactivoService catalogoReactivoService;
+    private WebTestClient cliente;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseClient databaseClient = DatabaseClient.create(H2ConnectionFactory.inMemory("catalogo_reactivo_test"));
+        databaseClient.sql("drop table if exists inventario").then().block();
+        databaseClient.sql("""
+                create table inventario (
+                    id bigint auto_increment primary key,
+                    nombre_producto varchar(255) not null unique,
+                    descripcion varchar(255) not null,
+                    precio double not null,
+                    stock integer not null,
+                    unidades_vendidas integer not null,
+                    unidades_recibidas integer)""").then().block();
+        for (int i = 1; i <= PRODUCTOS; i++) {
+            databaseClient.sql("insert into inventario (nombre_producto, descripcion, precio, stock, unidades_vendidas) "
+                            + "values (:nombre, 'Descripción', :precio, 10, 0)")
+                    .bind("nombre", "Producto " + i)
+                    .bind("precio", (double) i)
+                    .then().block();
+        }
+
+        catalogoReactivoService = new CatalogoReactivoService(new InventarioReactivoRepository(databaseClient), 8, 5);
+        cliente = WebTestClient.bindToRouterFunction(new CatalogoReactivoController(catalogoReactivoService).rutas()).build();
+    }
+
+    @Test
+    @DisplayName("El listado se emite en streaming (NDJSON) con todos los productos en orden de ID")
+    void listar_emiteNdjson() {
+        List<Inventario> productos = cliente.get().uri("/api/reactivo/inventario")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Inventario.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertNotNull(productos);
+        assertEquals(PRODUCTOS, productos.size());
+        assertEquals("Producto 1", productos.get(0).getNombreProducto());
+        assertEquals(0, productos.get(0).getUnidadesVendidas());
+    }
+
+    @Test
+    @DisplayName("El listado solo emite los productos que el consumidor pide")
+    void listar_respetaContrapresion() {
+        StepVerifier.create(catalogoReactivoService.listar(), 0)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(2)
+                .expectNextMatches(p -> p.getNombreProducto().equals("Producto 1"))
+                .expectNextMatches(p -> p.getNombreProducto().equals("Producto 2"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Obtener por ID devuelve el producto o 404")
+    void obtener_porId() {
+        cliente.get().uri("/api/reactivo/inventario/3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.nombre").isEqualTo("Producto 3")
+                .jsonPath("$.precio").isEqualTo(3.0);
+
+        cliente.get().uri("/api/reactivo/inventario/999").exchange().expectStatus().isNotFound();
+        cliente.get().uri("/api/reactivo/inventario/abc").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Obtener varios devuelve los productos encontrados y rechaza demasiados IDs")
+    void obtenerVarios() {
+        cliente.get().uri("/api/reactivo/inventario/varios?ids=5,2,999,2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].id").isEqualTo(2)
+                .jsonPath("$[1].id").isEqualTo(5);
+
+        cliente.get().uri("/api/reactivo/inventario/varios?ids=1,2,3,4,5,6").exchange().expectStatus().isBadRequest();
+        cliente.get().uri("/api/reactivo/inventario/varios").exchange().expectStatus().isBadRequest();
+    }
+}
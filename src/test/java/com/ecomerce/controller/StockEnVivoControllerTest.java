@@ -0,0 +1,134 @@
+package com.ecomerce.controller;
+
+import com.ecomerce.assemblers.InventarioModelAssembler;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.service.AjustesStockService;
+import com.ecomerce.service.BusquedaCatalogoService;
+import com.ecomerce.service.CatalogoSnapshotService;
+import com.ecomerce.service.InventarioModificadoEvento;
+import com.ecomerce.service.InventarioService;
+import com.ecomerce.service.StockEnVivoService;
+import com.ecomerce.service.TendenciasService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Clase de pruebas para el stock en vivo por SSE (StockEnVivoService a través de InventarioController),
+ * con el InventarioService simulado.
+ */
+public class StockEnVivoControllerTest {
+
+    private InventarioService inventarioService;
+    private StockEnVivoService stockEnVivo;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        inventarioService = mock(InventarioService.class);
+        stockEnVivo = new StockEnVivoService(inventarioService, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1), 3, 1);
+        InventarioController controller = new InventarioController(inventarioService, mock(InventarioModelAssembler.class),
+                mock(CatalogoSnapshotService.class), mock(BusquedaCatalogoService.class), stockEnVivo,
+                mock(TendenciasService.class), mock(AjustesStockService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockEnVivo.detener();
+    }
+
+    private static Inventario producto(long id, int stock) {
+        return new Inventario(id, "Producto " + id, "Descripción", 5.0, stock, 0, null);
+    }
+
+    @Test
+    @DisplayName("Envía el stock actual y después los cambios confirmados, fundiendo las ráfagas")
+    void stockActualYCambios() throws Exception {
+        when(inventarioService.obtenerPorIds(anyCollection())).thenReturn(List.of(producto(1, 10)));
+
+        MvcResult resultado = mockMvc.perform(get("/api/inventario/1/stock/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse respuesta = resultado.getResponse();
+        esperarHasta(() -> contenido(respuesta).contains("\"stock\":10"));
+
+        // El primer cambio sale enseguida; la ráfaga que le sigue cae dentro del intervalo
+        stockEnVivo.alModificarInventario(new InventarioModificadoEvento(1L, producto(1, 9)));
+        esperarHasta(() -> contenido(respuesta).contains("\"stock\":9"));
+        for (int stock = 8; stock >= 4; stock--) {
+            stockEnVivo.alModificarInventario(new InventarioModificadoEvento(1L, producto(1, stock)));
+        }
+        esperarHasta(() -> contenido(respuesta).contains("\"stock\":4"));
+        Thread.sleep(300);
+
+        String eventos = contenido(respuesta);
+        assertTrue(eventos.startsWith("event:stock\ndata:{\"productoId\":1,\"stock\":10}"), eventos);
+        assertEquals(3, eventos.split("event:stock").length - 1, "Los cambios de la ráfaga deberían llegar en un solo evento:\n" + eventos);
+    }
+
+    @Test
+    @DisplayName("Varios productos en una conexión; al eliminar el último observado se cierra el flujo")
+    void variosProductosYEliminado() throws Exception {
+        when(inventarioService.obtenerPorIds(anyCollection())).thenReturn(List.of(producto(1, 10), producto(2, 20)));
+
+        MvcResult resultado = mockMvc.perform(get("/api/inventario/stock/stream").param("ids", "1,2,99"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse respuesta = resultado.getResponse();
+        esperarHasta(() -> contenido(respuesta).contains("\"stock\":20"));
+
+        stockEnVivo.alModificarInventario(new InventarioModificadoEvento(1L, null));
+        stockEnVivo.alModificarInventario(new InventarioModificadoEvento(2L, null));
+        stockEnVivo.alModificarInventario(new InventarioModificadoEvento(99L, producto(99, 1))); // No existía: no se observa
+        esperarHasta(() -> contenido(respuesta).split("event:eliminado").length - 1 == 2);
+
+        String eventos = contenido(respuesta);
+        assertTrue(eventos.contains("event:eliminado\ndata:{\"productoId\":1,\"stock\":null}"), eventos);
+        assertFalse(eventos.contains("\"productoId\":99"), eventos);
+        resultado.getAsyncResult(1000); // El emisor se completa (si no, IllegalStateException por tiempo agotado)
+    }
+
+    @Test
+    @DisplayName("Producto inexistente: 404; demasiados productos: 400")
+    void erroresDeSuscripcion() throws Exception {
+        when(inventarioService.obtenerPorIds(anyCollection())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/inventario/7/stock/stream")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/inventario/stock/stream").param("ids", "1,2,3,4")).andExpect(status().isBadRequest());
+    }
+
+    private static String contenido(MockHttpServletResponse respuesta) {
+        try {
+            return respuesta.getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "Tiempo de espera agotado");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecomerce.controller;
+
+import com.ecomerce.assemblers.UsuarioModelAssembler;
+import com.ecomerce.model.Usuario;
+import com.ecomerce.service.LecturasCoalescidasService;
+import com.ecomerce.service.UsuarioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Clase de pruebas para el alta y el inicio de sesión de UsuarioController, con el UsuarioService simulado.
+ */
+public class UsuarioControllerTest {
+
+    private UsuarioService usuarioService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        usuarioService = mock(UsuarioService.class);
+        UsuarioController controller = new UsuarioController(usuarioService, new UsuarioModelAssembler(),
+                mock(LecturasCoalescidasService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    @DisplayName("El cuerpo JSON del alta llega al servicio y se responde 201")
+    void crear_vinculaCuerpoJson() throws Exception {
+        when(usuarioService.registrar(any(Usuario.class))).thenAnswer(invocacion -> {
+            Usuario usuario = invocacion.getArgument(0);
+            usuario.setId(7L);
+            return CompletableFuture.completedFuture(usuario);
+        });
+
+        MvcResult resultado = mockMvc.perform(post("/api/usuarios")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\": \"Ana\", \"apellido\": \"Díaz\", \"email\": \"ana@example.com\", \"password\": \"secreto\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isCreated());
+
+        ArgumentCaptor<Usuario> usuario = ArgumentCaptor.forClass(Usuario.class);
+        verify(usuarioService).registrar(usuario.capture());
+        assertEquals("ana@example.com", usuario.getValue().getEmail());
+        assertEquals("secreto", usuario.getValue().getPassword());
+    }
+
+    @Test
+    @DisplayName("El cuerpo JSON del inicio de sesión llega al servicio (email y contraseña)")
+    void login_vinculaCuerpoJson() throws Exception {
+        when(usuarioService.verificarCredenciales("ana@example.com", "secreto"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        MvcResult resultado = mockMvc.perform(post("/api/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"ana@example.com\", \"password\": \"secreto\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isUnauthorized());
+
+        verify(usuarioService).verificarCredenciales("ana@example.com", "secreto");
+    }
+}
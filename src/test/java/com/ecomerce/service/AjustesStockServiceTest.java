@@ -0,0 +1,162 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.AjusteStock;
+import com.ecomerce.dto.EstadoAjusteStock;
+import com.ecomerce.dto.InformeAjusteStock;
+import com.ecomerce.dto.ResultadoAjusteStock;
+import com.ecomerce.model.Inventario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de los ajustes de stock en lote.
+ * Base de datos propia y bloques de dos ajustes, para que el lote necesite varias transacciones.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ajustes_stock_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=ajustes_stock_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "ecomerce.inventario.ajustes.tamano-bloque=2",
+        "ecomerce.inventario.ajustes.max=10"})
+@ActiveProfiles("benchmark")
+public class AjustesStockServiceTest {
+
+    @Autowired
+    private AjustesStockService ajustesStock;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private ConciliacionInventarioService conciliacion;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private CambiosInventarioService cambiosInventario;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Aplica variaciones y stocks absolutos y devuelve el resultado de cada ajuste en el orden de la petición")
+    void ajustar_aplicaElLoteYDevuelveResultados() {
+        long uno = producto("Ajuste 1", 10);
+        long dos = producto("Ajuste 2", 10);
+        long tres = producto("Ajuste 3", 1);
+        inventarioService.obtenerPorId(uno); // En la caché de segundo nivel
+
+        InformeAjusteStock informe = ajustesStock.ajustar(List.of(
+                new AjusteStock(dos, null, 40),      // Absoluto
+                new AjusteStock(uno, 5, null),       // Variación
+                new AjusteStock(999_999L, 1, null),  // No existe
+                new AjusteStock(tres, -2, null),     // Dejaría el stock en negativo
+                new AjusteStock(uno, -3, null),      // Segundo ajuste del mismo producto, tras el primero
+                new AjusteStock(dos, 1, 1)));        // Los dos valores a la vez
+
+        List<ResultadoAjusteStock> resultados = informe.resultados();
+        assertEquals(3, informe.aplicados());
+        assertEquals(3, informe.rechazados());
+        assertEquals(new ResultadoAjusteStock(dos, EstadoAjusteStock.APLICADO, 40), resultados.get(0));
+        assertEquals(new ResultadoAjusteStock(uno, EstadoAjusteStock.APLICADO, 12), resultados.get(1));
+        assertEquals(new ResultadoAjusteStock(999_999L, EstadoAjusteStock.NO_ENCONTRADO, null), resultados.get(2));
+        assertEquals(new ResultadoAjusteStock(tres, EstadoAjusteStock.STOCK_INSUFICIENTE, 1), resultados.get(3));
+        assertEquals(new ResultadoAjusteStock(uno, EstadoAjusteStock.APLICADO, 12), resultados.get(4));
+        assertEquals(EstadoAjusteStock.INVALIDO, resultados.get(5).estado());
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(12, jdbc.queryForObject("select unidades_recibidas from inventario where id = ?", Integer.class, uno));
+        assertEquals(40, jdbc.queryForObject("select unidades_recibidas from inventario where id = ?", Integer.class, dos));
+        assertEquals(12, inventarioService.obtenerPorId(uno).orElseThrow().getStock(), "La caché no debe devolver el stock anterior");
+        assertEquals(0, conciliacion.conciliar(false).descuadres(), "Las unidades recibidas deben variar como el stock");
+    }
+
+    @Test
+    @DisplayName("Rechaza los lotes vacíos o mayores que el máximo")
+    void ajustar_rechazaLotesFueraDeLimites() {
+        assertThrows(IllegalArgumentException.class, () -> ajustesStock.ajustar(List.of()));
+        List<AjusteStock> demasiados = Collections.nCopies(11, new AjusteStock(1L, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> ajustesStock.ajustar(demasiados));
+    }
+
+    @Test
+    @DisplayName("Si el driver no da el número de filas (SUCCESS_NO_INFO), el resultado sale del stock leído en el bloque")
+    void ajustar_sinRecuentoDelDriver_calculaElResultado() {
+        long uno = producto("Ajuste sin recuento 1", 10);
+        long dos = producto("Ajuste sin recuento 2", 1);
+        DataSource sinRecuento = sinRecuentoDeFilas(dataSource);
+        AjustesStockService servicio = new AjustesStockService(sinRecuento, cambiosInventario, entityManagerFactory,
+                new DataSourceTransactionManager(sinRecuento), new SimpleMeterRegistry(), 2, 10);
+
+        InformeAjusteStock informe = servicio.ajustar(List.of(
+                new AjusteStock(uno, -3, null),
+                new AjusteStock(dos, -2, null),    // Dejaría el stock en negativo: la sentencia no toca ninguna fila
+                new AjusteStock(uno, 1, null)));
+
+        assertEquals(2, informe.aplicados());
+        assertEquals(new ResultadoAjusteStock(uno, EstadoAjusteStock.APLICADO, 8), informe.resultados().get(0));
+        assertEquals(new ResultadoAjusteStock(dos, EstadoAjusteStock.STOCK_INSUFICIENTE, 1), informe.resultados().get(1));
+        assertEquals(new ResultadoAjusteStock(uno, EstadoAjusteStock.APLICADO, 8), informe.resultados().get(2));
+    }
+
+    /**
+     * DataSource cuyos batch devuelven Statement.SUCCESS_NO_INFO en lugar del número de filas de cada sentencia,
+     * como algunos drivers (por ejemplo, MySQL con rewriteBatchedStatements).
+     */
+    private static DataSource sinRecuentoDeFilas(DataSource real) {
+        return new DelegatingDataSource(real) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection conexion = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, metodo, args) -> {
+                            Object resultado = invocar(conexion, metodo, args);
+                            return resultado instanceof PreparedStatement sentencia ? sinRecuento(sentencia) : resultado;
+                        });
+            }
+        };
+    }
+
+    private static PreparedStatement sinRecuento(PreparedStatement sentencia) {
+        return (PreparedStatement) Proxy.newProxyInstance(AjustesStockServiceTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, metodo, args) -> {
+                    Object resultado = invocar(sentencia, metodo, args);
+                    if (metodo.getName().equals("executeBatch")) {
+                        int[] filas = new int[((int[]) resultado).length];
+                        Arrays.fill(filas, Statement.SUCCESS_NO_INFO);
+                        return filas;
+                    }
+                    return resultado;
+                });
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long producto(String nombre, int stock) {
+        return inventarioService.guardar(new Inventario(null, nombre, "Descripción", 1.0, stock, 0, null)).getId();
+    }
+}
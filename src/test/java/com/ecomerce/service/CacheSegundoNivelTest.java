@@ -0,0 +1,110 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Carrito;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import com.ecomerce.repository.CarritoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de la caché de segundo nivel de Hibernate.
+ */
+@SpringBootTest
+@ActiveProfiles("benchmark")
+public class CacheSegundoNivelTest {
+
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private CarritoRepository carritoRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSource dataSource;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("Las lecturas repetidas de un producto salen de la caché y actualizarStock la mantiene al día")
+    void inventario_seCacheaYSeActualizaAlConfirmar() {
+        Inventario producto = inventarioService.guardar(new Inventario(null, "Producto caché", "Descripción", 4.0, 10, 0, null));
+        inventarioService.obtenerPorId(producto.getId()); // Asegura la entrada en la caché
+        estadisticas.clear();
+
+        assertEquals(10, inventarioService.obtenerPorId(producto.getId()).orElseThrow().getStock());
+        assertEquals(0, estadisticas.getPrepareStatementCount(), "La lectura debería salir de la caché");
+        assertTrue(estadisticas.getSecondLevelCacheHitCount() > 0);
+
+        inventarioService.actualizarStock(producto.getId(), -3);
+        estadisticas.clear();
+
+        assertEquals(7, inventarioService.obtenerPorId(producto.getId()).orElseThrow().getStock(),
+                "Tras confirmar, la caché no debe devolver el stock anterior");
+    }
+
+    @Test
+    @DisplayName("El carrito no se cachea: un cambio hecho por otra instancia se ve en la siguiente lectura")
+    void carrito_noSeCachea() {
+        Usuario usuario = usuarioService.guardar(new Usuario(null, "Ana", "Caché", "ana.cache@example.com", "secreto",
+                null, null, null, null, null));
+        Inventario producto = inventarioService.guardar(new Inventario(null, "Producto caché 2", "Descripción", 2.0, 10, 0, null));
+        carritoService.agregarProductoAlCarrito(usuario.getId(), producto.getId(), 1);
+        Long carritoId = carritoRepository.findByUsuarioId(usuario.getId()).orElseThrow().getId();
+        assertFalse(entityManagerFactory.getCache().contains(Carrito.class, carritoId));
+
+        // Como si otra instancia hubiera modificado el carrito
+        new JdbcTemplate(dataSource).update("update carritos set cantidad_items = 5 where usuario_id = ?", usuario.getId());
+        estadisticas.clear();
+
+        Optional<Carrito> carrito = carritoRepository.findByUsuarioId(usuario.getId());
+
+        assertEquals(5, carrito.orElseThrow().getCantidadItems().intValue());
+        assertEquals(0, estadisticas.getSecondLevelCacheHitCount());
+        assertTrue(estadisticas.getPrepareStatementCount() > 0, "El carrito debe leerse de la base de datos");
+    }
+
+    @Test
+    @DisplayName("El checkout desaloja de la caché solo los productos vendidos, no toda la región de inventario")
+    void checkout_desalojaSoloLosProductosVendidos() {
+        Usuario usuario = usuarioService.guardar(new Usuario(null, "Luis", "Caché", "luis.cache@example.com", "secreto",
+                null, null, null, null, null));
+        Inventario vendido = inventarioService.guardar(new Inventario(null, "Producto caché 3", "Descripción", 3.0, 10, 0, null));
+        Inventario otro = inventarioService.guardar(new Inventario(null, "Producto caché 4", "Descripción", 5.0, 10, 0, null));
+        carritoService.agregarProductoAlCarrito(usuario.getId(), vendido.getId(), 2);
+        inventarioService.obtenerPorId(vendido.getId()); // Asegura las entradas en la caché
+        inventarioService.obtenerPorId(otro.getId());
+        assertTrue(entityManagerFactory.getCache().contains(Inventario.class, otro.getId()));
+
+        pedidoService.realizarCheckout(usuario.getId());
+
+        assertFalse(entityManagerFactory.getCache().contains(Inventario.class, vendido.getId()));
+        assertTrue(entityManagerFactory.getCache().contains(Inventario.class, otro.getId()),
+                "Los productos que no están en el carrito deben seguir en la caché");
+        assertEquals(2, inventarioService.obtenerPorId(vendido.getId()).orElseThrow().getUnidadesVendidas());
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Inventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) del bus de invalidación entre instancias.
+ * La "otra instancia" se simula escribiendo directamente con JDBC, sin pasar por la caché de segundo nivel
+ * de esta: actualiza la fila del producto y añade su fila en inventario_cambios.
+ * Las regiones de caché llevan prefijo propio: el CacheManager de Ehcache se comparte entre todos los
+ * contextos de Spring de la JVM y esta prueba usa su propia base de datos (los mismos IDs, otras filas).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cambios_inventario_test;DB_CLOSE_DELAY=-1",
+        "ecomerce.cambios-inventario.intervalo-ms=3600000", // Las lecturas del bus se lanzan a mano
+        "spring.jpa.properties.hibernate.cache.region_prefix=cambios_inventario_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+public class CambiosInventarioServiceTest {
+
+    @Autowired
+    private CambiosInventarioService cambiosInventario;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        cambiosInventario.sondear(); // La primera lectura fija la marca de agua
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Las pruebas insertan IDs a mano: la columna identidad sigue después del mayor para las pruebas siguientes
+        long siguiente = jdbc.queryForObject("select coalesce(max(id), 0) + 1 from inventario_cambios", Long.class);
+        jdbc.execute("alter table inventario_cambios alter column id restart with " + siguiente);
+    }
+
+    @Test
+    @DisplayName("Un cambio escrito por otra instancia desaloja el producto de la caché local al leer el bus")
+    void cambioDeOtraInstancia_desalojaLaCache() {
+        Inventario producto = inventarioService.guardar(new Inventario(null, "Producto bus", "Descripción", 2.0, 10, 0, null));
+        cambiosInventario.sondear();
+        assertEquals(10, inventarioService.obtenerPorId(producto.getId()).orElseThrow().getStock()); // Queda en caché
+
+        jdbc.update("update inventario set stock = 4 where id = ?", producto.getId());
+        jdbc.update("insert into inventario_cambios (producto_id, fecha) values (?, current_timestamp)", producto.getId());
+        assertEquals(10, inventarioService.obtenerPorId(producto.getId()).orElseThrow().getStock(),
+                "Sin leer el bus, la caché local aún tiene el stock antiguo");
+
+        assertEquals(1, cambiosInventario.sondear());
+        assertEquals(4, inventarioService.obtenerPorId(producto.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("Un cambio confirmado tarde, con ID menor que la marca de agua, se procesa una sola vez")
+    void cambioConfirmadoTarde_seProcesaDentroDelMargen() {
+        Inventario primero = inventarioService.guardar(new Inventario(null, "Producto tardío 1", "Descripción", 2.0, 5, 0, null));
+        Inventario segundo = inventarioService.guardar(new Inventario(null, "Producto tardío 2", "Descripción", 2.0, 5, 0, null));
+        cambiosInventario.sondear();
+        long marca = jdbc.queryForObject("select max(id) from inventario_cambios", Long.class);
+
+        // La transacción con el ID mayor se confirma antes que la del ID menor
+        jdbc.update("insert into inventario_cambios (id, producto_id, fecha) values (?, ?, current_timestamp)", marca + 2, segundo.getId());
+        assertEquals(1, cambiosInventario.sondear());
+
+        inventarioService.obtenerPorId(primero.getId()); // Queda en caché
+        jdbc.update("update inventario set stock = 1 where id = ?", primero.getId());
+        jdbc.update("insert into inventario_cambios (id, producto_id, fecha) values (?, ?, current_timestamp)", marca + 1, primero.getId());
+
+        assertEquals(1, cambiosInventario.sondear(), "Solo el cambio tardío es nuevo");
+        assertEquals(1, inventarioService.obtenerPorId(primero.getId()).orElseThrow().getStock());
+        assertEquals(0, cambiosInventario.sondear());
+    }
+
+    @Test
+    @DisplayName("Muchos cambios confirmados tarde, por detrás de muchos más IDs nuevos, se procesan todos: el margen es de tiempo")
+    void muchosCambiosConfirmadosTarde_seProcesanTodos() {
+        int tardios = 150; // Más que el antiguo solape de 100 IDs
+        List<Long> productos = new ArrayList<>();
+        for (int i = 0; i < tardios; i++) {
+            productos.add(inventarioService.guardar(new Inventario(null, "Producto tardío masivo " + i, "Descripción", 2.0, 5, 0, null)).getId());
+        }
+        cambiosInventario.sondear();
+        long marca = jdbc.queryForObject("select max(id) from inventario_cambios", Long.class);
+
+        // Las transacciones con los IDs mayores se confirman antes: la marca de agua deja atrás los 150 IDs reservados
+        for (int i = 1; i <= 2 * tardios; i++) {
+            jdbc.update("insert into inventario_cambios (id, producto_id, fecha) values (?, ?, current_timestamp)",
+                    marca + tardios + i, productos.get(0));
+        }
+        assertEquals(2 * tardios, cambiosInventario.sondear());
+
+        for (int i = 0; i < tardios; i++) {
+            inventarioService.obtenerPorId(productos.get(i)); // Queda en caché
+            jdbc.update("update inventario set stock = 1 where id = ?", productos.get(i));
+            jdbc.update("insert into inventario_cambios (id, producto_id, fecha) values (?, ?, current_timestamp)",
+                    marca + 1 + i, productos.get(i));
+        }
+
+        assertEquals(tardios, cambiosInventario.sondear(), "Todos los cambios tardíos son nuevos");
+        for (Long producto : productos) {
+            assertEquals(1, inventarioService.obtenerPorId(producto).orElseThrow().getStock());
+        }
+        assertEquals(0, cambiosInventario.sondear());
+    }
+}
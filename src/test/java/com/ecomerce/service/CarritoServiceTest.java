@@ -0,0 +1,191 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.CarritoLineaVista;
+import com.ecomerce.dto.CarritoResumen;
+import com.ecomerce.dto.CarritoVista;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de la creación perezosa del carrito, de sus totales y su vista de lectura y de las reservas de stock simultáneas.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carrito_service_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=carrito_service_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+public class CarritoServiceTest {
+
+    private static final int PETICIONES = 8;
+
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private ConciliacionInventarioService conciliacion;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Las primeras peticiones simultáneas de un usuario nuevo obtienen todas el mismo carrito")
+    void primerasPeticionesSimultaneas_creanUnSoloCarrito() throws Exception {
+        Long usuarioId = usuarioService.guardar(new Usuario(null, "Ana", "Carrito", "ana.carrito@example.com",
+                "secreto", null, null, null, null, null)).getId();
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Long>> resultados = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newFixedThreadPool(PETICIONES)) {
+            for (int i = 0; i < PETICIONES; i++) {
+                boolean resumen = i % 2 == 0;
+                resultados.add(hilos.submit(() -> {
+                    salida.await();
+                    return resumen ? carritoService.obtenerResumenCarrito(usuarioId).carritoId()
+                            : carritoService.obtenerOcrearCarrito(usuarioId).getId();
+                }));
+            }
+            salida.countDown();
+            Set<Long> carritoIds = new HashSet<>();
+            for (Future<Long> resultado : resultados) {
+                carritoIds.add(resultado.get()); // Ninguna petición debe fallar
+            }
+            assertEquals(1, carritoIds.size(), "Todas las peticiones deberían ver el mismo carrito: " + carritoIds);
+        }
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from carritos where usuario_id = ?", Integer.class, usuarioId));
+        assertEquals(carritoService.obtenerOcrearCarrito(usuarioId).getId(),
+                carritoService.obtenerVistaCarrito(usuarioId).carritoId(), "El carrito creado por JDBC se lee después");
+    }
+
+    @Test
+    @DisplayName("Las reservas simultáneas de un mismo producto no pierden unidades ni superan el stock")
+    void reservasSimultaneas_noSobrevenden() throws Exception {
+        Long productoId = inventarioService.guardar(new Inventario(null, "Producto reservas", "Descripción", 3.0, 3, 0, null)).getId();
+        inventarioService.obtenerPorId(productoId); // La copia en caché queda desfasada en cuanto se reserve
+        List<Long> usuarioIds = new ArrayList<>();
+        for (int i = 0; i < PETICIONES; i++) {
+            usuarioIds.add(usuarioService.guardar(new Usuario(null, "Usuario", "Reservas " + i, "reservas" + i + "@example.com",
+                    "secreto", null, null, null, null, null)).getId());
+        }
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newFixedThreadPool(PETICIONES)) {
+            for (Long usuarioId : usuarioIds) {
+                resultados.add(hilos.submit(() -> {
+                    salida.await();
+                    return carritoService.agregarProductoAlCarrito(usuarioId, productoId, 1).isPresent();
+                }));
+            }
+            salida.countDown();
+            int confirmadas = 0;
+            for (Future<Boolean> resultado : resultados) {
+                confirmadas += resultado.get() ? 1 : 0;
+            }
+            assertEquals(3, confirmadas, "Solo hay stock para tres reservas");
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(0, jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, productoId));
+        assertEquals(3, jdbc.queryForObject("select sum(cantidad) from carrito_items where producto_id = ?", Integer.class, productoId));
+        assertEquals(0, conciliacion.conciliar(false).descuadres());
+    }
+
+    @Test
+    @DisplayName("La vista del carrito se construye con una sola consulta y es lo que devuelven los cambios de ítems")
+    void vistaCarrito_unaSolaConsulta() {
+        Long usuarioId = usuarioService.guardar(new Usuario(null, "Ana", "Vista", "ana.vista@example.com",
+                "secreto", null, null, null, null, null)).getId();
+        List<Long> productoIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            productoIds.add(inventarioService.guardar(new Inventario(null, "Producto vista " + i, "Descripción", 2.0 + i, 10, 0, null)).getId());
+        }
+        carritoService.agregarProductoAlCarrito(usuarioId, productoIds.get(0), 1);
+        carritoService.agregarProductoAlCarrito(usuarioId, productoIds.get(1), 2);
+        CarritoVista tras = carritoService.agregarProductoAlCarrito(usuarioId, productoIds.get(2), 1).orElseThrow();
+        assertEquals(3, tras.items().size(), "Agregar devuelve la vista completa del carrito");
+        assertEquals(4, tras.cantidadItems());
+        assertEquals(5, carritoService.actualizarCantidadProductoEnCarrito(usuarioId, productoIds.get(0), 2).orElseThrow().cantidadItems());
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        CarritoVista vista = carritoService.obtenerVistaCarrito(usuarioId);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount(), "Una sola consulta, sin cargas perezosas por línea");
+        assertEquals(List.of("Producto vista 0", "Producto vista 1", "Producto vista 2"),
+                vista.items().stream().map(CarritoLineaVista::nombreProducto).toList());
+        assertEquals(14.0, vista.subtotal(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Los totales incrementales siguen a cada cambio: agregar, actualizar, eliminar y vaciar")
+    void totalesIncrementales_cuadranConLosItems() {
+        Long usuarioId = usuarioService.guardar(new Usuario(null, "Ana", "Totales", "ana.totales@example.com",
+                "secreto", null, null, null, null, null)).getId();
+        Long a = inventarioService.guardar(new Inventario(null, "Producto totales A", "Descripción", 2.5, 10, 0, null)).getId();
+        Long b = inventarioService.guardar(new Inventario(null, "Producto totales B", "Descripción", 4.0, 10, 0, null)).getId();
+
+        carritoService.agregarProductoAlCarrito(usuarioId, a, 2);
+        assertTotales(usuarioId, 2, 5.0);
+        carritoService.agregarProductoAlCarrito(usuarioId, b, 1);
+        carritoService.agregarProductoAlCarrito(usuarioId, a, 1); // Producto ya en el carrito: suma unidades
+        assertTotales(usuarioId, 4, 11.5);
+        carritoService.actualizarCantidadProductoEnCarrito(usuarioId, b, 3);
+        assertTotales(usuarioId, 6, 19.5);
+        carritoService.actualizarCantidadProductoEnCarrito(usuarioId, a, 0); // Cantidad 0: se elimina la línea
+        assertTotales(usuarioId, 3, 12.0);
+        assertTrue(carritoService.eliminarProductoDelCarrito(usuarioId, b));
+        assertTotales(usuarioId, 0, 0.0);
+
+        carritoService.agregarProductoAlCarrito(usuarioId, a, 1);
+        carritoService.agregarProductoAlCarrito(usuarioId, b, 2);
+        assertTotales(usuarioId, 3, 10.5);
+        assertTrue(carritoService.vaciarCarrito(usuarioId));
+        assertTotales(usuarioId, 0, 0.0);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(10, jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, a));
+        assertEquals(10, jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, b));
+    }
+
+    /**
+     * Comprueba el resumen (totales incrementales) y que coincide con la suma de las líneas del carrito.
+     */
+    private void assertTotales(Long usuarioId, int unidades, double subtotal) {
+        CarritoResumen resumen = carritoService.obtenerResumenCarrito(usuarioId);
+        assertEquals(unidades, resumen.cantidadItems());
+        assertEquals(subtotal, resumen.subtotal(), 0.001);
+        CarritoVista vista = carritoService.obtenerVistaCarrito(usuarioId);
+        assertEquals(unidades, vista.items().stream().mapToInt(CarritoLineaVista::cantidad).sum());
+        assertEquals(subtotal, vista.items().stream().mapToDouble(CarritoLineaVista::totalLinea).sum(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Un usuario inexistente sigue dando 'Usuario no encontrado'")
+    void usuarioInexistente_lanzaExcepcion() {
+        RuntimeException error = assertThrows(RuntimeException.class, () -> carritoService.obtenerOcrearCarrito(999_999L));
+        assertEquals("Usuario no encontrado con ID: 999999", error.getMessage());
+        assertThrows(RuntimeException.class, () -> carritoService.obtenerResumenCarrito(999_999L));
+    }
+}
@@ -0,0 +1,106 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.CarritoResumen;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de la reparación de los totales de los carritos.
+ * Base de datos propia y bloques de dos carritos, para que la reparación necesite varias transacciones.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carrito_totales_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=carrito_totales_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "ecomerce.carritos.reparacion-totales.tamano-bloque=2"})
+@ActiveProfiles("benchmark")
+public class CarritoTotalesReparacionServiceTest {
+
+    @Autowired
+    private CarritoTotalesReparacionService reparacion;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Tras un cambio de precio, la reparación actualiza el precio guardado y los totales de los carritos afectados")
+    void cambioDePrecio_seReparaEnLosCarritosAfectados() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long caro = inventarioService.guardar(new Inventario(null, "Producto reparación 1", "Descripción", 2.0, 50, 0, null)).getId();
+        long fijo = inventarioService.guardar(new Inventario(null, "Producto reparación 2", "Descripción", 3.0, 50, 0, null)).getId();
+        List<Long> usuarios = usuarios("precio", 4);
+        for (int i = 0; i < 3; i++) { // El cuarto usuario solo tiene el producto cuyo precio no cambia
+            carritoService.agregarProductoAlCarrito(usuarios.get(i), caro, i + 1);
+        }
+        for (Long usuarioId : usuarios) {
+            carritoService.agregarProductoAlCarrito(usuarioId, fijo, 1);
+        }
+        reparacion.repararTotales(); // Parte de un estado limpio
+
+        jdbc.update("update inventario set precio = 2.5 where id = ?", caro);
+
+        assertEquals(3, reparacion.repararTotales(), "Solo se reparan los carritos con el producto que ha cambiado");
+        for (int i = 0; i < 3; i++) {
+            CarritoResumen resumen = carritoService.obtenerResumenCarrito(usuarios.get(i));
+            assertEquals(i + 2, resumen.cantidadItems());
+            assertEquals((i + 1) * 2.5 + 3.0, resumen.subtotal(), 0.001);
+        }
+        assertEquals(3.0, carritoService.obtenerResumenCarrito(usuarios.get(3)).subtotal(), 0.001);
+        assertEquals(0, jdbc.queryForObject("select count(*) from carrito_items where producto_id = ? "
+                + "and precio_unitario_en_momento_de_adicion <> 2.5", Integer.class, caro));
+
+        // Los cambios posteriores parten de los totales reparados
+        carritoService.agregarProductoAlCarrito(usuarios.get(0), caro, 1);
+        assertEquals(2 * 2.5 + 3.0, carritoService.obtenerResumenCarrito(usuarios.get(0)).subtotal(), 0.001);
+        assertEquals(0, reparacion.repararTotales());
+    }
+
+    @Test
+    @DisplayName("Unas unidades o un subtotal descuadrados se recalculan aunque los precios no hayan cambiado")
+    void totalesDescuadrados_seRecalculan() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long producto = inventarioService.guardar(new Inventario(null, "Producto descuadre", "Descripción", 4.0, 50, 0, null)).getId();
+        List<Long> usuarios = usuarios("descuadre", 2);
+        for (Long usuarioId : usuarios) {
+            carritoService.agregarProductoAlCarrito(usuarioId, producto, 2);
+        }
+        reparacion.repararTotales();
+
+        jdbc.update("update carritos set cantidad_items = 99 where usuario_id = ?", usuarios.get(0));
+        jdbc.update("update carritos set subtotal = 1.0 where usuario_id = ?", usuarios.get(1));
+
+        assertEquals(2, reparacion.repararTotales());
+        for (Long usuarioId : usuarios) {
+            CarritoResumen resumen = carritoService.obtenerResumenCarrito(usuarioId);
+            assertEquals(2, resumen.cantidadItems());
+            assertEquals(8.0, resumen.subtotal(), 0.001);
+        }
+        assertEquals(0, reparacion.repararTotales());
+    }
+
+    private List<Long> usuarios(String prefijo, int numero) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < numero; i++) {
+            ids.add(usuarioService.guardar(new Usuario(null, "Usuario", "Reparación " + i, prefijo + i + "@example.com",
+                    "secreto", null, null, null, null, null)).getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecomerce.service;
+
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de la limpieza de carritos abandonados.
+ * Base de datos propia y bloques de dos carritos, para que la limpieza necesite varias transacciones.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carritos_abandonados_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=carritos_abandonados_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "ecomerce.carritos.limpieza.tamano-bloque=2",
+        "ecomerce.carritos.limpieza.carritos-por-segundo=0"})
+@ActiveProfiles("benchmark")
+public class CarritosAbandonadosServiceTest {
+
+    @Autowired
+    private CarritosAbandonadosService limpieza;
+    @Autowired
+    private ConciliacionInventarioService conciliacion;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Elimina por bloques los carritos inactivos, devuelve su stock y no toca los carritos recientes")
+    void limpiar_eliminaAbandonadosYDevuelveStock() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long uno = inventarioService.guardar(new Inventario(null, "Producto limpieza 1", "Descripción", 1.0, 20, 0, null)).getId();
+        long dos = inventarioService.guardar(new Inventario(null, "Producto limpieza 2", "Descripción", 2.0, 20, 0, null)).getId();
+        List<Long> usuarios = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            usuarios.add(usuarioService.guardar(new Usuario(null, "Usuario", "Limpieza " + i, "limpieza" + i + "@example.com",
+                    "secreto", null, null, null, null, null)).getId());
+        }
+        for (int i = 0; i < 4; i++) { // El quinto usuario tiene un carrito vacío
+            carritoService.agregarProductoAlCarrito(usuarios.get(i), uno, 2);
+            carritoService.agregarProductoAlCarrito(usuarios.get(i), dos, 1);
+        }
+        carritoService.obtenerOcrearCarrito(usuarios.get(4));
+        assertEquals(12, stock(jdbc, uno));
+        assertEquals(16, stock(jdbc, dos));
+
+        // Abandonados: los tres primeros carritos con productos y el vacío
+        Timestamp haceUnMes = Timestamp.valueOf(LocalDateTime.now().minusDays(30));
+        for (Long usuario : List.of(usuarios.get(0), usuarios.get(1), usuarios.get(2), usuarios.get(4))) {
+            jdbc.update("update carritos set fecha_actualizacion = ? where usuario_id = ?", haceUnMes, usuario);
+        }
+
+        assertEquals(4, limpieza.limpiar());
+
+        assertEquals(1, jdbc.queryForObject("select count(*) from carritos", Integer.class));
+        assertEquals(2, jdbc.queryForObject("select count(*) from carrito_items", Integer.class));
+        assertEquals(18, stock(jdbc, uno));
+        assertEquals(19, stock(jdbc, dos));
+        assertEquals(0, conciliacion.conciliar(false).descuadres(), "El stock devuelto debe cuadrar con lo recibido");
+        assertEquals(0, limpieza.limpiar(), "Una segunda pasada no encuentra nada");
+
+        // El usuario de un carrito eliminado empieza con uno nuevo y vacío
+        assertEquals(0, carritoService.obtenerResumenCarrito(usuarios.get(0)).cantidadItems());
+    }
+
+    @Test
+    @DisplayName("La búsqueda de carritos inactivos recorre el índice de fecha de actualización")
+    void busquedaDeInactivos_usaElIndice() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        String plan = jdbc.queryForObject("explain select c.id from carritos c where c.fecha_actualizacion < current_timestamp "
+                + "order by c.fecha_actualizacion, c.id fetch first 200 rows only", String.class);
+        assertTrue(plan.toUpperCase().contains("IDX_CARRITOS_FECHA_ACTUALIZACION_ID"), plan);
+    }
+
+    private static int stock(JdbcTemplate jdbc, long id) {
+        return jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecomerce.service;
+
+import com.ecomerce.catalogo.ArchivoCatalogo;
+import com.ecomerce.model.Inventario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) del arranque en caliente del catálogo desde la foto en disco.
+ * Base de datos y archivo propios.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalogo_en_disco_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=catalogo_en_disco_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "ecomerce.catalogo.disco.habilitado=true",
+        "ecomerce.catalogo.disco.archivo=" + CatalogoEnDiscoServiceTest.ARCHIVO})
+@ActiveProfiles("benchmark")
+public class CatalogoEnDiscoServiceTest {
+
+    static final String ARCHIVO = "target/catalogo-en-disco-test/catalogo.foto";
+
+    @Autowired
+    private CatalogoEnDiscoService catalogoEnDisco;
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Test
+    @DisplayName("Parte de la foto en disco y relee de la base de datos solo los productos cambiados después")
+    void cargar_aplicaLosCambiosPosterioresALaFoto() throws Exception {
+        long igual = producto("Sin cambios", 10);
+        long modificado = producto("Modificado", 10);
+        long eliminado = producto("Eliminado", 10);
+        catalogoEnDisco.guardar();
+        assertTrue(ids(leerArchivo().productos()).containsAll(List.of(igual, modificado, eliminado)));
+
+        inventarioService.recibirStock(modificado, 5);
+        inventarioService.eliminar(eliminado);
+        long nuevo = producto("Nuevo", 3);
+
+        CatalogoEnDiscoService.CatalogoCargado cargado = catalogoEnDisco.cargar();
+
+        assertTrue(cargado.desdeDisco());
+        Map<Long, Inventario> porId = cargado.productos().stream()
+                .collect(Collectors.toMap(Inventario::getId, Function.identity()));
+        assertEquals(10, porId.get(igual).getStock());
+        assertEquals(15, porId.get(modificado).getStock());
+        assertFalse(porId.containsKey(eliminado));
+        assertEquals(3, porId.get(nuevo).getStock());
+        assertEquals(ids(inventarioService.obtenerTodos()), ids(cargado.productos()), "Mismo catálogo y en orden de ID");
+    }
+
+    @Test
+    @DisplayName("Una foto demasiado antigua o dañada se descarta y se lee todo el catálogo")
+    void cargar_descartaFotosNoValidas() throws Exception {
+        producto("Cualquiera", 1);
+        Path archivo = Path.of(ARCHIVO);
+        ArchivoCatalogo.escribir(archivo, new ArchivoCatalogo.Contenido(List.of(), 0, 0), 16); // Tomada en 1970
+
+        CatalogoEnDiscoService.CatalogoCargado antigua = catalogoEnDisco.cargar();
+        assertFalse(antigua.desdeDisco());
+        assertEquals(inventarioService.obtenerTodos().size(), antigua.productos().size());
+        assertEquals(antigua.productos().size(), leerArchivo().productos().size(), "Se vuelve a escribir una foto válida");
+
+        Files.writeString(archivo, "dañada");
+        assertFalse(catalogoEnDisco.cargar().desdeDisco());
+        assertTrue(catalogoEnDisco.cargar().desdeDisco());
+    }
+
+    @Test
+    @DisplayName("La carga del arranque se comparte entre sus consumidores y después se suelta")
+    void cargaDelArranque_seComparteYSeSuelta() {
+        CatalogoEnDiscoService.CatalogoCargado primera = catalogoEnDisco.cargarAlArrancar();
+        assertSame(primera, catalogoEnDisco.cargarAlArrancar());
+
+        catalogoEnDisco.soltarCargaDelArranque();
+
+        assertNotSame(primera, catalogoEnDisco.cargarAlArrancar(), "Una vez soltada, no se retiene");
+        catalogoEnDisco.soltarCargaDelArranque();
+    }
+
+    private long producto(String nombre, int stock) {
+        return inventarioService.guardar(new Inventario(null, nombre, "Descripción", 1.0, stock, 0, null)).getId();
+    }
+
+    private static ArchivoCatalogo.Contenido leerArchivo() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            return ArchivoCatalogo.leer(Path.of(ARCHIVO), pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<Long> ids(List<Inventario> productos) {
+        return productos.stream().map(Inventario::getId).toList();
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.OrdenCatalogo;
+import com.ecomerce.dto.PaginaCatalogo;
+import com.ecomerce.model.Inventario;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de los listados filtrados y ordenados del catálogo:
+ * que la paginación por clave recorre exactamente los productos esperados, en orden y sin repetir,
+ * y que el plan de cada consulta es un recorrido de rango del índice compuesto ya ordenado (sin ordenar
+ * en memoria ni recorrer la tabla entera), de modo que una página cueste lo mismo con millones de productos.
+ * Base de datos y regiones de caché propias: los datos de las demás pruebas no alteran los resultados esperados.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalogo_filtrado_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ecomerce.service.CatalogoFiltradoTest$UltimaSentencia",
+        "spring.jpa.properties.hibernate.cache.region_prefix=catalogo_filtrado_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CatalogoFiltradoTest {
+
+    private static final int PRODUCTOS = 20_000;
+
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+    private List<Inventario> catalogo;
+
+    /** Guarda la última sentencia SQL que Hibernate envía a la base de datos, para pedir su plan. */
+    public static class UltimaSentencia implements StatementInspector {
+        static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            UltimaSentencia.sql = sql;
+            return sql;
+        }
+    }
+
+    @BeforeAll
+    void cargarCatalogo() {
+        jdbc = new JdbcTemplate(dataSource);
+        Random random = new Random(7);
+        catalogo = new ArrayList<>(PRODUCTOS);
+        for (long id = 1; id <= PRODUCTOS; id++) {
+            // Pocos precios y stocks distintos: muchos empates, que es donde la paginación por clave puede fallar
+            double precio = 1 + random.nextInt(40) * 0.5;
+            int stock = random.nextInt(5) == 0 ? 0 : random.nextInt(30);
+            catalogo.add(new Inventario(id, "Producto filtrado " + id, "Descripción", precio, stock, 0, null));
+        }
+        jdbc.batchUpdate("insert into inventario (id, nombre_producto, descripcion, precio, stock, unidades_vendidas) "
+                + "values (?, ?, ?, ?, ?, 0)", catalogo, 1000, (ps, p) -> {
+            ps.setLong(1, p.getId());
+            ps.setString(2, p.getNombreProducto());
+            ps.setString(3, p.getDescripcion());
+            ps.setDouble(4, p.getPrecio());
+            ps.setInt(5, p.getStock());
+        });
+        jdbc.execute("analyze"); // Estadísticas para el optimizador, como en una base de datos real con datos
+    }
+
+    @Test
+    @DisplayName("Precio ascendente con rango y solo con stock: recorre todas las páginas sin saltos ni repeticiones")
+    void precioAscendente_conFiltros() {
+        List<Long> obtenidos = recorrer(5.0, 12.0, true, OrdenCatalogo.PRECIO_ASC, 37);
+        List<Long> esperados = esperados(p -> p.getPrecio() >= 5.0 && p.getPrecio() <= 12.0 && p.getStock() > 0,
+                Comparator.comparing(Inventario::getPrecio).thenComparing(Inventario::getId));
+        assertEquals(esperados, obtenidos);
+    }
+
+    @Test
+    @DisplayName("Precio descendente, stock ascendente y descendente: mismo resultado que ordenar en memoria")
+    void otrosOrdenes() {
+        assertEquals(esperados(p -> p.getPrecio() <= 8.0,
+                        Comparator.comparing(Inventario::getPrecio).thenComparing(Inventario::getId).reversed()),
+                recorrer(null, 8.0, false, OrdenCatalogo.PRECIO_DESC, 50));
+        assertEquals(esperados(p -> p.getStock() > 0,
+                        Comparator.comparing(Inventario::getStock).thenComparing(Inventario::getId)),
+                recorrer(null, null, true, OrdenCatalogo.STOCK_ASC, 100));
+        assertEquals(esperados(p -> p.getPrecio() >= 15.0,
+                        Comparator.comparing(Inventario::getStock).thenComparing(Inventario::getId).reversed()),
+                recorrer(15.0, null, false, OrdenCatalogo.STOCK_DESC, 100));
+    }
+
+    @Test
+    @DisplayName("Cada orden se resuelve con un recorrido de rango de su índice, ya ordenado")
+    void planes_usanElIndiceCompuesto() {
+        String cursorPrecio = inventarioService.listarPagina(5.0, 12.0, true, OrdenCatalogo.PRECIO_ASC, null, 10).siguiente();
+        String cursorStock = inventarioService.listarPagina(null, null, false, OrdenCatalogo.STOCK_DESC, null, 10).siguiente();
+
+        assertPlan("IDX_INVENTARIO_PRECIO_ID", () -> inventarioService.listarPagina(5.0, 12.0, true, OrdenCatalogo.PRECIO_ASC, cursorPrecio, 10));
+        assertPlan("IDX_INVENTARIO_PRECIO_ID", () -> inventarioService.listarPagina(null, 12.0, false, OrdenCatalogo.PRECIO_DESC, null, 10));
+        assertPlan("IDX_INVENTARIO_STOCK_ID", () -> inventarioService.listarPagina(null, null, true, OrdenCatalogo.STOCK_ASC, null, 10));
+        assertPlan("IDX_INVENTARIO_STOCK_ID", () -> inventarioService.listarPagina(null, null, false, OrdenCatalogo.STOCK_DESC, cursorStock, 10));
+    }
+
+    @Test
+    @DisplayName("Un cursor manipulado o un rango invertido se rechazan")
+    void parametrosNoValidos() {
+        assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.listarPagina(null, null, false, OrdenCatalogo.PRECIO_ASC, "abc", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.listarPagina(null, null, false, OrdenCatalogo.STOCK_ASC, "1.5_x", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.listarPagina(10.0, 5.0, false, OrdenCatalogo.PRECIO_ASC, null, 10));
+    }
+
+    private List<Long> recorrer(Double precioMin, Double precioMax, boolean soloConStock, OrdenCatalogo orden, int limite) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaCatalogo pagina = inventarioService.listarPagina(precioMin, precioMax, soloConStock, orden, cursor, limite);
+            assertTrue(pagina.productos().size() <= limite);
+            pagina.productos().forEach(p -> ids.add(p.getId()));
+            cursor = pagina.siguiente();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Long> esperados(Predicate<Inventario> filtro, Comparator<Inventario> orden) {
+        return catalogo.stream().filter(filtro).sorted(orden).map(Inventario::getId).toList();
+    }
+
+    /**
+     * Ejecuta la lectura, toma la sentencia que generó Hibernate y comprueba su plan en H2:
+     * el recorrido va por el índice indicado, con condiciones sobre la clave (rango, no tabla entera),
+     * y el resultado sale ordenado del índice ("index sorted"), sin ordenar todas las filas que cumplen el filtro.
+     */
+    private void assertPlan(String indice, Runnable lectura) {
+        lectura.run();
+        String sql = UltimaSentencia.sql;
+        String plan = jdbc.execute((java.sql.Connection conexion) -> {
+            try (PreparedStatement explain = conexion.prepareStatement("explain " + sql)) {
+                int parametros = explain.getParameterMetaData().getParameterCount();
+                IntStream.rangeClosed(1, parametros).forEach(i -> {
+                    try {
+                        explain.setObject(i, 1); // Los valores no cambian el plan elegido para la consulta preparada
+                    } catch (java.sql.SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                try (ResultSet rs = explain.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+        assertNotNull(plan);
+        String planMayusculas = plan.toUpperCase();
+        assertTrue(planMayusculas.contains(indice + ":"), "Debería recorrer " + indice + " por rango:\n" + plan);
+        assertTrue(planMayusculas.contains("INDEX SORTED"), "El orden debería salir del índice:\n" + plan);
+    }
+}
@@ -0,0 +1,184 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.LecturaCatalogo;
+import com.ecomerce.model.Inventario;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Clase de pruebas unitarias para CatalogoSnapshotService, con la base de datos simulada.
+ * Las tareas en segundo plano se guardan en una lista y se ejecutan a mano.
+ */
+public class CatalogoSnapshotServiceTest {
+
+    private static final long LATENCIA_MAX_MS = 50;
+
+    private InventarioService inventarioService;
+    private LecturasCoalescidasService lecturasCoalescidas;
+    private final List<Runnable> tareas = new ArrayList<>();
+    private CatalogoSnapshotService catalogo;
+
+    @BeforeEach
+    void setUp() {
+        inventarioService = mock(InventarioService.class);
+        lecturasCoalescidas = mock(LecturasCoalescidasService.class);
+        catalogo = new CatalogoSnapshotService(inventarioService, mock(CatalogoEnDiscoService.class), lecturasCoalescidas,
+                tareas::add, List.of(), new SimpleMeterRegistry(), true, LATENCIA_MAX_MS, LATENCIA_MAX_MS, 5, 0);
+        catalogo.reemplazarFoto(List.of(producto(1, 10), producto(2, 20)), System.currentTimeMillis());
+    }
+
+    private static Inventario producto(long id, int stock) {
+        return new Inventario(id, "Producto " + id, "Descripción", 1.0, stock, 0, null);
+    }
+
+    private void ejecutarTareas() {
+        List<Runnable> pendientes = new ArrayList<>(tareas);
+        tareas.clear();
+        pendientes.forEach(Runnable::run);
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("Un listado lento activa el modo degradado; se sale cuando el sondeo por clave primaria vuelve a ser rápido")
+    void listadoLento_entraYSaleDelModoDegradado() {
+        when(inventarioService.obtenerTodos()).thenAnswer(invocacion -> {
+            dormir(LATENCIA_MAX_MS * 8); // La media (EWMA) supera el umbral con una sola lectura lenta
+            return List.of(producto(1, 10), producto(2, 20));
+        });
+        assertFalse(catalogo.listar().obsoleta());
+        assertFalse(catalogo.isDegradado());
+
+        LecturaCatalogo<List<Inventario>> obsoleta = catalogo.listar();
+        assertTrue(obsoleta.obsoleta());
+        assertEquals(2, obsoleta.valor().size());
+        assertTrue(catalogo.isDegradado());
+        verify(inventarioService, times(1)).obtenerTodos(); // En modo degradado no se vuelve a leer todo el catálogo
+
+        // Sondeo lento: sigue degradado
+        when(inventarioService.existe(anyLong())).thenAnswer(invocacion -> {
+            dormir(LATENCIA_MAX_MS * 2);
+            return true;
+        });
+        ejecutarTareas();
+        verify(inventarioService).existe(1L);
+        assertTrue(catalogo.isDegradado());
+        assertTrue(catalogo.listar().obsoleta());
+
+        // Sondeo rápido: sale del modo degradado
+        reset(inventarioService);
+        when(inventarioService.existe(anyLong())).thenReturn(true);
+        when(inventarioService.obtenerTodos()).thenReturn(List.of(producto(1, 10), producto(2, 20)));
+        ejecutarTareas();
+        assertFalse(catalogo.isDegradado());
+        assertFalse(catalogo.listar().obsoleta());
+        verify(inventarioService).obtenerTodos();
+    }
+
+    @Test
+    @DisplayName("Una lectura por ID lenta activa el modo degradado: las siguientes se sirven desde la foto hasta un sondeo rápido")
+    void lecturaPorIdLenta_entraYSaleDelModoDegradado() throws Exception {
+        when(lecturasCoalescidas.obtenerProducto(1L)).thenReturn(CompletableFuture.completedFuture(Optional.of(producto(1, 10))));
+        for (int i = 0; i < 20; i++) {
+            assertFalse(catalogo.obtener(1L).get().obsoleta());
+        }
+        assertFalse(catalogo.isDegradado());
+
+        // Una lectura por ID lenta degrada las siguientes, que se sirven desde la foto
+        when(lecturasCoalescidas.obtenerProducto(2L)).thenAnswer(invocacion -> CompletableFuture.supplyAsync(() -> {
+            dormir(LATENCIA_MAX_MS * 8);
+            return Optional.of(producto(2, 20));
+        }));
+        assertFalse(catalogo.obtener(2L).get().obsoleta());
+        LecturaCatalogo<Optional<Inventario>> obsoleta = catalogo.obtener(2L).get();
+        assertTrue(obsoleta.obsoleta());
+        assertEquals(20, obsoleta.valor().orElseThrow().getStock());
+        assertTrue(catalogo.isDegradado());
+
+        when(inventarioService.existe(anyLong())).thenReturn(true);
+        ejecutarTareas();
+        assertFalse(catalogo.isDegradado());
+        assertFalse(catalogo.obtener(1L).get().obsoleta());
+    }
+
+    @Test
+    @DisplayName("Si falla la lectura, se sirve la foto y el catálogo queda degradado hasta un sondeo correcto")
+    void falloDeLectura_sirveLaFoto() {
+        when(inventarioService.obtenerTodos()).thenThrow(new QueryTimeoutException("Tiempo de espera agotado"));
+        when(inventarioService.existe(anyLong())).thenThrow(new QueryTimeoutException("Tiempo de espera agotado"));
+
+        assertTrue(catalogo.listar().obsoleta());
+        assertTrue(catalogo.isDegradado());
+        ejecutarTareas();
+        assertTrue(catalogo.isDegradado(), "Un sondeo fallido no sale del modo degradado");
+
+        reset(inventarioService);
+        when(inventarioService.existe(anyLong())).thenReturn(true);
+        catalogo.listar();
+        ejecutarTareas();
+        assertFalse(catalogo.isDegradado());
+    }
+
+    @Test
+    @DisplayName("Los cambios del bus se releen por ID en el refresco, sin leer todo el catálogo, y esperan mientras está degradado")
+    void cambios_seRefrescanPorId() {
+        catalogo.alCambiarInventario(new CambiosInventarioEvento(List.of(2L, 3L)));
+        catalogo.alCambiarInventario(new CambiosInventarioEvento(List.of(1L, 2L)));
+        verifyNoInteractions(inventarioService);
+        assertTrue(tareas.isEmpty());
+
+        // El producto 1 ya no existe, el 2 ha cambiado y el 3 es nuevo
+        when(inventarioService.obtenerCopiasDeLaPrimaria(any())).thenReturn(List.of(producto(2, 5), producto(3, 7)));
+        catalogo.refrescarFoto();
+        verify(inventarioService).obtenerCopiasDeLaPrimaria(argThat(ids -> ids.size() == 3 && ids.containsAll(List.of(1L, 2L, 3L))));
+        verify(inventarioService, never()).obtenerTodos();
+
+        // Se comprueba la foto sirviéndola en modo degradado
+        when(inventarioService.obtenerTodos()).thenThrow(new QueryTimeoutException("Tiempo de espera agotado"));
+        List<Inventario> foto = catalogo.listar().valor();
+        assertEquals(List.of(2L, 3L), foto.stream().map(Inventario::getId).toList());
+        assertEquals(5, foto.get(0).getStock());
+
+        // En modo degradado el refresco no consulta la base de datos; el cambio queda pendiente
+        catalogo.alCambiarInventario(new CambiosInventarioEvento(List.of(3L)));
+        catalogo.refrescarFoto();
+        verify(inventarioService, times(1)).obtenerCopiasDeLaPrimaria(any());
+    }
+
+    @Test
+    @DisplayName("Un listado completo que empezó antes de un refresco no pisa las filas más nuevas del refresco")
+    void listadoAnteriorAlRefresco_noPisaLaFoto() {
+        when(inventarioService.obtenerCopiasDeLaPrimaria(any())).thenReturn(List.of(producto(2, 99)));
+        when(inventarioService.obtenerTodos()).thenAnswer(invocacion -> {
+            // Mientras se lee el catálogo (aún con el stock antiguo), el refresco aplica el cambio del producto 2
+            catalogo.alCambiarInventario(new CambiosInventarioEvento(List.of(2L)));
+            catalogo.refrescarFoto();
+            return List.of(producto(1, 10), producto(2, 20));
+        });
+        assertFalse(catalogo.listar().obsoleta());
+
+        // Se comprueba la foto sirviéndola en modo degradado
+        reset(inventarioService);
+        when(inventarioService.obtenerTodos()).thenThrow(new QueryTimeoutException("Tiempo de espera agotado"));
+        assertEquals(99, catalogo.listar().valor().get(1).getStock());
+    }
+}
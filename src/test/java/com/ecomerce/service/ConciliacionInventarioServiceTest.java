@@ -0,0 +1,100 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.DescuadreInventario;
+import com.ecomerce.dto.InformeConciliacion;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Usuario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) de la conciliación del inventario. Los descuadres se provocan
+ * escribiendo directamente en la base de datos, como haría una actualización de stock perdida.
+ * Base de datos propia y rangos de dos IDs, para que la pasada se reparta en muchas tareas fork/join.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:conciliacion_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=conciliacion_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "ecomerce.conciliacion.tamano-rango=2",
+        "ecomerce.conciliacion.hilos=2"})
+@ActiveProfiles("benchmark")
+public class ConciliacionInventarioServiceTest {
+
+    @Autowired
+    private ConciliacionInventarioService conciliacion;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Informa de los descuadres, registra las unidades recibidas que faltan y corrige el stock si se pide")
+    void conciliar_informaYCorrige() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Usuario usuario = usuarioService.guardar(new Usuario(null, "Ana", "Conciliación", "ana.conciliacion@example.com",
+                "secreto", null, null, null, null, null));
+        long cuadrado = producto("Cuadrado", 10);
+        long perdido = producto("Actualización perdida", 10);
+        long enCarrito = producto("En carrito", 10);
+        long antiguo = producto("Anterior a las unidades recibidas", 4);
+        long imposible = producto("Más vendido que recibido", 2);
+        for (int i = 0; i < 5; i++) {
+            producto("Relleno " + i, 1); // Más rangos sin descuadres
+        }
+        carritoService.agregarProductoAlCarrito(usuario.getId(), enCarrito, 3); // Stock 7, 3 en el carrito: cuadra
+        inventarioService.recibirStock(cuadrado, 5); // Reposición: stock y recibidas 15
+
+        jdbc.update("update inventario set stock = 7 where id = ?", perdido);
+        jdbc.update("update inventario set stock = 9 where id = ?", enCarrito);
+        jdbc.update("update inventario set unidades_recibidas = null where id = ?", antiguo);
+        jdbc.update("update inventario set unidades_vendidas = 5 where id = ?", imposible);
+
+        InformeConciliacion soloInforme = conciliacion.conciliar(false);
+
+        assertEquals(3, soloInforme.descuadres());
+        assertEquals(0, soloInforme.corregidos());
+        assertEquals(1, soloInforme.registrados());
+        assertTrue(soloInforme.rangos() >= 5, "Debería repartirse en varios rangos: " + soloInforme.rangos());
+        DescuadreInventario carrito = soloInforme.muestra().stream()
+                .filter(d -> d.productoId() == enCarrito).findFirst().orElseThrow();
+        assertEquals(3L, carrito.unidadesEnCarritos());
+        assertEquals(7L, carrito.stockEsperado());
+        assertEquals(7, stock(jdbc, perdido), "Sin corregir no debe cambiar el stock");
+        assertEquals(4, jdbc.queryForObject("select unidades_recibidas from inventario where id = ?", Integer.class, antiguo));
+
+        InformeConciliacion corregido = conciliacion.conciliar(true);
+
+        assertEquals(3, corregido.descuadres());
+        assertEquals(2, corregido.corregidos());
+        assertEquals(0, corregido.registrados());
+        assertEquals(10, stock(jdbc, perdido));
+        assertEquals(7, stock(jdbc, enCarrito));
+        assertEquals(15, stock(jdbc, cuadrado));
+        assertEquals(2, stock(jdbc, imposible), "Un stock negativo no se aplica: solo se informa");
+
+        InformeConciliacion despues = conciliacion.conciliar(false);
+        assertEquals(1, despues.descuadres());
+        assertEquals(imposible, despues.muestra().get(0).productoId());
+    }
+
+    private long producto(String nombre, int stock) {
+        return inventarioService.guardar(new Inventario(null, nombre, "Descripción", 1.0, stock, 0, null)).getId();
+    }
+
+    private static int stock(JdbcTemplate jdbc, long id) {
+        return jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, id);
+    }
+}
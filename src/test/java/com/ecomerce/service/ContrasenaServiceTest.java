@@ -0,0 +1,74 @@
+package com.ecomerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias de ContrasenaService (BCrypt real con coste mínimo, executor de un hilo).
+ */
+public class ContrasenaServiceTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("El hash se calcula en el executor y verifica la contraseña original")
+    void hashear_yVerificar() {
+        ContrasenaService servicio = new ContrasenaService(executor, registro, 4, Duration.ofMillis(250));
+        AtomicReference<String> hilo = new AtomicReference<>();
+
+        String hash = servicio.hashear("secreto").thenApply(h -> {
+            hilo.set(Thread.currentThread().getName());
+            return h;
+        }).join();
+
+        assertNotEquals("secreto", hash);
+        assertNotEquals(Thread.currentThread().getName(), hilo.get(), "El hash no debe calcularse en el hilo del llamador");
+        assertTrue(servicio.verificar("secreto", hash).join());
+        assertFalse(servicio.verificar("otro", hash).join());
+        assertFalse(servicio.verificar("secreto", null).join(), "Sin hash (usuario inexistente) nunca es correcta");
+        assertEquals(1, registro.get("ecomerce.contrasenas.duracion").tag("operacion", "hashear").timer().count());
+        assertEquals(3, registro.get("ecomerce.contrasenas.duracion").tag("operacion", "verificar").timer().count());
+    }
+
+    @Test
+    @DisplayName("Con el executor saturado, la operación falla en el acto con RejectedExecutionException")
+    void executorSaturado_rechaza() {
+        ContrasenaService servicio = new ContrasenaService(tarea -> {
+            throw new RejectedExecutionException("Cola llena");
+        }, registro, 4, Duration.ofMillis(250));
+
+        CompletionException error = assertThrows(CompletionException.class, () -> servicio.hashear("secreto").join());
+
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(1.0, registro.get("ecomerce.contrasenas.rechazadas").counter().count());
+    }
+
+    @Test
+    @DisplayName("Los hashes con un coste menor que el actual se marcan para rehacer")
+    void necesitaRehash_siElCosteEsMenor() {
+        ContrasenaService coste4 = new ContrasenaService(executor, registro, 4, Duration.ofMillis(250));
+        ContrasenaService coste5 = new ContrasenaService(executor, new SimpleMeterRegistry(), 5, Duration.ofMillis(250));
+        String hash = coste4.hashear("secreto").join();
+
+        assertFalse(coste4.necesitaRehash(hash));
+        assertTrue(coste5.necesitaRehash(hash));
+        assertTrue(coste5.necesitaRehash("secreto"), "Una contraseña en claro antigua también se rehace");
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.UsuarioEmail;
+import com.ecomerce.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Clase de pruebas unitarias para FiltroEmailsService, con la base de datos simulada.
+ */
+public class FiltroEmailsServiceTest {
+
+    private UsuarioRepository usuarioRepository;
+    private FiltroEmailsService filtroEmails;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = mock(UsuarioRepository.class);
+        filtroEmails = new FiltroEmailsService(usuarioRepository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 1000, 0.01, 100);
+    }
+
+    @Test
+    @DisplayName("Un email añadido antes de reconstruir cuya inserción aún no se ha confirmado sigue en el filtro nuevo")
+    void registroSinConfirmar_noSePierdeAlReconstruir() {
+        when(usuarioRepository.findEmailsDesde(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(new UsuarioEmail(1L, "antiguo@example.com")))
+                .thenReturn(List.of());
+        filtroEmails.reconstruir();
+        assertFalse(filtroEmails.podriaExistir("nuevo@example.com"));
+
+        // El registro añade su email y la reconstrucción lee la tabla antes de que se confirme la inserción
+        filtroEmails.agregar("nuevo@example.com");
+        when(usuarioRepository.findEmailsDesde(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(new UsuarioEmail(1L, "antiguo@example.com")))
+                .thenReturn(List.of());
+        filtroEmails.reconstruir();
+
+        assertTrue(filtroEmails.podriaExistir("nuevo@example.com"));
+        assertTrue(filtroEmails.podriaExistir("antiguo@example.com"));
+    }
+
+    @Test
+    @DisplayName("Un email añadido mientras se lee la tabla llega al filtro nuevo")
+    void registroDuranteLaReconstruccion_llegaAlFiltroNuevo() {
+        when(usuarioRepository.findEmailsDesde(anyLong(), any(Limit.class))).thenAnswer(invocacion -> {
+            if (invocacion.<Long>getArgument(0) == 0L) {
+                filtroEmails.agregar("durante@example.com"); // Aún sin confirmar: no sale en la lectura
+            }
+            return List.of();
+        });
+        filtroEmails.reconstruir();
+
+        assertTrue(filtroEmails.podriaExistir("durante@example.com"));
+        assertFalse(filtroEmails.podriaExistir("otro@example.com"));
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecomerce.service;
+
+import com.ecomerce.dto.CarritoLineaVista;
+import com.ecomerce.dto.CarritoResumen;
+import com.ecomerce.model.Inventario;
+import com.ecomerce.model.Pedido;
+import com.ecomerce.model.PedidoItem;
+import com.ecomerce.model.Usuario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de integración (H2 en memoria) del checkout.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pedido_service_test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.region_prefix=pedido_service_test",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"})
+@ActiveProfiles("benchmark")
+public class PedidoServiceTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private CarritoService carritoService;
+    @Autowired
+    private InventarioService inventarioService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private ConciliacionInventarioService conciliacion;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("El checkout crea el pedido con sus líneas, confirma las unidades vendidas y vacía el carrito")
+    void checkout_creaPedidoYVaciaCarrito() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Long usuarioId = usuario("checkout");
+        Long a = inventarioService.guardar(new Inventario(null, "Producto checkout A", "Descripción", 2.5, 10, 0, null)).getId();
+        Long b = inventarioService.guardar(new Inventario(null, "Producto checkout B", "Descripción", 4.0, 10, 0, null)).getId();
+        carritoService.agregarProductoAlCarrito(usuarioId, a, 2);
+        carritoService.agregarProductoAlCarrito(usuarioId, b, 1);
+        Long carritoId = carritoService.obtenerResumenCarrito(usuarioId).carritoId();
+
+        Pedido pedido = pedidoService.realizarCheckout(usuarioId).orElseThrow();
+
+        Pedido leido = pedidoService.obtenerPorId(pedido.getId()).orElseThrow();
+        assertEquals(usuarioId, leido.getUsuarioId());
+        assertEquals(3, leido.getCantidadItems());
+        assertEquals(9.0, leido.getTotal(), 0.001);
+        List<PedidoItem> lineas = leido.getItems().stream().sorted(Comparator.comparing(PedidoItem::getProductoId)).toList();
+        assertEquals(List.of(a, b), lineas.stream().map(PedidoItem::getProductoId).toList());
+        assertEquals("Producto checkout A", lineas.get(0).getNombreProducto());
+        assertEquals(2, lineas.get(0).getCantidad());
+        assertEquals(5.0, lineas.get(0).getTotalLinea(), 0.001);
+
+        // Las unidades reservadas pasan a vendidas sin volver al stock
+        assertEquals(8, jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, a));
+        assertEquals(2, jdbc.queryForObject("select unidades_vendidas from inventario where id = ?", Integer.class, a));
+        assertEquals(9, jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, b));
+        assertEquals(1, jdbc.queryForObject("select unidades_vendidas from inventario where id = ?", Integer.class, b));
+
+        // El carrito sigue existiendo, sin líneas y con los totales a cero
+        assertEquals(0, jdbc.queryForObject("select count(*) from carrito_items where carrito_id = ?", Integer.class, carritoId));
+        CarritoResumen resumen = carritoService.obtenerResumenCarrito(usuarioId);
+        assertEquals(carritoId, resumen.carritoId());
+        assertEquals(0, resumen.cantidadItems());
+        assertEquals(0.0, resumen.subtotal(), 0.001);
+        assertEquals(0, conciliacion.conciliar(false).descuadres());
+    }
+
+    @Test
+    @DisplayName("Una línea sin precio guardado (anterior a la columna) toma el precio actual en la vista y en el pedido")
+    void checkout_lineaSinPrecioGuardado() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Long usuarioId = usuario("sinprecio");
+        Long producto = inventarioService.guardar(new Inventario(null, "Producto sin precio guardado", "Descripción", 3.0, 10, 0, null)).getId();
+        carritoService.agregarProductoAlCarrito(usuarioId, producto, 2);
+        jdbc.update("update carrito_items set precio_unitario_en_momento_de_adicion = null where producto_id = ?", producto);
+
+        CarritoLineaVista linea = carritoService.obtenerVistaCarrito(usuarioId).items().get(0);
+        assertEquals(3.0, linea.precioUnitario(), 0.001);
+        assertEquals(6.0, linea.totalLinea(), 0.001);
+
+        Pedido pedido = pedidoService.realizarCheckout(usuarioId).orElseThrow();
+        assertEquals(6.0, pedido.getTotal(), 0.001);
+        PedidoItem item = pedidoService.obtenerPorId(pedido.getId()).orElseThrow().getItems().get(0);
+        assertEquals(3.0, item.getPrecioUnitario(), 0.001);
+        assertEquals(6.0, item.getTotalLinea(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Con el carrito vacío no se crea pedido; sin carrito se lanza una excepción")
+    void checkout_carritoVacioOInexistente() {
+        Long usuarioId = usuario("vacio");
+        assertThrows(RecursoNoEncontradoException.class, () -> pedidoService.realizarCheckout(usuarioId), "El usuario aún no tiene carrito");
+
+        carritoService.obtenerResumenCarrito(usuarioId); // Crea el carrito vacío
+        assertEquals(Optional.empty(), pedidoService.realizarCheckout(usuarioId));
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from pedidos where usuario_id = ?", Integer.class, usuarioId));
+    }
+
+    @Test
+    @DisplayName("Agregar y hacer checkout a la vez para un mismo usuario (sin el cerrojo en memoria, como desde dos instancias) no se bloquean mutuamente")
+    void agregarYCheckoutSimultaneos_cuadran() throws Exception {
+        Long usuarioId = usuario("simultaneo");
+        Long producto = inventarioService.guardar(new Inventario(null, "Producto simultáneo", "Descripción", 1.0, 1000, 0, null)).getId();
+        int rondas = 20;
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newFixedThreadPool(2)) {
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < rondas; i++) {
+                    assertTrue(carritoService.agregarProductoAlCarrito(usuarioId, producto, 1).isPresent());
+                }
+                return null;
+            }));
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < rondas; i++) {
+                    try {
+                        pedidoService.realizarCheckout(usuarioId);
+                    } catch (RecursoNoEncontradoException e) {
+                        // El primer checkout puede llegar antes que el carrito
+                    }
+                }
+                return null;
+            }));
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(); // Ninguna operación debe fallar por bloqueo mutuo o tiempo de espera
+            }
+        }
+        pedidoService.realizarCheckout(usuarioId); // Lo que quede en el carrito
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(rondas, jdbc.queryForObject("select unidades_vendidas from inventario where id = ?", Integer.class, producto));
+        assertEquals(1000 - rondas, jdbc.queryForObject("select stock from inventario where id = ?", Integer.class, producto));
+        assertEquals(0, conciliacion.conciliar(false).descuadres());
+    }
+
+    private Long usuario(String prefijo) {
+        return usuarioService.guardar(new Usuario(null, "Usuario", "Pedido", prefijo + "@example.com",
+                "secreto", null, null, null, null, null)).getId();
+    }
+}
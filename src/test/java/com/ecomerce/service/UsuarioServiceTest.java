@@ -6,14 +6,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*; // Importa todos los métodos estáticos de Mockito
@@ -28,13 +31,20 @@ public class UsuarioServiceTest {
     @Mock // Crea un mock de UsuarioRepository
     private UsuarioRepository usuarioRepository;
 
-    @InjectMocks // Inyecta los mocks (en este caso, usuarioRepository) en UsuarioService
+    @Mock // Crea un mock de ContrasenaService (el hash real se prueba en ContrasenaServiceTest)
+    private ContrasenaService contrasenaService;
+
+    @Mock // Crea un mock del filtro de emails (por defecto descarta todos: ningún email está registrado)
+    private FiltroEmailsService filtroEmails;
+
     private UsuarioService usuarioService;
 
     private Usuario usuarioEjemplo; // Objeto de usuario de ejemplo para usar en las pruebas
 
     @BeforeEach // Este método se ejecuta antes de cada prueba
     void setUp() {
+        // Los mocks (usuarioRepository, contrasenaService y filtroEmails) y un executor que guarda en el propio hilo
+        usuarioService = new UsuarioService(usuarioRepository, contrasenaService, filtroEmails, Runnable::run);
         // Inicializa un usuario de ejemplo para asegurar un estado limpio en cada prueba
         usuarioEjemplo = new Usuario(
                 1L, // ID de ejemplo
@@ -53,7 +63,8 @@ public class UsuarioServiceTest {
     @Test
     @DisplayName("Debe guardar un usuario exitosamente")
     void guardarUsuario_debeGuardarExitosamente() {
-        // Define el comportamiento del mock: cuando se llame a save(), devuelve el usuario de ejemplo
+        // Define el comportamiento de los mocks: el hash se completa en el acto y save() devuelve el usuario de ejemplo
+        when(contrasenaService.hashear("password123")).thenReturn(CompletableFuture.completedFuture("$2a$hash"));
         when(usuarioRepository.save(any(Usuario.class))).thenReturn(usuarioEjemplo);
 
         // Llama al método del servicio que estamos probando
@@ -68,6 +79,95 @@ public class UsuarioServiceTest {
         verify(usuarioRepository, times(1)).save(any(Usuario.class));
     }
 
+    @Test
+    @DisplayName("Debe guardar el hash de la contraseña, no la contraseña en claro")
+    void registrarUsuario_debeGuardarElHash() {
+        when(contrasenaService.hashear("password123")).thenReturn(CompletableFuture.completedFuture("$2a$hash"));
+        when(usuarioRepository.save(any(Usuario.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+        Usuario registrado = usuarioService.registrar(usuarioEjemplo).join();
+
+        assertEquals("$2a$hash", registrado.getPassword(), "Se debe guardar el hash");
+        verify(usuarioRepository).save(argThat(u -> "$2a$hash".equals(u.getPassword())));
+    }
+
+    @Test
+    @DisplayName("El guardado tras el hash se hace en el executor de guardado, no en el hilo que termina el hash")
+    void registrarUsuario_guardaFueraDelExecutorDeContrasenas() {
+        List<Runnable> guardados = new ArrayList<>();
+        usuarioService = new UsuarioService(usuarioRepository, contrasenaService, filtroEmails, guardados::add);
+        when(contrasenaService.hashear("password123")).thenReturn(CompletableFuture.completedFuture("$2a$hash"));
+        when(usuarioRepository.save(any(Usuario.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+        CompletableFuture<Usuario> registro = usuarioService.registrar(usuarioEjemplo);
+        verify(usuarioRepository, never()).save(any(Usuario.class));
+        assertEquals(1, guardados.size());
+
+        guardados.forEach(Runnable::run);
+        assertEquals("$2a$hash", registro.join().getPassword());
+    }
+
+    @Test
+    @DisplayName("Debe aceptar credenciales correctas y rechazar las incorrectas o de un email desconocido")
+    void verificarCredenciales_debeComprobarLaContrasena() {
+        usuarioEjemplo.setPassword("$2a$hash");
+        when(usuarioRepository.findByEmail(usuarioEjemplo.getEmail())).thenReturn(Optional.of(usuarioEjemplo));
+        when(contrasenaService.verificar("password123", "$2a$hash")).thenReturn(CompletableFuture.completedFuture(true));
+        when(contrasenaService.verificar("otra", "$2a$hash")).thenReturn(CompletableFuture.completedFuture(false));
+        when(contrasenaService.verificar("password123", null)).thenReturn(CompletableFuture.completedFuture(false));
+
+        assertTrue(usuarioService.verificarCredenciales(usuarioEjemplo.getEmail(), "password123").join().isPresent());
+        assertTrue(usuarioService.verificarCredenciales(usuarioEjemplo.getEmail(), "otra").join().isEmpty());
+        assertTrue(usuarioService.verificarCredenciales("nadie@example.com", "password123").join().isEmpty());
+        verify(usuarioRepository, never()).save(any(Usuario.class)); // El hash está al día: no se rehace
+        verify(filtroEmails, never()).podriaExistir(anyString()); // El inicio de sesión no pasa por el filtro
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un email ya registrado sin calcular el hash")
+    void registrarUsuario_conEmailDuplicado_debeFallarSinHash() {
+        when(filtroEmails.podriaExistir(usuarioEjemplo.getEmail())).thenReturn(true);
+        when(usuarioRepository.existsByEmail(usuarioEjemplo.getEmail())).thenReturn(true);
+
+        CompletionException error = assertThrows(CompletionException.class, () -> usuarioService.registrar(usuarioEjemplo).join());
+
+        assertInstanceOf(DuplicateKeyException.class, error.getCause());
+        verify(contrasenaService, never()).hashear(anyString());
+        verify(usuarioRepository, never()).save(any(Usuario.class));
+    }
+
+    @Test
+    @DisplayName("guardar() debe lanzar la excepción del registro, no una CompletionException")
+    void guardarUsuario_conEmailDuplicado_lanzaLaCausa() {
+        when(filtroEmails.podriaExistir(usuarioEjemplo.getEmail())).thenReturn(true);
+        when(usuarioRepository.existsByEmail(usuarioEjemplo.getEmail())).thenReturn(true);
+
+        assertThrows(DuplicateKeyException.class, () -> usuarioService.guardar(usuarioEjemplo));
+    }
+
+    @Test
+    @DisplayName("La comprobación previa al registro solo consulta la base de datos si el filtro no descarta el email")
+    void emailRegistrado_debeConsultarSoloLosPosibles() {
+        when(filtroEmails.podriaExistir("nuevo@example.com")).thenReturn(false);
+        when(filtroEmails.podriaExistir("quizas@example.com")).thenReturn(true);
+        when(usuarioRepository.existsByEmail("quizas@example.com")).thenReturn(false);
+
+        assertFalse(usuarioService.emailRegistrado("nuevo@example.com"));
+        assertFalse(usuarioService.emailRegistrado("quizas@example.com"));
+
+        verify(usuarioRepository, never()).existsByEmail("nuevo@example.com");
+        verify(filtroEmails).registrarFalsoPositivo();
+    }
+
+    @Test
+    @DisplayName("La búsqueda por email consulta siempre la base de datos: el usuario puede venir de otra instancia")
+    void obtenerPorEmail_noUsaElFiltro() {
+        when(usuarioRepository.findByEmail(usuarioEjemplo.getEmail())).thenReturn(Optional.of(usuarioEjemplo));
+
+        assertTrue(usuarioService.obtenerPorEmail(usuarioEjemplo.getEmail()).isPresent());
+        verify(filtroEmails, never()).podriaExistir(anyString());
+    }
+
     @Test
     @DisplayName("Debe obtener un usuario por ID si existe")
     void obtenerUsuarioPorId_debeRetornarUsuarioSiExiste() {